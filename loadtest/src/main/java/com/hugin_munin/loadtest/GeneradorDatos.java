@@ -0,0 +1,459 @@
+package com.hugin_munin.loadtest;
+
+import com.hugin_munin.config.DatabaseConfig;
+import com.hugin_munin.config.MigrationRunner;
+import com.hugin_munin.repository.UbicacionActualRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generador de datos sintéticos para pruebas de carga
+ * Usa la misma base configurada en .env (DB_HOST, DB_SCHEMA, ...) y aplica antes las migraciones.
+ * Volúmenes configurables (valores por defecto):
+ * - LOAD_ESPECIES (3000), LOAD_ESPECIMENES (200000), LOAD_REPORTES (2000000)
+ * - LOAD_PORCENTAJE_TRASLADOS (40) de los reportes y LOAD_PORCENTAJE_BAJAS (10) de los especímenes
+ * - LOAD_USUARIOS (20) usuarios carga01..cargaNN con contraseña LOAD_PASSWORD
+ * - LOAD_DIAS_HISTORIA (1825), LOAD_LOTE (5000) filas por commit, LOAD_SEMILLA (42)
+ * Las áreas de traslado, las especies y los especímenes reportados siguen una distribución Zipf
+ * para reproducir los puntos calientes de producción. Al final reconstruye ubicacion_actual.
+ * Asigna ids explícitos a partir del máximo actual: ejecutar sin la aplicación escribiendo en paralelo.
+ */
+public class GeneradorDatos {
+
+    static final String[] GENEROS = {
+            "Panthera", "Ara", "Crocodylus", "Ateles", "Tapirus", "Amazona", "Boa", "Leopardus",
+            "Ramphastos", "Chelonoidis", "Alouatta", "Puma", "Python", "Aquila", "Bubo", "Lontra",
+            "Nasua", "Procyon", "Iguana", "Ctenosaura", "Odocoileus", "Tayassu", "Harpia", "Sarcoramphus",
+            "Canis", "Ursus", "Pecari", "Dasyprocta", "Choloepus", "Myrmecophaga"
+    };
+
+    static final String[] EPITETOS = {
+            "onca", "macao", "acutus", "geoffroyi", "bairdii", "oratrix", "imperator", "pardalis",
+            "sulfuratus", "carbonarius", "palliata", "concolor", "molurus", "chrysaetos", "virginianus",
+            "longicaudis", "narica", "lotor", "iguana", "similis", "hemionus", "pecari", "harpyja",
+            "papa", "lupus", "americanus", "tajacu", "punctata", "hoffmanni", "tridactyla"
+    };
+
+    static final String[] AREAS = {
+            "Felinos", "Aviario", "Herpetario", "Primates", "Clínica veterinaria", "Cuarentena",
+            "Reptiles mayores", "Acuario", "Ungulados", "Aves rapaces", "Nocturnario", "Granja",
+            "Exhibición norte", "Exhibición sur", "Rehabilitación", "Maternidad", "Mariposario",
+            "Humedal", "Bosque tropical", "Sabana", "Almacén de alimentos", "Recepción", "Aislamiento",
+            "Necropsia", "Educación ambiental", "Bioterio", "Laboratorio", "Pastizal", "Islas", "Cañada"
+    };
+
+    private static final String[] ORIGENES = {"Nacimiento en cautiverio", "Rescate", "Donación", "Intercambio", "Decomiso"};
+    private static final String[] CAUSAS_BAJA = {"Fallecimiento", "Traslado externo", "Liberación", "Eutanasia"};
+    private static final String[] TIPOS_REPORTE = {"Traslado", "Clínico", "Conductual", "Alimentación", "Mantenimiento"};
+
+    private static final long MS_DIA = 24L * 60 * 60 * 1000;
+
+    private final Random random;
+    private final int lote;
+    private final int diasHistoria;
+    private final long hoyMs = System.currentTimeMillis();
+
+    public GeneradorDatos(long semilla, int lote, int diasHistoria) {
+        this.random = new Random(semilla);
+        this.lote = Math.max(1, lote);
+        this.diasHistoria = Math.max(1, diasHistoria);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int especies = DatabaseConfig.getIntSetting("LOAD_ESPECIES", 3000);
+        int especimenes = DatabaseConfig.getIntSetting("LOAD_ESPECIMENES", 200000);
+        int reportes = DatabaseConfig.getIntSetting("LOAD_REPORTES", 2000000);
+        int porcTraslados = DatabaseConfig.getIntSetting("LOAD_PORCENTAJE_TRASLADOS", 40);
+        int porcBajas = DatabaseConfig.getIntSetting("LOAD_PORCENTAJE_BAJAS", 10);
+        int usuarios = DatabaseConfig.getIntSetting("LOAD_USUARIOS", 20);
+        String password = DatabaseConfig.getSetting("LOAD_PASSWORD", "carga123");
+
+        GeneradorDatos generador = new GeneradorDatos(
+                DatabaseConfig.getIntSetting("LOAD_SEMILLA", 42),
+                DatabaseConfig.getIntSetting("LOAD_LOTE", 5000),
+                DatabaseConfig.getIntSetting("LOAD_DIAS_HISTORIA", 1825)
+        );
+
+        MigrationRunner.migrate();
+
+        long inicio = System.currentTimeMillis();
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                generador.generar(conn, especies, especimenes, reportes, porcTraslados, porcBajas, usuarios, password);
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } finally {
+            DatabaseConfig.close();
+        }
+
+        System.out.println("🏁 Datos sintéticos generados en " + (System.currentTimeMillis() - inicio) / 1000 + " s");
+    }
+
+    /**
+     * GENERAR el volumen completo: catálogos, usuarios, especies, especímenes con alta (y baja) y reportes
+     */
+    public void generar(Connection conn, int especies, int especimenes, int reportes,
+                        int porcTraslados, int porcBajas, int usuarios, String password) throws SQLException {
+        int idRol = asegurarRol(conn, "Carga");
+        List<Integer> origenes = asegurarCatalogo(conn, "origen_alta", "id_origen_alta", "nombre_origen_alta", ORIGENES);
+        List<Integer> causas = asegurarCatalogo(conn, "causa_baja", "id_causa_baja", "nombre_causa_baja", CAUSAS_BAJA);
+        List<Integer> tipos = asegurarCatalogo(conn, "tipo_reporte", "id_tipo_reporte", "nombre_tipo_reporte", TIPOS_REPORTE);
+        List<Integer> responsables = asegurarUsuarios(conn, idRol, usuarios, password);
+        int idTraslado = buscarTipoTraslado(conn, tipos);
+
+        int primeraEspecie = generarEspecies(conn, especies);
+        int primerEspecimen = generarEspecimenes(conn, especimenes, primeraEspecie, especies,
+                origenes, causas, responsables, porcBajas);
+        generarReportes(conn, reportes, primerEspecimen, especimenes, tipos, idTraslado, responsables, porcTraslados);
+        reconstruirUbicaciones(conn, primerEspecimen, especimenes);
+    }
+
+    // CATÁLOGOS Y USUARIOS
+
+    private int asegurarRol(Connection conn, String nombre) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("INSERT IGNORE INTO rol (nombre_rol) VALUES (?)")) {
+            stmt.setString(1, nombre);
+            stmt.executeUpdate();
+        }
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT id_rol FROM rol WHERE nombre_rol = ?")) {
+            stmt.setString(1, nombre);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                int id = rs.getInt(1);
+                conn.commit();
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Insertar los nombres indicados si el catálogo está vacío y devolver todos sus ids
+     */
+    private List<Integer> asegurarCatalogo(Connection conn, String tabla, String columnaId, String columnaNombre,
+                                           String[] nombres) throws SQLException {
+        if (contar(conn, tabla) == 0) {
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO " + tabla + " (" + columnaNombre + ") VALUES (?)")) {
+                for (String nombre : nombres) {
+                    stmt.setString(1, nombre);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+            conn.commit();
+        }
+
+        List<Integer> ids = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT " + columnaId + " FROM " + tabla + " ORDER BY " + columnaId);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        }
+        return ids;
+    }
+
+    private int buscarTipoTraslado(Connection conn, List<Integer> tipos) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT id_tipo_reporte FROM tipo_reporte WHERE LOWER(nombre_tipo_reporte) LIKE '%traslado%' LIMIT 1");
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : tipos.get(0);
+        }
+    }
+
+    /**
+     * Crear (o restablecer la contraseña de) los usuarios carga01..cargaNN usados por la prueba de carga
+     */
+    private List<Integer> asegurarUsuarios(Connection conn, int idRol, int cantidad, String password) throws SQLException {
+        String sql = """
+                INSERT INTO usuario (id_rol, nombre_usuario, correo, contrasena, activo)
+                VALUES (?, ?, ?, ?, TRUE)
+                ON DUPLICATE KEY UPDATE contrasena = VALUES(contrasena), activo = TRUE
+                """;
+        String hash = hashPassword(password);
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 1; i <= cantidad; i++) {
+                String nombre = nombreUsuario(i);
+                stmt.setInt(1, idRol);
+                stmt.setString(2, nombre);
+                stmt.setString(3, nombre + "@carga.local");
+                stmt.setString(4, hash);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        conn.commit();
+
+        List<Integer> ids = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT id_usuario FROM usuario WHERE correo LIKE '%@carga.local' ORDER BY id_usuario");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        }
+        System.out.println("👤 Usuarios de carga: " + ids.size() + " (contraseña LOAD_PASSWORD)");
+        return ids;
+    }
+
+    static String nombreUsuario(int indice) {
+        return String.format("carga%02d", indice);
+    }
+
+    // VOLUMEN PRINCIPAL
+
+    private int generarEspecies(Connection conn, int cantidad) throws SQLException {
+        int primerId = siguienteId(conn, "especie", "id_especie");
+        long inicio = System.currentTimeMillis();
+
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO especie (id_especie, genero, especie) VALUES (?, ?, ?)")) {
+            for (int i = 0; i < cantidad; i++) {
+                // Epíteto con sufijo para que cada par género-especie sea único
+                stmt.setInt(1, primerId + i);
+                stmt.setString(2, GENEROS[i % GENEROS.length]);
+                stmt.setString(3, EPITETOS[(i / GENEROS.length) % EPITETOS.length] + (i < GENEROS.length * EPITETOS.length ? "" : "-" + i));
+                stmt.addBatch();
+
+                if ((i + 1) % lote == 0) {
+                    confirmarLote(conn, stmt);
+                }
+            }
+            confirmarLote(conn, stmt);
+        }
+
+        reportarAvance("especie", cantidad, inicio);
+        return primerId;
+    }
+
+    /**
+     * Especímenes con su registro de alta; un porcentaje además con registro de baja (inactivos)
+     */
+    private int generarEspecimenes(Connection conn, int cantidad, int primeraEspecie, int especies,
+                                   List<Integer> origenes, List<Integer> causas, List<Integer> responsables,
+                                   int porcBajas) throws SQLException {
+        int primerId = siguienteId(conn, "especimen", "id_especimen");
+        Zipf distribucionEspecies = new Zipf(especies, 1.0);
+        long inicio = System.currentTimeMillis();
+
+        try (PreparedStatement especimen = conn.prepareStatement(
+                "INSERT INTO especimen (id_especimen, num_inventario, id_especie, nombre_especimen, activo) VALUES (?, ?, ?, ?, ?)");
+             PreparedStatement alta = conn.prepareStatement(
+                     "INSERT INTO registro_alta (id_especimen, id_origen_alta, id_responsable, fecha_ingreso, procedencia, observacion) VALUES (?, ?, ?, ?, ?, ?)");
+             PreparedStatement baja = conn.prepareStatement(
+                     "INSERT INTO registro_baja (id_especimen, id_causa_baja, id_responsable, fecha_baja, observacion) VALUES (?, ?, ?, ?, ?)")) {
+
+            for (int i = 0; i < cantidad; i++) {
+                int id = primerId + i;
+                boolean dadoDeBaja = random.nextInt(100) < porcBajas;
+                long ingreso = fechaAleatoria(diasHistoria);
+
+                especimen.setInt(1, id);
+                especimen.setString(2, "SIN-" + id);
+                especimen.setInt(3, primeraEspecie + distribucionEspecies.siguiente(random));
+                especimen.setString(4, "Ejemplar " + id);
+                especimen.setBoolean(5, !dadoDeBaja);
+                especimen.addBatch();
+
+                alta.setInt(1, id);
+                alta.setInt(2, elegir(origenes));
+                alta.setInt(3, elegir(responsables));
+                alta.setTimestamp(4, new Timestamp(ingreso));
+                alta.setString(5, AREAS[random.nextInt(AREAS.length)]);
+                alta.setString(6, "Alta sintética para pruebas de carga");
+                alta.addBatch();
+
+                if (dadoDeBaja) {
+                    baja.setInt(1, id);
+                    baja.setInt(2, elegir(causas));
+                    baja.setInt(3, elegir(responsables));
+                    baja.setTimestamp(4, new Timestamp(ingreso + (long) (random.nextDouble() * (hoyMs - ingreso))));
+                    baja.setString(5, "Baja sintética para pruebas de carga");
+                    baja.addBatch();
+                }
+
+                if ((i + 1) % lote == 0) {
+                    confirmarLote(conn, especimen, alta, baja);
+                    if ((i + 1) % (lote * 10) == 0) {
+                        reportarAvance("especimen", i + 1, inicio);
+                    }
+                }
+            }
+            confirmarLote(conn, especimen, alta, baja);
+        }
+
+        reportarAvance("especimen", cantidad, inicio);
+        return primerId;
+    }
+
+    /**
+     * Reportes sobre especímenes con sesgo Zipf; un porcentaje son traslados entre áreas con sesgo Zipf
+     */
+    private void generarReportes(Connection conn, int cantidad, int primerEspecimen, int especimenes,
+                                 List<Integer> tipos, int idTraslado, List<Integer> responsables,
+                                 int porcTraslados) throws SQLException {
+        if (especimenes == 0) {
+            return;
+        }
+
+        int primerId = siguienteId(conn, "reporte", "id_reporte");
+        Zipf distribucionEspecimenes = new Zipf(especimenes, 0.8);
+        Zipf distribucionAreas = new Zipf(AREAS.length, 1.2);
+        long inicio = System.currentTimeMillis();
+
+        try (PreparedStatement reporte = conn.prepareStatement(
+                "INSERT INTO reporte (id_reporte, id_tipo_reporte, id_especimen, id_responsable, asunto, contenido, fecha_reporte) VALUES (?, ?, ?, ?, ?, ?, ?)");
+             PreparedStatement traslado = conn.prepareStatement(
+                     "INSERT INTO reporte_traslado (id_reporte, area_origen, area_destino, ubicacion_origen, ubicacion_destino, motivo) VALUES (?, ?, ?, ?, ?, ?)")) {
+
+            for (int i = 0; i < cantidad; i++) {
+                int id = primerId + i;
+                boolean esTraslado = random.nextInt(100) < porcTraslados;
+
+                reporte.setInt(1, id);
+                reporte.setInt(2, esTraslado ? idTraslado : elegir(tipos));
+                reporte.setInt(3, primerEspecimen + distribucionEspecimenes.siguiente(random));
+                reporte.setInt(4, elegir(responsables));
+                reporte.setString(5, esTraslado ? "Traslado programado" : "Revisión de rutina");
+                reporte.setString(6, "Reporte sintético para pruebas de carga");
+                reporte.setDate(7, new java.sql.Date(fechaAleatoria(diasHistoria)));
+                reporte.addBatch();
+
+                if (esTraslado) {
+                    int origen = distribucionAreas.siguiente(random);
+                    int destino = distribucionAreas.siguiente(random);
+                    if (destino == origen) {
+                        destino = (destino + 1) % AREAS.length;
+                    }
+                    traslado.setInt(1, id);
+                    traslado.setString(2, AREAS[origen]);
+                    traslado.setString(3, AREAS[destino]);
+                    traslado.setString(4, AREAS[origen] + " - Recinto " + (1 + random.nextInt(8)));
+                    traslado.setString(5, AREAS[destino] + " - Recinto " + (1 + random.nextInt(8)));
+                    traslado.setString(6, "Traslado sintético para pruebas de carga");
+                    traslado.addBatch();
+                }
+
+                if ((i + 1) % lote == 0) {
+                    confirmarLote(conn, reporte, traslado);
+                    if ((i + 1) % (lote * 20) == 0) {
+                        reportarAvance("reporte", i + 1, inicio);
+                    }
+                }
+            }
+            confirmarLote(conn, reporte, traslado);
+        }
+
+        reportarAvance("reporte", cantidad, inicio);
+    }
+
+    /**
+     * Proyección ubicacion_actual de los especímenes generados: los traslados se insertan
+     * directamente y no pasan por el repositorio que la mantiene
+     */
+    private void reconstruirUbicaciones(Connection conn, int primerEspecimen, int especimenes) throws SQLException {
+        long inicio = System.currentTimeMillis();
+        List<Integer> bloque = new ArrayList<>(lote);
+
+        for (int i = 0; i < especimenes; i++) {
+            bloque.add(primerEspecimen + i);
+            if (bloque.size() == lote || i == especimenes - 1) {
+                UbicacionActualRepository.recalcular(conn, bloque);
+                conn.commit();
+                bloque.clear();
+            }
+        }
+
+        reportarAvance("ubicacion_actual", contar(conn, "ubicacion_actual"), inicio);
+    }
+
+    // MÉTODOS AUXILIARES
+
+    /**
+     * Ejecutar los lotes en orden de dependencia (padres primero) y confirmar
+     */
+    private void confirmarLote(Connection conn, PreparedStatement... sentencias) throws SQLException {
+        for (PreparedStatement stmt : sentencias) {
+            stmt.executeBatch();
+        }
+        conn.commit();
+    }
+
+    private int siguienteId(Connection conn, String tabla, String columnaId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT COALESCE(MAX(" + columnaId + "), 0) + 1 FROM " + tabla);
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private long contar(Connection conn, String tabla) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM " + tabla);
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private long fechaAleatoria(int dias) {
+        return hoyMs - (long) (random.nextDouble() * dias * MS_DIA);
+    }
+
+    private int elegir(List<Integer> ids) {
+        return ids.get(random.nextInt(ids.size()));
+    }
+
+    private void reportarAvance(String tabla, long filas, long inicioMs) {
+        long ms = Math.max(1, System.currentTimeMillis() - inicioMs);
+        System.out.println("📦 " + tabla + ": " + filas + " filas (" + (filas * 1000 / ms) + " filas/s)");
+    }
+
+    /**
+     * Mismo formato que AuthService ("sha256:" + hex) para que los usuarios de carga puedan iniciar sesión
+     */
+    private static String hashPassword(String password) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(password.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder("sha256:");
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (Exception e) {
+            throw new RuntimeException("Error al hashear contraseña", e);
+        }
+    }
+
+    /**
+     * Distribución Zipf sobre [0, n): el índice k tiene peso 1 / (k + 1)^s
+     */
+    static class Zipf {
+        private final double[] acumulada;
+
+        Zipf(int n, double exponente) {
+            acumulada = new double[Math.max(1, n)];
+            double total = 0;
+            for (int k = 0; k < acumulada.length; k++) {
+                total += 1.0 / Math.pow(k + 1, exponente);
+                acumulada[k] = total;
+            }
+            for (int k = 0; k < acumulada.length; k++) {
+                acumulada[k] /= total;
+            }
+        }
+
+        int siguiente(Random random) {
+            int indice = Arrays.binarySearch(acumulada, random.nextDouble());
+            return Math.min(indice >= 0 ? indice : -indice - 1, acumulada.length - 1);
+        }
+    }
+}
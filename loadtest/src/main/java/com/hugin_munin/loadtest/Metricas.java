@@ -0,0 +1,112 @@
+package com.hugin_munin.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro de latencias por operación para la prueba de carga
+ * Guarda cada muestra (microsegundos) para calcular percentiles exactos al final de la ejecución.
+ */
+public class Metricas {
+
+    private final Map<String, Serie> series = new ConcurrentHashMap<>();
+
+    /**
+     * REGISTRAR una petición completada
+     */
+    public void registrar(String operacion, long latenciaNanos, int status) {
+        series.computeIfAbsent(operacion, k -> new Serie()).agregar(latenciaNanos / 1000, status);
+    }
+
+    /**
+     * OBTENER el resumen por operación y el total para una ventana de medición en segundos
+     */
+    public Map<String, Object> resumen(double segundos) {
+        Map<String, Object> operaciones = new TreeMap<>();
+        Serie total = new Serie();
+
+        for (Map.Entry<String, Serie> entry : series.entrySet()) {
+            Serie serie = entry.getValue();
+            operaciones.put(entry.getKey(), serie.resumen(segundos));
+            total.combinar(serie);
+        }
+
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("total", total.resumen(segundos));
+        resultado.put("operaciones", operaciones);
+        return resultado;
+    }
+
+    /**
+     * Muestras de una operación; los hilos de la prueba escriben concurrentemente
+     */
+    private static class Serie {
+        private long[] muestras = new long[1024];
+        private int cantidad = 0;
+        private long errores = 0;
+        private final Map<Integer, Long> porStatus = new TreeMap<>();
+
+        synchronized void agregar(long micros, int status) {
+            if (cantidad == muestras.length) {
+                muestras = Arrays.copyOf(muestras, cantidad * 2);
+            }
+            muestras[cantidad++] = micros;
+            if (status < 200 || status >= 400) {
+                errores++;
+            }
+            porStatus.merge(status, 1L, Long::sum);
+        }
+
+        synchronized void combinar(Serie otra) {
+            synchronized (otra) {
+                for (int i = 0; i < otra.cantidad; i++) {
+                    if (cantidad == muestras.length) {
+                        muestras = Arrays.copyOf(muestras, Math.max(cantidad * 2, cantidad + otra.cantidad));
+                    }
+                    muestras[cantidad++] = otra.muestras[i];
+                }
+                errores += otra.errores;
+                otra.porStatus.forEach((status, n) -> porStatus.merge(status, n, Long::sum));
+            }
+        }
+
+        synchronized Map<String, Object> resumen(double segundos) {
+            long[] ordenadas = Arrays.copyOf(muestras, cantidad);
+            Arrays.sort(ordenadas);
+
+            long suma = 0;
+            for (long muestra : ordenadas) {
+                suma += muestra;
+            }
+
+            Map<String, Object> latencia = new LinkedHashMap<>();
+            latencia.put("p50", percentilMs(ordenadas, 50));
+            latencia.put("p95", percentilMs(ordenadas, 95));
+            latencia.put("p99", percentilMs(ordenadas, 99));
+            latencia.put("max", cantidad == 0 ? 0.0 : ordenadas[cantidad - 1] / 1000.0);
+            latencia.put("media", cantidad == 0 ? 0.0 : Math.round(suma / (double) cantidad) / 1000.0);
+
+            Map<String, Object> resumen = new LinkedHashMap<>();
+            resumen.put("peticiones", cantidad);
+            resumen.put("errores", errores);
+            resumen.put("throughput_rps", segundos <= 0 ? 0.0 : Math.round(cantidad * 100.0 / segundos) / 100.0);
+            resumen.put("latencia_ms", latencia);
+            resumen.put("status", new TreeMap<>(porStatus));
+            return resumen;
+        }
+
+        /**
+         * Percentil por rango más cercano, en milisegundos
+         */
+        private static double percentilMs(long[] ordenadas, double percentil) {
+            if (ordenadas.length == 0) {
+                return 0.0;
+            }
+            int indice = (int) Math.ceil(percentil / 100.0 * ordenadas.length) - 1;
+            return ordenadas[Math.max(0, Math.min(indice, ordenadas.length - 1))] / 1000.0;
+        }
+    }
+}
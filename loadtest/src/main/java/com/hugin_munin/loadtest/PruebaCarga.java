@@ -0,0 +1,358 @@
+package com.hugin_munin.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.hugin_munin.config.DatabaseConfig;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.HttpCookie;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Prueba de carga HTTP contra una instancia en marcha
+ * Cada hilo inicia sesión con un usuario de carga (ver GeneradorDatos) y ejecuta operaciones
+ * elegidas al azar según LOAD_MEZCLA hasta cumplir la duración.
+ * Configuración (valores por defecto):
+ * - LOAD_BASE_URL (http://localhost:7000), LOAD_CONCURRENCIA (16)
+ * - LOAD_DURACION_S (60) medidos tras LOAD_CALENTAMIENTO_S (10) sin registrar
+ * - LOAD_ID_ESPECIMEN_MIN (1) / LOAD_ID_ESPECIMEN_MAX (LOAD_ESPECIMENES) para los detalles
+ * - LOAD_HTTP2 (false) para medir con HTTP/2 sin TLS (h2c) en lugar de HTTP/1.1
+ * - LOAD_ETIQUETA (local) para identificar la versión probada, LOAD_RESULTADOS (loadtest/resultados)
+ * El resultado se escribe en JSON y se agrega una línea a historico.csv para comparar versiones.
+ */
+public class PruebaCarga {
+
+    private static final String MEZCLA_DEFECTO =
+            "listar=25,detalle=25,timeline=10,crear=10,series=15,traslados_estadisticas=10,areas_origen=5";
+
+    private static final DateTimeFormatter FORMATO_ARCHIVO = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final String baseUrl;
+    private final String password;
+    private final int usuarios;
+    private final int idMin;
+    private final int idMax;
+    private final Mezcla mezcla;
+    private final HttpClient.Version protocolo = Boolean.parseBoolean(DatabaseConfig.getSetting("LOAD_HTTP2", "false"))
+            ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1;
+    private final Metricas metricas = new Metricas();
+    private final AtomicInteger secuenciaUsuario = new AtomicInteger();
+    private final AtomicInteger secuenciaInventario = new AtomicInteger();
+    private final String idEjecucion = Long.toString(System.currentTimeMillis(), 36).toUpperCase();
+
+    private volatile int idOrigenAlta = 1;
+
+    public PruebaCarga(String baseUrl, String password, int usuarios, int idMin, int idMax, Mezcla mezcla) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.password = password;
+        this.usuarios = Math.max(1, usuarios);
+        this.idMin = idMin;
+        this.idMax = Math.max(idMin, idMax);
+        this.mezcla = mezcla;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int concurrencia = Math.max(1, DatabaseConfig.getIntSetting("LOAD_CONCURRENCIA", 16));
+        int duracionS = DatabaseConfig.getIntSetting("LOAD_DURACION_S", 60);
+        int calentamientoS = DatabaseConfig.getIntSetting("LOAD_CALENTAMIENTO_S", 10);
+        String etiqueta = DatabaseConfig.getSetting("LOAD_ETIQUETA", "local");
+        Path resultados = Path.of(DatabaseConfig.getSetting("LOAD_RESULTADOS", "loadtest/resultados"));
+
+        PruebaCarga prueba = new PruebaCarga(
+                DatabaseConfig.getSetting("LOAD_BASE_URL", "http://localhost:7000"),
+                DatabaseConfig.getSetting("LOAD_PASSWORD", "carga123"),
+                DatabaseConfig.getIntSetting("LOAD_USUARIOS", 20),
+                DatabaseConfig.getIntSetting("LOAD_ID_ESPECIMEN_MIN", 1),
+                DatabaseConfig.getIntSetting("LOAD_ID_ESPECIMEN_MAX", DatabaseConfig.getIntSetting("LOAD_ESPECIMENES", 200000)),
+                Mezcla.parse(DatabaseConfig.getSetting("LOAD_MEZCLA", MEZCLA_DEFECTO))
+        );
+
+        System.out.println("🚦 Prueba de carga: " + concurrencia + " hilos, " + calentamientoS + " s de calentamiento + "
+                + duracionS + " s medidos contra " + prueba.baseUrl);
+
+        Map<String, Object> resumen = prueba.ejecutar(concurrencia, calentamientoS, duracionS);
+
+        Map<String, Object> reporte = new LinkedHashMap<>();
+        reporte.put("etiqueta", etiqueta);
+        reporte.put("fecha", LocalDateTime.now().toString());
+        reporte.put("base_url", prueba.baseUrl);
+        reporte.put("protocolo", prueba.protocolo.toString());
+        reporte.put("concurrencia", concurrencia);
+        reporte.put("duracion_s", duracionS);
+        reporte.put("calentamiento_s", calentamientoS);
+        reporte.put("mezcla", prueba.mezcla.pesos);
+        reporte.putAll(resumen);
+
+        prueba.escribirResultados(resultados, etiqueta, reporte);
+    }
+
+    /**
+     * EJECUTAR la prueba y devolver el resumen de la ventana medida
+     */
+    public Map<String, Object> ejecutar(int concurrencia, int calentamientoS, int duracionS) throws InterruptedException {
+        long inicio = System.nanoTime();
+        long inicioMedicion = inicio + TimeUnit.SECONDS.toNanos(calentamientoS);
+        long fin = inicioMedicion + TimeUnit.SECONDS.toNanos(duracionS);
+
+        AtomicInteger numeroHilo = new AtomicInteger();
+        ExecutorService hilos = Executors.newFixedThreadPool(concurrencia, r -> {
+            Thread thread = new Thread(r, "Carga-" + numeroHilo.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < concurrencia; i++) {
+            long semilla = i;
+            hilos.submit(() -> new UsuarioVirtual(semilla).ejecutar(inicioMedicion, fin));
+        }
+        hilos.shutdown();
+        if (!hilos.awaitTermination(calentamientoS + duracionS + 60L, TimeUnit.SECONDS)) {
+            hilos.shutdownNow();
+        }
+
+        return metricas.resumen(duracionS);
+    }
+
+    /**
+     * ESCRIBIR el JSON de la ejecución y agregar la fila al histórico
+     */
+    public void escribirResultados(Path directorio, String etiqueta, Map<String, Object> reporte) throws IOException {
+        Files.createDirectories(directorio);
+
+        Path archivo = directorio.resolve("carga-" + etiqueta + "-" + LocalDateTime.now().format(FORMATO_ARCHIVO) + ".json");
+        mapper.enable(SerializationFeature.INDENT_OUTPUT).writeValue(archivo.toFile(), reporte);
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> total = (Map<String, Object>) reporte.get("total");
+        @SuppressWarnings("unchecked")
+        Map<String, Object> latencia = (Map<String, Object>) total.get("latencia_ms");
+
+        Path historico = directorio.resolve("historico.csv");
+        if (!Files.exists(historico)) {
+            Files.writeString(historico, "fecha,etiqueta,concurrencia,duracion_s,peticiones,errores,throughput_rps,p50_ms,p95_ms,p99_ms\n",
+                    StandardCharsets.UTF_8);
+        }
+        String fila = String.join(",",
+                String.valueOf(reporte.get("fecha")), etiqueta,
+                String.valueOf(reporte.get("concurrencia")), String.valueOf(reporte.get("duracion_s")),
+                String.valueOf(total.get("peticiones")), String.valueOf(total.get("errores")),
+                String.valueOf(total.get("throughput_rps")),
+                String.valueOf(latencia.get("p50")), String.valueOf(latencia.get("p95")), String.valueOf(latencia.get("p99")));
+        Files.writeString(historico, fila + "\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        System.out.println("📊 Total: " + total.get("peticiones") + " peticiones, " + total.get("errores") + " errores, "
+                + total.get("throughput_rps") + " req/s, p50=" + latencia.get("p50") + " ms, p95=" + latencia.get("p95")
+                + " ms, p99=" + latencia.get("p99") + " ms");
+        System.out.println("💾 Resultados en " + archivo + " (histórico: " + historico + ")");
+    }
+
+    /**
+     * Usuario simulado: su propio cliente HTTP con cookie de sesión
+     */
+    private class UsuarioVirtual {
+        private final Random random;
+        private final CookieManager cookies = new CookieManager();
+        private final HttpClient cliente;
+        private final String nombreUsuario;
+        private int idUsuario = 1;
+
+        UsuarioVirtual(long semilla) {
+            this.random = new Random(semilla);
+            this.cliente = HttpClient.newBuilder()
+                    .version(protocolo)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .cookieHandler(cookies)
+                    .build();
+            this.nombreUsuario = GeneradorDatos.nombreUsuario(secuenciaUsuario.getAndIncrement() % usuarios + 1);
+        }
+
+        void ejecutar(long inicioMedicion, long fin) {
+            medir("login", inicioMedicion, this::login);
+            cargarOrigenAlta();
+
+            while (System.nanoTime() < fin) {
+                String operacion = mezcla.elegir(random);
+                int status = medir(operacion, inicioMedicion, () -> ejecutarOperacion(operacion));
+                if (status == 401) {
+                    medir("login", inicioMedicion, this::login);
+                }
+            }
+        }
+
+        private int medir(String operacion, long inicioMedicion, Peticion peticion) {
+            long t0 = System.nanoTime();
+            int status;
+            try {
+                status = peticion.enviar();
+            } catch (IOException e) {
+                status = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return 0;
+            }
+            if (t0 >= inicioMedicion) {
+                metricas.registrar(operacion, System.nanoTime() - t0, status);
+            }
+            return status;
+        }
+
+        private int ejecutarOperacion(String operacion) throws IOException, InterruptedException {
+            switch (operacion) {
+                case "listar":
+                    return get("/hm/registro-unificado?page=" + (1 + random.nextInt(50)) + "&size=20");
+                case "detalle":
+                    return get("/hm/registro-unificado/" + idAleatorio());
+                case "timeline":
+                    return get("/hm/especimenes/" + idAleatorio() + "/timeline?limit=20");
+                case "crear":
+                    return crear();
+                case "series":
+                    LocalDate fin = LocalDate.now();
+                    return get("/hm/estadisticas/series?granularidad=mes&inicio=" + fin.minusYears(1 + random.nextInt(3)) + "&fin=" + fin);
+                case "traslados_estadisticas":
+                    return get("/hm/reportes-traslado/estadisticas");
+                case "areas_origen":
+                    return get("/hm/reportes-traslado/estadisticas/areas-origen");
+                default:
+                    throw new IllegalArgumentException("Operación desconocida en LOAD_MEZCLA: " + operacion);
+            }
+        }
+
+        private int login() throws IOException, InterruptedException {
+            Map<String, String> credenciales = Map.of("nombre_usuario", nombreUsuario, "contrasena", password);
+            int status = post("/hm/auth/login", mapper.writeValueAsString(credenciales));
+
+            for (HttpCookie cookie : cookies.getCookieStore().getCookies()) {
+                if ("HM_USER_ID".equals(cookie.getName())) {
+                    idUsuario = Integer.parseInt(cookie.getValue());
+                }
+            }
+            return status;
+        }
+
+        /**
+         * Tomar el primer origen de alta disponible para las altas sintéticas
+         */
+        private void cargarOrigenAlta() {
+            try {
+                HttpResponse<String> respuesta = cliente.send(request("/hm/origenes-alta").GET().build(),
+                        HttpResponse.BodyHandlers.ofString());
+                JsonNode data = mapper.readTree(respuesta.body()).path("data");
+                if (data.isArray() && !data.isEmpty()) {
+                    idOrigenAlta = data.get(0).path("id_origen_alta").asInt(idOrigenAlta);
+                }
+            } catch (Exception e) {
+                // Se conserva el origen por defecto
+            }
+        }
+
+        private int crear() throws IOException, InterruptedException {
+            int indice = random.nextInt(GeneradorDatos.GENEROS.length);
+            String inventario = "LT-" + idEjecucion + "-" + secuenciaInventario.incrementAndGet();
+
+            Map<String, Object> cuerpo = new LinkedHashMap<>();
+            cuerpo.put("especie", Map.of(
+                    "genero", GeneradorDatos.GENEROS[indice],
+                    "especie", GeneradorDatos.EPITETOS[indice]));
+            cuerpo.put("especimen", Map.of(
+                    "num_inventario", inventario,
+                    "nombre_especimen", "Carga " + inventario));
+            cuerpo.put("registro_alta", Map.of(
+                    "id_origen_alta", idOrigenAlta,
+                    "id_responsable", idUsuario,
+                    "procedencia", GeneradorDatos.AREAS[random.nextInt(GeneradorDatos.AREAS.length)],
+                    "observacion", "Alta creada por la prueba de carga",
+                    "fecha_ingreso", LocalDate.now().toString()));
+
+            return post("/hm/registro-unificado", mapper.writeValueAsString(cuerpo));
+        }
+
+        private int get(String ruta) throws IOException, InterruptedException {
+            return cliente.send(request(ruta).GET().build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+        }
+
+        private int post(String ruta, String json) throws IOException, InterruptedException {
+            HttpRequest request = request(ruta)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(json))
+                    .build();
+            return cliente.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        }
+
+        private HttpRequest.Builder request(String ruta) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + ruta)).timeout(Duration.ofSeconds(30));
+        }
+
+        private int idAleatorio() {
+            return idMin + random.nextInt(idMax - idMin + 1);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Peticion {
+        int enviar() throws IOException, InterruptedException;
+    }
+
+    /**
+     * Mezcla ponderada de operaciones ("operacion=peso,operacion=peso")
+     */
+    static class Mezcla {
+        private final Map<String, Integer> pesos = new LinkedHashMap<>();
+        private final List<String> operaciones = new ArrayList<>();
+        private final List<Integer> acumulado = new ArrayList<>();
+        private int total = 0;
+
+        static Mezcla parse(String texto) {
+            Mezcla mezcla = new Mezcla();
+            for (String par : texto.split(",")) {
+                String[] partes = par.split("=");
+                if (partes.length != 2) {
+                    throw new IllegalArgumentException("Entrada inválida en LOAD_MEZCLA: " + par);
+                }
+                int peso = Integer.parseInt(partes[1].trim());
+                if (peso > 0) {
+                    mezcla.pesos.put(partes[0].trim(), peso);
+                    mezcla.total += peso;
+                    mezcla.operaciones.add(partes[0].trim());
+                    mezcla.acumulado.add(mezcla.total);
+                }
+            }
+            if (mezcla.total == 0) {
+                throw new IllegalArgumentException("LOAD_MEZCLA no contiene operaciones con peso positivo");
+            }
+            return mezcla;
+        }
+
+        String elegir(Random random) {
+            int valor = random.nextInt(total);
+            for (int i = 0; i < acumulado.size(); i++) {
+                if (valor < acumulado.get(i)) {
+                    return operaciones.get(i);
+                }
+            }
+            return operaciones.get(operaciones.size() - 1);
+        }
+    }
+}
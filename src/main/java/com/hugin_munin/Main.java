@@ -1,6 +1,9 @@
 package com.hugin_munin;
 
 import com.hugin_munin.config.DatabaseConfig;
+import com.hugin_munin.config.MigrationRunner;
+import com.hugin_munin.config.NegotiatingJsonMapper;
+import com.hugin_munin.config.ServerConfig;
 import com.hugin_munin.di.AppModule;
 
 import io.javalin.Javalin;
@@ -11,9 +14,11 @@ import com.hugin_munin.service.AuthService;
 
 import java.sql.Connection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.List;
 import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * HUGIN MUNIN API - CLASE PRINCIPAL INTEGRADA Y MEJORADA
@@ -26,18 +31,35 @@ public class Main {
 
     private static final String API_VERSION = "1.0.0";
     private static final String API_NAME = "Hugin Munin API";
+    private static final Map<String, Long> TIEMPOS_ARRANQUE = new LinkedHashMap<>();
 
     public static void main(String[] args) {
         try {
             System.out.println("🚀 Iniciando " + API_NAME + " v" + API_VERSION);
+            long inicioArranque = System.nanoTime();
 
-            // Verificar conexión a base de datos primero
+            // Verificar conexión a base de datos primero (crea el pool)
+            long fase = System.nanoTime();
             testDatabaseConnection();
+            registrarFase("conexion_bd", fase);
 
-            // Mostrar información del módulo
-            AppModule.printModuleInfo();
+            // Aplicar migraciones pendientes
+            fase = System.nanoTime();
+            MigrationRunner.migrate();
+            registrarFase("migraciones", fase);
+
+            // Calentamiento del pool y precarga de cachés en paralelo con el registro de rutas
+            CompletableFuture<Map<String, Long>> warmUp = AppModule.startWarmUp();
+
+            // Mostrar información del módulo (solo en modo detallado)
+            if (Boolean.parseBoolean(DatabaseConfig.getSetting("STARTUP_VERBOSE", "false"))) {
+                AppModule.printModuleInfo();
+            }
 
             // Crear aplicación Javalin con configuración CORS corregida
+            fase = System.nanoTime();
+            NegotiatingJsonMapper jsonMapper = new NegotiatingJsonMapper();
+            ServerConfig servidor = ServerConfig.load();
             Javalin app = Javalin.create(config -> {
                 // Configuración CORS corregida para versiones recientes de Javalin
                 config.bundledPlugins.enableCors(cors -> {
@@ -52,19 +74,37 @@ public class Main {
                 config.bundledPlugins.enableDevLogging();
                 config.http.defaultContentType = "application/json";
                 config.showJavalinBanner = false;
+
+                // JSON por defecto; Smile o CBOR según los encabezados Accept / Content-Type
+                config.jsonMapper(jsonMapper);
+
+                // Conector HTTP/1.1 + h2c, pool de hilos, timeouts y buffers (SERVER_*)
+                servidor.aplicar(config);
             });
+            app.before(jsonMapper::antes);
+            app.after(jsonMapper::despues);
+            registrarFase("javalin", fase);
 
-            // Configurar rutas principales
+            // Configurar rutas principales y de módulos
+            fase = System.nanoTime();
             setupMainRoutes(app);
-
-            // Configurar rutas de módulos COMPLETAMENTE ACTUALIZADAS
             setupModuleRoutes(app);
+            registrarFase("rutas", fase);
 
             // Iniciar servidor
-            app.start(7000);
+            fase = System.nanoTime();
+            app.start(servidor.getPuerto());
+            registrarFase("servidor", fase);
+            registrarFase("total_hasta_primer_request", inicioArranque);
 
             // Mostrar información de inicio COMPLETA
-            showStartupInfo();
+            showStartupInfo(servidor);
+
+            // Reporte de tiempos (el calentamiento se agrega cuando termina)
+            printStartupTimings();
+            warmUp.thenAccept(tiempos -> {
+                System.out.println("🔥 Calentamiento completado: " + tiempos + " (ms)");
+            });
 
         } catch (Exception e) {
             System.err.println("❌ Error al iniciar la aplicación:");
@@ -73,6 +113,21 @@ public class Main {
         }
     }
 
+    /**
+     * Registrar la duración de una fase del arranque
+     */
+    private static void registrarFase(String nombre, long inicioNanos) {
+        TIEMPOS_ARRANQUE.put(nombre, (System.nanoTime() - inicioNanos) / 1_000_000);
+    }
+
+    /**
+     * Mostrar el reporte de tiempos por fase del arranque
+     */
+    private static void printStartupTimings() {
+        System.out.println("⏱️ TIEMPOS DE ARRANQUE (ms):");
+        TIEMPOS_ARRANQUE.forEach((fase, ms) -> System.out.println("   " + fase + ": " + ms));
+    }
+
     /**
      * Verificar conexión a base de datos al inicio
      */
@@ -143,6 +198,7 @@ public class Main {
             Map<String, String> registroUnificado = new HashMap<>();
             registroUnificado.put("POST /hm/registro-unificado", "Crear especie, especimen, registro de alta y opcionalmente reporte de traslado");
             registroUnificado.put("POST /hm/registro-unificado/validar", "Validar datos sin crear registros");
+            registroUnificado.put("PUT /hm/registro_unificado/{id_especimen}", "Actualizar registro unificado (If-Match: versión del especimen; 409 si cambió)");
             registroUnificado.put("GET /hm/registro-unificado/ejemplo", "Obtener ejemplo de estructura JSON con reportes");
             registroUnificado.put("GET /hm/registro-unificado/formulario-data", "Obtener datos para formulario");
             endpoints.put("registro_unificado", registroUnificado);
@@ -154,6 +210,7 @@ public class Main {
             especies.put("GET /hm/especies/search?scientific_name=", "Buscar especies por nombre científico");
             especies.put("POST /hm/especies", "Crear nueva especie");
             especies.put("PUT /hm/especies/{id}", "Actualizar especie");
+            especies.put("PATCH /hm/especies/{id}", "Actualización parcial (JSON Merge Patch: genero, especie)");
             especies.put("DELETE /hm/especies/{id}", "Eliminar especie");
             especies.put("POST /hm/especies/validar-nombre", "Validar nombre científico");
             especies.put("GET /hm/especies/estadisticas", "Obtener estadísticas");
@@ -166,12 +223,17 @@ public class Main {
             especimenes.put("GET /hm/especimenes/activos", "Obtener especímenes activos");
             especimenes.put("GET /hm/especimenes/search?nombre=", "Buscar especímenes por nombre");
             especimenes.put("POST /hm/especimenes", "Crear nuevo especimen");
-            especimenes.put("PUT /hm/especimenes/{id}", "Actualizar especimen");
+            especimenes.put("PUT /hm/especimenes/{id}", "Actualizar especimen (If-Match: versión; 409 si cambió)");
+            especimenes.put("PATCH /hm/especimenes/{id}", "Actualización parcial (JSON Merge Patch; If-Match opcional)");
             especimenes.put("DELETE /hm/especimenes/{id}", "Eliminar especimen");
             especimenes.put("PATCH /hm/especimenes/{id}/activar", "Activar especimen");
             especimenes.put("PATCH /hm/especimenes/{id}/desactivar", "Desactivar especimen");
+            especimenes.put("POST /hm/especimenes/lote/{activar|desactivar|eliminar}", "Cambiar estado de varios especímenes por lista de IDs o filtro");
             especimenes.put("POST /hm/especimenes/validar-inventario", "Validar número de inventario");
             especimenes.put("GET /hm/especimenes/estadisticas", "Obtener estadísticas");
+            especimenes.put("GET /hm/especimenes/{id}/timeline?cursor=&limit=", "Línea de tiempo del especimen paginada por cursor");
+            especimenes.put("GET /hm/especimenes/cache/agregados", "Estadísticas de la caché de agregados (aciertos, desalojos)");
+            especimenes.put("DELETE /hm/especimenes/cache/agregados", "Limpiar la caché de agregados");
             endpoints.put("especimenes", especimenes);
 
             // Documentar roles
@@ -226,11 +288,12 @@ public class Main {
 
             // DOCUMENTAR reportes (clase padre)
             Map<String, String> reportes = new HashMap<>();
-            reportes.put("GET /hm/reportes", "Obtener todos los reportes");
+            reportes.put("GET /hm/reportes?fields=&expand=", "Obtener todos los reportes (fields: campos; expand: tipo_reporte, especimen, especimen.especie, responsable, responsable.rol)");
             reportes.put("GET /hm/reportes/activos", "Obtener reportes activos");
             reportes.put("GET /hm/reportes/{id}", "Obtener reporte por ID");
             reportes.put("POST /hm/reportes", "Crear nuevo reporte");
             reportes.put("PUT /hm/reportes/{id}", "Actualizar reporte");
+            reportes.put("PATCH /hm/reportes/{id}", "Actualización parcial (JSON Merge Patch; If-Match opcional)");
             reportes.put("DELETE /hm/reportes/{id}", "Eliminar reporte");
             reportes.put("GET /hm/reportes/tipo/{id}", "Buscar por tipo de reporte");
             reportes.put("GET /hm/reportes/especimen/{id}", "Buscar por especimen");
@@ -243,10 +306,12 @@ public class Main {
 
             // DOCUMENTAR reportes de traslado (clase hija)
             Map<String, String> reportesTraslado = new HashMap<>();
-            reportesTraslado.put("GET /hm/reportes-traslado", "Obtener todos los reportes de traslado");
+            reportesTraslado.put("GET /hm/reportes-traslado?fields=&expand=", "Obtener todos los reportes de traslado (fields: campos; expand: tipo_reporte, especimen, especimen.especie, responsable, responsable.rol)");
             reportesTraslado.put("GET /hm/reportes-traslado/{id}", "Obtener reporte de traslado por ID");
             reportesTraslado.put("POST /hm/reportes-traslado", "Crear nuevo reporte de traslado");
-            reportesTraslado.put("PUT /hm/reportes-traslado/{id}", "Actualizar reporte de traslado");
+            reportesTraslado.put("POST /hm/reportes-traslado/grupal", "Trasladar varios especímenes con origen, destino y motivo comunes");
+            reportesTraslado.put("PUT /hm/reportes-traslado/{id}", "Actualizar reporte de traslado (If-Match: versión; 409 si cambió)");
+            reportesTraslado.put("PATCH /hm/reportes-traslado/{id}", "Actualización parcial (JSON Merge Patch; If-Match opcional)");
             reportesTraslado.put("DELETE /hm/reportes-traslado/{id}", "Eliminar reporte de traslado");
             reportesTraslado.put("GET /hm/reportes-traslado/area-origen/{area}", "Buscar por área origen");
             reportesTraslado.put("GET /hm/reportes-traslado/area-destino/{area}", "Buscar por área destino");
@@ -257,31 +322,71 @@ public class Main {
             reportesTraslado.put("GET /hm/reportes-traslado/responsable/{id}", "Buscar por responsable");
             reportesTraslado.put("GET /hm/reportes-traslado/fechas?inicio=YYYY-MM-DD&fin=YYYY-MM-DD", "Buscar por fechas");
             reportesTraslado.put("GET /hm/reportes-traslado/estadisticas", "Estadísticas de traslados");
-            reportesTraslado.put("GET /hm/reportes-traslado/estadisticas/areas-origen?limit=", "Áreas origen populares");
-            reportesTraslado.put("GET /hm/reportes-traslado/estadisticas/areas-destino?limit=", "Áreas destino populares");
+            reportesTraslado.put("GET /hm/reportes-traslado/estadisticas/areas-origen?limit=&dias=", "Áreas origen populares (dias: 7, 30 o 365)");
+            reportesTraslado.put("GET /hm/reportes-traslado/estadisticas/areas-destino?limit=&dias=", "Áreas destino populares (dias: 7, 30 o 365)");
+            reportesTraslado.put("GET /hm/reportes-traslado/estadisticas/flujos?dias=", "Matriz de traslados origen → destino");
+            reportesTraslado.put("GET /hm/reportes-traslado/estadisticas/flujos/top?limit=&dias=", "Pares origen → destino más frecuentes");
             endpoints.put("reportes_traslado", reportesTraslado);
 
             // Documentar registros de alta
             Map<String, String> registrosAlta = new HashMap<>();
-            registrosAlta.put("GET /hm/registro_alta", "Obtener todos los registros de alta");
+            registrosAlta.put("GET /hm/registro_alta?fields=&expand=", "Obtener todos los registros de alta (fields: campos; expand: especimen, especimen.especie, origen_alta, responsable, responsable.rol)");
             registrosAlta.put("GET /hm/registro_alta/{id}", "Obtener registro por ID");
             registrosAlta.put("POST /hm/registro_alta", "Crear nuevo registro de alta");
             registrosAlta.put("PUT /hm/registro_alta/{id}", "Actualizar registro de alta");
+            registrosAlta.put("PATCH /hm/registro_alta/{id}", "Actualización parcial (JSON Merge Patch; procedencia: null la borra)");
             registrosAlta.put("DELETE /hm/registro_alta/{id}", "Eliminar registro de alta");
             endpoints.put("registros_alta", registrosAlta);
 
             // Documentar registros de baja
             Map<String, String> registrosBaja = new HashMap<>();
-            registrosBaja.put("GET /hm/registro_baja", "Obtener todos los registros de baja");
+            registrosBaja.put("GET /hm/registro_baja?fields=&expand=", "Obtener todos los registros de baja (fields: campos; expand: especimen, especimen.especie, causa_baja, responsable, responsable.rol)");
             registrosBaja.put("GET /hm/registro_baja/{id}", "Obtener registro por ID");
             registrosBaja.put("POST /hm/registro_baja", "Crear nuevo registro de baja");
-            registrosBaja.put("PUT /hm/registro_baja/{id}", "Actualizar registro de baja");
+            registrosBaja.put("POST /hm/registro_baja/lote", "Registrar la baja de varios especímenes con causa y responsable comunes");
+            registrosBaja.put("PUT /hm/registro_baja/{id}", "Actualizar registro de baja (If-Match: versión; 409 si cambió)");
+            registrosBaja.put("PATCH /hm/registro_baja/{id}", "Actualización parcial (JSON Merge Patch; If-Match opcional)");
             registrosBaja.put("DELETE /hm/registro_baja/{id}", "Eliminar registro de baja");
             endpoints.put("registros_baja", registrosBaja);
 
+            // Documentar series temporales
+            Map<String, String> series = new HashMap<>();
+            series.put("GET /hm/estadisticas/series?granularidad=dia|semana|mes&inicio=YYYY-MM-DD&fin=YYYY-MM-DD", "Conteos de altas, bajas y traslados por periodo");
+            series.put("DELETE /hm/estadisticas/series/cache", "Limpiar caché de periodos cerrados");
+            endpoints.put("series_temporales", series);
+
+            // Documentar ubicación actual
+            Map<String, String> ubicaciones = new HashMap<>();
+            ubicaciones.put("GET /hm/ubicaciones/especimen/{id}", "Ubicación actual de un especimen (último traslado)");
+            ubicaciones.put("GET /hm/ubicaciones/especimenes?area=&ubicacion=", "Especímenes que están ahora en un área o ubicación");
+            ubicaciones.put("GET /hm/ubicaciones/ocupacion", "Ocupación de todas las áreas");
+            ubicaciones.put("GET /hm/ubicaciones/ocupacion/{area}", "Ocupación de un área por ubicación");
+            ubicaciones.put("GET /hm/ubicaciones/capacidades", "Capacidades configuradas");
+            ubicaciones.put("PUT /hm/ubicaciones/capacidades", "Definir capacidad {area, ubicacion, capacidad}");
+            ubicaciones.put("DELETE /hm/ubicaciones/capacidades?area=&ubicacion=", "Quitar el límite de una ubicación");
+            endpoints.put("ubicaciones", ubicaciones);
+
+            // Documentar exportaciones
+            Map<String, String> export = new HashMap<>();
+            export.put("GET /hm/export/inventario?format=csv|ndjson&gzip=true&activo=", "Exportar inventario completo en streaming");
+            endpoints.put("exportacion", export);
+
+            // Documentar administración del pool
+            Map<String, String> pool = new HashMap<>();
+            pool.put("GET /hm/admin/pool", "Estado del pool, percentiles de adquisición y uso por llamador");
+            pool.put("PUT /hm/admin/pool/tamano", "Cambiar tamaño máximo del pool dentro de los límites");
+            pool.put("DELETE /hm/admin/pool/llamadores", "Reiniciar contabilidad por llamador");
+            endpoints.put("pool", pool);
+
+            // Documentar feed de eventos
+            Map<String, String> eventos = new HashMap<>();
+            eventos.put("SSE /hm/eventos?tipos=traslado,alta,baja", "Suscribirse a eventos de traslados, altas y bajas (evento \"descartados\" si el cliente no alcanzó a leerlos)");
+            eventos.put("GET /hm/eventos/estadisticas", "Estadísticas del feed de eventos");
+            endpoints.put("eventos", eventos);
+
             docs.put("endpoints", endpoints);
             docs.put("database", "HUGIN_MUNIN");
-            docs.put("port", 7000);
+            docs.put("port", app.port());
             docs.put("features", Map.of(
                     "crud_completo", "Operaciones CRUD para todas las entidades",
                     "sistema_autenticacion", "Sistema de autenticación basado en cookies",
@@ -433,6 +538,27 @@ public class Main {
             AppModule.initRegistroBaja().defineRoutes(app);
             System.out.println("✅ Rutas de registros de baja configuradas");
 
+            // Rutas de series temporales
+            AppModule.initSeriesTemporales().defineRoutes(app);
+            System.out.println("✅ Rutas de series temporales configuradas");
+
+            // Rutas de ubicación actual y ocupación
+            AppModule.initUbicaciones().defineRoutes(app);
+            System.out.println("✅ Rutas de ubicación actual configuradas");
+
+            // Rutas de exportación
+            AppModule.initExport().defineRoutes(app);
+            System.out.println("✅ Rutas de exportación configuradas");
+
+            // Rutas de administración del pool (solo administradores)
+            app.before("/hm/admin/*", authMiddleware.requireAdmin());
+            AppModule.initPool().defineRoutes(app);
+            System.out.println("✅ Rutas de administración del pool configuradas");
+
+            // Rutas del feed de eventos (SSE)
+            AppModule.initEventos().defineRoutes(app);
+            System.out.println("✅ Rutas de eventos en tiempo real configuradas");
+
             // ===========================================
             // RESUMEN FINAL
             // ===========================================
@@ -452,19 +578,21 @@ public class Main {
     /**
      * Mostrar información completa de inicio del sistema
      */
-    private static void showStartupInfo() {
+    private static void showStartupInfo(ServerConfig servidor) {
+        String base = "http://localhost:" + servidor.getPuerto();
         System.out.println("\n🚀 " + API_NAME + " v" + API_VERSION);
-        System.out.println("📡 Servidor iniciado en: http://localhost:7000");
-        System.out.println("🔗 Health Check: http://localhost:7000/");
-        System.out.println("📊 Test DB: http://localhost:7000/hm/test-db");
-        System.out.println("📚 Documentación: http://localhost:7000/hm/docs");
-        System.out.println("🔐 Login: http://localhost:7000/hm/auth/login");
-        System.out.println("👤 Perfil: http://localhost:7000/hm/auth/profile");
-        System.out.println("🚀 Registro Unificado: http://localhost:7000/hm/registro-unificado/ejemplo");
-        System.out.println("📋 Tipos de Reporte: http://localhost:7000/hm/tipos-reporte");
-        System.out.println("📄 Reportes: http://localhost:7000/hm/reportes");
-        System.out.println("🔄 Reportes Traslado: http://localhost:7000/hm/reportes-traslado");
-        System.out.println("🔑 Permisos: http://localhost:7000/hm/permisos (NUEVO)");
+        System.out.println("📡 Servidor iniciado en: " + base);
+        System.out.println("⚙️ Servidor HTTP: " + servidor.getResumen());
+        System.out.println("🔗 Health Check: " + base + "/");
+        System.out.println("📊 Test DB: " + base + "/hm/test-db");
+        System.out.println("📚 Documentación: " + base + "/hm/docs");
+        System.out.println("🔐 Login: " + base + "/hm/auth/login");
+        System.out.println("👤 Perfil: " + base + "/hm/auth/profile");
+        System.out.println("🚀 Registro Unificado: " + base + "/hm/registro-unificado/ejemplo");
+        System.out.println("📋 Tipos de Reporte: " + base + "/hm/tipos-reporte");
+        System.out.println("📄 Reportes: " + base + "/hm/reportes");
+        System.out.println("🔄 Reportes Traslado: " + base + "/hm/reportes-traslado");
+        System.out.println("🔑 Permisos: " + base + "/hm/permisos (NUEVO)");
         System.out.println("🔐 AUTENTICACIÓN REQUERIDA para la mayoría de endpoints");
 
         System.out.println("\n==========================================================");
@@ -478,6 +606,7 @@ public class Main {
         System.out.println("📊 Reportes: /hm/reportes/*");
         System.out.println("🔄 Reportes Traslado: /hm/reportes-traslado/*");
         System.out.println("📝 Registros: /hm/registros/*");
+        System.out.println("📡 Eventos (SSE): /hm/eventos");
 
         System.out.println("\n🔑 FUNCIONALIDADES NUEVAS DE PERMISOS:");
         System.out.println("   • GET /hm/permisos - Listar todos los permisos");
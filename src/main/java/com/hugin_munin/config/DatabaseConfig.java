@@ -7,17 +7,36 @@ import io.github.cdimascio.dotenv.Dotenv;
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class DatabaseConfig {
-    private static HikariDataSource dataSource;
+    private static volatile HikariDataSource dataSource;
+    private static volatile PoolManager poolManager;
+    private static Dotenv dotenv;
 
-    public static DataSource getDataSource() {
+    /**
+     * Propiedades de rendimiento del driver MySQL aplicadas por defecto
+     * Se pueden sobrescribir o ampliar con DB_DRIVER_PROPS="clave=valor;clave=valor"
+     */
+    private static final Map<String, String> DRIVER_PROPS_DEFAULT = Map.ofEntries(
+            Map.entry("cachePrepStmts", "true"),
+            Map.entry("prepStmtCacheSize", "250"),
+            Map.entry("prepStmtCacheSqlLimit", "2048"),
+            Map.entry("useServerPrepStmts", "true"),
+            Map.entry("useLocalSessionState", "true"),
+            Map.entry("rewriteBatchedStatements", "true"),
+            Map.entry("cacheResultSetMetadata", "true"),
+            Map.entry("cacheServerConfiguration", "true"),
+            Map.entry("elideSetAutoCommits", "true"),
+            Map.entry("maintainTimeStats", "false")
+    );
+
+    public static synchronized DataSource getDataSource() {
         if (dataSource == null) {
             try {
                 // Cargar variables de entorno
-                Dotenv dotenv = Dotenv.configure()
-                        .ignoreIfMissing() // No fallar si no existe .env
-                        .load();
+                Dotenv dotenv = getDotenv();
 
                 // Obtener valores con defaults
                 String host = getEnvValue(dotenv, "DB_HOST", "localhost");
@@ -36,19 +55,28 @@ public class DatabaseConfig {
                 config.setPassword(password);
                 config.setDriverClassName("com.mysql.cj.jdbc.Driver");
 
-                // Configuraciones adicionales para evitar problemas
-                config.setMaximumPoolSize(10);
-                config.setMinimumIdle(2);
-                config.setConnectionTimeout(30000);
-                config.setIdleTimeout(600000);
-                config.setMaxLifetime(1800000);
+                // Tamaño y tiempos del pool configurables (valores por defecto históricos)
+                config.setPoolName("HuginMuninPool");
+                config.setMaximumPoolSize(getIntSetting("DB_POOL_MAX", 10));
+                config.setMinimumIdle(getIntSetting("DB_POOL_MIN_IDLE", 2));
+                config.setConnectionTimeout(getIntSetting("DB_CONNECTION_TIMEOUT_MS", 30000));
+                config.setIdleTimeout(getIntSetting("DB_IDLE_TIMEOUT_MS", 600000));
+                config.setMaxLifetime(getIntSetting("DB_MAX_LIFETIME_MS", 1800000));
+                // Desactivada por defecto: la exportación en streaming y el feed SSE retienen
+                // conexiones a propósito más allá de cualquier umbral corto
+                config.setLeakDetectionThreshold(getIntSetting("DB_LEAK_DETECTION_MS", 0));
+                config.setRegisterMbeans(true);
 
-                dataSource = new HikariDataSource(config);
+                // Propiedades de rendimiento del driver MySQL
+                Map<String, String> driverProps = new LinkedHashMap<>(DRIVER_PROPS_DEFAULT);
+                driverProps.putAll(parseDriverProps(getSetting("DB_DRIVER_PROPS", "")));
+                driverProps.forEach(config::addDataSourceProperty);
 
-                // Probar la conexión
-                try (Connection testConn = dataSource.getConnection()) {
-                    System.out.println("✅ Conexión a base de datos exitosa");
-                }
+                // Hikari valida una conexión al construirse (initializationFailTimeout),
+                // por lo que no se abre una conexión de prueba adicional aquí
+                HikariDataSource nuevoDataSource = new HikariDataSource(config);
+                poolManager = new PoolManager(nuevoDataSource);
+                dataSource = nuevoDataSource;
 
             } catch (Exception e) {
                 System.err.println("❌ Error al configurar la base de datos: " + e.getMessage());
@@ -59,6 +87,26 @@ public class DatabaseConfig {
         return dataSource;
     }
 
+    /**
+     * Cargar variables de entorno (.env + variables del sistema) una sola vez
+     */
+    private static synchronized Dotenv getDotenv() {
+        if (dotenv == null) {
+            dotenv = Dotenv.configure()
+                    .ignoreIfMissing() // No fallar si no existe .env
+                    .load();
+        }
+        return dotenv;
+    }
+
+    /**
+     * Obtener un valor de configuración opcional sin registrar advertencias
+     */
+    public static String getSetting(String key, String defaultValue) {
+        String value = getDotenv().get(key);
+        return (value == null || value.trim().isEmpty()) ? defaultValue : value.trim();
+    }
+
     private static String getEnvValue(Dotenv dotenv, String key, String defaultValue) {
         String value = dotenv.get(key);
         if (value == null || value.trim().isEmpty()) {
@@ -68,11 +116,60 @@ public class DatabaseConfig {
         return value;
     }
 
+    /**
+     * Obtener una conexión del pool registrando tiempo de espera y de uso por método llamador
+     */
     public static Connection getConnection() throws SQLException {
-        return getDataSource().getConnection();
+        HikariDataSource ds = dataSource;
+        if (ds == null) {
+            getDataSource();
+            ds = dataSource;
+        }
+
+        long inicio = System.nanoTime();
+        Connection conn = ds.getConnection();
+        return poolManager.track(conn, System.nanoTime() - inicio);
+    }
+
+    /**
+     * Obtener el administrador del pool (crea el pool si aún no existe)
+     */
+    public static PoolManager getPoolManager() {
+        getDataSource();
+        return poolManager;
+    }
+
+    /**
+     * Obtener un valor entero de configuración
+     */
+    public static int getIntSetting(String key, int defaultValue) {
+        String value = getSetting(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            System.err.println("⚠️ Valor inválido para " + key + ": " + value + ", usando " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    private static Map<String, String> parseDriverProps(String raw) {
+        Map<String, String> props = new LinkedHashMap<>();
+        for (String par : raw.split(";")) {
+            int igual = par.indexOf('=');
+            if (igual > 0) {
+                props.put(par.substring(0, igual).trim(), par.substring(igual + 1).trim());
+            }
+        }
+        return props;
     }
 
     public static void close() {
+        if (poolManager != null) {
+            poolManager.shutdown();
+        }
         if (dataSource != null && !dataSource.isClosed()) {
             System.out.println("🔌 Cerrando " + dataSource.getJdbcUrl());
             dataSource.close();
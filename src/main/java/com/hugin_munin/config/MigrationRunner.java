@@ -0,0 +1,209 @@
+package com.hugin_munin.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Ejecutor de migraciones versionadas de esquema
+ * Aplica en orden los scripts de /db/migration que aún no figuran en schema_version.
+ * Usa GET_LOCK para que varias instancias arrancando a la vez no apliquen el mismo script.
+ */
+public class MigrationRunner {
+
+    private static final String RESOURCE_PATH = "/db/migration/";
+    private static final String LOCK_NAME = "hugin_munin_schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    /**
+     * Scripts en orden de aplicación; agregar aquí cada nueva versión
+     */
+    private static final List<String> MIGRACIONES = List.of(
+            "V1__esquema_inicial.sql",
+            "V2__indices_consultas.sql",
+            "V3__nombre_cientifico_generado.sql",
+            "V4__indice_nombre_usuario.sql",
+            "V5__sesiones.sql",
+            "V6__registro_cambios.sql",
+            "V7__ubicacion_actual.sql",
+            "V8__versiones.sql"
+    );
+
+    /**
+     * Errores que indican que el objeto ya existe (bases creadas antes de las migraciones):
+     * 1050 tabla existente, 1060 columna duplicada, 1061 índice duplicado, 1826 FK duplicada
+     */
+    private static final Set<Integer> ERRORES_YA_EXISTE = Set.of(1050, 1060, 1061, 1826);
+
+    /**
+     * Ejecutar migraciones pendientes (se puede desactivar con DB_MIGRATE=false)
+     */
+    public static void migrate() {
+        if (!Boolean.parseBoolean(DatabaseConfig.getSetting("DB_MIGRATE", "true"))) {
+            System.out.println("⏭️ Migraciones desactivadas (DB_MIGRATE=false)");
+            return;
+        }
+
+        System.out.println("🗄️ Verificando migraciones de esquema...");
+
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            if (!acquireLock(conn)) {
+                throw new RuntimeException("No se pudo obtener el bloqueo de migraciones en " + LOCK_TIMEOUT_SECONDS + "s");
+            }
+
+            try {
+                ensureVersionTable(conn);
+                Map<Integer, Long> aplicadas = findAppliedVersions(conn);
+                int ejecutadas = 0;
+
+                for (String script : MIGRACIONES) {
+                    int version = parseVersion(script);
+                    String contenido = loadScript(script);
+                    long checksum = checksum(contenido);
+
+                    if (aplicadas.containsKey(version)) {
+                        if (aplicadas.get(version) != checksum) {
+                            System.err.println("⚠️ El script " + script + " cambió después de aplicarse (checksum distinto)");
+                        }
+                        continue;
+                    }
+
+                    applyScript(conn, script, contenido);
+                    registerVersion(conn, version, script, checksum);
+                    ejecutadas++;
+                }
+
+                System.out.println(ejecutadas == 0
+                        ? "✅ Esquema actualizado, no hay migraciones pendientes"
+                        : "✅ Migraciones aplicadas: " + ejecutadas);
+            } finally {
+                releaseLock(conn);
+            }
+
+        } catch (SQLException | IOException e) {
+            throw new RuntimeException("Error al ejecutar migraciones de esquema", e);
+        }
+    }
+
+    // MÉTODOS AUXILIARES
+
+    private static boolean acquireLock(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    private static void releaseLock(Connection conn) {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.executeQuery().close();
+        } catch (SQLException e) {
+            System.err.println("⚠️ No se pudo liberar el bloqueo de migraciones: " + e.getMessage());
+        }
+    }
+
+    private static void ensureVersionTable(Connection conn) throws SQLException {
+        String sql = """
+            CREATE TABLE IF NOT EXISTS schema_version (
+                version INT PRIMARY KEY,
+                script VARCHAR(200) NOT NULL,
+                checksum BIGINT NOT NULL,
+                aplicado_en TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+            ) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4
+            """;
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    private static Map<Integer, Long> findAppliedVersions(Connection conn) throws SQLException {
+        Map<Integer, Long> versiones = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version, checksum FROM schema_version")) {
+            while (rs.next()) {
+                versiones.put(rs.getInt("version"), rs.getLong("checksum"));
+            }
+        }
+        return versiones;
+    }
+
+    /**
+     * Ejecutar cada sentencia del script; las que fallan porque el objeto ya existe se omiten
+     * (MySQL hace commit implícito en DDL, por eso no se envuelve en una transacción)
+     */
+    private static void applyScript(Connection conn, String script, String contenido) throws SQLException {
+        System.out.println("🔧 Aplicando migración " + script);
+
+        try (Statement stmt = conn.createStatement()) {
+            for (String sentencia : splitStatements(contenido)) {
+                try {
+                    stmt.execute(sentencia);
+                } catch (SQLException e) {
+                    if (ERRORES_YA_EXISTE.contains(e.getErrorCode())) {
+                        System.out.println("   ↪ Omitida (ya existe): " + e.getMessage());
+                    } else {
+                        throw new SQLException("Error en " + script + ": " + e.getMessage(),
+                                e.getSQLState(), e.getErrorCode(), e);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void registerVersion(Connection conn, int version, String script, long checksum) throws SQLException {
+        String sql = "INSERT INTO schema_version (version, script, checksum) VALUES (?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, version);
+            stmt.setString(2, script);
+            stmt.setLong(3, checksum);
+            stmt.executeUpdate();
+        }
+    }
+
+    private static List<String> splitStatements(String contenido) {
+        StringBuilder limpio = new StringBuilder();
+        for (String linea : contenido.split("\\R")) {
+            if (!linea.trim().startsWith("--")) {
+                limpio.append(linea).append('\n');
+            }
+        }
+
+        List<String> sentencias = new ArrayList<>();
+        for (String sentencia : limpio.toString().split(";")) {
+            if (!sentencia.trim().isEmpty()) {
+                sentencias.add(sentencia.trim());
+            }
+        }
+        return sentencias;
+    }
+
+    private static int parseVersion(String script) {
+        return Integer.parseInt(script.substring(1, script.indexOf("__")));
+    }
+
+    private static String loadScript(String script) throws IOException {
+        try (InputStream in = MigrationRunner.class.getResourceAsStream(RESOURCE_PATH + script)) {
+            if (in == null) {
+                throw new IOException("No se encontró el script de migración: " + script);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static long checksum(String contenido) {
+        CRC32 crc = new CRC32();
+        crc.update(contenido.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+}
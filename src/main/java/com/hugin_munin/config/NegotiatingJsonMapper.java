@@ -0,0 +1,217 @@
+package com.hugin_munin.config;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import io.javalin.http.Context;
+import io.javalin.json.JavalinJackson;
+import io.javalin.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Mapper JSON de Javalin con negociación de contenido para formatos binarios de Jackson
+ * - Accept: application/x-jackson-smile o application/cbor -> la respuesta se serializa en ese formato
+ *   solo si el cliente lo prefiere estrictamente sobre JSON (se respetan los valores q)
+ * - Content-Type: application/x-jackson-smile o application/cbor -> el cuerpo se lee en ese formato
+ * Los controladores siguen usando ctx.json(...) y ctx.bodyAsClass(...) sin cambios.
+ *
+ * Como JsonMapper no recibe el contexto, el formato negociado se guarda por hilo en un
+ * before-handler y el cuerpo binario se aplica a la respuesta en un after-handler.
+ */
+public class NegotiatingJsonMapper implements JsonMapper {
+
+    public static final String SMILE = "application/x-jackson-smile";
+    public static final String CBOR = "application/cbor";
+
+    private final JavalinJackson json = new JavalinJackson();
+    private final ObjectMapper smileMapper = new SmileMapper();
+    private final ObjectMapper cborMapper = new CBORMapper();
+
+    private final ThreadLocal<String> formatoRespuesta = new ThreadLocal<>();
+    private final ThreadLocal<byte[]> respuestaBinaria = new ThreadLocal<>();
+    private final ThreadLocal<String> formatoEntrada = new ThreadLocal<>();
+    private final ThreadLocal<byte[]> cuerpoBinario = new ThreadLocal<>();
+
+    /**
+     * Before-handler: determinar formatos de entrada y salida de la petición
+     */
+    public void antes(Context ctx) {
+        limpiar();
+
+        String salida = formatoPreferido(ctx.header("Accept"));
+        if (salida != null) {
+            formatoRespuesta.set(salida);
+        }
+
+        String entrada = formatoCuerpo(ctx.contentType());
+        if (entrada != null) {
+            formatoEntrada.set(entrada);
+            cuerpoBinario.set(ctx.bodyAsBytes());
+        }
+    }
+
+    /**
+     * After-handler: reemplazar el cuerpo por su versión binaria cuando corresponde
+     */
+    public void despues(Context ctx) {
+        try {
+            byte[] binario = respuestaBinaria.get();
+            String formato = formatoRespuesta.get();
+            if (binario != null && formato != null) {
+                ctx.result(binario);
+                ctx.contentType(formato);
+            }
+            ctx.header("Vary", "Accept");
+        } finally {
+            limpiar();
+        }
+    }
+
+    @Override
+    public String toJsonString(Object obj, Type type) {
+        ObjectMapper binario = mapperFor(formatoRespuesta.get());
+        if (binario == null) {
+            return json.toJsonString(obj, type);
+        }
+
+        try {
+            JavaType javaType = binario.getTypeFactory().constructType(type);
+            respuestaBinaria.set(binario.writerFor(javaType).writeValueAsBytes(obj));
+            // El cuerpo real se coloca en el after-handler
+            return "";
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public InputStream toJsonStream(Object obj, Type type) {
+        return json.toJsonStream(obj, type);
+    }
+
+    @Override
+    public void writeToOutputStream(Stream<?> stream, OutputStream outputStream) {
+        json.writeToOutputStream(stream, outputStream);
+    }
+
+    @Override
+    public <T> T fromJsonString(String jsonText, Type targetType) {
+        ObjectMapper binario = mapperFor(formatoEntrada.get());
+        byte[] cuerpo = cuerpoBinario.get();
+        if (binario == null || cuerpo == null) {
+            return json.fromJsonString(jsonText, targetType);
+        }
+
+        try {
+            return binario.readValue(cuerpo, binario.getTypeFactory().constructType(targetType));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public <T> T fromJsonStream(InputStream jsonStream, Type targetType) {
+        ObjectMapper binario = mapperFor(formatoEntrada.get());
+        if (binario == null) {
+            return json.fromJsonStream(jsonStream, targetType);
+        }
+
+        try {
+            return binario.readValue(jsonStream, binario.getTypeFactory().constructType(targetType));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // MÉTODOS AUXILIARES
+
+    /**
+     * Formato de respuesta según Accept: SMILE o CBOR solo si su q es mayor que la de JSON
+     * (application/json o, en su defecto, el comodín más específico); null para responder JSON.
+     * Los rangos con q=0 no son aceptables; ante un empate gana el que aparece primero.
+     */
+    static String formatoPreferido(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return null;
+        }
+
+        Map<String, Double> calidades = new HashMap<>();
+        String binario = null;
+        for (String rango : accept.split(",")) {
+            String[] partes = rango.split(";");
+            String tipo = partes[0].trim().toLowerCase(Locale.ROOT);
+            double q = calidad(partes);
+            if (tipo.isEmpty() || q <= 0 || calidades.containsKey(tipo)) {
+                continue;
+            }
+            calidades.put(tipo, q);
+            if ((tipo.equals(SMILE) || tipo.equals(CBOR)) && (binario == null || q > calidades.get(binario))) {
+                binario = tipo;
+            }
+        }
+
+        if (binario == null) {
+            return null;
+        }
+        // La q de JSON la define el rango más específico que lo incluye (application/json, application/*, */*)
+        double json = calidades.getOrDefault("application/json",
+                calidades.getOrDefault("application/*", calidades.getOrDefault("*/*", 0.0)));
+        return calidades.get(binario) > json ? binario : null;
+    }
+
+    /**
+     * Formato del cuerpo según Content-Type: SMILE o CBOR, o null para JSON
+     */
+    static String formatoCuerpo(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        String tipo = contentType.split(";")[0].trim().toLowerCase(Locale.ROOT);
+        return tipo.equals(SMILE) || tipo.equals(CBOR) ? tipo : null;
+    }
+
+    /**
+     * Valor q de un rango de Accept (1 si no se indica, 0 si no es válido)
+     */
+    private static double calidad(String[] partes) {
+        for (int i = 1; i < partes.length; i++) {
+            String parametro = partes[i].trim();
+            if (parametro.length() > 2 && parametro.substring(0, 2).equalsIgnoreCase("q=")) {
+                try {
+                    double q = Double.parseDouble(parametro.substring(2).trim());
+                    return q >= 0 && q <= 1 ? q : 0;
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private ObjectMapper mapperFor(String formato) {
+        if (SMILE.equals(formato)) {
+            return smileMapper;
+        }
+        if (CBOR.equals(formato)) {
+            return cborMapper;
+        }
+        return null;
+    }
+
+    private void limpiar() {
+        formatoRespuesta.remove();
+        respuestaBinaria.remove();
+        formatoEntrada.remove();
+        cuerpoBinario.remove();
+    }
+}
@@ -0,0 +1,292 @@
+package com.hugin_munin.config;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Administrador del pool de conexiones HikariCP
+ * - Monitorea hilos en espera y tiempos de adquisición (percentiles) vía HikariPoolMXBean
+ * - Ajusta maximumPoolSize en tiempo de ejecución dentro de los límites configurados
+ * - Contabiliza adquisición y tiempo de uso de conexiones por método llamador
+ */
+public class PoolManager {
+
+    private static final int MUESTRAS = 2048;
+    private static final int CICLOS_OCIOSOS_PARA_REDUCIR = 3;
+
+    private final HikariDataSource dataSource;
+    private final int minBound;
+    private final int maxBound;
+    private final int step;
+    private final long targetAcquireNanos;
+    private final boolean callerStatsEnabled;
+
+    // Ventana circular de tiempos de adquisición (ns) para percentiles
+    private final long[] muestrasAdquisicion = new long[MUESTRAS];
+    private final AtomicInteger indiceMuestra = new AtomicInteger();
+
+    // Acumulados del intervalo actual (se reinician en cada ciclo de ajuste)
+    private final LongAdder intervaloAdquisiciones = new LongAdder();
+    private final LongAdder intervaloAdquisicionNanos = new LongAdder();
+
+    private final Map<String, CallerStats> porLlamador = new ConcurrentHashMap<>();
+    private final AtomicLong totalAjustes = new AtomicLong();
+    private final ScheduledExecutorService scheduler;
+    private int ciclosOciosos = 0;
+
+    public PoolManager(HikariDataSource dataSource) {
+        this.dataSource = dataSource;
+
+        int maxInicial = dataSource.getMaximumPoolSize();
+        this.minBound = Math.max(1, DatabaseConfig.getIntSetting("DB_POOL_MIN_BOUND", maxInicial));
+        this.maxBound = Math.max(minBound, DatabaseConfig.getIntSetting("DB_POOL_MAX_BOUND", maxInicial * 3));
+        this.step = Math.max(1, DatabaseConfig.getIntSetting("DB_POOL_RESIZE_STEP", 2));
+        this.targetAcquireNanos = TimeUnit.MILLISECONDS.toNanos(DatabaseConfig.getIntSetting("DB_POOL_TARGET_ACQUIRE_MS", 5));
+        // Recorrer la pila y envolver cada conexión tiene costo: solo para diagnóstico
+        this.callerStatsEnabled = Boolean.parseBoolean(DatabaseConfig.getSetting("DB_POOL_CALLER_STATS", "false"));
+
+        int intervaloMs = DatabaseConfig.getIntSetting("DB_POOL_ADJUST_INTERVAL_MS", 10000);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "PoolManager");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (intervaloMs > 0 && maxBound > minBound) {
+            scheduler.scheduleAtFixedRate(this::ajustar, intervaloMs, intervaloMs, TimeUnit.MILLISECONDS);
+        }
+
+        System.out.println("🏊 Pool configurado: max=" + maxInicial + ", límites=[" + minBound + ", " + maxBound + "]");
+    }
+
+    /**
+     * Registrar la adquisición y envolver la conexión para medir cuánto tiempo se retiene
+     */
+    Connection track(Connection conn, long acquireNanos) {
+        muestrasAdquisicion[Math.floorMod(indiceMuestra.getAndIncrement(), MUESTRAS)] = acquireNanos;
+        intervaloAdquisiciones.increment();
+        intervaloAdquisicionNanos.add(acquireNanos);
+
+        if (!callerStatsEnabled) {
+            return conn;
+        }
+
+        CallerStats stats = porLlamador.computeIfAbsent(resolveCaller(), k -> new CallerStats());
+        stats.adquisiciones.increment();
+        stats.adquisicionNanos.add(acquireNanos);
+
+        long obtenida = System.nanoTime();
+        AtomicBoolean cerrada = new AtomicBoolean(false);
+
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && cerrada.compareAndSet(false, true)) {
+                        long retenida = System.nanoTime() - obtenida;
+                        stats.retencionNanos.add(retenida);
+                        stats.maxRetencionNanos.accumulateAndGet(retenida, Math::max);
+                    }
+                    try {
+                        return method.invoke(conn, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    /**
+     * CAMBIAR el tamaño máximo del pool dentro de los límites configurados
+     */
+    public synchronized int resize(int nuevoMaximo) {
+        int ajustado = Math.max(minBound, Math.min(maxBound, nuevoMaximo));
+        HikariConfigMXBean config = dataSource.getHikariConfigMXBean();
+        int actual = config.getMaximumPoolSize();
+
+        if (ajustado != actual) {
+            config.setMaximumPoolSize(ajustado);
+            if (config.getMinimumIdle() > ajustado) {
+                config.setMinimumIdle(ajustado);
+            }
+            totalAjustes.incrementAndGet();
+            System.out.println("🏊 Pool redimensionado: " + actual + " -> " + ajustado);
+        }
+        return ajustado;
+    }
+
+    /**
+     * Ciclo de ajuste automático: crece si hay hilos esperando o la espera promedio supera
+     * el objetivo; se reduce tras varios ciclos con baja utilización
+     */
+    private void ajustar() {
+        try {
+            HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+            if (pool == null) {
+                return;
+            }
+
+            long adquisiciones = intervaloAdquisiciones.sumThenReset();
+            long nanos = intervaloAdquisicionNanos.sumThenReset();
+            long promedio = adquisiciones == 0 ? 0 : nanos / adquisiciones;
+
+            int esperando = pool.getThreadsAwaitingConnection();
+            int activas = pool.getActiveConnections();
+            int maximo = dataSource.getHikariConfigMXBean().getMaximumPoolSize();
+
+            synchronized (this) {
+                if (esperando > 0 || promedio > targetAcquireNanos) {
+                    ciclosOciosos = 0;
+                    if (maximo < maxBound) {
+                        resize(maximo + step);
+                    }
+                } else if (activas <= maximo / 4 && maximo > minBound) {
+                    if (++ciclosOciosos >= CICLOS_OCIOSOS_PARA_REDUCIR) {
+                        ciclosOciosos = 0;
+                        resize(maximo - 1);
+                    }
+                } else {
+                    ciclosOciosos = 0;
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("⚠️ Error en ajuste del pool: " + e.getMessage());
+        }
+    }
+
+    /**
+     * OBTENER estado del pool, percentiles de adquisición y métodos que más retienen conexiones
+     */
+    public Map<String, Object> getEstadisticas() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        HikariConfigMXBean config = dataSource.getHikariConfigMXBean();
+        if (pool != null) {
+            stats.put("activas", pool.getActiveConnections());
+            stats.put("ociosas", pool.getIdleConnections());
+            stats.put("totales", pool.getTotalConnections());
+            stats.put("hilos_esperando", pool.getThreadsAwaitingConnection());
+        }
+        stats.put("maximo_actual", config.getMaximumPoolSize());
+        stats.put("minimo_ocioso", config.getMinimumIdle());
+        stats.put("limite_inferior", minBound);
+        stats.put("limite_superior", maxBound);
+        stats.put("ajustes_realizados", totalAjustes.get());
+
+        long[] muestras = snapshotMuestras();
+        Map<String, Object> adquisicion = new LinkedHashMap<>();
+        adquisicion.put("muestras", muestras.length);
+        adquisicion.put("p50_ms", percentilMs(muestras, 50));
+        adquisicion.put("p95_ms", percentilMs(muestras, 95));
+        adquisicion.put("p99_ms", percentilMs(muestras, 99));
+        adquisicion.put("max_ms", muestras.length == 0 ? 0.0 : toMs(muestras[muestras.length - 1]));
+        stats.put("adquisicion", adquisicion);
+
+        List<Map<String, Object>> llamadores = porLlamador.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, CallerStats> e) -> e.getValue().retencionNanos.sum()).reversed())
+                .limit(20)
+                .map(e -> e.getValue().toMap(e.getKey()))
+                .collect(Collectors.toList());
+        stats.put("llamadores_por_retencion", llamadores);
+
+        return stats;
+    }
+
+    /**
+     * REINICIAR la contabilidad por llamador
+     */
+    public void resetEstadisticas() {
+        porLlamador.clear();
+    }
+
+    public int getMinBound() {
+        return minBound;
+    }
+
+    public int getMaxBound() {
+        return maxBound;
+    }
+
+    public int getMinimumIdle() {
+        return dataSource.getHikariConfigMXBean().getMinimumIdle();
+    }
+
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    // MÉTODOS AUXILIARES
+
+    /**
+     * Primer método de la aplicación fuera del paquete config en la pila de llamadas
+     */
+    private String resolveCaller() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(f -> f.getClassName().startsWith("com.hugin_munin.")
+                        && !f.getClassName().startsWith("com.hugin_munin.config."))
+                .findFirst()
+                .map(f -> f.getClassName().substring(f.getClassName().lastIndexOf('.') + 1) + "." + f.getMethodName())
+                .orElse("desconocido"));
+    }
+
+    private long[] snapshotMuestras() {
+        int registradas = indiceMuestra.get();
+        int total = (registradas < 0 || registradas > MUESTRAS) ? MUESTRAS : registradas;
+        long[] copia = Arrays.copyOf(muestrasAdquisicion, total);
+        Arrays.sort(copia);
+        return copia;
+    }
+
+    private double percentilMs(long[] ordenadas, int percentil) {
+        if (ordenadas.length == 0) {
+            return 0.0;
+        }
+        int idx = (int) Math.ceil(percentil / 100.0 * ordenadas.length) - 1;
+        return toMs(ordenadas[Math.max(0, Math.min(idx, ordenadas.length - 1))]);
+    }
+
+    private static double toMs(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+
+    /**
+     * Contadores por método llamador
+     */
+    private static class CallerStats {
+        private final LongAdder adquisiciones = new LongAdder();
+        private final LongAdder adquisicionNanos = new LongAdder();
+        private final LongAdder retencionNanos = new LongAdder();
+        private final AtomicLong maxRetencionNanos = new AtomicLong();
+
+        Map<String, Object> toMap(String llamador) {
+            long total = adquisiciones.sum();
+            Map<String, Object> map = new HashMap<>();
+            map.put("llamador", llamador);
+            map.put("adquisiciones", total);
+            map.put("espera_promedio_ms", total == 0 ? 0.0 : toMs(adquisicionNanos.sum() / total));
+            map.put("retencion_total_ms", toMs(retencionNanos.sum()));
+            map.put("retencion_promedio_ms", total == 0 ? 0.0 : toMs(retencionNanos.sum() / total));
+            map.put("retencion_max_ms", toMs(maxRetencionNanos.get()));
+            return map;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.hugin_munin.config;
+
+import io.javalin.config.JavalinConfig;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Configuración del servidor HTTP (Jetty embebido en Javalin)
+ * - Un solo conector con HTTP/1.1 y HTTP/2 sin TLS (h2c) en el mismo puerto: los clientes
+ *   HTTP/1.1 no cambian; un proxy que termina TLS puede hablar HTTP/2 con el backend y
+ *   multiplexar en pocas conexiones las peticiones paralelas de cada pantalla
+ * - Pool de hilos, acceptors/selectors, timeouts y buffers desde .env (SERVER_*)
+ *   con valores por defecto pensados para producción
+ */
+public final class ServerConfig {
+
+    private final int puerto;
+    private final String host;
+    private final boolean http2;
+    private final int acceptors;
+    private final int selectors;
+    private final int hilosMin;
+    private final int hilosMax;
+    private final int hiloOciosoMs;
+    private final int idleTimeoutMs;
+    private final int acceptQueue;
+    private final int outputBuffer;
+    private final int outputAggregation;
+    private final int requestHeader;
+    private final int http2MaxStreams;
+
+    private ServerConfig() {
+        this.puerto = DatabaseConfig.getIntSetting("SERVER_PORT", 7000);
+        this.host = DatabaseConfig.getSetting("SERVER_HOST", null);
+        this.http2 = Boolean.parseBoolean(DatabaseConfig.getSetting("SERVER_HTTP2", "true"));
+
+        // -1 deja que Jetty los calcule según los núcleos disponibles
+        this.acceptors = DatabaseConfig.getIntSetting("SERVER_ACCEPTORS", 1);
+        this.selectors = DatabaseConfig.getIntSetting("SERVER_SELECTORS", -1);
+
+        this.hilosMin = Math.max(2, DatabaseConfig.getIntSetting("SERVER_THREADS_MIN", 16));
+        this.hilosMax = Math.max(hilosMin, DatabaseConfig.getIntSetting("SERVER_THREADS_MAX", 200));
+        this.hiloOciosoMs = DatabaseConfig.getIntSetting("SERVER_THREAD_IDLE_MS", 60000);
+
+        // Conexiones keep-alive más largas que el intervalo típico entre pantallas
+        this.idleTimeoutMs = DatabaseConfig.getIntSetting("SERVER_IDLE_TIMEOUT_MS", 60000);
+        this.acceptQueue = DatabaseConfig.getIntSetting("SERVER_ACCEPT_QUEUE", 256);
+
+        // Un listado paginado cabe en el buffer: se envía con Content-Length y sin chunks
+        this.outputBuffer = DatabaseConfig.getIntSetting("SERVER_OUTPUT_BUFFER", 65536);
+        this.outputAggregation = Math.min(outputBuffer, DatabaseConfig.getIntSetting("SERVER_OUTPUT_AGGREGATION", 16384));
+        this.requestHeader = DatabaseConfig.getIntSetting("SERVER_REQUEST_HEADER", 16384);
+        this.http2MaxStreams = DatabaseConfig.getIntSetting("SERVER_HTTP2_MAX_STREAMS", 256);
+    }
+
+    /**
+     * Leer la configuración del servidor
+     */
+    public static ServerConfig load() {
+        return new ServerConfig();
+    }
+
+    /**
+     * Aplicar pool de hilos y conector a la configuración de Javalin
+     * Con un conector propio Javalin no agrega el suyo por defecto
+     */
+    public void aplicar(JavalinConfig config) {
+        QueuedThreadPool threadPool = new QueuedThreadPool(hilosMax, hilosMin, hiloOciosoMs);
+        threadPool.setName("hm-http");
+        config.jetty.threadPool = threadPool;
+
+        config.jetty.addConnector((server, httpConfiguration) -> {
+            configurarHttp(httpConfiguration);
+
+            ConnectionFactory http11 = new HttpConnectionFactory(httpConfiguration);
+            ServerConnector connector;
+            if (http2) {
+                HTTP2CServerConnectionFactory h2c = new HTTP2CServerConnectionFactory(httpConfiguration);
+                h2c.setMaxConcurrentStreams(http2MaxStreams);
+                connector = new ServerConnector(server, acceptors, selectors, http11, h2c);
+            } else {
+                connector = new ServerConnector(server, acceptors, selectors, http11);
+            }
+
+            connector.setPort(puerto);
+            connector.setHost(host);
+            connector.setIdleTimeout(idleTimeoutMs);
+            connector.setAcceptQueueSize(acceptQueue);
+            return connector;
+        });
+    }
+
+    public int getPuerto() {
+        return puerto;
+    }
+
+    /**
+     * Resumen para el log de arranque
+     */
+    public Map<String, Object> getResumen() {
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("puerto", puerto);
+        resumen.put("protocolos", http2 ? "HTTP/1.1 + h2c" : "HTTP/1.1");
+        resumen.put("acceptors", acceptors);
+        resumen.put("selectors", selectors);
+        resumen.put("hilos", hilosMin + "-" + hilosMax);
+        resumen.put("idle_timeout_ms", idleTimeoutMs);
+        resumen.put("output_buffer", outputBuffer);
+        return resumen;
+    }
+
+    // MÉTODOS AUXILIARES
+
+    private void configurarHttp(HttpConfiguration httpConfiguration) {
+        httpConfiguration.setOutputBufferSize(outputBuffer);
+        httpConfiguration.setOutputAggregationSize(outputAggregation);
+        httpConfiguration.setRequestHeaderSize(requestHeader);
+        httpConfiguration.setSendServerVersion(false);
+        httpConfiguration.setSendXPoweredBy(false);
+    }
+}
@@ -9,6 +9,7 @@ import io.javalin.http.HttpStatus;
 
 import java.util.Map;
 import java.util.HashMap;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Controlador de autenticación - CORREGIDO PARA USAR MÉTODOS CORRECTOS
@@ -52,6 +53,16 @@ public class AuthController {
                 return;
             }
 
+            // Usuario bloqueado temporalmente por intentos fallidos
+            long segundosBloqueo = authService.getSegundosBloqueo(nombreUsuario);
+            if (segundosBloqueo > 0) {
+                ctx.header("Retry-After", String.valueOf(segundosBloqueo));
+                ctx.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .json(createErrorResponse("Demasiados intentos fallidos",
+                                "Intente nuevamente en " + segundosBloqueo + " segundos"));
+                return;
+            }
+
             // CORREGIDO: Usar authenticate en lugar de login
             Usuario usuario = authService.authenticate(nombreUsuario, contrasena);
 
@@ -89,6 +100,11 @@ public class AuthController {
 
             ctx.json(response);
 
+        } catch (RejectedExecutionException e) {
+            System.err.println("⚠️ Verificación de credenciales saturada: " + e.getMessage());
+            ctx.header("Retry-After", "1");
+            ctx.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .json(createErrorResponse("Servicio ocupado", "Demasiados inicios de sesión simultáneos, intente nuevamente"));
         } catch (Exception e) {
             System.err.println("❌ Error en login: " + e.getMessage());
             e.printStackTrace();
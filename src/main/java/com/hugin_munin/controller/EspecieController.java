@@ -149,6 +149,33 @@ public class EspecieController {
         }
     }
 
+    /**
+     * PATCH /hm/especies/{id} - Actualización parcial (JSON Merge Patch: solo los campos enviados)
+     */
+    public void patchSpecie(Context ctx) {
+        try {
+            int id = Integer.parseInt(ctx.pathParam("id"));
+            Map<String, Object> parche = ctx.bodyAsClass(Map.class);
+
+            Especie resultado = especieService.patchSpecie(id, parche);
+
+            ctx.json(Map.of(
+                    "data", resultado,
+                    "message", "Especie actualizada exitosamente",
+                    "success", true
+            ));
+        } catch (NumberFormatException e) {
+            ctx.status(HttpStatus.BAD_REQUEST)
+                    .json(createErrorResponse("ID inválido", "El ID debe ser un número entero"));
+        } catch (IllegalArgumentException e) {
+            ctx.status(HttpStatus.BAD_REQUEST)
+                    .json(createErrorResponse("Datos inválidos", e.getMessage()));
+        } catch (Exception e) {
+            ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .json(createErrorResponse("Error al actualizar especie", e.getMessage()));
+        }
+    }
+
     /**
      * DELETE /hm/especies/{id} - Eliminar especie
      */
@@ -1,6 +1,7 @@
 package com.hugin_munin.controller;
 
 import com.hugin_munin.model.Especimen;
+import com.hugin_munin.repository.ConflictoVersionException;
 import com.hugin_munin.service.EspecimenService;
 
 import io.javalin.http.Context;
@@ -45,6 +46,7 @@ public class EspecimenController {
             int id = Integer.parseInt(ctx.pathParam("id"));
             Especimen especimen = especimenService.getSpecimenById(id);
 
+            Precondiciones.etag(ctx, especimen.getVersion());
             ctx.json(Map.of(
                     "data", especimen,
                     "message", "Especimen encontrado exitosamente"
@@ -142,9 +144,11 @@ public class EspecimenController {
             int id = Integer.parseInt(ctx.pathParam("id"));
             Especimen especimenActualizado = ctx.bodyAsClass(Especimen.class);
             especimenActualizado.setId_especimen(id);
+            especimenActualizado.setVersion(Precondiciones.versionEsperada(ctx, especimenActualizado.getVersion()));
 
             Especimen resultado = especimenService.updateSpecimen(especimenActualizado);
 
+            Precondiciones.etag(ctx, resultado.getVersion());
             ctx.json(Map.of(
                     "data", resultado,
                     "message", "Especimen actualizado exitosamente",
@@ -156,6 +160,41 @@ public class EspecimenController {
         } catch (IllegalArgumentException e) {
             ctx.status(HttpStatus.BAD_REQUEST)
                     .json(createErrorResponse("Datos inválidos", e.getMessage()));
+        } catch (ConflictoVersionException e) {
+            ctx.status(HttpStatus.CONFLICT)
+                    .json(createErrorResponse("Conflicto de versión", e.getMessage()));
+        } catch (Exception e) {
+            ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .json(createErrorResponse("Error al actualizar especimen", e.getMessage()));
+        }
+    }
+
+    /**
+     * PATCH /hm/especimenes/{id} - Actualización parcial (JSON Merge Patch: solo los campos enviados)
+     */
+    public void patchSpecimen(Context ctx) {
+        try {
+            int id = Integer.parseInt(ctx.pathParam("id"));
+            Map<String, Object> parche = ctx.bodyAsClass(Map.class);
+            Integer versionEsperada = Precondiciones.versionEsperada(ctx, parche);
+
+            Especimen resultado = especimenService.patchSpecimen(id, parche, versionEsperada);
+
+            Precondiciones.etag(ctx, resultado.getVersion());
+            ctx.json(Map.of(
+                    "data", resultado,
+                    "message", "Especimen actualizado exitosamente",
+                    "success", true
+            ));
+        } catch (NumberFormatException e) {
+            ctx.status(HttpStatus.BAD_REQUEST)
+                    .json(createErrorResponse("ID inválido", "El ID debe ser un número entero"));
+        } catch (IllegalArgumentException e) {
+            ctx.status(HttpStatus.BAD_REQUEST)
+                    .json(createErrorResponse("Datos inválidos", e.getMessage()));
+        } catch (ConflictoVersionException e) {
+            ctx.status(HttpStatus.CONFLICT)
+                    .json(createErrorResponse("Conflicto de versión", e.getMessage()));
         } catch (Exception e) {
             ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .json(createErrorResponse("Error al actualizar especimen", e.getMessage()));
@@ -270,6 +309,68 @@ public class EspecimenController {
         }
     }
 
+    /**
+     * GET /hm/especimenes/{id}/timeline?cursor=&limit= - Obtener la línea de tiempo del especimen
+     */
+    public void getSpecimenTimeline(Context ctx) {
+        try {
+            int id = Integer.parseInt(ctx.pathParam("id"));
+
+            Integer limit = null;
+            String limitParam = ctx.queryParam("limit");
+            if (limitParam != null && !limitParam.trim().isEmpty()) {
+                try {
+                    limit = Integer.parseInt(limitParam.trim());
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("El límite debe ser un número entero");
+                }
+            }
+
+            Map<String, Object> timeline = especimenService.getSpecimenTimeline(id, ctx.queryParam("cursor"), limit);
+
+            ctx.json(Map.of(
+                    "data", timeline,
+                    "message", "Línea de tiempo obtenida exitosamente"
+            ));
+        } catch (NumberFormatException e) {
+            ctx.status(HttpStatus.BAD_REQUEST)
+                    .json(createErrorResponse("ID inválido", "El ID debe ser un número entero"));
+        } catch (IllegalArgumentException e) {
+            if (e.getMessage().contains("no encontrado")) {
+                ctx.status(HttpStatus.NOT_FOUND)
+                        .json(createErrorResponse("Especimen no encontrado", e.getMessage()));
+            } else {
+                ctx.status(HttpStatus.BAD_REQUEST)
+                        .json(createErrorResponse("Parámetros inválidos", e.getMessage()));
+            }
+        } catch (Exception e) {
+            ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .json(createErrorResponse("Error al obtener línea de tiempo", e.getMessage()));
+        }
+    }
+
+    /**
+     * POST /hm/especimenes/lote/{accion} - Activar, desactivar o eliminar varios especímenes
+     * Cuerpo: {"ids": [1, 2, 3]} o {"filtro": {"activo": true, "id_especie": 4, "nombre": "..."}}
+     */
+    public void bulkChangeState(Context ctx) {
+        try {
+            Map<String, Object> requestData = ctx.bodyAsClass(Map.class);
+            Map<String, Object> resultado = especimenService.bulkChangeState(ctx.pathParam("accion"), requestData);
+
+            ctx.json(Map.of(
+                    "data", resultado,
+                    "message", "Lote de especímenes procesado exitosamente"
+            ));
+        } catch (IllegalArgumentException e) {
+            ctx.status(HttpStatus.BAD_REQUEST)
+                    .json(createErrorResponse("Datos inválidos", e.getMessage()));
+        } catch (Exception e) {
+            ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .json(createErrorResponse("Error al procesar lote de especímenes", e.getMessage()));
+        }
+    }
+
     /**
      * GET /hm/especimenes/estadisticas - Obtener estadísticas de especímenes
      */
@@ -287,6 +388,27 @@ public class EspecimenController {
         }
     }
 
+    /**
+     * GET /hm/especimenes/cache/agregados - Estadísticas de la caché de agregados
+     */
+    public void getSpecimenCacheInfo(Context ctx) {
+        ctx.json(Map.of(
+                "data", especimenService.getSpecimenCacheInfo(),
+                "message", "Estadísticas de caché obtenidas exitosamente"
+        ));
+    }
+
+    /**
+     * DELETE /hm/especimenes/cache/agregados - Limpiar la caché de agregados
+     */
+    public void clearSpecimenCache(Context ctx) {
+        especimenService.clearSpecimenCache();
+        ctx.json(Map.of(
+                "data", especimenService.getSpecimenCacheInfo(),
+                "message", "Caché de agregados limpiada exitosamente"
+        ));
+    }
+
     /**
      * Método auxiliar para crear respuestas de error consistentes
      */
@@ -0,0 +1,112 @@
+package com.hugin_munin.controller;
+
+import com.hugin_munin.service.EventoService;
+import io.javalin.http.Context;
+import io.javalin.http.HttpStatus;
+import io.javalin.http.sse.SseClient;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Controlador del feed de eventos (Server-Sent Events)
+ * Reemplaza el polling de listas completas por notificaciones compactas
+ */
+public class EventoController {
+
+    private static final long HEARTBEAT_SECONDS = 15;
+
+    private final EventoService eventoService;
+
+    public EventoController(EventoService eventoService) {
+        this.eventoService = eventoService;
+    }
+
+    /**
+     * SSE /hm/eventos?tipos=traslado,alta,baja - Suscribirse al feed de eventos
+     */
+    public void stream(SseClient client) {
+        EventoService.Suscriptor suscriptor;
+        try {
+            suscriptor = eventoService.subscribe(parseTipos(client.ctx().queryParam("tipos")));
+        } catch (IllegalStateException e) {
+            client.sendEvent("error", createErrorResponse("Feed de eventos saturado", e.getMessage()));
+            client.close();
+            return;
+        }
+
+        client.keepAlive();
+        client.onClose(() -> eventoService.unsubscribe(suscriptor));
+        client.sendEvent("conectado", Map.of("message", "Suscripción al feed de eventos activa"));
+
+        // Cada suscriptor drena su propio buffer en un hilo virtual
+        Thread.ofVirtual().name("SSE-Eventos").start(() -> {
+            try {
+                while (!client.terminated()) {
+                    Map<String, Object> evento = suscriptor.poll(HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+
+                    // El buffer se llenó: el cliente debe recargar lo que le interese
+                    long descartados = suscriptor.tomarDescartados();
+                    if (descartados > 0) {
+                        client.sendEvent("descartados", Map.of("eventos_descartados", descartados));
+                    }
+
+                    if (evento == null) {
+                        client.sendComment("heartbeat");
+                    } else {
+                        client.sendEvent((String) evento.get("tipo"), evento, String.valueOf(evento.get("seq")));
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                System.err.println("⚠️ Cliente SSE desconectado: " + e.getMessage());
+            } finally {
+                eventoService.unsubscribe(suscriptor);
+            }
+        });
+    }
+
+    /**
+     * GET /hm/eventos/estadisticas - Obtener estadísticas del feed de eventos
+     */
+    public void getEstadisticas(Context ctx) {
+        try {
+            ctx.json(Map.of(
+                    "data", eventoService.getEstadisticas(),
+                    "message", "Estadísticas del feed de eventos obtenidas exitosamente"
+            ));
+        } catch (Exception e) {
+            ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .json(createErrorResponse("Error al obtener estadísticas de eventos", e.getMessage()));
+        }
+    }
+
+    // MÉTODOS AUXILIARES
+
+    private Set<String> parseTipos(String tipos) {
+        if (tipos == null || tipos.trim().isEmpty()) {
+            return null;
+        }
+        return Arrays.stream(tipos.split(","))
+                .map(String::trim)
+                .map(String::toLowerCase)
+                .filter(t -> !t.isEmpty())
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Método auxiliar para crear respuestas de error consistentes
+     */
+    private Map<String, Object> createErrorResponse(String error, String details) {
+        return Map.of(
+                "success", false,
+                "error", error,
+                "details", details != null ? details : "",
+                "timestamp", System.currentTimeMillis()
+        );
+    }
+}
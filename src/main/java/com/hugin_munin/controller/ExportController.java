@@ -0,0 +1,86 @@
+package com.hugin_munin.controller;
+
+import com.hugin_munin.service.ExportService;
+import io.javalin.http.Context;
+import io.javalin.http.HttpStatus;
+import org.eclipse.jetty.server.Request;
+
+import java.util.Map;
+
+/**
+ * Controlador de exportaciones masivas
+ */
+public class ExportController {
+
+    private final ExportService exportService;
+
+    public ExportController(ExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    /**
+     * GET /hm/export/inventario?format=csv|ndjson&gzip=true&activo= - Exportar inventario completo
+     */
+    public void exportInventario(Context ctx) {
+        String formato;
+        Boolean activo = null;
+        try {
+            formato = exportService.resolveFormato(ctx.queryParam("format"));
+
+            String activoParam = ctx.queryParam("activo");
+            if (activoParam != null && !activoParam.trim().isEmpty()) {
+                if (!activoParam.equalsIgnoreCase("true") && !activoParam.equalsIgnoreCase("false")) {
+                    throw new IllegalArgumentException("El parámetro activo debe ser true o false");
+                }
+                activo = Boolean.parseBoolean(activoParam);
+            }
+        } catch (IllegalArgumentException e) {
+            ctx.status(HttpStatus.BAD_REQUEST)
+                    .json(createErrorResponse("Parámetros inválidos", e.getMessage()));
+            return;
+        }
+
+        boolean gzip = "true".equalsIgnoreCase(ctx.queryParam("gzip"));
+        String archivo = "inventario." + formato + (gzip ? ".gz" : "");
+
+        if (gzip) {
+            ctx.contentType("application/gzip");
+        } else if (ExportService.FORMATO_CSV.equals(formato)) {
+            ctx.contentType("text/csv; charset=utf-8");
+        } else {
+            ctx.contentType("application/x-ndjson; charset=utf-8");
+        }
+        ctx.header("Content-Disposition", "attachment; filename=\"" + archivo + "\"");
+
+        try {
+            long filas = exportService.exportInventario(formato, activo, gzip, ctx.outputStream());
+            System.out.println("📤 Inventario exportado (" + formato + (gzip ? ", gzip" : "") + "): " + filas + " filas");
+        } catch (Exception e) {
+            System.err.println("❌ Error al exportar inventario: " + e.getMessage());
+            if (!ctx.res().isCommitted()) {
+                ctx.res().reset();
+                ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .json(createErrorResponse("Error al exportar inventario", e.getMessage()));
+            } else {
+                // Ya se enviaron el estado 200 y parte del cuerpo: se corta la conexión sin el cierre
+                // del flujo (ni trailer gzip ni último chunk) para que el cliente vea la respuesta incompleta
+                Request jetty = Request.getBaseRequest(ctx.req());
+                if (jetty != null) {
+                    jetty.getResponse().getHttpChannel().abort(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Método auxiliar para crear respuestas de error consistentes
+     */
+    private Map<String, Object> createErrorResponse(String error, String details) {
+        return Map.of(
+                "success", false,
+                "error", error,
+                "details", details != null ? details : "",
+                "timestamp", System.currentTimeMillis()
+        );
+    }
+}
@@ -0,0 +1,84 @@
+package com.hugin_munin.controller;
+
+import com.hugin_munin.config.PoolManager;
+import io.javalin.http.Context;
+import io.javalin.http.HttpStatus;
+
+import java.util.Map;
+
+/**
+ * Controlador de administración del pool de conexiones
+ */
+public class PoolController {
+
+    private final PoolManager poolManager;
+
+    public PoolController(PoolManager poolManager) {
+        this.poolManager = poolManager;
+    }
+
+    /**
+     * GET /hm/admin/pool - Estado del pool, percentiles de adquisición y uso por llamador
+     */
+    public void getEstadisticas(Context ctx) {
+        try {
+            ctx.json(Map.of(
+                    "data", poolManager.getEstadisticas(),
+                    "message", "Estadísticas del pool obtenidas exitosamente"
+            ));
+        } catch (Exception e) {
+            ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .json(createErrorResponse("Error al obtener estadísticas del pool", e.getMessage()));
+        }
+    }
+
+    /**
+     * PUT /hm/admin/pool/tamano - Cambiar el tamaño máximo del pool {"maximo": n}
+     */
+    public void resize(Context ctx) {
+        try {
+            Map<?, ?> body = ctx.bodyAsClass(Map.class);
+            Object maximo = body == null ? null : body.get("maximo");
+            if (!(maximo instanceof Number)) {
+                throw new IllegalArgumentException("El campo 'maximo' es requerido y debe ser numérico");
+            }
+
+            int aplicado = poolManager.resize(((Number) maximo).intValue());
+
+            ctx.json(Map.of(
+                    "data", Map.of(
+                            "maximo_aplicado", aplicado,
+                            "limite_inferior", poolManager.getMinBound(),
+                            "limite_superior", poolManager.getMaxBound()
+                    ),
+                    "message", "Tamaño del pool actualizado exitosamente"
+            ));
+        } catch (IllegalArgumentException e) {
+            ctx.status(HttpStatus.BAD_REQUEST)
+                    .json(createErrorResponse("Datos inválidos", e.getMessage()));
+        } catch (Exception e) {
+            ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .json(createErrorResponse("Error al redimensionar el pool", e.getMessage()));
+        }
+    }
+
+    /**
+     * DELETE /hm/admin/pool/llamadores - Reiniciar la contabilidad por llamador
+     */
+    public void resetLlamadores(Context ctx) {
+        poolManager.resetEstadisticas();
+        ctx.json(Map.of("message", "Contabilidad por llamador reiniciada exitosamente"));
+    }
+
+    /**
+     * Método auxiliar para crear respuestas de error consistentes
+     */
+    private Map<String, Object> createErrorResponse(String error, String details) {
+        return Map.of(
+                "success", false,
+                "error", error,
+                "details", details != null ? details : "",
+                "timestamp", System.currentTimeMillis()
+        );
+    }
+}
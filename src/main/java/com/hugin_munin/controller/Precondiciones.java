@@ -0,0 +1,67 @@
+package com.hugin_munin.controller;
+
+import io.javalin.http.Context;
+
+import java.util.Map;
+
+/**
+ * Utilidades para actualizaciones condicionales (concurrencia optimista)
+ * La versión de la fila se publica como ETag y el cliente la devuelve en If-Match
+ * (o en el campo "version" del cuerpo). Sin ninguna de las dos, la actualización no es condicional.
+ */
+public final class Precondiciones {
+
+    private Precondiciones() {
+    }
+
+    /**
+     * Versión esperada por el cliente: If-Match tiene prioridad sobre el cuerpo; "*" acepta cualquier versión
+     */
+    public static Integer versionEsperada(Context ctx, Integer versionCuerpo) {
+        String ifMatch = ctx.header("If-Match");
+        if (ifMatch == null || ifMatch.isBlank()) {
+            return versionCuerpo;
+        }
+
+        String valor = ifMatch.trim();
+        if (valor.equals("*")) {
+            return null;
+        }
+        if (valor.startsWith("W/")) {
+            valor = valor.substring(2);
+        }
+        if (valor.length() >= 2 && valor.startsWith("\"") && valor.endsWith("\"")) {
+            valor = valor.substring(1, valor.length() - 1);
+        }
+
+        try {
+            int version = Integer.parseInt(valor);
+            if (version < 0) {
+                throw new NumberFormatException();
+            }
+            return version;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("If-Match inválido: se esperaba la versión del registro (ETag)");
+        }
+    }
+
+    /**
+     * Versión esperada en un PATCH: el cuerpo es un mapa y su campo "version" es opcional
+     */
+    public static Integer versionEsperada(Context ctx, Map<String, Object> cuerpo) {
+        Object version = cuerpo != null ? cuerpo.get("version") : null;
+        if (version != null && !(version instanceof Number)) {
+            throw new IllegalArgumentException("El campo version debe ser un número entero");
+        }
+        return versionEsperada(ctx, version != null ? ((Number) version).intValue() : null);
+    }
+
+    /**
+     * Publicar la versión actual como ETag (no hace nada si se desconoce)
+     */
+    public static void etag(Context ctx, Integer version) {
+        if (version != null) {
+            ctx.header("ETag", "\"" + version + "\"");
+        }
+    }
+}
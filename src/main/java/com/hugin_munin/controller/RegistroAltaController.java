@@ -7,6 +7,7 @@ import io.javalin.http.HttpStatus;
 
 import java.sql.SQLException;
 import java.util.List;
+import java.util.Map;
 
 public class RegistroAltaController {
 
@@ -18,8 +19,18 @@ public class RegistroAltaController {
 
     public void getAll(Context ctx) {
         try {
+            // ?fields= y ?expand= devuelven solo los campos y relaciones solicitados
+            String fields = ctx.queryParam("fields");
+            String expand = ctx.queryParam("expand");
+            if (fields != null || expand != null) {
+                ctx.json(service.getAllParcial(fields, expand));
+                return;
+            }
+
             List<RegistroAlta> registros = service.getAll();
             ctx.json(registros);
+        } catch (IllegalArgumentException e) {
+            ctx.status(HttpStatus.BAD_REQUEST).json(errorResponse(e.getMessage()));
         } catch (SQLException e) {
             e.printStackTrace(); // Para debugging
             ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -108,6 +119,33 @@ public class RegistroAltaController {
         }
     }
 
+    /**
+     * PATCH /hm/registro_alta/{id} - Actualización parcial (JSON Merge Patch: solo los campos enviados)
+     */
+    public void patch(Context ctx) {
+        try {
+            int id = Integer.parseInt(ctx.pathParam("id"));
+            Map<String, Object> parche = ctx.bodyAsClass(Map.class);
+
+            RegistroAlta result = service.patch(id, parche);
+            ctx.status(HttpStatus.OK).json(result);
+        } catch (NumberFormatException e) {
+            ctx.status(HttpStatus.BAD_REQUEST)
+                    .json(errorResponse("ID inválido"));
+        } catch (IllegalArgumentException e) {
+            ctx.status(HttpStatus.BAD_REQUEST)
+                    .json(errorResponse(e.getMessage()));
+        } catch (SQLException e) {
+            e.printStackTrace();
+            ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .json(errorResponse("Error al actualizar el registro: " + e.getMessage()));
+        } catch (Exception e) {
+            e.printStackTrace();
+            ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .json(errorResponse("Error inesperado: " + e.getMessage()));
+        }
+    }
+
     public void delete(Context ctx) {
         try {
             int id = Integer.parseInt(ctx.pathParam("id"));
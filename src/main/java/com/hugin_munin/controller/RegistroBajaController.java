@@ -1,6 +1,7 @@
 package com.hugin_munin.controller;
 
 import com.hugin_munin.model.RegistroBaja;
+import com.hugin_munin.repository.ConflictoVersionException;
 import com.hugin_munin.service.RegistroBajaService;
 import io.javalin.http.Context;
 import io.javalin.http.HttpStatus;
@@ -22,15 +23,30 @@ public class RegistroBajaController {
 
     /**
      * GET /hm/registro_baja - Obtener todos los registros de baja
+     * Con ?fields= y/o ?expand= devuelve solo los campos y relaciones solicitados
      */
     public void getAll(Context ctx) {
         try {
+            String fields = ctx.queryParam("fields");
+            String expand = ctx.queryParam("expand");
+            if (fields != null || expand != null) {
+                List<Map<String, Object>> parciales = service.getAllParcial(fields, expand);
+                ctx.json(Map.of(
+                        "data", parciales,
+                        "total", parciales.size(),
+                        "message", "Registros de baja obtenidos exitosamente"
+                ));
+                return;
+            }
+
             List<RegistroBaja> registros = service.getAll();
             ctx.json(Map.of(
                     "data", registros,
                     "total", registros.size(),
                     "message", "Registros de baja obtenidos exitosamente"
             ));
+        } catch (IllegalArgumentException e) {
+            ctx.status(HttpStatus.BAD_REQUEST).json(errorResponse(e.getMessage()));
         } catch (SQLException e) {
             e.printStackTrace();
             ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -50,6 +66,7 @@ public class RegistroBajaController {
             int id = Integer.parseInt(ctx.pathParam("id"));
             RegistroBaja registro = service.getById(id);
 
+            Precondiciones.etag(ctx, registro.getVersion());
             ctx.json(Map.of(
                     "data", registro,
                     "message", "Registro de baja encontrado exitosamente"
@@ -106,6 +123,35 @@ public class RegistroBajaController {
         }
     }
 
+    /**
+     * POST /hm/registro_baja/lote - Registrar la baja de varios especímenes en una sola operación
+     */
+    public void createBatch(Context ctx) {
+        try {
+            RegistroBajaService.SolicitudBajaLote solicitud = ctx.bodyAsClass(RegistroBajaService.SolicitudBajaLote.class);
+            List<RegistroBaja> creados = service.createBatch(solicitud);
+
+            ctx.status(HttpStatus.CREATED)
+                    .json(Map.of(
+                            "data", creados,
+                            "total", creados.size(),
+                            "message", "Registros de baja creados exitosamente. Los especímenes han sido marcados como inactivos.",
+                            "success", true
+                    ));
+        } catch (IllegalArgumentException e) {
+            ctx.status(HttpStatus.BAD_REQUEST)
+                    .json(errorResponse(e.getMessage()));
+        } catch (SQLException e) {
+            e.printStackTrace();
+            ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .json(errorResponse("Error al crear los registros: " + e.getMessage()));
+        } catch (Exception e) {
+            e.printStackTrace();
+            ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .json(errorResponse("Error inesperado: " + e.getMessage()));
+        }
+    }
+
     /**
      * PUT /hm/registro_baja/{id} - Actualizar registro de baja
      */
@@ -114,6 +160,7 @@ public class RegistroBajaController {
             int id = Integer.parseInt(ctx.pathParam("id"));
             RegistroBaja actualizado = ctx.bodyAsClass(RegistroBaja.class);
             actualizado.setId_registro_baja(id);
+            actualizado.setVersion(Precondiciones.versionEsperada(ctx, actualizado.getVersion()));
 
             if (!actualizado.isValid()) {
                 ctx.status(HttpStatus.BAD_REQUEST)
@@ -122,6 +169,7 @@ public class RegistroBajaController {
             }
 
             RegistroBaja result = service.update(actualizado);
+            Precondiciones.etag(ctx, result.getVersion());
             ctx.status(HttpStatus.OK)
                     .json(Map.of(
                             "data", result,
@@ -134,6 +182,46 @@ public class RegistroBajaController {
         } catch (IllegalArgumentException e) {
             ctx.status(HttpStatus.BAD_REQUEST)
                     .json(errorResponse(e.getMessage()));
+        } catch (ConflictoVersionException e) {
+            ctx.status(HttpStatus.CONFLICT)
+                    .json(errorResponse(e.getMessage()));
+        } catch (SQLException e) {
+            e.printStackTrace();
+            ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .json(errorResponse("Error al actualizar el registro: " + e.getMessage()));
+        } catch (Exception e) {
+            e.printStackTrace();
+            ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .json(errorResponse("Error inesperado: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * PATCH /hm/registro_baja/{id} - Actualización parcial (JSON Merge Patch: solo los campos enviados)
+     */
+    public void patch(Context ctx) {
+        try {
+            int id = Integer.parseInt(ctx.pathParam("id"));
+            Map<String, Object> parche = ctx.bodyAsClass(Map.class);
+            Integer versionEsperada = Precondiciones.versionEsperada(ctx, parche);
+
+            RegistroBaja resultado = service.patch(id, parche, versionEsperada);
+            Precondiciones.etag(ctx, resultado.getVersion());
+            ctx.status(HttpStatus.OK)
+                    .json(Map.of(
+                            "data", resultado,
+                            "message", "Registro de baja actualizado exitosamente",
+                            "success", true
+                    ));
+        } catch (NumberFormatException e) {
+            ctx.status(HttpStatus.BAD_REQUEST)
+                    .json(errorResponse("ID inválido"));
+        } catch (IllegalArgumentException e) {
+            ctx.status(HttpStatus.BAD_REQUEST)
+                    .json(errorResponse(e.getMessage()));
+        } catch (ConflictoVersionException e) {
+            ctx.status(HttpStatus.CONFLICT)
+                    .json(errorResponse(e.getMessage()));
         } catch (SQLException e) {
             e.printStackTrace();
             ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
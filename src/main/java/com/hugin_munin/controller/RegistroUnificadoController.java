@@ -4,6 +4,7 @@ import com.hugin_munin.service.EspecimenService;
 import com.hugin_munin.service.ReporteTrasladoService;
 import com.hugin_munin.model.RegistroAlta;
 import com.hugin_munin.model.ReporteTraslado;
+import com.hugin_munin.repository.ConflictoVersionException;
 import io.javalin.http.Context;
 import io.javalin.http.HttpStatus;
 
@@ -184,6 +185,7 @@ public class RegistroUnificadoController {
 
             // 4. CONSTRUIR RESPUESTA UNIFICADA SIMPLIFICADA
             Map<String, Object> response = buildSimplifiedUnifiedResponse(especimenCompleto, reportesTraslado);
+            Precondiciones.etag(ctx, versionEspecimen(especimenCompleto));
 
             System.out.println("🎉 ===== GET REGISTRO UNIFICADO COMPLETADO =====");
             ctx.status(HttpStatus.OK).json(response);
@@ -231,18 +233,36 @@ public class RegistroUnificadoController {
             System.out.println("🔄 Actualizando registro unificado para ID especimen: " + idEspecimen);
             System.out.println("   Datos recibidos: " + requestData.keySet());
 
-            // 3. VERIFICAR QUE EL ESPECIMEN EXISTE
-            Map<String, Object> existingData = especimenService.getSpecimenWithAllData(idEspecimen);
-            if (existingData == null || existingData.isEmpty()) {
-                ctx.status(HttpStatus.NOT_FOUND)
-                        .json(createErrorResponse("Especimen no encontrado",
-                                "No se encontró especimen con ID: " + idEspecimen));
-                return;
-            }
+            // 3. VERSIÓN ESPERADA DEL ESPECIMEN (If-Match o campo "version"); la existencia se verifica en el UPDATE
+            Object versionCuerpo = requestData.get("version");
+            requestData.put("version", Precondiciones.versionEsperada(ctx,
+                    versionCuerpo instanceof Number ? ((Number) versionCuerpo).intValue() : null));
 
             // 4. PROCESAMIENTO DE FECHAS DEFENSIVO
             processDatesSafely(requestData);
 
+            // 4b. PRECONDICIONES DEL TRASLADO: existencia y versión se verifican antes de escribir nada,
+            //     para no responder 404/409 con el especimen ya guardado
+            @SuppressWarnings("unchecked")
+            Map<String, Object> reporteData = (Map<String, Object>) requestData.get("reporte_traslado");
+            ReporteTraslado reporteExistente = null;
+            if (reporteData != null && reporteData.get("id_reporte") != null) {
+                Integer idReporte = (Integer) reporteData.get("id_reporte");
+                try {
+                    reporteExistente = reporteTrasladoService.getReporteById(idReporte);
+                } catch (IllegalArgumentException e) {
+                    ctx.status(HttpStatus.NOT_FOUND)
+                            .json(createErrorResponse("Reporte de traslado no encontrado", e.getMessage()));
+                    return;
+                }
+                if (reporteData.get("version") instanceof Number) {
+                    int versionReporte = ((Number) reporteData.get("version")).intValue();
+                    if (versionReporte != reporteExistente.getVersion()) {
+                        throw new ConflictoVersionException(idReporte, versionReporte, reporteExistente.getVersion());
+                    }
+                }
+            }
+
             // 5. ACTUALIZAR DATOS DEL ESPECIMEN Y RELACIONADOS
             System.out.println("📝 === PASO 1: ACTUALIZANDO REGISTRO UNIFICADO ===");
             Map<String, Object> updateResult;
@@ -253,6 +273,16 @@ public class RegistroUnificadoController {
                 updateResult = especimenService.updateSpecimenWithRegistration(requestData);
                 System.out.println("✅ Registro unificado actualizado exitosamente");
 
+            } catch (ConflictoVersionException e) {
+                throw e;
+            } catch (IllegalArgumentException e) {
+                if (e.getMessage() != null && e.getMessage().startsWith("Especimen no encontrado")) {
+                    ctx.status(HttpStatus.NOT_FOUND)
+                            .json(createErrorResponse("Especimen no encontrado",
+                                    "No se encontró especimen con ID: " + idEspecimen));
+                    return;
+                }
+                throw e;
             } catch (Exception e) {
                 System.err.println("❌ ERROR en actualización unificada: " + e.getMessage());
                 e.printStackTrace();
@@ -260,8 +290,6 @@ public class RegistroUnificadoController {
             }
 
             // 6. MANEJAR REPORTE DE TRASLADO
-            @SuppressWarnings("unchecked")
-            Map<String, Object> reporteData = (Map<String, Object>) requestData.get("reporte_traslado");
             Map<String, Object> reporteResult = null;
 
             if (reporteData != null && !reporteData.isEmpty()) {
@@ -271,13 +299,16 @@ public class RegistroUnificadoController {
                     Map<String, Object> registroData = (Map<String, Object>) requestData.get("registro_alta");
 
                     // Decidir si crear nuevo reporte o actualizar existente
-                    if (reporteData.containsKey("id_reporte")) {
-                        reporteResult = updateReporteTrasladoRobust(reporteData, idEspecimen);
+                    if (reporteExistente != null) {
+                        reporteResult = updateReporteTrasladoRobust(reporteExistente, reporteData);
                     } else {
                         reporteResult = createReporteTrasladoRobust(reporteData, registroData, updateResult);
                     }
                     System.out.println("✅ Reporte de traslado procesado exitosamente");
 
+                } catch (ConflictoVersionException e) {
+                    // Un traslado modificado por otra persona no se descarta en silencio
+                    throw e;
                 } catch (Exception e) {
                     System.err.println("❌ ERROR en reporte de traslado: " + e.getMessage());
                     e.printStackTrace();
@@ -291,6 +322,7 @@ public class RegistroUnificadoController {
 
             Map<String, Object> response = buildSimplifiedUnifiedResponse(updatedData, reportesTraslado);
             response.put("message", "Registro unificado actualizado exitosamente");
+            Precondiciones.etag(ctx, versionEspecimen(updatedData));
             response.put("success", true);
 
             System.out.println("🎉 ===== UPDATE REGISTRO UNIFICADO COMPLETADO =====");
@@ -300,6 +332,10 @@ public class RegistroUnificadoController {
             System.err.println("❌ Error de validación: " + e.getMessage());
             ctx.status(HttpStatus.BAD_REQUEST)
                     .json(createErrorResponse("Datos inválidos", e.getMessage()));
+        } catch (ConflictoVersionException e) {
+            System.err.println("⚠️ Conflicto de versión: " + e.getMessage());
+            ctx.status(HttpStatus.CONFLICT)
+                    .json(createErrorResponse("Conflicto de versión", e.getMessage()));
         } catch (RuntimeException e) {
             System.err.println("❌ Error de runtime: " + e.getMessage());
             e.printStackTrace();
@@ -448,6 +484,7 @@ public class RegistroUnificadoController {
             if (especimenData != null) {
                 especimenInfo.put("num_inventario", especimenData.get("num_inventario"));
                 especimenInfo.put("nombre_especimen", especimenData.get("nombre_especimen"));
+                especimenInfo.put("version", especimenData.get("version"));
             }
 
             // 3. REGISTRO_ALTA (tomar el primero si hay varios)
@@ -564,22 +601,12 @@ public class RegistroUnificadoController {
     /**
      * MÉTODO NUEVO: Actualizar reporte de traslado existente
      */
-    private Map<String, Object> updateReporteTrasladoRobust(Map<String, Object> reporteData,
-                                                            Integer idEspecimen) throws Exception {
+    private Map<String, Object> updateReporteTrasladoRobust(ReporteTraslado reporteExistente,
+                                                            Map<String, Object> reporteData) throws Exception {
         System.out.println("🔄 === ACTUALIZANDO REPORTE DE TRASLADO ===");
 
-        Integer idReporte = (Integer) reporteData.get("id_reporte");
-        if (idReporte == null) {
-            throw new IllegalArgumentException("ID del reporte es requerido para actualización");
-        }
-
-        // Obtener reporte existente
-        ReporteTraslado reporteExistente = reporteTrasladoService.getReporteById(idReporte);
-        if (reporteExistente == null) {
-            throw new IllegalStateException("Reporte de traslado no encontrado con ID: " + idReporte);
-        }
-
-        // Actualizar campos
+        // Actualizar campos sobre el reporte leído en las precondiciones; su versión (ya comparada con
+        // la enviada) mantiene condicional la escritura
         updateReporteFields(reporteExistente, reporteData);
 
         // Guardar cambios
@@ -907,6 +934,17 @@ public class RegistroUnificadoController {
         }
     }
 
+    /**
+     * MÉTODO AUXILIAR: Versión del especimen dentro de los datos completos (para el ETag)
+     */
+    private Integer versionEspecimen(Map<String, Object> especimenCompleto) {
+        if (especimenCompleto == null || !(especimenCompleto.get("especimen") instanceof Map<?, ?> especimen)) {
+            return null;
+        }
+        Object version = especimen.get("version");
+        return version instanceof Number ? ((Number) version).intValue() : null;
+    }
+
     /**
      * GET /hm/registro-unificado/ejemplo - Obtener ejemplo de estructura JSON DEFINITIVO
      */
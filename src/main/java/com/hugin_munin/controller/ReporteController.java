@@ -1,6 +1,7 @@
 package com.hugin_munin.controller;
 
 import com.hugin_munin.model.Reporte;
+import com.hugin_munin.repository.ConflictoVersionException;
 import com.hugin_munin.service.ReporteService;
 import io.javalin.http.Context;
 import io.javalin.http.HttpStatus;
@@ -25,15 +26,31 @@ public class ReporteController {
 
     /**
      * GET /hm/reportes - Obtener todos los reportes
+     * Con ?fields= y/o ?expand= devuelve solo los campos y relaciones solicitados
      */
     public void getAllReportes(Context ctx) {
         try {
+            String fields = ctx.queryParam("fields");
+            String expand = ctx.queryParam("expand");
+            if (fields != null || expand != null) {
+                List<Map<String, Object>> parciales = reporteService.getAllReportesParcial(fields, expand);
+                ctx.json(Map.of(
+                        "data", parciales,
+                        "total", parciales.size(),
+                        "message", "Reportes obtenidos exitosamente"
+                ));
+                return;
+            }
+
             List<Reporte> reportes = reporteService.getAllReportes();
             ctx.json(Map.of(
                     "data", reportes,
                     "total", reportes.size(),
                     "message", "Reportes obtenidos exitosamente"
             ));
+        } catch (IllegalArgumentException e) {
+            ctx.status(HttpStatus.BAD_REQUEST)
+                    .json(createErrorResponse("Parámetros inválidos", e.getMessage()));
         } catch (Exception e) {
             ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .json(createErrorResponse("Error al obtener reportes", e.getMessage()));
@@ -273,6 +290,38 @@ public class ReporteController {
         }
     }
 
+    /**
+     * PATCH /hm/reportes/{id} - Actualización parcial (JSON Merge Patch: solo los campos enviados)
+     */
+    public void patchReporte(Context ctx) {
+        try {
+            int id = Integer.parseInt(ctx.pathParam("id"));
+            Map<String, Object> parche = ctx.bodyAsClass(Map.class);
+            Integer versionEsperada = Precondiciones.versionEsperada(ctx, parche);
+
+            Reporte resultado = reporteService.patchReporte(id, parche, versionEsperada);
+
+            Precondiciones.etag(ctx, resultado.getVersion());
+            ctx.json(Map.of(
+                    "data", resultado,
+                    "message", "Reporte actualizado exitosamente",
+                    "success", true
+            ));
+        } catch (NumberFormatException e) {
+            ctx.status(HttpStatus.BAD_REQUEST)
+                    .json(createErrorResponse("ID inválido", "El ID debe ser un número entero"));
+        } catch (IllegalArgumentException e) {
+            ctx.status(HttpStatus.BAD_REQUEST)
+                    .json(createErrorResponse("Datos inválidos", e.getMessage()));
+        } catch (ConflictoVersionException e) {
+            ctx.status(HttpStatus.CONFLICT)
+                    .json(createErrorResponse("Conflicto de versión", e.getMessage()));
+        } catch (Exception e) {
+            ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .json(createErrorResponse("Error al actualizar reporte", e.getMessage()));
+        }
+    }
+
     /**
      * DELETE /hm/reportes/{id} - Eliminar reporte
      */
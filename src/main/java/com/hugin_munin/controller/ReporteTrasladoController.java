@@ -2,13 +2,16 @@ package com.hugin_munin.controller;
 
 import com.hugin_munin.model.ReporteTraslado;
 import com.hugin_munin.service.ReporteTrasladoService;
+import com.hugin_munin.repository.ConflictoVersionException;
 import com.hugin_munin.repository.ReporteTrasladoRepository;
+import com.hugin_munin.repository.UbicacionActualRepository;
 import io.javalin.http.Context;
 import io.javalin.http.HttpStatus;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -26,15 +29,31 @@ public class ReporteTrasladoController {
 
     /**
      * GET /hm/reportes-traslado - Obtener todos los reportes de traslado
+     * Con ?fields= y/o ?expand= devuelve solo los campos y relaciones solicitados
      */
     public void getAllReportesTraslado(Context ctx) {
         try {
+            String fields = ctx.queryParam("fields");
+            String expand = ctx.queryParam("expand");
+            if (fields != null || expand != null) {
+                List<Map<String, Object>> parciales = reporteTrasladoService.getAllReportesTrasladoParcial(fields, expand);
+                ctx.json(Map.of(
+                        "data", parciales,
+                        "total", parciales.size(),
+                        "message", "Reportes de traslado obtenidos exitosamente"
+                ));
+                return;
+            }
+
             List<ReporteTraslado> reportes = reporteTrasladoService.getAllReportesTraslado();
             ctx.json(Map.of(
                     "data", reportes,
                     "total", reportes.size(),
                     "message", "Reportes de traslado obtenidos exitosamente"
             ));
+        } catch (IllegalArgumentException e) {
+            ctx.status(HttpStatus.BAD_REQUEST)
+                    .json(createErrorResponse("Parámetros inválidos", e.getMessage()));
         } catch (Exception e) {
             ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .json(createErrorResponse("Error al obtener reportes de traslado", e.getMessage()));
@@ -49,6 +68,7 @@ public class ReporteTrasladoController {
             int id = Integer.parseInt(ctx.pathParam("id"));
             ReporteTraslado reporte = reporteTrasladoService.getReporteTrasladoById(id);
 
+            Precondiciones.etag(ctx, reporte.getVersion());
             ctx.json(Map.of(
                     "data", reporte,
                     "message", "Reporte de traslado encontrado exitosamente"
@@ -267,6 +287,9 @@ public class ReporteTrasladoController {
                             "message", "Reporte de traslado creado exitosamente",
                             "success", true
                     ));
+        } catch (UbicacionActualRepository.CapacidadExcedidaException e) {
+            ctx.status(HttpStatus.CONFLICT)
+                    .json(createErrorResponse("Capacidad excedida", e.getMessage()));
         } catch (IllegalArgumentException e) {
             ctx.status(HttpStatus.BAD_REQUEST)
                     .json(createErrorResponse("Datos inválidos", e.getMessage()));
@@ -276,6 +299,34 @@ public class ReporteTrasladoController {
         }
     }
 
+    /**
+     * POST /hm/reportes-traslado/grupal - Trasladar varios especímenes con el mismo origen, destino y motivo
+     */
+    public void createTrasladoGrupal(Context ctx) {
+        try {
+            ReporteTrasladoService.SolicitudTrasladoLote solicitud =
+                    ctx.bodyAsClass(ReporteTrasladoService.SolicitudTrasladoLote.class);
+            List<ReporteTraslado> creados = reporteTrasladoService.createTrasladoGrupal(solicitud);
+
+            ctx.status(HttpStatus.CREATED)
+                    .json(Map.of(
+                            "data", creados,
+                            "total", creados.size(),
+                            "message", "Traslado grupal registrado exitosamente",
+                            "success", true
+                    ));
+        } catch (UbicacionActualRepository.CapacidadExcedidaException e) {
+            ctx.status(HttpStatus.CONFLICT)
+                    .json(createErrorResponse("Capacidad excedida", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            ctx.status(HttpStatus.BAD_REQUEST)
+                    .json(createErrorResponse("Datos inválidos", e.getMessage()));
+        } catch (Exception e) {
+            ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .json(createErrorResponse("Error al registrar traslado grupal", e.getMessage()));
+        }
+    }
+
     /**
      * PUT /hm/reportes-traslado/{id} - Actualizar reporte de traslado
      */
@@ -284,9 +335,43 @@ public class ReporteTrasladoController {
             int id = Integer.parseInt(ctx.pathParam("id"));
             ReporteTraslado reporteActualizado = ctx.bodyAsClass(ReporteTraslado.class);
             reporteActualizado.setId_reporte(id);
+            reporteActualizado.setVersion(Precondiciones.versionEsperada(ctx, reporteActualizado.getVersion()));
 
             ReporteTraslado resultado = reporteTrasladoService.updateReporteTraslado(reporteActualizado);
 
+            Precondiciones.etag(ctx, resultado.getVersion());
+            ctx.json(Map.of(
+                    "data", resultado,
+                    "message", "Reporte de traslado actualizado exitosamente",
+                    "success", true
+            ));
+        } catch (NumberFormatException e) {
+            ctx.status(HttpStatus.BAD_REQUEST)
+                    .json(createErrorResponse("ID inválido", "El ID debe ser un número entero"));
+        } catch (IllegalArgumentException e) {
+            ctx.status(HttpStatus.BAD_REQUEST)
+                    .json(createErrorResponse("Datos inválidos", e.getMessage()));
+        } catch (ConflictoVersionException e) {
+            ctx.status(HttpStatus.CONFLICT)
+                    .json(createErrorResponse("Conflicto de versión", e.getMessage()));
+        } catch (Exception e) {
+            ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .json(createErrorResponse("Error al actualizar reporte de traslado", e.getMessage()));
+        }
+    }
+
+    /**
+     * PATCH /hm/reportes-traslado/{id} - Actualización parcial (JSON Merge Patch: solo los campos enviados)
+     */
+    public void patchReporteTraslado(Context ctx) {
+        try {
+            int id = Integer.parseInt(ctx.pathParam("id"));
+            Map<String, Object> parche = ctx.bodyAsClass(Map.class);
+            Integer versionEsperada = Precondiciones.versionEsperada(ctx, parche);
+
+            ReporteTraslado resultado = reporteTrasladoService.patchReporteTraslado(id, parche, versionEsperada);
+
+            Precondiciones.etag(ctx, resultado.getVersion());
             ctx.json(Map.of(
                     "data", resultado,
                     "message", "Reporte de traslado actualizado exitosamente",
@@ -298,6 +383,9 @@ public class ReporteTrasladoController {
         } catch (IllegalArgumentException e) {
             ctx.status(HttpStatus.BAD_REQUEST)
                     .json(createErrorResponse("Datos inválidos", e.getMessage()));
+        } catch (ConflictoVersionException e) {
+            ctx.status(HttpStatus.CONFLICT)
+                    .json(createErrorResponse("Conflicto de versión", e.getMessage()));
         } catch (Exception e) {
             ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .json(createErrorResponse("Error al actualizar reporte de traslado", e.getMessage()));
@@ -348,10 +436,12 @@ public class ReporteTrasladoController {
     }
 
     /**
-     * GET /hm/reportes-traslado/estadisticas/areas-origen?limit= - Áreas origen más populares
+     * GET /hm/reportes-traslado/estadisticas/areas-origen?limit=&dias= - Áreas origen más populares
+     * dias: 7, 30 o 365 para la ventana móvil; sin dias, histórico completo
      */
     public void getAreasOrigenPopulares(Context ctx) {
         try {
+            Integer dias = parseDias(ctx);
             String limitParam = ctx.queryParam("limit");
             int limit = 10; // Valor por defecto
 
@@ -365,14 +455,18 @@ public class ReporteTrasladoController {
             }
 
             List<ReporteTrasladoRepository.AreaEstadistica> areasPopulares =
-                    reporteTrasladoService.getAreasOrigenPopulares(limit);
-
-            ctx.json(Map.of(
-                    "data", areasPopulares,
-                    "total", areasPopulares.size(),
-                    "limit", limit,
-                    "message", "Áreas origen más populares obtenidas exitosamente"
-            ));
+                    reporteTrasladoService.getAreasOrigenPopulares(limit, dias);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("data", areasPopulares);
+            response.put("total", areasPopulares.size());
+            response.put("limit", limit);
+            response.put("dias", dias);
+            response.put("message", "Áreas origen más populares obtenidas exitosamente");
+            ctx.json(response);
+        } catch (IllegalArgumentException e) {
+            ctx.status(HttpStatus.BAD_REQUEST)
+                    .json(createErrorResponse("Parámetros inválidos", e.getMessage()));
         } catch (Exception e) {
             ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .json(createErrorResponse("Error al obtener áreas origen populares", e.getMessage()));
@@ -380,10 +474,12 @@ public class ReporteTrasladoController {
     }
 
     /**
-     * GET /hm/reportes-traslado/estadisticas/areas-destino?limit= - Áreas destino más populares
+     * GET /hm/reportes-traslado/estadisticas/areas-destino?limit=&dias= - Áreas destino más populares
+     * dias: 7, 30 o 365 para la ventana móvil; sin dias, histórico completo
      */
     public void getAreasDestinoPopulares(Context ctx) {
         try {
+            Integer dias = parseDias(ctx);
             String limitParam = ctx.queryParam("limit");
             int limit = 10; // Valor por defecto
 
@@ -397,17 +493,92 @@ public class ReporteTrasladoController {
             }
 
             List<ReporteTrasladoRepository.AreaEstadistica> areasPopulares =
-                    reporteTrasladoService.getAreasDestinoPopulares(limit);
+                    reporteTrasladoService.getAreasDestinoPopulares(limit, dias);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("data", areasPopulares);
+            response.put("total", areasPopulares.size());
+            response.put("limit", limit);
+            response.put("dias", dias);
+            response.put("message", "Áreas destino más populares obtenidas exitosamente");
+            ctx.json(response);
+        } catch (IllegalArgumentException e) {
+            ctx.status(HttpStatus.BAD_REQUEST)
+                    .json(createErrorResponse("Parámetros inválidos", e.getMessage()));
+        } catch (Exception e) {
+            ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .json(createErrorResponse("Error al obtener áreas destino populares", e.getMessage()));
+        }
+    }
+
+    /**
+     * GET /hm/reportes-traslado/estadisticas/flujos?dias= - Matriz origen → destino
+     */
+    public void getMatrizFlujos(Context ctx) {
+        try {
+            Map<String, Object> matriz = reporteTrasladoService.getMatrizFlujos(parseDias(ctx));
 
             ctx.json(Map.of(
-                    "data", areasPopulares,
-                    "total", areasPopulares.size(),
-                    "limit", limit,
-                    "message", "Áreas destino más populares obtenidas exitosamente"
+                    "data", matriz,
+                    "message", "Matriz de flujos obtenida exitosamente"
             ));
+        } catch (IllegalArgumentException e) {
+            ctx.status(HttpStatus.BAD_REQUEST)
+                    .json(createErrorResponse("Parámetros inválidos", e.getMessage()));
         } catch (Exception e) {
             ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .json(createErrorResponse("Error al obtener áreas destino populares", e.getMessage()));
+                    .json(createErrorResponse("Error al obtener matriz de flujos", e.getMessage()));
+        }
+    }
+
+    /**
+     * GET /hm/reportes-traslado/estadisticas/flujos/top?limit=&dias= - Pares origen → destino más frecuentes
+     */
+    public void getFlujosPopulares(Context ctx) {
+        try {
+            Integer dias = parseDias(ctx);
+            String limitParam = ctx.queryParam("limit");
+            int limit = 10; // Valor por defecto
+
+            if (limitParam != null && !limitParam.trim().isEmpty()) {
+                try {
+                    limit = Integer.parseInt(limitParam);
+                    if (limit <= 0) limit = 10;
+                } catch (NumberFormatException e) {
+                    // Usar valor por defecto si no es un número válido
+                }
+            }
+
+            List<Map<String, Object>> flujos = reporteTrasladoService.getFlujosPopulares(limit, dias);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("data", flujos);
+            response.put("total", flujos.size());
+            response.put("limit", limit);
+            response.put("dias", dias);
+            response.put("message", "Flujos más frecuentes obtenidos exitosamente");
+            ctx.json(response);
+        } catch (IllegalArgumentException e) {
+            ctx.status(HttpStatus.BAD_REQUEST)
+                    .json(createErrorResponse("Parámetros inválidos", e.getMessage()));
+        } catch (Exception e) {
+            ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .json(createErrorResponse("Error al obtener flujos más frecuentes", e.getMessage()));
+        }
+    }
+
+    /**
+     * Leer la ventana ?dias= (null si no viene)
+     */
+    private Integer parseDias(Context ctx) {
+        String diasParam = ctx.queryParam("dias");
+        if (diasParam == null || diasParam.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(diasParam.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("El parámetro dias debe ser numérico: " + diasParam);
         }
     }
 
@@ -0,0 +1,81 @@
+package com.hugin_munin.controller;
+
+import com.hugin_munin.service.SerieTemporalService;
+import io.javalin.http.Context;
+import io.javalin.http.HttpStatus;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+
+/**
+ * Controlador para series temporales de altas, bajas y traslados
+ */
+public class SerieTemporalController {
+
+    private final SerieTemporalService serieTemporalService;
+
+    public SerieTemporalController(SerieTemporalService serieTemporalService) {
+        this.serieTemporalService = serieTemporalService;
+    }
+
+    /**
+     * GET /hm/estadisticas/series?granularidad=dia|semana|mes&inicio=YYYY-MM-DD&fin=YYYY-MM-DD
+     * Obtener conteos de altas, bajas y traslados por periodo
+     */
+    public void getSerie(Context ctx) {
+        try {
+            String inicioParam = ctx.queryParam("inicio");
+            String finParam = ctx.queryParam("fin");
+
+            if (inicioParam == null || finParam == null) {
+                ctx.status(HttpStatus.BAD_REQUEST)
+                        .json(createErrorResponse("Parámetros requeridos", "Se requieren los parámetros 'inicio' y 'fin'"));
+                return;
+            }
+
+            Map<String, Object> serie = serieTemporalService.getSerie(
+                    ctx.queryParam("granularidad"),
+                    LocalDate.parse(inicioParam.trim()),
+                    LocalDate.parse(finParam.trim())
+            );
+
+            ctx.json(Map.of(
+                    "data", serie,
+                    "message", "Serie temporal obtenida exitosamente"
+            ));
+        } catch (DateTimeParseException e) {
+            ctx.status(HttpStatus.BAD_REQUEST)
+                    .json(createErrorResponse("Formato de fecha inválido", "Use el formato YYYY-MM-DD"));
+        } catch (IllegalArgumentException e) {
+            ctx.status(HttpStatus.BAD_REQUEST)
+                    .json(createErrorResponse("Parámetros inválidos", e.getMessage()));
+        } catch (Exception e) {
+            ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .json(createErrorResponse("Error al obtener serie temporal", e.getMessage()));
+        }
+    }
+
+    /**
+     * DELETE /hm/estadisticas/series/cache - Limpiar la caché de periodos cerrados
+     */
+    public void limpiarCache(Context ctx) {
+        serieTemporalService.limpiarCache();
+        ctx.json(Map.of(
+                "data", serieTemporalService.getCacheInfo(),
+                "message", "Caché de series temporales limpiada exitosamente"
+        ));
+    }
+
+    /**
+     * Método auxiliar para crear respuestas de error consistentes
+     */
+    private Map<String, Object> createErrorResponse(String error, String details) {
+        return Map.of(
+                "success", false,
+                "error", error,
+                "details", details != null ? details : "",
+                "timestamp", System.currentTimeMillis()
+        );
+    }
+}
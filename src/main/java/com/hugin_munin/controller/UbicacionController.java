@@ -0,0 +1,191 @@
+package com.hugin_munin.controller;
+
+import com.hugin_munin.model.UbicacionActual;
+import com.hugin_munin.repository.UbicacionActualRepository.Capacidad;
+import com.hugin_munin.service.UbicacionService;
+import io.javalin.http.Context;
+import io.javalin.http.HttpStatus;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Controlador para la ubicación actual de los especímenes y la ocupación por área
+ */
+public class UbicacionController {
+
+    private final UbicacionService ubicacionService;
+
+    public UbicacionController(UbicacionService ubicacionService) {
+        this.ubicacionService = ubicacionService;
+    }
+
+    /**
+     * GET /hm/ubicaciones/especimen/{id} - Ubicación actual de un especimen
+     */
+    public void getUbicacionEspecimen(Context ctx) {
+        try {
+            int id = Integer.parseInt(ctx.pathParam("id"));
+            Optional<UbicacionActual> ubicacion = ubicacionService.getUbicacion(id);
+
+            if (ubicacion.isEmpty()) {
+                ctx.status(HttpStatus.NOT_FOUND)
+                        .json(createErrorResponse("Sin ubicación", "El especimen " + id + " no tiene traslados registrados"));
+                return;
+            }
+
+            ctx.json(Map.of(
+                    "data", ubicacion.get(),
+                    "message", "Ubicación actual obtenida exitosamente"
+            ));
+        } catch (NumberFormatException e) {
+            ctx.status(HttpStatus.BAD_REQUEST)
+                    .json(createErrorResponse("ID inválido", "El ID debe ser un número entero"));
+        } catch (IllegalArgumentException e) {
+            ctx.status(HttpStatus.BAD_REQUEST)
+                    .json(createErrorResponse("Parámetros inválidos", e.getMessage()));
+        } catch (Exception e) {
+            ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .json(createErrorResponse("Error al obtener ubicación", e.getMessage()));
+        }
+    }
+
+    /**
+     * GET /hm/ubicaciones/especimenes?area=&ubicacion= - Especímenes que están ahora en un área/ubicación
+     */
+    public void getEspecimenesEnUbicacion(Context ctx) {
+        try {
+            List<UbicacionActual> especimenes = ubicacionService.getEspecimenes(
+                    ctx.queryParam("area"), ctx.queryParam("ubicacion"));
+
+            ctx.json(Map.of(
+                    "data", especimenes,
+                    "total", especimenes.size(),
+                    "message", "Especímenes en la ubicación obtenidos exitosamente"
+            ));
+        } catch (IllegalArgumentException e) {
+            ctx.status(HttpStatus.BAD_REQUEST)
+                    .json(createErrorResponse("Parámetros inválidos", e.getMessage()));
+        } catch (Exception e) {
+            ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .json(createErrorResponse("Error al obtener especímenes por ubicación", e.getMessage()));
+        }
+    }
+
+    /**
+     * GET /hm/ubicaciones/ocupacion - Ocupación de todas las áreas
+     */
+    public void getOcupacion(Context ctx) {
+        try {
+            List<Map<String, Object>> ocupacion = ubicacionService.getOcupacion();
+
+            ctx.json(Map.of(
+                    "data", ocupacion,
+                    "total", ocupacion.size(),
+                    "message", "Ocupación por área obtenida exitosamente"
+            ));
+        } catch (Exception e) {
+            ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .json(createErrorResponse("Error al obtener ocupación", e.getMessage()));
+        }
+    }
+
+    /**
+     * GET /hm/ubicaciones/ocupacion/{area} - Ocupación de un área por ubicación
+     */
+    public void getOcupacionArea(Context ctx) {
+        try {
+            ctx.json(Map.of(
+                    "data", ubicacionService.getOcupacionArea(ctx.pathParam("area")),
+                    "message", "Ocupación del área obtenida exitosamente"
+            ));
+        } catch (IllegalArgumentException e) {
+            ctx.status(HttpStatus.BAD_REQUEST)
+                    .json(createErrorResponse("Parámetros inválidos", e.getMessage()));
+        } catch (Exception e) {
+            ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .json(createErrorResponse("Error al obtener ocupación del área", e.getMessage()));
+        }
+    }
+
+    /**
+     * GET /hm/ubicaciones/capacidades - Capacidades configuradas
+     */
+    public void getCapacidades(Context ctx) {
+        try {
+            List<Capacidad> capacidades = ubicacionService.getCapacidades();
+
+            ctx.json(Map.of(
+                    "data", capacidades,
+                    "total", capacidades.size(),
+                    "message", "Capacidades obtenidas exitosamente"
+            ));
+        } catch (Exception e) {
+            ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .json(createErrorResponse("Error al obtener capacidades", e.getMessage()));
+        }
+    }
+
+    /**
+     * PUT /hm/ubicaciones/capacidades - Definir capacidad {area, ubicacion, capacidad}
+     */
+    public void setCapacidad(Context ctx) {
+        try {
+            Map<String, Object> body = ctx.bodyAsClass(Map.class);
+            Object capacidad = body.get("capacidad");
+            if (!(capacidad instanceof Number)) {
+                throw new IllegalArgumentException("La capacidad debe ser un número entero");
+            }
+
+            Capacidad guardada = ubicacionService.setCapacidad(new Capacidad(
+                    (String) body.get("area"), (String) body.get("ubicacion"), ((Number) capacidad).intValue()));
+
+            ctx.json(Map.of(
+                    "data", guardada,
+                    "message", "Capacidad guardada exitosamente"
+            ));
+        } catch (IllegalArgumentException | ClassCastException e) {
+            ctx.status(HttpStatus.BAD_REQUEST)
+                    .json(createErrorResponse("Datos inválidos", e.getMessage()));
+        } catch (Exception e) {
+            ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .json(createErrorResponse("Error al guardar capacidad", e.getMessage()));
+        }
+    }
+
+    /**
+     * DELETE /hm/ubicaciones/capacidades?area=&ubicacion= - Quitar el límite de una ubicación
+     */
+    public void deleteCapacidad(Context ctx) {
+        try {
+            boolean eliminada = ubicacionService.deleteCapacidad(ctx.queryParam("area"), ctx.queryParam("ubicacion"));
+
+            if (!eliminada) {
+                ctx.status(HttpStatus.NOT_FOUND)
+                        .json(createErrorResponse("Capacidad no encontrada", "La ubicación no tiene capacidad configurada"));
+                return;
+            }
+
+            ctx.json(Map.of("message", "Capacidad eliminada exitosamente"));
+        } catch (IllegalArgumentException e) {
+            ctx.status(HttpStatus.BAD_REQUEST)
+                    .json(createErrorResponse("Parámetros inválidos", e.getMessage()));
+        } catch (Exception e) {
+            ctx.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .json(createErrorResponse("Error al eliminar capacidad", e.getMessage()));
+        }
+    }
+
+    /**
+     * Método auxiliar para crear respuestas de error consistentes
+     */
+    private Map<String, Object> createErrorResponse(String error, String details) {
+        return Map.of(
+                "success", false,
+                "error", error,
+                "details", details != null ? details : "",
+                "timestamp", System.currentTimeMillis()
+        );
+    }
+}
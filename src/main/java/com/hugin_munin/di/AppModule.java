@@ -1,262 +1,401 @@
 package com.hugin_munin.di;
 
+import com.hugin_munin.config.DatabaseConfig;
 import com.hugin_munin.controller.*;
 import com.hugin_munin.repository.*;
 import com.hugin_munin.routes.*;
 import com.hugin_munin.service.*;
 
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
 /**
- * Contenedor de inyección de dependencias CORREGIDO
+ * Contenedor de inyección de dependencias
  * Maneja la inicialización de todos los módulos con sus dependencias
- * INCLUYE: TipoReporte, Reporte, ReporteTraslado y Permisos
- * CORREGIDO: AuthController ahora recibe AuthService y UsuarioService
+ * Cada repositorio y servicio es un singleton perezoso: se crea la primera vez que se
+ * solicita y todos los módulos comparten la misma instancia (incluido AuthService,
+ * para que el login y el middleware vean las mismas sesiones)
  */
 public class AppModule {
 
+    private static final Map<Class<?>, Object> instancias = new HashMap<>();
+
     /**
-     * Inicializar módulo de autenticación - CORREGIDO
+     * Obtener (o crear una única vez) la instancia de un componente
+     * Sincronizado y reentrante: las fábricas pueden pedir sus propias dependencias
      */
-    public static AuthRoutes initAuth() {
-        RolRepository rolRepository = new RolRepository();
-        UsuarioRepository usuarioRepository = new UsuarioRepository();
+    private static synchronized <T> T singleton(Class<T> tipo, Supplier<T> fabrica) {
+        Object instancia = instancias.get(tipo);
+        if (instancia == null) {
+            instancia = fabrica.get();
+            instancias.put(tipo, instancia);
+        }
+        return tipo.cast(instancia);
+    }
+
+    // REPOSITORIOS
+
+    public static RolRepository rolRepository() { return singleton(RolRepository.class, RolRepository::new); }
+    public static PermisoRepository permisoRepository() { return singleton(PermisoRepository.class, PermisoRepository::new); }
+    public static UsuarioRepository usuarioRepository() { return singleton(UsuarioRepository.class, UsuarioRepository::new); }
+    public static OrigenAltaRepository origenAltaRepository() { return singleton(OrigenAltaRepository.class, OrigenAltaRepository::new); }
+    public static CausaBajaRepository causaBajaRepository() { return singleton(CausaBajaRepository.class, CausaBajaRepository::new); }
+    public static EspecieRepository especieRepository() { return singleton(EspecieRepository.class, EspecieRepository::new); }
+    public static EspecimenRepository especimenRepository() { return singleton(EspecimenRepository.class, EspecimenRepository::new); }
+    public static TipoReporteRepository tipoReporteRepository() { return singleton(TipoReporteRepository.class, TipoReporteRepository::new); }
+    public static ReporteRepository reporteRepository() { return singleton(ReporteRepository.class, ReporteRepository::new); }
+    public static ReporteTrasladoRepository reporteTrasladoRepository() { return singleton(ReporteTrasladoRepository.class, ReporteTrasladoRepository::new); }
+    public static RegistroAltaRepository registroAltaRepository() { return singleton(RegistroAltaRepository.class, RegistroAltaRepository::new); }
+    public static RegistroBajaRepository registroBajaRepository() { return singleton(RegistroBajaRepository.class, RegistroBajaRepository::new); }
+    public static SerieTemporalRepository serieTemporalRepository() { return singleton(SerieTemporalRepository.class, SerieTemporalRepository::new); }
+    public static ExportRepository exportRepository() { return singleton(ExportRepository.class, ExportRepository::new); }
+    public static CambioRepository cambioRepository() { return singleton(CambioRepository.class, CambioRepository::new); }
+    public static UbicacionActualRepository ubicacionActualRepository() { return singleton(UbicacionActualRepository.class, UbicacionActualRepository::new); }
+
+    /**
+     * Almacén de sesiones según SESSION_STORE: memory (por defecto) | jdbc
+     */
+    public static SessionStore sessionStore() {
+        return singleton(SessionStore.class, () ->
+                "jdbc".equalsIgnoreCase(DatabaseConfig.getSetting("SESSION_STORE", "memory"))
+                        ? new JdbcSessionStore()
+                        : new InMemorySessionStore());
+    }
+
+    // SERVICIOS
+
+    public static EventoService eventoService() { return singleton(EventoService.class, EventoService::new); }
+
+    public static CambioService cambioService() {
+        return singleton(CambioService.class, () -> new CambioService(cambioRepository()));
+    }
+
+    public static AuthService authService() {
+        return singleton(AuthService.class, () -> new AuthService(usuarioRepository(), sessionStore()));
+    }
+
+    public static UsuarioService usuarioService() {
+        return singleton(UsuarioService.class, () -> new UsuarioService(usuarioRepository(), rolRepository()));
+    }
+
+    public static RolService rolService() {
+        return singleton(RolService.class, () -> new RolService(rolRepository()));
+    }
+
+    public static PermisoService permisoService() {
+        return singleton(PermisoService.class, () -> new PermisoService(permisoRepository()));
+    }
+
+    public static OrigenAltaService origenAltaService() {
+        return singleton(OrigenAltaService.class, () -> new OrigenAltaService(origenAltaRepository()));
+    }
+
+    public static CausaBajaService causaBajaService() {
+        return singleton(CausaBajaService.class, () -> new CausaBajaService(causaBajaRepository()));
+    }
+
+    public static EspecieService especieService() {
+        return singleton(EspecieService.class, () -> new EspecieService(especieRepository()));
+    }
+
+    public static EspecimenService especimenService() {
+        return singleton(EspecimenService.class, () -> new EspecimenService(
+                especimenRepository(),
+                especieRepository(),
+                registroAltaRepository(),
+                usuarioRepository(),
+                origenAltaRepository(),
+                eventoService(),
+                cambioService()
+        ));
+    }
+
+    public static TipoReporteService tipoReporteService() {
+        return singleton(TipoReporteService.class, () -> new TipoReporteService(tipoReporteRepository()));
+    }
+
+    public static ReporteService reporteService() {
+        return singleton(ReporteService.class, () -> new ReporteService(
+                reporteRepository(),
+                tipoReporteRepository(),
+                especimenRepository(),
+                usuarioRepository()
+        ));
+    }
+
+    public static ReporteTrasladoService reporteTrasladoService() {
+        return singleton(ReporteTrasladoService.class, () -> new ReporteTrasladoService(
+                reporteTrasladoRepository(),
+                tipoReporteRepository(),
+                especimenRepository(),
+                usuarioRepository(),
+                eventoService(),
+                analiticaTrasladoService(),
+                ubicacionService()
+        ));
+    }
+
+    public static UbicacionService ubicacionService() {
+        return singleton(UbicacionService.class, () -> new UbicacionService(ubicacionActualRepository(), cambioService()));
+    }
+
+    public static AnaliticaTrasladoService analiticaTrasladoService() {
+        return singleton(AnaliticaTrasladoService.class, () -> new AnaliticaTrasladoService(reporteTrasladoRepository()));
+    }
+
+    public static RegistroAltaService registroAltaService() {
+        return singleton(RegistroAltaService.class, () -> new RegistroAltaService(
+                registroAltaRepository(),
+                especimenRepository(),
+                usuarioRepository(),
+                eventoService()
+        ));
+    }
+
+    public static RegistroBajaService registroBajaService() {
+        return singleton(RegistroBajaService.class, () -> new RegistroBajaService(
+                registroBajaRepository(),
+                especimenRepository(),
+                usuarioRepository(),
+                causaBajaRepository(),
+                eventoService()
+        ));
+    }
+
+    public static SerieTemporalService serieTemporalService() {
+        return singleton(SerieTemporalService.class, () -> new SerieTemporalService(
+                serieTemporalRepository(),
+                eventoService(),
+                cambioService()
+        ));
+    }
 
-        // Crear servicios necesarios
-        AuthService authService = new AuthService(usuarioRepository);
-        UsuarioService usuarioService = new UsuarioService(usuarioRepository, rolRepository);
+    public static ExportService exportService() {
+        return singleton(ExportService.class, () -> new ExportService(exportRepository()));
+    }
 
-        // CORREGIDO: AuthController necesita AMBOS servicios
-        AuthController authController = new AuthController(authService, usuarioService);
+    // MÓDULOS (rutas)
 
-        return new AuthRoutes(authController);
+    /**
+     * Inicializar módulo de autenticación
+     */
+    public static AuthRoutes initAuth() {
+        return new AuthRoutes(new AuthController(authService(), usuarioService()));
     }
 
     /**
      * Obtener instancia del servicio de autenticación
-     * Para uso en middleware
+     * Para uso en middleware: es la misma instancia que usa el login
      */
     public static AuthService getAuthService() {
-        UsuarioRepository usuarioRepository = new UsuarioRepository();
-        return new AuthService(usuarioRepository);
+        return authService();
     }
 
     /**
      * Inicializar módulo de roles
      */
     public static RolRoutes initRoles() {
-        RolRepository rolRepository = new RolRepository();
-        RolService rolService = new RolService(rolRepository);
-        RolController rolController = new RolController(rolService);
-
-        return new RolRoutes(rolController);
+        return new RolRoutes(new RolController(rolService()));
     }
 
     /**
-     * Inicializar módulo de permisos (NUEVO - MÉTODO AGREGADO)
+     * Inicializar módulo de permisos
      */
     public static PermisoRoutes initPermisos() {
-        PermisoRepository permisoRepository = new PermisoRepository();
-        PermisoService permisoService = new PermisoService(permisoRepository);
-        PermisoController permisoController = new PermisoController(permisoService);
-
-        return new PermisoRoutes(permisoController);
+        return new PermisoRoutes(new PermisoController(permisoService()));
     }
 
     /**
      * Inicializar módulo de usuarios
      */
     public static UsuarioRoutes initUsuarios() {
-        RolRepository rolRepository = new RolRepository();
-        UsuarioRepository usuarioRepository = new UsuarioRepository();
-        UsuarioService usuarioService = new UsuarioService(usuarioRepository, rolRepository);
-        UsuarioController usuarioController = new UsuarioController(usuarioService);
-
-        return new UsuarioRoutes(usuarioController);
+        return new UsuarioRoutes(new UsuarioController(usuarioService()));
     }
 
     /**
      * Inicializar módulo de origen alta
      */
     public static OrigenAltaRoutes initOrigenAlta() {
-        OrigenAltaRepository origenAltaRepository = new OrigenAltaRepository();
-        OrigenAltaService origenAltaService = new OrigenAltaService(origenAltaRepository);
-        OrigenAltaController origenAltaController = new OrigenAltaController(origenAltaService);
-
-        return new OrigenAltaRoutes(origenAltaController);
+        return new OrigenAltaRoutes(new OrigenAltaController(origenAltaService()));
     }
 
     /**
      * Inicializar módulo de causa baja
      */
     public static CausaBajaRoutes initCausaBaja() {
-        CausaBajaRepository causaBajaRepository = new CausaBajaRepository();
-        CausaBajaService causaBajaService = new CausaBajaService(causaBajaRepository);
-        CausaBajaController causaBajaController = new CausaBajaController(causaBajaService);
-
-        return new CausaBajaRoutes(causaBajaController);
+        return new CausaBajaRoutes(new CausaBajaController(causaBajaService()));
     }
 
     /**
      * Inicializar módulo de especies con CRUD completo
      */
     public static EspecieRoutes initSpecies() {
-        EspecieRepository especieRepository = new EspecieRepository();
-        EspecieService especieService = new EspecieService(especieRepository);
-        EspecieController especieController = new EspecieController(especieService);
-
-        return new EspecieRoutes(especieController);
+        return new EspecieRoutes(new EspecieController(especieService()));
     }
 
     /**
      * Inicializar módulo de especímenes con todas las dependencias
      */
     public static EspecimenRoutes initSpecimens() {
-        EspecieRepository especieRepository = new EspecieRepository();
-        EspecimenRepository especimenRepository = new EspecimenRepository();
-        RegistroAltaRepository registroAltaRepository = new RegistroAltaRepository();
-        UsuarioRepository usuarioRepository = new UsuarioRepository();
-        OrigenAltaRepository origenAltaRepository = new OrigenAltaRepository();
-
-        EspecimenService especimenService = new EspecimenService(
-                especimenRepository,
-                especieRepository,
-                registroAltaRepository,
-                usuarioRepository,
-                origenAltaRepository
-        );
-        EspecimenController especimenController = new EspecimenController(especimenService);
-
-        return new EspecimenRoutes(especimenController);
+        return new EspecimenRoutes(new EspecimenController(especimenService()));
     }
 
     /**
-     * Inicializar módulo de tipos de reporte (NUEVO - Catálogo)
+     * Inicializar módulo de tipos de reporte (Catálogo)
      */
     public static TipoReporteRoutes initTipoReporte() {
-        TipoReporteRepository tipoReporteRepository = new TipoReporteRepository();
-        TipoReporteService tipoReporteService = new TipoReporteService(tipoReporteRepository);
-        TipoReporteController tipoReporteController = new TipoReporteController(tipoReporteService);
-
-        return new TipoReporteRoutes(tipoReporteController);
+        return new TipoReporteRoutes(new TipoReporteController(tipoReporteService()));
     }
 
     /**
-     * Inicializar módulo de reportes (NUEVO - Clase padre)
+     * Inicializar módulo de reportes (Clase padre)
      */
     public static ReporteRoutes initReporte() {
-        TipoReporteRepository tipoReporteRepository = new TipoReporteRepository();
-        EspecimenRepository especimenRepository = new EspecimenRepository();
-        UsuarioRepository usuarioRepository = new UsuarioRepository();
-        ReporteRepository reporteRepository = new ReporteRepository();
-
-        ReporteService reporteService = new ReporteService(
-                reporteRepository,
-                tipoReporteRepository,
-                especimenRepository,
-                usuarioRepository
-        );
-        ReporteController reporteController = new ReporteController(reporteService);
-
-        return new ReporteRoutes(reporteController);
+        return new ReporteRoutes(new ReporteController(reporteService()));
     }
 
     /**
-     * Inicializar módulo de reportes de traslado (NUEVO - Clase hija)
+     * Inicializar módulo de reportes de traslado (Clase hija)
      */
     public static ReporteTrasladoRoutes initReporteTraslado() {
-        TipoReporteRepository tipoReporteRepository = new TipoReporteRepository();
-        EspecimenRepository especimenRepository = new EspecimenRepository();
-        UsuarioRepository usuarioRepository = new UsuarioRepository();
-        ReporteTrasladoRepository reporteTrasladoRepository = new ReporteTrasladoRepository();
-
-        ReporteTrasladoService reporteTrasladoService = new ReporteTrasladoService(
-                reporteTrasladoRepository,
-                tipoReporteRepository,
-                especimenRepository,
-                usuarioRepository
-        );
-        ReporteTrasladoController reporteTrasladoController = new ReporteTrasladoController(reporteTrasladoService);
-
-        return new ReporteTrasladoRoutes(reporteTrasladoController);
+        return new ReporteTrasladoRoutes(new ReporteTrasladoController(reporteTrasladoService()));
     }
 
     /**
-     * Inicializar módulo de registro unificado ACTUALIZADO
-     * Ahora incluye el servicio de ReporteTraslado para creación completa
+     * Inicializar módulo de registro unificado
+     * Comparte EspecimenService y ReporteTrasladoService con sus módulos
      */
     public static RegistroUnificadoRoutes initRegistroUnificado() {
-        EspecieRepository especieRepository = new EspecieRepository();
-        EspecimenRepository especimenRepository = new EspecimenRepository();
-        RegistroAltaRepository registroAltaRepository = new RegistroAltaRepository();
-        UsuarioRepository usuarioRepository = new UsuarioRepository();
-        OrigenAltaRepository origenAltaRepository = new OrigenAltaRepository();
-
-        // NUEVAS dependencias para ReporteTraslado
-        TipoReporteRepository tipoReporteRepository = new TipoReporteRepository();
-        ReporteTrasladoRepository reporteTrasladoRepository = new ReporteTrasladoRepository();
-
-        EspecimenService especimenService = new EspecimenService(
-                especimenRepository,
-                especieRepository,
-                registroAltaRepository,
-                usuarioRepository,
-                origenAltaRepository
-        );
-
-        // NUEVO servicio para reportes de traslado
-        ReporteTrasladoService reporteTrasladoService = new ReporteTrasladoService(
-                reporteTrasladoRepository,
-                tipoReporteRepository,
-                especimenRepository,
-                usuarioRepository
-        );
-
-        // Controlador actualizado con ambos servicios
-        RegistroUnificadoController unificadoController = new RegistroUnificadoController(
-                especimenService,
-                reporteTrasladoService
-        );
-
-        return new RegistroUnificadoRoutes(unificadoController);
+        return new RegistroUnificadoRoutes(new RegistroUnificadoController(
+                especimenService(),
+                reporteTrasladoService()
+        ));
     }
 
     /**
      * Inicializar módulo de registro alta con todas las dependencias
      */
     public static RegistroAltaRoutes initRegistroAlta() {
-        RegistroAltaRepository registroAltaRepository = new RegistroAltaRepository();
-        EspecimenRepository especimenRepository = new EspecimenRepository();
-        UsuarioRepository usuarioRepository = new UsuarioRepository();
+        return new RegistroAltaRoutes(new RegistroAltaController(registroAltaService()));
+    }
+
+    /**
+     * Inicializar módulo de registro baja con todas las dependencias
+     */
+    public static RegistroBajaRoutes initRegistroBaja() {
+        return new RegistroBajaRoutes(new RegistroBajaController(registroBajaService()));
+    }
+
+    /**
+     * Inicializar módulo de series temporales (altas, bajas y traslados por periodo)
+     */
+    public static SerieTemporalRoutes initSeriesTemporales() {
+        return new SerieTemporalRoutes(new SerieTemporalController(serieTemporalService()));
+    }
 
-        RegistroAltaService registroAltaService = new RegistroAltaService(
-                registroAltaRepository,
-                especimenRepository,
-                usuarioRepository
-        );
+    /**
+     * Inicializar módulo de ubicación actual y ocupación por área
+     */
+    public static UbicacionRoutes initUbicaciones() {
+        return new UbicacionRoutes(new UbicacionController(ubicacionService()));
+    }
 
-        RegistroAltaController registroAltaController = new RegistroAltaController(registroAltaService);
+    /**
+     * Inicializar módulo de exportación del inventario
+     */
+    public static ExportRoutes initExport() {
+        return new ExportRoutes(new ExportController(exportService()));
+    }
 
-        return new RegistroAltaRoutes(registroAltaController);
+    /**
+     * Inicializar módulo de eventos en tiempo real (SSE)
+     */
+    public static EventoRoutes initEventos() {
+        return new EventoRoutes(new EventoController(eventoService()));
     }
 
     /**
-     * Inicializar módulo de registro baja con todas las dependencias
+     * Inicializar módulo de administración del pool de conexiones
      */
-    public static RegistroBajaRoutes initRegistroBaja() {
-        RegistroBajaRepository registroBajaRepository = new RegistroBajaRepository();
-        EspecimenRepository especimenRepository = new EspecimenRepository();
-        UsuarioRepository usuarioRepository = new UsuarioRepository();
-        CausaBajaRepository causaBajaRepository = new CausaBajaRepository();
+    public static PoolRoutes initPool() {
+        return new PoolRoutes(new PoolController(DatabaseConfig.getPoolManager()));
+    }
 
-        RegistroBajaService registroBajaService = new RegistroBajaService(
-                registroBajaRepository,
-                especimenRepository,
-                usuarioRepository,
-                causaBajaRepository
-        );
+    // CALENTAMIENTO
 
-        RegistroBajaController registroBajaController = new RegistroBajaController(registroBajaService);
+    /**
+     * Iniciar en segundo plano el calentamiento del pool y la precarga de las cachés en memoria
+     * Corre en paralelo con el registro de rutas; retorna la duración (ms) de cada tarea
+     */
+    public static CompletableFuture<Map<String, Long>> startWarmUp() {
+        ExecutorService executor = Executors.newFixedThreadPool(2, r -> {
+            Thread thread = new Thread(r, "WarmUp");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        CompletableFuture<Long> pool = CompletableFuture.supplyAsync(AppModule::warmUpPool, executor);
+        CompletableFuture<Long> caches = CompletableFuture.supplyAsync(AppModule::preloadCaches, executor);
+
+        return pool.thenCombine(caches, (tPool, tCaches) -> {
+            Map<String, Long> tiempos = new LinkedHashMap<>();
+            tiempos.put("pool", tPool);
+            tiempos.put("ubicaciones", tCaches);
+            return tiempos;
+        }).whenComplete((r, e) -> executor.shutdown());
+    }
+
+    /**
+     * Abrir a la vez tantas conexiones como el mínimo ocioso configurado (DB_POOL_MIN_IDLE)
+     * para que el pool llegue a su mínimo antes del primer request
+     */
+    private static long warmUpPool() {
+        long inicio = System.nanoTime();
+        List<Connection> conexiones = new ArrayList<>();
+        try {
+            int minimo = DatabaseConfig.getPoolManager().getMinimumIdle();
+            for (int i = 0; i < minimo; i++) {
+                Connection conn = DatabaseConfig.getConnection();
+                conexiones.add(conn);
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("SELECT 1");
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("⚠️ Calentamiento del pool incompleto: " + e.getMessage());
+        } finally {
+            for (Connection conn : conexiones) {
+                try {
+                    conn.close();
+                } catch (Exception ignored) {
+                    // Conexión ya cerrada
+                }
+            }
+        }
+        return (System.nanoTime() - inicio) / 1_000_000;
+    }
 
-        return new RegistroBajaRoutes(registroBajaController);
+    /**
+     * Cargar los índices en memoria de ubicaciones; la analítica de traslados se carga sola al arrancar
+     * Los catálogos no tienen caché: leerlos aquí no ahorraba nada al primer request
+     */
+    private static long preloadCaches() {
+        long inicio = System.nanoTime();
+        try {
+            ubicacionService().cargar();
+        } catch (Exception e) {
+            System.err.println("⚠️ Precarga de ubicaciones incompleta: " + e.getMessage());
+        }
+        return (System.nanoTime() - inicio) / 1_000_000;
     }
 
     /**
@@ -314,6 +453,16 @@ public class AppModule {
         System.out.println("   [RegistroBajaRepository, EspecimenRepository, UsuarioRepository, CausaBajaRepository]");
         System.out.println("   -> RegistroBajaService -> RegistroBajaController");
 
+        System.out.println("✅ Módulo Eventos (SSE):");
+        System.out.println("   [ReporteTrasladoService, RegistroAltaService, RegistroBajaService]");
+        System.out.println("   -> EventoService -> EventoController");
+
+        System.out.println("✅ Módulo SerieTemporal:");
+        System.out.println("   [SerieTemporalRepository, EventoService] -> SerieTemporalService -> SerieTemporalController");
+
+        System.out.println("✅ Módulo Ubicación actual:");
+        System.out.println("   [UbicacionActualRepository, CambioService] -> UbicacionService -> UbicacionController");
+
         System.out.println("==========================================================");
         System.out.println("📋 Patrón implementado: Repository -> Service -> Controller");
         System.out.println("🔗 Relaciones foráneas manejadas con joins completos");
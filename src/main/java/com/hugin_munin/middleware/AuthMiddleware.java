@@ -97,11 +97,13 @@ public class AuthMiddleware {
 
             if (usuario == null) {
                 sendUnauthorizedResponse(ctx);
+                ctx.skipRemainingHandlers();
                 return;
             }
 
             if (!isAdminUser(usuario)) {
                 sendForbiddenResponse(ctx, "Se requieren permisos de administrador");
+                ctx.skipRemainingHandlers();
                 return;
             }
         };
@@ -24,6 +24,10 @@ public class Especimen {
     @JsonProperty("activo")
     private boolean activo;
 
+    // Versión para concurrencia optimista (se incrementa en cada actualización)
+    @JsonProperty("version")
+    private Integer version;
+
     //Constructores
     public Especimen(){
     }
@@ -70,6 +74,10 @@ public class Especimen {
         return activo;
     }
 
+    public Integer getVersion() {
+        return version;
+    }
+
     //Setters
     public void setId_especimen(Integer id_especimen) {
         this.id_especimen = id_especimen;
@@ -95,6 +103,10 @@ public class Especimen {
         this.activo = activo;
     }
 
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) return false;
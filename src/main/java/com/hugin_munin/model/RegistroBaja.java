@@ -37,6 +37,10 @@ public class RegistroBaja {
     @JsonProperty("observacion")
     private String observacion;
 
+    // Versión para concurrencia optimista (se incrementa en cada actualización)
+    @JsonProperty("version")
+    private Integer version;
+
     // Constructores
     public RegistroBaja() {
     }
@@ -101,6 +105,10 @@ public class RegistroBaja {
         return observacion;
     }
 
+    public Integer getVersion() {
+        return version;
+    }
+
     // Setters
     public void setId_registro_baja(Integer id_registro_baja) {
         this.id_registro_baja = id_registro_baja;
@@ -138,6 +146,10 @@ public class RegistroBaja {
         this.observacion = observacion;
     }
 
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
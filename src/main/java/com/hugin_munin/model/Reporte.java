@@ -43,6 +43,10 @@ public class Reporte {
     @JsonProperty("fecha_reporte")
     private Date fecha_reporte;
 
+    // Versión para concurrencia optimista (se incrementa en cada actualización)
+    @JsonProperty("version")
+    private Integer version;
+
     // Constructores
     public Reporte() {
         this.fecha_reporte = new Date();
@@ -114,6 +118,10 @@ public class Reporte {
         return fecha_reporte;
     }
 
+    public Integer getVersion() {
+        return version;
+    }
+
     // Setters
     public void setId_reporte(Integer id_reporte) {
         this.id_reporte = id_reporte;
@@ -155,6 +163,10 @@ public class Reporte {
         this.fecha_reporte = fecha_reporte;
     }
 
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
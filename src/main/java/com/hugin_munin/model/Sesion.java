@@ -0,0 +1,74 @@
+package com.hugin_munin.model;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Modelo de una sesión de usuario autenticado
+ * Lo comparten AuthService y las implementaciones de SessionStore.
+ * Los tiempos son milisegundos epoch; los que cambian con la actividad son atómicos
+ * porque varias peticiones concurrentes pueden tocar la misma sesión.
+ */
+public class Sesion {
+
+    private final String sessionId;
+    private final Integer userId;
+    private final String username;
+    private final long createdAt;
+    private final AtomicLong expiresAt;
+    private final AtomicLong lastActivity;
+
+    // Momento en que se validó contra el almacén persistente (caché cercana de JdbcSessionStore)
+    private volatile long sincronizadaEn;
+
+    public Sesion(String sessionId, Integer userId, String username, long createdAt, long expiresAt) {
+        this(sessionId, userId, username, createdAt, expiresAt, createdAt);
+    }
+
+    public Sesion(String sessionId, Integer userId, String username, long createdAt, long expiresAt, long lastActivity) {
+        this.sessionId = sessionId;
+        this.userId = userId;
+        this.username = username;
+        this.createdAt = createdAt;
+        this.expiresAt = new AtomicLong(expiresAt);
+        this.lastActivity = new AtomicLong(lastActivity);
+    }
+
+    public boolean isExpired() {
+        return isExpired(System.currentTimeMillis());
+    }
+
+    public boolean isExpired(long ahora) {
+        return ahora > expiresAt.get();
+    }
+
+    /**
+     * Registrar actividad y extender la expiración por la duración indicada
+     */
+    public void updateActivity(long duracionMs) {
+        long ahora = System.currentTimeMillis();
+        lastActivity.accumulateAndGet(ahora, Math::max);
+        expiresAt.accumulateAndGet(ahora + duracionMs, Math::max);
+    }
+
+    /**
+     * Conservar la actividad y expiración más recientes entre esta sesión y las indicadas
+     * (por ejemplo, las leídas de la base de datos después de actividad en otro nodo)
+     */
+    public void sincronizar(long ultimaActividad, long expiracion) {
+        lastActivity.accumulateAndGet(ultimaActividad, Math::max);
+        expiresAt.accumulateAndGet(expiracion, Math::max);
+    }
+
+    public void marcarSincronizada(long momento) {
+        this.sincronizadaEn = momento;
+    }
+
+    // Getters
+    public String getSessionId() { return sessionId; }
+    public Integer getUserId() { return userId; }
+    public String getUsername() { return username; }
+    public long getCreatedAt() { return createdAt; }
+    public long getExpiresAt() { return expiresAt.get(); }
+    public long getLastActivity() { return lastActivity.get(); }
+    public long getSincronizadaEn() { return sincronizadaEn; }
+}
@@ -0,0 +1,50 @@
+package com.hugin_munin.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.Date;
+
+/**
+ * Modelo de la ubicación actual de un especimen (tabla ubicacion_actual)
+ * Destino del traslado más reciente; se reemplaza completo en cada cambio (inmutable)
+ */
+public class UbicacionActual {
+
+    @JsonProperty("id_especimen")
+    private final Integer id_especimen;
+
+    @JsonProperty("id_reporte")
+    private final Integer id_reporte;
+
+    @JsonProperty("area")
+    private final String area;
+
+    @JsonProperty("ubicacion")
+    private final String ubicacion;
+
+    @JsonProperty("fecha_reporte")
+    private final Date fecha_reporte;
+
+    public UbicacionActual(Integer id_especimen, Integer id_reporte, String area, String ubicacion, Date fecha_reporte) {
+        this.id_especimen = id_especimen;
+        this.id_reporte = id_reporte;
+        this.area = area;
+        this.ubicacion = ubicacion;
+        this.fecha_reporte = fecha_reporte;
+    }
+
+    public Integer getId_especimen() { return id_especimen; }
+    public Integer getId_reporte() { return id_reporte; }
+    public String getArea() { return area; }
+    public String getUbicacion() { return ubicacion; }
+    public Date getFecha_reporte() { return fecha_reporte; }
+
+    @Override
+    public String toString() {
+        return "UbicacionActual{" +
+                "id_especimen=" + id_especimen +
+                ", area='" + area + '\'' +
+                ", ubicacion='" + ubicacion + '\'' +
+                ", id_reporte=" + id_reporte +
+                '}';
+    }
+}
@@ -0,0 +1,236 @@
+package com.hugin_munin.repository;
+
+import com.hugin_munin.config.DatabaseConfig;
+
+import java.sql.*;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Repositorio del registro de cambios (tabla registro_cambio)
+ * Las escrituras que afectan cachés en proceso agregan filas (tabla, clave) dentro de su
+ * propia transacción; cada instancia lee las filas nuevas por id (versión monotónica)
+ * e invalida sus cachés locales. No requiere un broker externo, solo MySQL.
+ */
+public class CambioRepository {
+
+    // Tablas lógicas de cambio y el formato de su clave
+    public static final String TABLA_ESPECIMEN = "especimen";           // clave: id_especimen
+    public static final String TABLA_SERIE_TEMPORAL = "serie_temporal"; // clave: fecha yyyy-MM-dd
+    public static final String TABLA_CAPACIDAD = "capacidad_ubicacion"; // clave: area
+    public static final String TABLA_ESPECIE = "especie";               // clave: id_especie
+
+    /**
+     * Identificador de esta instancia (columna origen), útil para diagnosticar qué nodo escribió cada cambio
+     */
+    private static final String NODO = DatabaseConfig.getSetting("NODE_ID", UUID.randomUUID().toString());
+
+    /**
+     * Operación JDBC sobre una conexión con transacción abierta
+     */
+    @FunctionalInterface
+    public interface OperacionSql<T> {
+        T ejecutar(Connection conn) throws SQLException;
+    }
+
+    public static String getNodo() {
+        return NODO;
+    }
+
+    /**
+     * Ejecutar una operación en su propia transacción (commit al terminar, rollback si falla)
+     * Para escrituras de una sola sentencia que ahora también deben registrar su cambio
+     */
+    public static <T> T enTransaccion(OperacionSql<T> operacion) throws SQLException {
+        Connection conn = null;
+        try {
+            conn = DatabaseConfig.getConnection();
+            conn.setAutoCommit(false);
+
+            T resultado = operacion.ejecutar(conn);
+
+            conn.commit();
+            return resultado;
+
+        } catch (SQLException e) {
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackEx) {
+                    e.addSuppressed(rollbackEx);
+                }
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                } catch (SQLException e) {
+                    // Log error
+                }
+            }
+        }
+    }
+
+    /**
+     * REGISTRAR el cambio de una clave usando la transacción del llamador
+     */
+    public static void registrar(Connection conn, String tabla, Object clave) throws SQLException {
+        if (clave != null) {
+            registrar(conn, tabla, Collections.singletonList(clave));
+        }
+    }
+
+    /**
+     * REGISTRAR el cambio de varias claves (un solo INSERT en lote) usando la transacción del llamador
+     */
+    public static void registrar(Connection conn, String tabla, Collection<?> claves) throws SQLException {
+        Set<String> unicas = new LinkedHashSet<>();
+        for (Object clave : claves) {
+            if (clave != null) {
+                unicas.add(clave.toString());
+            }
+        }
+        if (unicas.isEmpty()) {
+            return;
+        }
+
+        String sql = "INSERT INTO registro_cambio (tabla, clave, origen) VALUES (?, ?, ?)";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (String clave : unicas) {
+                stmt.setString(1, tabla);
+                stmt.setString(2, clave);
+                stmt.setString(3, NODO);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * REGISTRAR el cambio de los periodos de series temporales que contienen las fechas indicadas
+     */
+    public static void registrarFechas(Connection conn, Collection<? extends Date> fechas) throws SQLException {
+        List<String> claves = new ArrayList<>();
+        for (Date fecha : fechas) {
+            if (fecha != null) {
+                claves.add(fecha instanceof java.sql.Date
+                        ? ((java.sql.Date) fecha).toLocalDate().toString()
+                        : fecha.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toString());
+            }
+        }
+        registrar(conn, TABLA_SERIE_TEMPORAL, claves);
+    }
+
+    /**
+     * OBTENER el último id registrado (0 si la tabla está vacía)
+     */
+    public long findMaxId() throws SQLException {
+        String sql = "SELECT COALESCE(MAX(id_cambio), 0) FROM registro_cambio";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * BUSCAR cambios posteriores a un id (recorrido por clave primaria)
+     */
+    public List<Cambio> findDesde(long idExclusivo, int limite) throws SQLException {
+        String sql = "SELECT id_cambio, tabla, clave, origen FROM registro_cambio WHERE id_cambio > ? ORDER BY id_cambio LIMIT ?";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setLong(1, idExclusivo);
+            stmt.setInt(2, limite);
+            return mapCambios(stmt);
+        }
+    }
+
+    /**
+     * BUSCAR cambios por id (huecos de transacciones que confirmaron después de ids mayores)
+     */
+    public List<Cambio> findByIds(Collection<Long> ids) throws SQLException {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        String sql = "SELECT id_cambio, tabla, clave, origen FROM registro_cambio WHERE id_cambio IN ("
+                + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int indice = 1;
+            for (Long id : ids) {
+                stmt.setLong(indice++, id);
+            }
+            return mapCambios(stmt);
+        }
+    }
+
+    /**
+     * ELIMINAR cambios anteriores al instante indicado (como máximo 'limite' filas por llamada)
+     */
+    public int purgeAntesDe(long instanteMs, int limite) throws SQLException {
+        String sql = "DELETE FROM registro_cambio WHERE creado_en < ? LIMIT ?";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setTimestamp(1, new Timestamp(instanteMs));
+            stmt.setInt(2, limite);
+            return stmt.executeUpdate();
+        }
+    }
+
+    private List<Cambio> mapCambios(PreparedStatement stmt) throws SQLException {
+        List<Cambio> cambios = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                cambios.add(new Cambio(
+                        rs.getLong("id_cambio"),
+                        rs.getString("tabla"),
+                        rs.getString("clave"),
+                        rs.getString("origen")
+                ));
+            }
+        }
+        return cambios;
+    }
+
+    /**
+     * Fila del registro de cambios; id_cambio actúa como versión
+     */
+    public static class Cambio {
+        private final long id;
+        private final String tabla;
+        private final String clave;
+        private final String origen;
+
+        public Cambio(long id, String tabla, String clave, String origen) {
+            this.id = id;
+            this.tabla = tabla;
+            this.clave = clave;
+            this.origen = origen;
+        }
+
+        public long getId() { return id; }
+        public String getTabla() { return tabla; }
+        public String getClave() { return clave; }
+        public String getOrigen() { return origen; }
+    }
+}
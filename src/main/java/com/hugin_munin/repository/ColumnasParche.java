@@ -0,0 +1,104 @@
+package com.hugin_munin.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Columnas modificadas por una actualización parcial (PATCH)
+ * Solo las columnas presentes entran en el SET del UPDATE; una tabla sin columnas presentes
+ * no se escribe. Los nombres de columna los fija el servicio (nunca vienen del cliente).
+ */
+public class ColumnasParche {
+
+    private final Map<String, Object> valores = new LinkedHashMap<>();
+
+    public ColumnasParche put(String columna, Object valor) {
+        valores.put(columna, valor);
+        return this;
+    }
+
+    public boolean contiene(String columna) {
+        return valores.containsKey(columna);
+    }
+
+    public Object get(String columna) {
+        return valores.get(columna);
+    }
+
+    public boolean isEmpty() {
+        return valores.isEmpty();
+    }
+
+    public Set<String> getColumnas() {
+        return Collections.unmodifiableSet(valores.keySet());
+    }
+
+    /**
+     * Alguna de las columnas indicadas está en el parche
+     */
+    public boolean contieneAlguna(Collection<String> columnas) {
+        for (String columna : columnas) {
+            if (valores.containsKey(columna)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Subconjunto con las columnas de una tabla (p. ej. separar reporte y reporte_traslado)
+     */
+    public ColumnasParche solo(Collection<String> columnas) {
+        ColumnasParche subconjunto = new ColumnasParche();
+        for (String columna : columnas) {
+            if (valores.containsKey(columna)) {
+                subconjunto.put(columna, valores.get(columna));
+            }
+        }
+        return subconjunto;
+    }
+
+    /**
+     * UPDATE tabla SET <columnas presentes>[, setAdicional] WHERE columnaId = ? [AND version = ?]
+     * Retorna las filas afectadas; 0 significa que no existe o que la versión no coincide
+     */
+    int ejecutar(Connection conn, String tabla, String columnaId, int id,
+                 String setAdicional, Integer versionEsperada) throws SQLException {
+        StringBuilder sql = new StringBuilder("UPDATE ").append(tabla).append(" SET ");
+        String separador = "";
+        for (String columna : valores.keySet()) {
+            sql.append(separador).append(columna).append(" = ?");
+            separador = ", ";
+        }
+        if (setAdicional != null) {
+            sql.append(separador).append(setAdicional);
+        }
+        sql.append(" WHERE ").append(columnaId).append(" = ?");
+        if (versionEsperada != null) {
+            sql.append(" AND version = ?");
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            int index = 1;
+            for (Object valor : valores.values()) {
+                if (valor == null) {
+                    stmt.setNull(index++, Types.NULL);
+                } else {
+                    stmt.setObject(index++, valor);
+                }
+            }
+            stmt.setInt(index++, id);
+            if (versionEsperada != null) {
+                stmt.setInt(index, versionEsperada);
+            }
+            return stmt.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.hugin_munin.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * La fila cambió desde que el cliente la leyó (la versión enviada ya no es la actual)
+ * Es SQLException para que las transacciones manuales la traten como cualquier error y hagan rollback;
+ * los controladores la responden como 409 Conflict.
+ */
+public class ConflictoVersionException extends SQLException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Integer id;
+    private final int versionEsperada;
+    private final int versionActual;
+
+    public ConflictoVersionException(Integer id, int versionEsperada, int versionActual) {
+        super("El registro " + id + " fue modificado por otra persona (versión enviada " + versionEsperada +
+                ", versión actual " + versionActual + "). Vuelva a cargarlo e intente de nuevo");
+        this.id = id;
+        this.versionEsperada = versionEsperada;
+        this.versionActual = versionActual;
+    }
+
+    public Integer getId() { return id; }
+    public int getVersionEsperada() { return versionEsperada; }
+    public int getVersionActual() { return versionActual; }
+
+    /**
+     * Después de un UPDATE ... AND version = ? que no afectó filas: lanza el conflicto si la fila existe
+     * (con otra versión) o retorna normalmente si no existe. Solo se consulta en el camino de error.
+     */
+    static void verificar(Connection conn, String tabla, String columnaId, Integer id, int versionEsperada)
+            throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT version FROM " + tabla + " WHERE " + columnaId + " = ?")) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    throw new ConflictoVersionException(id, versionEsperada, rs.getInt("version"));
+                }
+            }
+        }
+    }
+
+    /**
+     * Comparar la versión sin escribir (parche sin columnas): lanza el conflicto si la fila tiene
+     * otra versión; retorna false si no existe
+     */
+    static boolean comprobar(Connection conn, String tabla, String columnaId, Integer id, int versionEsperada)
+            throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT version FROM " + tabla + " WHERE " + columnaId + " = ?")) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return false;
+                }
+                int versionActual = rs.getInt("version");
+                if (versionActual != versionEsperada) {
+                    throw new ConflictoVersionException(id, versionEsperada, versionActual);
+                }
+                return true;
+            }
+        }
+    }
+}
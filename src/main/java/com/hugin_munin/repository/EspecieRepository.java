@@ -16,6 +16,9 @@ import java.util.Optional;
  */
 public class EspecieRepository {
 
+    // Consulta con plan verificado (PlanesConsultaTest)
+    static final String BUSCAR_POR_GENERO_ESPECIE = "SELECT * FROM especie WHERE genero = ? AND especie = ?";
+
     /**
      * Buscar todas las especies
      */
@@ -57,10 +60,11 @@ public class EspecieRepository {
 
     /**
      * Buscar especies por nombre científico (búsqueda parcial)
+     * Usa la columna generada nombre_cientifico (migración V3) en lugar de CONCAT por fila
      */
     public List<Especie> findSpeciesByScientificName(String scientificName) throws SQLException {
         List<Especie> especies = new ArrayList<>();
-        String query = "SELECT * FROM especie WHERE CONCAT(genero, ' ', especie) LIKE ? ORDER BY genero, especie";
+        String query = "SELECT id_especie, genero, especie FROM especie WHERE nombre_cientifico LIKE ? ORDER BY genero, especie";
 
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
@@ -102,7 +106,7 @@ public class EspecieRepository {
      * Buscar especie exacta por género y especie
      */
     public Optional<Especie> findByGeneroAndEspecie(String genero, String especie) throws SQLException {
-        String query = "SELECT * FROM especie WHERE genero = ? AND especie = ?";
+        String query = BUSCAR_POR_GENERO_ESPECIE;
 
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
@@ -155,15 +159,34 @@ public class EspecieRepository {
     public boolean update(Especie especie) throws SQLException {
         String query = "UPDATE especie SET genero = ?, especie = ? WHERE id_especie = ?";
 
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        // El nombre de la especie forma parte de los agregados cacheados de sus especímenes
+        return CambioRepository.enTransaccion(conn -> {
+            boolean actualizado;
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setString(1, especie.getGenero());
+                stmt.setString(2, especie.getEspecie());
+                stmt.setInt(3, especie.getId_especie());
 
-            stmt.setString(1, especie.getGenero());
-            stmt.setString(2, especie.getEspecie());
-            stmt.setInt(3, especie.getId_especie());
+                actualizado = stmt.executeUpdate() > 0;
+            }
+            if (actualizado) {
+                CambioRepository.registrar(conn, CambioRepository.TABLA_ESPECIE, especie.getId_especie());
+            }
+            return actualizado;
+        });
+    }
 
-            return stmt.executeUpdate() > 0;
-        }
+    /**
+     * ACTUALIZACIÓN PARCIAL: solo las columnas del parche (genero y/o especie)
+     */
+    public boolean patch(Integer id, ColumnasParche columnas) throws SQLException {
+        return CambioRepository.enTransaccion(conn -> {
+            boolean actualizado = columnas.ejecutar(conn, "especie", "id_especie", id, null, null) > 0;
+            if (actualizado) {
+                CambioRepository.registrar(conn, CambioRepository.TABLA_ESPECIE, id);
+            }
+            return actualizado;
+        });
     }
 
     /**
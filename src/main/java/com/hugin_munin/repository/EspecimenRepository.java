@@ -1,12 +1,22 @@
 package com.hugin_munin.repository;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.hugin_munin.config.DatabaseConfig;
 import com.hugin_munin.model.Especimen;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Repositorio para gestionar especímenes
@@ -14,6 +24,24 @@ import java.util.Optional;
  */
 public class EspecimenRepository {
 
+    public static final String LOTE_ACTIVAR = "activar";
+    public static final String LOTE_DESACTIVAR = "desactivar";
+    public static final String LOTE_ELIMINAR = "eliminar";
+
+    public static final String RESULTADO_ACTUALIZADO = "actualizado";
+    public static final String RESULTADO_ELIMINADO = "eliminado";
+    public static final String RESULTADO_SIN_CAMBIOS = "sin_cambios";
+    public static final String RESULTADO_NO_ENCONTRADO = "no_encontrado";
+    public static final String RESULTADO_EN_USO = "en_uso";
+
+    private static final int TAMANO_BLOQUE = 500;
+
+    // Tablas con FK a especimen sin ON DELETE CASCADE: un especimen referenciado no se puede eliminar
+    private static final List<String> TABLAS_DEPENDIENTES = List.of("registro_alta", "registro_baja", "reporte");
+
+    // Consultas con plan verificado (PlanesConsultaTest)
+    static final String BUSCAR_POR_INVENTARIO = "SELECT * FROM especimen WHERE num_inventario = ?";
+
     /**
      * Buscar todos los especímenes
      */
@@ -75,7 +103,7 @@ public class EspecimenRepository {
      * Buscar especimen por número de inventario
      */
     public Optional<Especimen> findByInventoryNumber(String numInventario) throws SQLException {
-        String query = "SELECT * FROM especimen WHERE num_inventario = ?";
+        String query = BUSCAR_POR_INVENTARIO;
 
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
@@ -166,63 +194,296 @@ public class EspecimenRepository {
     }
 
     /**
-     * Actualizar especimen existente
+     * Actualizar especimen existente (false si no existe)
+     * Si el especimen trae versión, el UPDATE es condicional (WHERE version = ?) y lanza
+     * ConflictoVersionException cuando la fila existe con otra versión. Al terminar, el objeto
+     * queda con la versión nueva.
      */
     public boolean update(Especimen especimen) throws SQLException {
-        String query = "UPDATE especimen SET num_inventario = ?, id_especie = ?, nombre_especimen = ?, activo = ? WHERE id_especimen = ?";
+        return actualizar(especimen, true);
+    }
 
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+    /**
+     * Actualizar solo los datos del especimen (inventario, especie y nombre), sin tocar el estado activo
+     */
+    public boolean updateDatos(Especimen especimen) throws SQLException {
+        return actualizar(especimen, false);
+    }
 
-            stmt.setString(1, especimen.getNum_inventario());
-            stmt.setInt(2, especimen.getId_especie());
-            stmt.setString(3, especimen.getNombre_especimen());
-            stmt.setBoolean(4, especimen.isActivo());
-            stmt.setInt(5, especimen.getId_especimen());
+    private boolean actualizar(Especimen especimen, boolean incluirActivo) throws SQLException {
+        Integer versionEsperada = especimen.getVersion();
+        String query = "UPDATE especimen SET num_inventario = ?, id_especie = ?, nombre_especimen = ?"
+                + (incluirActivo ? ", activo = ?" : "")
+                + ", version = LAST_INSERT_ID(version + 1) WHERE id_especimen = ?"
+                + (versionEsperada != null ? " AND version = ?" : "");
+
+        return CambioRepository.enTransaccion(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                int index = 1;
+                stmt.setString(index++, especimen.getNum_inventario());
+                stmt.setInt(index++, especimen.getId_especie());
+                stmt.setString(index++, especimen.getNombre_especimen());
+                if (incluirActivo) {
+                    stmt.setBoolean(index++, especimen.isActivo());
+                }
+                stmt.setInt(index++, especimen.getId_especimen());
+                if (versionEsperada != null) {
+                    stmt.setInt(index, versionEsperada);
+                }
 
-            return stmt.executeUpdate() > 0;
+                if (stmt.executeUpdate() == 0) {
+                    if (versionEsperada != null) {
+                        ConflictoVersionException.verificar(conn, "especimen", "id_especimen",
+                                especimen.getId_especimen(), versionEsperada);
+                    }
+                    return false;
+                }
+            }
+
+            // LAST_INSERT_ID(expr) deja la versión escrita en la sesión: se lee sin volver a la tabla
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT LAST_INSERT_ID()");
+                 ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    especimen.setVersion(rs.getInt(1));
+                }
+            }
+
+            CambioRepository.registrar(conn, CambioRepository.TABLA_ESPECIMEN, especimen.getId_especimen());
+            return true;
+        });
+    }
+
+    /**
+     * VERIFICAR la versión de un especimen sin modificarlo (parche sin campos)
+     * Retorna false si no existe; lanza ConflictoVersionException si la versión cambió
+     */
+    public boolean verificarVersion(Integer id, int versionEsperada) throws SQLException {
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            return ConflictoVersionException.comprobar(conn, "especimen", "id_especimen", id, versionEsperada);
         }
     }
 
+    /**
+     * ACTUALIZACIÓN PARCIAL: solo las columnas del parche, condicional si se envía la versión
+     * Retorna false si el especimen no existe
+     */
+    public boolean patch(Integer id, ColumnasParche columnas, Integer versionEsperada) throws SQLException {
+        return CambioRepository.enTransaccion(conn -> {
+            if (columnas.ejecutar(conn, "especimen", "id_especimen", id, "version = version + 1", versionEsperada) == 0) {
+                if (versionEsperada != null) {
+                    ConflictoVersionException.verificar(conn, "especimen", "id_especimen", id, versionEsperada);
+                }
+                return false;
+            }
+            CambioRepository.registrar(conn, CambioRepository.TABLA_ESPECIMEN, id);
+            return true;
+        });
+    }
+
     /**
      * Eliminar especimen por ID
      */
     public boolean deleteById(Integer id) throws SQLException {
         String query = "DELETE FROM especimen WHERE id_especimen = ?";
 
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-
-            stmt.setInt(1, id);
-            return stmt.executeUpdate() > 0;
-        }
+        return CambioRepository.enTransaccion(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setInt(1, id);
+                boolean afectado = stmt.executeUpdate() > 0;
+                if (afectado) {
+                    CambioRepository.registrar(conn, CambioRepository.TABLA_ESPECIMEN, id);
+                }
+                return afectado;
+            }
+        });
     }
 
     /**
      * Activar especimen por ID
      */
     public boolean activateById(Integer id) throws SQLException {
-        String query = "UPDATE especimen SET activo = TRUE WHERE id_especimen = ?";
+        String query = "UPDATE especimen SET activo = TRUE, version = version + 1 WHERE id_especimen = ?";
+
+        return CambioRepository.enTransaccion(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setInt(1, id);
+                boolean afectado = stmt.executeUpdate() > 0;
+                if (afectado) {
+                    CambioRepository.registrar(conn, CambioRepository.TABLA_ESPECIMEN, id);
+                }
+                return afectado;
+            }
+        });
+    }
+
+    /**
+     * Desactivar especimen por ID
+     */
+    public boolean deactivateById(Integer id) throws SQLException {
+        String query = "UPDATE especimen SET activo = FALSE, version = version + 1 WHERE id_especimen = ?";
+
+        return CambioRepository.enTransaccion(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setInt(1, id);
+                boolean afectado = stmt.executeUpdate() > 0;
+                if (afectado) {
+                    CambioRepository.registrar(conn, CambioRepository.TABLA_ESPECIMEN, id);
+                }
+                return afectado;
+            }
+        });
+    }
+
+    /**
+     * Buscar IDs de especímenes que cumplen un filtro (criterios nulos se ignoran)
+     */
+    public List<Integer> findIdsByFilter(Boolean activo, Integer idEspecie, String nombre, int limite) throws SQLException {
+        StringBuilder query = new StringBuilder("SELECT id_especimen FROM especimen WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+
+        if (activo != null) {
+            query.append(" AND activo = ?");
+            params.add(activo);
+        }
+        if (idEspecie != null) {
+            query.append(" AND id_especie = ?");
+            params.add(idEspecie);
+        }
+        if (nombre != null && !nombre.trim().isEmpty()) {
+            query.append(" AND nombre_especimen LIKE ?");
+            params.add("%" + nombre.trim() + "%");
+        }
+        query.append(" ORDER BY id_especimen ASC LIMIT ?");
+        params.add(limite);
 
+        List<Integer> ids = new ArrayList<>();
         try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+             PreparedStatement stmt = conn.prepareStatement(query.toString())) {
 
-            stmt.setInt(1, id);
-            return stmt.executeUpdate() > 0;
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setObject(i + 1, params.get(i));
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
         }
+        return ids;
     }
 
     /**
-     * Desactivar especimen por ID
+     * Activar, desactivar o eliminar un lote de especímenes en una sola transacción
+     * Procesa bloques de hasta TAMANO_BLOQUE IDs: bloquea las filas, decide el resultado de
+     * cada ID en memoria y aplica un único UPDATE/DELETE ... IN por bloque.
+     * Retorna el resultado por ID en el orden recibido.
      */
-    public boolean deactivateById(Integer id) throws SQLException {
-        String query = "UPDATE especimen SET activo = FALSE WHERE id_especimen = ?";
+    public Map<Integer, String> applyBulkState(String accion, List<Integer> ids) throws SQLException {
+        List<Integer> unicos = new ArrayList<>(new LinkedHashSet<>(ids));
+        Map<Integer, String> resultados = new LinkedHashMap<>();
+
+        Connection conn = null;
+        try {
+            conn = DatabaseConfig.getConnection();
+            conn.setAutoCommit(false);
+
+            for (int desde = 0; desde < unicos.size(); desde += TAMANO_BLOQUE) {
+                List<Integer> bloque = unicos.subList(desde, Math.min(desde + TAMANO_BLOQUE, unicos.size()));
+                String enLista = placeholders(bloque.size());
+
+                // 1. Estado actual de los especímenes del bloque (filas bloqueadas hasta el commit)
+                Map<Integer, Boolean> estados = new HashMap<>();
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT id_especimen, activo FROM especimen WHERE id_especimen IN (" + enLista + ") FOR UPDATE")) {
+                    bindIds(stmt, 1, bloque);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            estados.put(rs.getInt("id_especimen"), rs.getBoolean("activo"));
+                        }
+                    }
+                }
 
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+                // 2. Para eliminar: especímenes con registros asociados
+                Set<Integer> enUso = new HashSet<>();
+                if (LOTE_ELIMINAR.equals(accion)) {
+                    String sql = TABLAS_DEPENDIENTES.stream()
+                            .map(tabla -> "SELECT id_especimen FROM " + tabla + " WHERE id_especimen IN (" + enLista + ")")
+                            .collect(Collectors.joining(" UNION "));
+                    try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                        for (int i = 0; i < TABLAS_DEPENDIENTES.size(); i++) {
+                            bindIds(stmt, i * bloque.size() + 1, bloque);
+                        }
+                        try (ResultSet rs = stmt.executeQuery()) {
+                            while (rs.next()) {
+                                enUso.add(rs.getInt(1));
+                            }
+                        }
+                    }
+                }
 
-            stmt.setInt(1, id);
-            return stmt.executeUpdate() > 0;
+                // 3. Resultado por ID
+                List<Integer> objetivo = new ArrayList<>();
+                for (Integer id : bloque) {
+                    Boolean activo = estados.get(id);
+                    if (activo == null) {
+                        resultados.put(id, RESULTADO_NO_ENCONTRADO);
+                    } else if (LOTE_ELIMINAR.equals(accion)) {
+                        if (enUso.contains(id)) {
+                            resultados.put(id, RESULTADO_EN_USO);
+                        } else {
+                            resultados.put(id, RESULTADO_ELIMINADO);
+                            objetivo.add(id);
+                        }
+                    } else if (activo == LOTE_ACTIVAR.equals(accion)) {
+                        resultados.put(id, RESULTADO_SIN_CAMBIOS);
+                    } else {
+                        resultados.put(id, RESULTADO_ACTUALIZADO);
+                        objetivo.add(id);
+                    }
+                }
+
+                // 4. Una sola sentencia por bloque
+                if (!objetivo.isEmpty()) {
+                    String sql = LOTE_ELIMINAR.equals(accion)
+                            ? "DELETE FROM especimen WHERE id_especimen IN (" + placeholders(objetivo.size()) + ")"
+                            : "UPDATE especimen SET activo = " + (LOTE_ACTIVAR.equals(accion) ? "TRUE" : "FALSE")
+                              + ", version = version + 1 WHERE id_especimen IN (" + placeholders(objetivo.size()) + ")";
+                    try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                        bindIds(stmt, 1, objetivo);
+                        stmt.executeUpdate();
+                    }
+                    CambioRepository.registrar(conn, CambioRepository.TABLA_ESPECIMEN, objetivo);
+                }
+            }
+
+            conn.commit();
+
+            // Mantener el orden original de la solicitud
+            Map<Integer, String> ordenados = new LinkedHashMap<>();
+            for (Integer id : unicos) {
+                ordenados.put(id, resultados.get(id));
+            }
+            return ordenados;
+
+        } catch (SQLException e) {
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackEx) {
+                    e.addSuppressed(rollbackEx);
+                }
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                } catch (SQLException e) {
+                    // Log error
+                }
+            }
         }
     }
 
@@ -269,6 +530,8 @@ public class EspecimenRepository {
                 SELECT id_especimen FROM registro_alta WHERE id_especimen = ?
                 UNION
                 SELECT id_especimen FROM registro_baja WHERE id_especimen = ?
+                UNION
+                SELECT id_especimen FROM reporte WHERE id_especimen = ?
             ) AS usage_check
             """;
 
@@ -277,6 +540,7 @@ public class EspecimenRepository {
 
             stmt.setInt(1, id);
             stmt.setInt(2, id);
+            stmt.setInt(3, id);
 
             try (ResultSet rs = stmt.executeQuery()) {
                 return rs.next() && rs.getInt(1) > 0;
@@ -483,6 +747,91 @@ public class EspecimenRepository {
         return estadisticas;
     }
 
+    /**
+     * Obtener la línea de tiempo de un especimen (altas, reportes, traslados y bajas)
+     * Una sola consulta UNION ALL que proyecta solo las columnas necesarias,
+     * paginada por cursor (fecha, orden, id_evento) en orden cronológico descendente
+     */
+    public List<EventoTimeline> findTimeline(Integer idEspecimen, Timestamp cursorFecha, Integer cursorOrden,
+                                             Integer cursorId, int limit) throws SQLException {
+        StringBuilder query = new StringBuilder("""
+            SELECT t.tipo_evento, t.orden, t.id_evento, t.fecha, t.id_responsable,
+                   t.id_referencia, t.resumen, t.detalle, t.area_origen, t.area_destino
+            FROM (
+                SELECT 'alta' AS tipo_evento, 1 AS orden, ra.id_registro_alta AS id_evento,
+                       ra.fecha_ingreso AS fecha, ra.id_responsable, ra.id_origen_alta AS id_referencia,
+                       ra.observacion AS resumen, ra.procedencia AS detalle,
+                       CAST(NULL AS CHAR(100)) AS area_origen, CAST(NULL AS CHAR(100)) AS area_destino
+                FROM registro_alta ra
+                WHERE ra.id_especimen = ?
+                UNION ALL
+                SELECT 'reporte', 2, r.id_reporte, r.fecha_reporte, r.id_responsable, r.id_tipo_reporte,
+                       r.asunto, NULL, NULL, NULL
+                FROM reporte r
+                WHERE r.id_especimen = ?
+                  AND NOT EXISTS (SELECT 1 FROM reporte_traslado x WHERE x.id_reporte = r.id_reporte)
+                UNION ALL
+                SELECT 'traslado', 3, r.id_reporte, r.fecha_reporte, r.id_responsable, r.id_tipo_reporte,
+                       r.asunto, rt.motivo, rt.area_origen, rt.area_destino
+                FROM reporte_traslado rt
+                INNER JOIN reporte r ON rt.id_reporte = r.id_reporte
+                WHERE r.id_especimen = ?
+                UNION ALL
+                SELECT 'baja', 4, rb.id_registro_baja, rb.fecha_baja, rb.id_responsable, rb.id_causa_baja,
+                       rb.observacion, NULL, NULL, NULL
+                FROM registro_baja rb
+                WHERE rb.id_especimen = ?
+            ) t
+            """);
+
+        boolean conCursor = cursorFecha != null && cursorOrden != null && cursorId != null;
+        if (conCursor) {
+            query.append("""
+                WHERE t.fecha < ?
+                   OR (t.fecha = ? AND (t.orden < ? OR (t.orden = ? AND t.id_evento < ?)))
+                """);
+        }
+        query.append("ORDER BY t.fecha DESC, t.orden DESC, t.id_evento DESC LIMIT ?");
+
+        List<EventoTimeline> eventos = new ArrayList<>();
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query.toString())) {
+
+            int index = 1;
+            for (int i = 0; i < 4; i++) {
+                stmt.setInt(index++, idEspecimen);
+            }
+            if (conCursor) {
+                stmt.setTimestamp(index++, cursorFecha);
+                stmt.setTimestamp(index++, cursorFecha);
+                stmt.setInt(index++, cursorOrden);
+                stmt.setInt(index++, cursorOrden);
+                stmt.setInt(index++, cursorId);
+            }
+            stmt.setInt(index, limit);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    eventos.add(new EventoTimeline(
+                            rs.getString("tipo_evento"),
+                            rs.getInt("orden"),
+                            rs.getInt("id_evento"),
+                            rs.getTimestamp("fecha"),
+                            rs.getObject("id_responsable", Integer.class),
+                            rs.getObject("id_referencia", Integer.class),
+                            rs.getString("resumen"),
+                            rs.getString("detalle"),
+                            rs.getString("area_origen"),
+                            rs.getString("area_destino")
+                    ));
+                }
+            }
+        }
+
+        return eventos;
+    }
+
     /**
      * Mapear ResultSet a objeto Especimen
      */
@@ -493,10 +842,22 @@ public class EspecimenRepository {
         especimen.setId_especie(rs.getInt("id_especie"));
         especimen.setNombre_especimen(rs.getString("nombre_especimen"));
         especimen.setActivo(rs.getBoolean("activo"));
+        especimen.setVersion(rs.getInt("version"));
 
         return especimen;
     }
 
+    private String placeholders(int cantidad) {
+        return String.join(", ", Collections.nCopies(cantidad, "?"));
+    }
+
+    private void bindIds(PreparedStatement stmt, int desde, List<Integer> ids) throws SQLException {
+        int index = desde;
+        for (Integer id : ids) {
+            stmt.setInt(index++, id);
+        }
+    }
+
     /**
      * Clase auxiliar para estadísticas de especímenes por especie
      */
@@ -538,4 +899,73 @@ public class EspecimenRepository {
         public Integer getEspecimenesInactivos() { return especimenesInactivos; }
         public void setEspecimenesInactivos(Integer especimenesInactivos) { this.especimenesInactivos = especimenesInactivos; }
     }
-}
\ No newline at end of file
+
+    /**
+     * Clase auxiliar para eventos de la línea de tiempo de un especimen
+     */
+    public static class EventoTimeline {
+        @JsonProperty("tipo_evento")
+        private String tipoEvento;
+        private Integer orden;
+        @JsonProperty("id_evento")
+        private Integer idEvento;
+        private Timestamp fecha;
+        @JsonProperty("id_responsable")
+        private Integer idResponsable;
+        @JsonProperty("id_referencia")
+        private Integer idReferencia;
+        private String resumen;
+        private String detalle;
+        @JsonProperty("area_origen")
+        private String areaOrigen;
+        @JsonProperty("area_destino")
+        private String areaDestino;
+
+        public EventoTimeline(String tipoEvento, Integer orden, Integer idEvento, Timestamp fecha,
+                              Integer idResponsable, Integer idReferencia, String resumen, String detalle,
+                              String areaOrigen, String areaDestino) {
+            this.tipoEvento = tipoEvento;
+            this.orden = orden;
+            this.idEvento = idEvento;
+            this.fecha = fecha;
+            this.idResponsable = idResponsable;
+            this.idReferencia = idReferencia;
+            this.resumen = resumen;
+            this.detalle = detalle;
+            this.areaOrigen = areaOrigen;
+            this.areaDestino = areaDestino;
+        }
+
+        // Getters y setters
+        public String getTipoEvento() { return tipoEvento; }
+        public void setTipoEvento(String tipoEvento) { this.tipoEvento = tipoEvento; }
+
+        @JsonIgnore
+        public Integer getOrden() { return orden; }
+        public void setOrden(Integer orden) { this.orden = orden; }
+
+        public Integer getIdEvento() { return idEvento; }
+        public void setIdEvento(Integer idEvento) { this.idEvento = idEvento; }
+
+        public Timestamp getFecha() { return fecha; }
+        public void setFecha(Timestamp fecha) { this.fecha = fecha; }
+
+        public Integer getIdResponsable() { return idResponsable; }
+        public void setIdResponsable(Integer idResponsable) { this.idResponsable = idResponsable; }
+
+        public Integer getIdReferencia() { return idReferencia; }
+        public void setIdReferencia(Integer idReferencia) { this.idReferencia = idReferencia; }
+
+        public String getResumen() { return resumen; }
+        public void setResumen(String resumen) { this.resumen = resumen; }
+
+        public String getDetalle() { return detalle; }
+        public void setDetalle(String detalle) { this.detalle = detalle; }
+
+        public String getAreaOrigen() { return areaOrigen; }
+        public void setAreaOrigen(String areaOrigen) { this.areaOrigen = areaOrigen; }
+
+        public String getAreaDestino() { return areaDestino; }
+        public void setAreaDestino(String areaDestino) { this.areaDestino = areaDestino; }
+    }
+}
@@ -0,0 +1,102 @@
+package com.hugin_munin.repository;
+
+import com.hugin_munin.config.DatabaseConfig;
+
+import java.io.IOException;
+import java.sql.*;
+import java.util.List;
+
+/**
+ * Repositorio para exportaciones masivas
+ * Las consultas se leen con un ResultSet de solo avance en modo streaming
+ * (fetchSize = Integer.MIN_VALUE), por lo que la memoria usada no depende del número de filas
+ */
+public class ExportRepository {
+
+    /**
+     * Columnas del inventario en el orden en que se entregan
+     */
+    public static final List<String> COLUMNAS_INVENTARIO = List.of(
+            "id_especimen", "num_inventario", "nombre_especimen", "activo",
+            "id_especie", "genero", "especie",
+            "fecha_ingreso", "origen_alta", "procedencia",
+            "fecha_baja", "causa_baja",
+            "fecha_ultimo_traslado", "area_actual", "ubicacion_actual"
+    );
+
+    private static final String INVENTARIO_QUERY = """
+        SELECT e.id_especimen, e.num_inventario, e.nombre_especimen, e.activo,
+               esp.id_especie, esp.genero, esp.especie,
+               ra.fecha_ingreso, oa.nombre_origen_alta AS origen_alta, ra.procedencia,
+               rb.fecha_baja, cb.nombre_causa_baja AS causa_baja,
+               r.fecha_reporte AS fecha_ultimo_traslado,
+               rt.area_destino AS area_actual, rt.ubicacion_destino AS ubicacion_actual
+        FROM especimen e
+        INNER JOIN especie esp ON e.id_especie = esp.id_especie
+        LEFT JOIN registro_alta ra ON ra.id_registro_alta = (
+            SELECT ra2.id_registro_alta FROM registro_alta ra2
+            WHERE ra2.id_especimen = e.id_especimen
+            ORDER BY ra2.fecha_ingreso DESC, ra2.id_registro_alta DESC LIMIT 1)
+        LEFT JOIN origen_alta oa ON ra.id_origen_alta = oa.id_origen_alta
+        LEFT JOIN registro_baja rb ON rb.id_registro_baja = (
+            SELECT rb2.id_registro_baja FROM registro_baja rb2
+            WHERE rb2.id_especimen = e.id_especimen
+            ORDER BY rb2.fecha_baja DESC, rb2.id_registro_baja DESC LIMIT 1)
+        LEFT JOIN causa_baja cb ON rb.id_causa_baja = cb.id_causa_baja
+        LEFT JOIN reporte r ON r.id_reporte = (
+            SELECT r2.id_reporte FROM reporte r2
+            INNER JOIN reporte_traslado rt2 ON rt2.id_reporte = r2.id_reporte
+            WHERE r2.id_especimen = e.id_especimen
+            ORDER BY r2.fecha_reporte DESC, r2.id_reporte DESC LIMIT 1)
+        LEFT JOIN reporte_traslado rt ON rt.id_reporte = r.id_reporte
+        """;
+
+    /**
+     * Receptor de filas; el arreglo de valores se reutiliza entre filas
+     */
+    @FunctionalInterface
+    public interface ReceptorFilas {
+        void recibir(Object[] valores) throws IOException;
+    }
+
+    /**
+     * RECORRER el inventario completo (opcionalmente filtrado por estado) fila por fila
+     * Retorna el número de filas entregadas
+     */
+    public long streamInventario(Boolean activo, ReceptorFilas receptor) throws SQLException, IOException {
+        String query = INVENTARIO_QUERY
+                + (activo != null ? " WHERE e.activo = ?" : "")
+                + " ORDER BY e.id_especimen ASC";
+
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setReadOnly(true);
+
+            try (PreparedStatement stmt = conn.prepareStatement(query,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+                // Con MySQL Connector/J, MIN_VALUE activa la lectura fila a fila
+                stmt.setFetchSize(Integer.MIN_VALUE);
+                if (activo != null) {
+                    stmt.setBoolean(1, activo);
+                }
+
+                long filas = 0;
+                Object[] valores = new Object[COLUMNAS_INVENTARIO.size()];
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        for (int i = 0; i < valores.length; i++) {
+                            valores[i] = rs.getObject(i + 1);
+                        }
+                        valores[3] = rs.getBoolean("activo");
+                        receptor.recibir(valores);
+                        filas++;
+                    }
+                }
+                return filas;
+            } finally {
+                conn.setReadOnly(false);
+            }
+        }
+    }
+}
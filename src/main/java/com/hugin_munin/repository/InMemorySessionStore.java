@@ -0,0 +1,52 @@
+package com.hugin_munin.repository;
+
+import com.hugin_munin.model.Sesion;
+
+/**
+ * Almacén de sesiones en memoria del proceso
+ * Las sesiones se pierden al reiniciar y no se comparten entre instancias
+ */
+public class InMemorySessionStore implements SessionStore {
+
+    private final SessionRegistry registro = new SessionRegistry();
+
+    @Override
+    public void save(Sesion sesion) {
+        registro.put(sesion);
+    }
+
+    @Override
+    public Sesion findById(String sessionId) {
+        return registro.get(sessionId);
+    }
+
+    @Override
+    public void touch(Sesion sesion) {
+        // La sesión en memoria ya es la instancia actualizada
+    }
+
+    @Override
+    public Sesion remove(String sessionId) {
+        return registro.remove(sessionId);
+    }
+
+    @Override
+    public int removeByUser(Integer userId) {
+        return registro.removeByUser(userId).size();
+    }
+
+    @Override
+    public int removeExpired() {
+        return registro.expirar(System.currentTimeMillis()).size();
+    }
+
+    @Override
+    public int count() {
+        return registro.size();
+    }
+
+    @Override
+    public long countExpired() {
+        return registro.countExpired(System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,256 @@
+package com.hugin_munin.repository;
+
+import com.hugin_munin.config.DatabaseConfig;
+import com.hugin_munin.model.Sesion;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Almacén de sesiones en la tabla sesion
+ * - Caché cercana en memoria: una sesión leída se reutiliza durante SESSION_NEAR_CACHE_TTL_MS
+ *   antes de volver a validarla contra la base de datos (así un logout en otro nodo se nota)
+ * - La última actividad se acumula en memoria y se escribe en lote cada SESSION_FLUSH_INTERVAL_MS,
+ *   en lugar de un UPDATE por cada petición autenticada
+ */
+public class JdbcSessionStore implements SessionStore {
+
+    private static final String COLUMNAS =
+            "session_id, id_usuario, nombre_usuario, creada_en, expira_en, ultima_actividad";
+
+    private final long cacheTtlMs;
+    private final SessionRegistry cacheCercana = new SessionRegistry();
+    private final Map<String, Sesion> actividadPendiente = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    public JdbcSessionStore() {
+        this.cacheTtlMs = DatabaseConfig.getIntSetting("SESSION_NEAR_CACHE_TTL_MS", 5000);
+        int intervaloMs = Math.max(100, DatabaseConfig.getIntSetting("SESSION_FLUSH_INTERVAL_MS", 10000));
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "SessionFlush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushSeguro, intervaloMs, intervaloMs, TimeUnit.MILLISECONDS);
+
+        // Escribir la actividad pendiente antes de terminar el proceso
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flushSeguro, "SessionFlushShutdown"));
+
+        System.out.println("🔐 Sesiones persistentes en base de datos (caché cercana " + cacheTtlMs +
+                " ms, escritura de actividad cada " + intervaloMs + " ms)");
+    }
+
+    @Override
+    public void save(Sesion sesion) throws SQLException {
+        String query = "INSERT INTO sesion (" + COLUMNAS + ") VALUES (?, ?, ?, ?, ?, ?)";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            stmt.setString(1, sesion.getSessionId());
+            stmt.setInt(2, sesion.getUserId());
+            stmt.setString(3, sesion.getUsername());
+            stmt.setTimestamp(4, new Timestamp(sesion.getCreatedAt()));
+            stmt.setTimestamp(5, new Timestamp(sesion.getExpiresAt()));
+            stmt.setTimestamp(6, new Timestamp(sesion.getLastActivity()));
+            stmt.executeUpdate();
+        }
+
+        sesion.marcarSincronizada(System.currentTimeMillis());
+        cacheCercana.put(sesion);
+    }
+
+    @Override
+    public Sesion findById(String sessionId) throws SQLException {
+        long ahora = System.currentTimeMillis();
+        Sesion cacheada = cacheCercana.get(sessionId);
+        if (cacheada != null && ahora - cacheada.getSincronizadaEn() < cacheTtlMs) {
+            return cacheada;
+        }
+
+        Sesion leida = null;
+        String query = "SELECT " + COLUMNAS + " FROM sesion WHERE session_id = ?";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            stmt.setString(1, sessionId);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    leida = mapResultSetToSesion(rs);
+                }
+            }
+        }
+
+        if (leida == null) {
+            cacheCercana.remove(sessionId);
+            actividadPendiente.remove(sessionId);
+            return null;
+        }
+
+        // Conservar la misma instancia si ya estaba en caché: puede tener actividad aún no escrita
+        if (cacheada != null) {
+            cacheada.sincronizar(leida.getLastActivity(), leida.getExpiresAt());
+            cacheada.marcarSincronizada(ahora);
+            return cacheada;
+        }
+        leida.marcarSincronizada(ahora);
+        cacheCercana.put(leida);
+        return leida;
+    }
+
+    @Override
+    public void touch(Sesion sesion) {
+        actividadPendiente.put(sesion.getSessionId(), sesion);
+    }
+
+    @Override
+    public Sesion remove(String sessionId) throws SQLException {
+        Sesion existente = findById(sessionId);
+        cacheCercana.remove(sessionId);
+        actividadPendiente.remove(sessionId);
+
+        String query = "DELETE FROM sesion WHERE session_id = ?";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            stmt.setString(1, sessionId);
+            return stmt.executeUpdate() > 0 ? existente : null;
+        }
+    }
+
+    @Override
+    public int removeByUser(Integer userId) throws SQLException {
+        for (Sesion sesion : cacheCercana.removeByUser(userId)) {
+            actividadPendiente.remove(sesion.getSessionId());
+        }
+
+        String query = "DELETE FROM sesion WHERE id_usuario = ?";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            stmt.setInt(1, userId);
+            return stmt.executeUpdate();
+        }
+    }
+
+    @Override
+    public int removeExpired() throws SQLException {
+        // Escribir primero la actividad pendiente para no borrar sesiones que se extendieron
+        flush();
+
+        cacheCercana.expirar(System.currentTimeMillis());
+
+        String query = "DELETE FROM sesion WHERE expira_en < ?";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            stmt.setTimestamp(1, new Timestamp(System.currentTimeMillis()));
+            return stmt.executeUpdate();
+        }
+    }
+
+    @Override
+    public int count() throws SQLException {
+        String query = "SELECT COUNT(*) FROM sesion";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query);
+             ResultSet rs = stmt.executeQuery()) {
+
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    @Override
+    public long countExpired() throws SQLException {
+        String query = "SELECT COUNT(*) FROM sesion WHERE expira_en < ?";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            stmt.setTimestamp(1, new Timestamp(System.currentTimeMillis()));
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * ESCRIBIR en lote la actividad acumulada
+     * GREATEST evita retroceder una expiración extendida por otro nodo
+     */
+    public int flush() throws SQLException {
+        if (actividadPendiente.isEmpty()) {
+            return 0;
+        }
+
+        List<Sesion> lote = new ArrayList<>();
+        for (String sessionId : new ArrayList<>(actividadPendiente.keySet())) {
+            Sesion sesion = actividadPendiente.remove(sessionId);
+            if (sesion != null) {
+                lote.add(sesion);
+            }
+        }
+        if (lote.isEmpty()) {
+            return 0;
+        }
+
+        String query = "UPDATE sesion SET ultima_actividad = GREATEST(ultima_actividad, ?), " +
+                "expira_en = GREATEST(expira_en, ?) WHERE session_id = ?";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            for (Sesion sesion : lote) {
+                stmt.setTimestamp(1, new Timestamp(sesion.getLastActivity()));
+                stmt.setTimestamp(2, new Timestamp(sesion.getExpiresAt()));
+                stmt.setString(3, sesion.getSessionId());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+
+        } catch (SQLException e) {
+            // Reencolar para el siguiente ciclo sin pisar actividad más reciente
+            for (Sesion sesion : lote) {
+                actividadPendiente.putIfAbsent(sesion.getSessionId(), sesion);
+            }
+            throw e;
+        }
+
+        return lote.size();
+    }
+
+    // MÉTODOS AUXILIARES
+
+    private void flushSeguro() {
+        try {
+            flush();
+        } catch (Exception e) {
+            System.err.println("⚠️ Error al escribir actividad de sesiones: " + e.getMessage());
+        }
+    }
+
+    private Sesion mapResultSetToSesion(ResultSet rs) throws SQLException {
+        return new Sesion(
+                rs.getString("session_id"),
+                rs.getInt("id_usuario"),
+                rs.getString("nombre_usuario"),
+                rs.getTimestamp("creada_en").getTime(),
+                rs.getTimestamp("expira_en").getTime(),
+                rs.getTimestamp("ultima_actividad").getTime()
+        );
+    }
+}
@@ -5,8 +5,12 @@ import com.hugin_munin.model.Permiso;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Repositorio para gestionar permisos
@@ -14,6 +18,9 @@ import java.util.Optional;
  */
 public class PermisoRepository {
 
+    // Consulta con plan verificado (PlanesConsultaTest)
+    static final String CONTAR_ROL_PERMISO = "SELECT COUNT(*) FROM rol_permiso WHERE id_rol = ? AND id_permiso = ?";
+
     /**
      * BUSCAR todos los permisos
      */
@@ -378,7 +385,7 @@ public class PermisoRepository {
      * VERIFICAR si un rol tiene un permiso específico
      */
     public boolean rolHasPermiso(Integer idRol, Integer idPermiso) throws SQLException {
-        String query = "SELECT COUNT(*) FROM rol_permiso WHERE id_rol = ? AND id_permiso = ?";
+        String query = CONTAR_ROL_PERMISO;
 
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
@@ -392,6 +399,138 @@ public class PermisoRepository {
         }
     }
 
+    /**
+     * APLICAR cambios de permisos a un rol en una sola transacción
+     * Lee las asignaciones actuales (bloqueándolas) y los permisos existentes, calcula la
+     * diferencia en memoria y la aplica con un DELETE ... IN y un INSERT de varias filas.
+     * Si removerNoSolicitados es true, el rol queda exactamente con los permisos solicitados.
+     * Si el rol no existe no se aplica nada y el resultado lo indica con isRolInexistente().
+     */
+    public CambioPermisosRol applyPermisosToRol(Integer idRol, Collection<Integer> solicitados,
+                                                boolean removerNoSolicitados) throws SQLException {
+        Set<Integer> pedidos = new LinkedHashSet<>(solicitados);
+        Connection conn = null;
+        try {
+            conn = DatabaseConfig.getConnection();
+            conn.setAutoCommit(false);
+
+            // 0. El rol debe existir (se bloquea para que no se elimine antes del commit)
+            CambioPermisosRol cambio = new CambioPermisosRol();
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT id_rol FROM rol WHERE id_rol = ? FOR UPDATE")) {
+                stmt.setInt(1, idRol);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next()) {
+                        conn.rollback();
+                        cambio.rolInexistente = true;
+                        return cambio;
+                    }
+                }
+            }
+
+            // 1. Permisos actuales del rol (bloqueados hasta el commit)
+            Set<Integer> actuales = new LinkedHashSet<>();
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT id_permiso FROM rol_permiso WHERE id_rol = ? FOR UPDATE")) {
+                stmt.setInt(1, idRol);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        actuales.add(rs.getInt(1));
+                    }
+                }
+            }
+
+            // 2. Cuáles de los solicitados existen como permiso
+            Set<Integer> existentes = new LinkedHashSet<>();
+            if (!pedidos.isEmpty()) {
+                String sql = "SELECT id_permiso FROM permiso WHERE id_permiso IN (" + placeholders(pedidos.size()) + ")";
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    bindIds(stmt, 1, pedidos);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            existentes.add(rs.getInt(1));
+                        }
+                    }
+                }
+            }
+
+            // 3. Diferencia en memoria
+            for (Integer id : pedidos) {
+                if (!existentes.contains(id)) {
+                    cambio.inexistentes.add(id);
+                } else if (actuales.contains(id)) {
+                    cambio.yaAsignados.add(id);
+                } else {
+                    cambio.agregados.add(id);
+                }
+            }
+            if (removerNoSolicitados) {
+                for (Integer id : actuales) {
+                    if (!pedidos.contains(id)) {
+                        cambio.removidos.add(id);
+                    }
+                }
+            }
+
+            // 4. Un DELETE y un INSERT como máximo
+            if (!cambio.removidos.isEmpty()) {
+                String sql = "DELETE FROM rol_permiso WHERE id_rol = ? AND id_permiso IN ("
+                        + placeholders(cambio.removidos.size()) + ")";
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setInt(1, idRol);
+                    bindIds(stmt, 2, cambio.removidos);
+                    stmt.executeUpdate();
+                }
+            }
+
+            if (!cambio.agregados.isEmpty()) {
+                String valores = String.join(", ", Collections.nCopies(cambio.agregados.size(), "(?, ?)"));
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT INTO rol_permiso (id_rol, id_permiso) VALUES " + valores)) {
+                    int index = 1;
+                    for (Integer id : cambio.agregados) {
+                        stmt.setInt(index++, idRol);
+                        stmt.setInt(index++, id);
+                    }
+                    stmt.executeUpdate();
+                }
+            }
+
+            conn.commit();
+            return cambio;
+
+        } catch (SQLException e) {
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackEx) {
+                    e.addSuppressed(rollbackEx);
+                }
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                } catch (SQLException e) {
+                    // Log error
+                }
+            }
+        }
+    }
+
+    private String placeholders(int cantidad) {
+        return String.join(", ", Collections.nCopies(cantidad, "?"));
+    }
+
+    private void bindIds(PreparedStatement stmt, int desde, Collection<Integer> ids) throws SQLException {
+        int index = desde;
+        for (Integer id : ids) {
+            stmt.setInt(index++, id);
+        }
+    }
+
     /**
      * MAPEAR ResultSet a objeto Permiso
      */
@@ -402,6 +541,24 @@ public class PermisoRepository {
         return permiso;
     }
 
+    /**
+     * Resultado de aplicar cambios de permisos a un rol
+     */
+    public static class CambioPermisosRol {
+        private final List<Integer> agregados = new ArrayList<>();
+        private final List<Integer> removidos = new ArrayList<>();
+        private final List<Integer> yaAsignados = new ArrayList<>();
+        private final List<Integer> inexistentes = new ArrayList<>();
+        private boolean rolInexistente;
+
+        // Getters
+        public boolean isRolInexistente() { return rolInexistente; }
+        public List<Integer> getAgregados() { return agregados; }
+        public List<Integer> getRemovidos() { return removidos; }
+        public List<Integer> getYaAsignados() { return yaAsignados; }
+        public List<Integer> getInexistentes() { return inexistentes; }
+    }
+
     /**
      * Clase auxiliar para estadísticas de permiso
      */
@@ -0,0 +1,209 @@
+package com.hugin_munin.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Proyección parcial de una consulta de listado (?fields= y ?expand=)
+ * - fields: columnas de la tabla principal a devolver (todas si se omite)
+ * - expand: relaciones a incluir como objetos anidados; "especimen.especie" incluye también "especimen"
+ * Solo se generan las columnas y los JOIN de lo solicitado, y cada fila se mapea a un Map
+ * que contiene únicamente esos campos.
+ */
+public class Proyeccion {
+
+    private final String from;
+    private final Map<String, String> campos = new LinkedHashMap<>();
+    private final Map<String, Relacion> relaciones = new LinkedHashMap<>();
+
+    /**
+     * @param from cláusula FROM de la tabla principal (con los JOIN que siempre se necesitan)
+     */
+    public Proyeccion(String from) {
+        this.from = from;
+    }
+
+    /**
+     * AGREGAR un campo de la tabla principal
+     */
+    public Proyeccion campo(String nombre, String expresion) {
+        campos.put(nombre, expresion);
+        return this;
+    }
+
+    /**
+     * AGREGAR una relación expandible; el primer campo debe ser el id (null si el JOIN no encuentra fila)
+     * Para relaciones anidadas el nombre lleva el prefijo del padre ("especimen.especie")
+     */
+    public Proyeccion relacion(String nombre, String join, String... camposExpresiones) {
+        if (camposExpresiones.length == 0 || camposExpresiones.length % 2 != 0) {
+            throw new IllegalArgumentException("La relación " + nombre + " requiere pares nombre/expresión");
+        }
+        Map<String, String> camposRelacion = new LinkedHashMap<>();
+        for (int i = 0; i < camposExpresiones.length; i += 2) {
+            camposRelacion.put(camposExpresiones[i], camposExpresiones[i + 1]);
+        }
+        relaciones.put(nombre, new Relacion(nombre, join, camposRelacion));
+        return this;
+    }
+
+    public Set<String> getCampos() {
+        return Collections.unmodifiableSet(campos.keySet());
+    }
+
+    public Set<String> getRelaciones() {
+        return Collections.unmodifiableSet(relaciones.keySet());
+    }
+
+    /**
+     * Convertir "a, b,c" en un conjunto ordenado (vacío si el parámetro no viene)
+     */
+    public static Set<String> parseLista(String valor) {
+        Set<String> lista = new LinkedHashSet<>();
+        if (valor != null) {
+            for (String parte : valor.split(",")) {
+                if (!parte.trim().isEmpty()) {
+                    lista.add(parte.trim());
+                }
+            }
+        }
+        return lista;
+    }
+
+    /**
+     * SELECCIONAR campos y relaciones; lanza IllegalArgumentException si alguno no existe
+     */
+    public Seleccion seleccionar(Set<String> fields, Set<String> expand) {
+        for (String campo : fields) {
+            if (!campos.containsKey(campo)) {
+                throw new IllegalArgumentException("Campo no disponible en fields: " + campo +
+                        ". Campos válidos: " + String.join(", ", campos.keySet()));
+            }
+        }
+
+        // Incluir los padres de las relaciones anidadas, en el orden de declaración (JOIN padre antes que hijo)
+        Set<String> solicitadas = new LinkedHashSet<>();
+        for (String nombre : expand) {
+            if (!relaciones.containsKey(nombre)) {
+                throw new IllegalArgumentException("Relación no disponible en expand: " + nombre +
+                        ". Relaciones válidas: " + String.join(", ", relaciones.keySet()));
+            }
+            String[] partes = nombre.split("\\.");
+            for (int i = 1; i <= partes.length; i++) {
+                solicitadas.add(String.join(".", Arrays.copyOfRange(partes, 0, i)));
+            }
+        }
+        List<Relacion> incluidas = new ArrayList<>();
+        for (Relacion relacion : relaciones.values()) {
+            if (solicitadas.contains(relacion.nombre)) {
+                incluidas.add(relacion);
+            }
+        }
+
+        Map<String, String> camposBase = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : campos.entrySet()) {
+            if (fields.isEmpty() || fields.contains(entry.getKey())) {
+                camposBase.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return new Seleccion(camposBase, incluidas);
+    }
+
+    /**
+     * Consulta y mapeo resultantes de una selección
+     */
+    public class Seleccion {
+        private final Map<String, String> camposBase;
+        private final List<Relacion> incluidas;
+        private final String sql;
+
+        private Seleccion(Map<String, String> camposBase, List<Relacion> incluidas) {
+            this.camposBase = camposBase;
+            this.incluidas = incluidas;
+
+            List<String> columnas = new ArrayList<>(camposBase.values());
+            StringBuilder joins = new StringBuilder();
+            for (Relacion relacion : incluidas) {
+                columnas.addAll(relacion.campos.values());
+                joins.append('\n').append(relacion.join);
+            }
+            this.sql = "SELECT " + String.join(", ", columnas) + "\n" + from + joins;
+        }
+
+        /**
+         * SELECT ... FROM ... JOIN ...; el llamador agrega WHERE / ORDER BY
+         */
+        public String getSql() {
+            return sql;
+        }
+
+        /**
+         * MAPEAR la fila actual solo con los campos seleccionados (columnas leídas por posición)
+         */
+        public Map<String, Object> mapear(ResultSet rs) throws SQLException {
+            Map<String, Object> fila = new LinkedHashMap<>();
+            int columna = 1;
+            for (String campo : camposBase.keySet()) {
+                fila.put(campo, leer(rs, columna++));
+            }
+
+            Map<String, Map<String, Object>> objetos = new LinkedHashMap<>();
+            for (Relacion relacion : incluidas) {
+                Map<String, Object> objeto = new LinkedHashMap<>();
+                for (String campo : relacion.campos.keySet()) {
+                    objeto.put(campo, leer(rs, columna++));
+                }
+                boolean existe = objeto.values().iterator().next() != null;
+
+                int punto = relacion.nombre.lastIndexOf('.');
+                String clave = relacion.nombre.substring(punto + 1);
+                Map<String, Object> destino = punto < 0 ? fila : objetos.get(relacion.nombre.substring(0, punto));
+
+                objetos.put(relacion.nombre, existe ? objeto : null);
+                if (destino != null) {
+                    destino.put(clave, existe ? objeto : null);
+                }
+            }
+            return fila;
+        }
+    }
+
+    /**
+     * Leer una columna; fechas y horas como java.sql.* (igual que los mappers de los repositorios)
+     * porque getObject devuelve LocalDateTime para DATETIME y los mappers JSON no registran java.time
+     */
+    static Object leer(ResultSet rs, int columna) throws SQLException {
+        switch (rs.getMetaData().getColumnType(columna)) {
+            case Types.TIMESTAMP:
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+                return rs.getTimestamp(columna);
+            case Types.DATE:
+                return rs.getDate(columna);
+            case Types.TIME:
+                return rs.getTime(columna);
+            default:
+                return rs.getObject(columna);
+        }
+    }
+
+    private static class Relacion {
+        private final String nombre;
+        private final String join;
+        private final Map<String, String> campos;
+
+        private Relacion(String nombre, String join, Map<String, String> campos) {
+            this.nombre = nombre;
+            this.join = join;
+            this.campos = campos;
+        }
+    }
+}
@@ -10,9 +10,13 @@ import com.hugin_munin.model.Rol;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.Date;
+import java.time.LocalDate;
 
 /**
  * Repositorio para gestionar los registros de alta
@@ -64,6 +68,33 @@ public class RegistroAltaRepository {
         LEFT JOIN rol r ON u.id_rol = r.id_rol
         """;
 
+    // Consulta con plan verificado (PlanesConsultaTest)
+    static final String CONTAR_POR_RANGO_FECHA = """
+        SELECT COUNT(*) FROM registro_alta
+        WHERE fecha_ingreso >= ? AND fecha_ingreso < ?
+        """;
+
+    // Proyección para listados con ?fields= y ?expand= (mismas relaciones que SAFE_QUERY_WITH_JOINS)
+    private static final Proyeccion PROYECCION = new Proyeccion("FROM registro_alta ra")
+            .campo("id_registro_alta", "ra.id_registro_alta")
+            .campo("id_especimen", "ra.id_especimen")
+            .campo("id_origen_alta", "ra.id_origen_alta")
+            .campo("id_responsable", "ra.id_responsable")
+            .campo("fecha_ingreso", "ra.fecha_ingreso")
+            .campo("procedencia", "ra.procedencia")
+            .campo("observacion", "ra.observacion")
+            .relacion("especimen", "LEFT JOIN especimen esp ON ra.id_especimen = esp.id_especimen",
+                    "id_especimen", "esp.id_especimen", "num_inventario", "esp.num_inventario",
+                    "id_especie", "esp.id_especie", "nombre_especimen", "esp.nombre_especimen")
+            .relacion("especimen.especie", "LEFT JOIN especie e ON esp.id_especie = e.id_especie",
+                    "id_especie", "e.id_especie", "genero", "e.genero", "especie", "e.especie")
+            .relacion("origen_alta", "LEFT JOIN origen_alta oa ON ra.id_origen_alta = oa.id_origen_alta",
+                    "id_origen_alta", "oa.id_origen_alta", "nombre_origen_alta", "oa.nombre_origen_alta")
+            .relacion("responsable", "LEFT JOIN usuario u ON ra.id_responsable = u.id_usuario",
+                    "id_usuario", "u.id_usuario", "nombre_usuario", "u.nombre_usuario", "correo", "u.correo")
+            .relacion("responsable.rol", "LEFT JOIN rol r ON u.id_rol = r.id_rol",
+                    "id_rol", "r.id_rol", "nombre_rol", "r.nombre_rol");
+
     /**
      * GUARDAR nuevo registro
      */
@@ -74,31 +105,34 @@ public class RegistroAltaRepository {
             VALUES (?, ?, ?, ?, ?, ?)
             """;
 
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-
-            stmt.setInt(1, registroAlta.getId_especimen());
-            stmt.setInt(2, registroAlta.getId_origen_alta());
-            stmt.setInt(3, registroAlta.getId_responsable());
-            stmt.setDate(4, new java.sql.Date(registroAlta.getFecha_ingreso().getTime()));
-            stmt.setString(5, registroAlta.getProcedencia());
-            stmt.setString(6, registroAlta.getObservacion());
+        return CambioRepository.enTransaccion(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                stmt.setInt(1, registroAlta.getId_especimen());
+                stmt.setInt(2, registroAlta.getId_origen_alta());
+                stmt.setInt(3, registroAlta.getId_responsable());
+                stmt.setDate(4, new java.sql.Date(registroAlta.getFecha_ingreso().getTime()));
+                stmt.setString(5, registroAlta.getProcedencia());
+                stmt.setString(6, registroAlta.getObservacion());
 
-            int affectedRows = stmt.executeUpdate();
+                int affectedRows = stmt.executeUpdate();
 
-            if (affectedRows == 0) {
-                throw new SQLException("Error al crear el registro de alta");
-            }
+                if (affectedRows == 0) {
+                    throw new SQLException("Error al crear el registro de alta");
+                }
 
-            try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    registroAlta.setId_registro_alta(generatedKeys.getInt(1));
-                    return registroAlta;
-                } else {
-                    throw new SQLException("No se pudo obtener el ID del registro de alta");
+                try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        registroAlta.setId_registro_alta(generatedKeys.getInt(1));
+                    } else {
+                        throw new SQLException("No se pudo obtener el ID del registro de alta");
+                    }
                 }
             }
-        }
+
+            CambioRepository.registrar(conn, CambioRepository.TABLA_ESPECIMEN, registroAlta.getId_especimen());
+            CambioRepository.registrarFechas(conn, List.of(registroAlta.getFecha_ingreso()));
+            return registroAlta;
+        });
     }
 
     /**
@@ -133,6 +167,27 @@ public class RegistroAltaRepository {
         return registros;
     }
 
+    /**
+     * BUSCAR todos los registros con proyección parcial (?fields= y ?expand=)
+     * Solo se consultan las columnas y los JOIN de lo solicitado
+     */
+    public List<Map<String, Object>> findAllParcial(Set<String> fields, Set<String> expand) throws SQLException {
+        Proyeccion.Seleccion seleccion = PROYECCION.seleccionar(fields, expand);
+        String sql = seleccion.getSql() + " ORDER BY ra.id_registro_alta DESC";
+        List<Map<String, Object>> filas = new ArrayList<>();
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                filas.add(seleccion.mapear(rs));
+            }
+        }
+
+        return filas;
+    }
+
     /**
      * BUSCAR registro por ID - VERSION SEGURA
      */
@@ -185,25 +240,78 @@ public class RegistroAltaRepository {
             WHERE id_registro_alta = ?
             """;
 
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        return CambioRepository.enTransaccion(conn -> {
+            // Valores anteriores: el cambio invalida tanto el especimen y la fecha previos como los nuevos
+            List<Integer> especimenes = new ArrayList<>(List.of(registroAlta.getId_especimen()));
+            List<Date> fechas = new ArrayList<>(List.of(registroAlta.getFecha_ingreso()));
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT id_especimen, fecha_ingreso FROM registro_alta WHERE id_registro_alta = ? FOR UPDATE")) {
+                stmt.setInt(1, registroAlta.getId_registro_alta());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        especimenes.add(rs.getInt("id_especimen"));
+                        fechas.add(rs.getDate("fecha_ingreso"));
+                    }
+                }
+            }
 
-            stmt.setInt(1, registroAlta.getId_especimen());
-            stmt.setInt(2, registroAlta.getId_origen_alta());
-            stmt.setInt(3, registroAlta.getId_responsable());
-            stmt.setDate(4, new java.sql.Date(registroAlta.getFecha_ingreso().getTime()));
-            stmt.setString(5, registroAlta.getProcedencia());
-            stmt.setString(6, registroAlta.getObservacion());
-            stmt.setInt(7, registroAlta.getId_registro_alta());
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setInt(1, registroAlta.getId_especimen());
+                stmt.setInt(2, registroAlta.getId_origen_alta());
+                stmt.setInt(3, registroAlta.getId_responsable());
+                stmt.setDate(4, new java.sql.Date(registroAlta.getFecha_ingreso().getTime()));
+                stmt.setString(5, registroAlta.getProcedencia());
+                stmt.setString(6, registroAlta.getObservacion());
+                stmt.setInt(7, registroAlta.getId_registro_alta());
 
-            int affectedRows = stmt.executeUpdate();
+                int affectedRows = stmt.executeUpdate();
 
-            if (affectedRows == 0) {
-                throw new SQLException("No se pudo actualizar el registro, no existe el ID especificado");
+                if (affectedRows == 0) {
+                    throw new SQLException("No se pudo actualizar el registro, no existe el ID especificado");
+                }
             }
 
+            CambioRepository.registrar(conn, CambioRepository.TABLA_ESPECIMEN, especimenes);
+            CambioRepository.registrarFechas(conn, fechas);
             return registroAlta;
-        }
+        });
+    }
+
+    /**
+     * ACTUALIZACIÓN PARCIAL: solo las columnas del parche
+     * Retorna el especimen y la fecha anteriores (para invalidar cachés), o null si no existe
+     */
+    public RegistroAlta patch(Integer id, ColumnasParche columnas) throws SQLException {
+        return CambioRepository.enTransaccion(conn -> {
+            RegistroAlta anterior = null;
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT id_especimen, fecha_ingreso FROM registro_alta WHERE id_registro_alta = ? FOR UPDATE")) {
+                stmt.setInt(1, id);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        anterior = new RegistroAlta();
+                        anterior.setId_registro_alta(id);
+                        anterior.setId_especimen(rs.getInt("id_especimen"));
+                        anterior.setFecha_ingreso(rs.getDate("fecha_ingreso"));
+                    }
+                }
+            }
+            if (anterior == null) {
+                return null;
+            }
+
+            columnas.ejecutar(conn, "registro_alta", "id_registro_alta", id, null, null);
+
+            List<Integer> especimenes = new ArrayList<>(List.of(anterior.getId_especimen()));
+            if (columnas.contiene("id_especimen")) {
+                especimenes.add((Integer) columnas.get("id_especimen"));
+            }
+            CambioRepository.registrar(conn, CambioRepository.TABLA_ESPECIMEN, especimenes);
+            if (columnas.contiene("fecha_ingreso")) {
+                CambioRepository.registrarFechas(conn, List.of(anterior.getFecha_ingreso(), (Date) columnas.get("fecha_ingreso")));
+            }
+            return anterior;
+        });
     }
 
     /**
@@ -212,13 +320,31 @@ public class RegistroAltaRepository {
     public boolean delete(Integer id) throws SQLException {
         String sql = "DELETE FROM registro_alta WHERE id_registro_alta = ?";
 
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        return CambioRepository.enTransaccion(conn -> {
+            Integer idEspecimen = null;
+            java.sql.Date fechaIngreso = null;
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT id_especimen, fecha_ingreso FROM registro_alta WHERE id_registro_alta = ? FOR UPDATE")) {
+                stmt.setInt(1, id);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        idEspecimen = rs.getInt("id_especimen");
+                        fechaIngreso = rs.getDate("fecha_ingreso");
+                    }
+                }
+            }
 
-            stmt.setInt(1, id);
-            int affectedRows = stmt.executeUpdate();
-            return affectedRows > 0;
-        }
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setInt(1, id);
+                if (stmt.executeUpdate() == 0) {
+                    return false;
+                }
+            }
+
+            CambioRepository.registrar(conn, CambioRepository.TABLA_ESPECIMEN, idEspecimen);
+            CambioRepository.registrarFechas(conn, Collections.singletonList(fechaIngreso));
+            return true;
+        });
     }
 
     /**
@@ -340,16 +466,16 @@ public class RegistroAltaRepository {
      * CONTAR registros por mes
      */
     public int countByMonth(int year, int month) throws SQLException {
-        String sql = """
-            SELECT COUNT(*) FROM registro_alta 
-            WHERE YEAR(fecha_ingreso) = ? AND MONTH(fecha_ingreso) = ?
-            """;
+        // Rango semiabierto [inicio de mes, inicio del mes siguiente) para poder usar el índice de fecha
+        String sql = CONTAR_POR_RANGO_FECHA;
+
+        LocalDate inicioMes = LocalDate.of(year, month, 1);
 
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setInt(1, year);
-            stmt.setInt(2, month);
+            stmt.setDate(1, java.sql.Date.valueOf(inicioMes));
+            stmt.setDate(2, java.sql.Date.valueOf(inicioMes.plusMonths(1)));
 
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
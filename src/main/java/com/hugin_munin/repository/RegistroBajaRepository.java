@@ -5,8 +5,12 @@ import com.hugin_munin.model.*;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.Date;
 
 /**
@@ -18,14 +22,14 @@ public class RegistroBajaRepository {
     // Query básica sin joins - SIEMPRE FUNCIONA
     private static final String BASIC_QUERY = """
         SELECT rb.id_registro_baja, rb.id_especimen, rb.id_causa_baja, rb.id_responsable,
-               rb.fecha_baja, rb.observacion
+               rb.fecha_baja, rb.observacion, rb.version
         FROM registro_baja rb
         """;
 
     // Query con joins completos - CORREGIDA
     private static final String SAFE_QUERY_WITH_JOINS = """
         SELECT rb.id_registro_baja, rb.id_especimen, rb.id_causa_baja, rb.id_responsable,
-               rb.fecha_baja, rb.observacion,
+               rb.fecha_baja, rb.observacion, rb.version,
                
                -- Datos de Especimen
                esp.id_especimen as esp_id_especimen, 
@@ -62,6 +66,29 @@ public class RegistroBajaRepository {
         LEFT JOIN rol r ON u.id_rol = r.id_rol
         """;
 
+    // Consulta con plan verificado (PlanesConsultaTest)
+    static final String CONTAR_POR_ESPECIMEN = "SELECT COUNT(*) FROM registro_baja WHERE id_especimen = ?";
+
+    // Proyección para listados con ?fields= y ?expand= (mismas relaciones que SAFE_QUERY_WITH_JOINS)
+    private static final Proyeccion PROYECCION = new Proyeccion("FROM registro_baja rb")
+            .campo("id_registro_baja", "rb.id_registro_baja")
+            .campo("id_especimen", "rb.id_especimen")
+            .campo("id_causa_baja", "rb.id_causa_baja")
+            .campo("id_responsable", "rb.id_responsable")
+            .campo("fecha_baja", "rb.fecha_baja")
+            .campo("observacion", "rb.observacion")
+            .relacion("especimen", "LEFT JOIN especimen esp ON rb.id_especimen = esp.id_especimen",
+                    "id_especimen", "esp.id_especimen", "num_inventario", "esp.num_inventario",
+                    "id_especie", "esp.id_especie", "nombre_especimen", "esp.nombre_especimen", "activo", "esp.activo")
+            .relacion("especimen.especie", "LEFT JOIN especie e ON esp.id_especie = e.id_especie",
+                    "id_especie", "e.id_especie", "genero", "e.genero", "especie", "e.especie")
+            .relacion("causa_baja", "LEFT JOIN causa_baja cb ON rb.id_causa_baja = cb.id_causa_baja",
+                    "id_causa_baja", "cb.id_causa_baja", "nombre_causa_baja", "cb.nombre_causa_baja")
+            .relacion("responsable", "LEFT JOIN usuario u ON rb.id_responsable = u.id_usuario",
+                    "id_usuario", "u.id_usuario", "id_rol", "u.id_rol", "nombre_usuario", "u.nombre_usuario", "correo", "u.correo", "activo", "u.activo")
+            .relacion("responsable.rol", "LEFT JOIN rol r ON u.id_rol = r.id_rol",
+                    "id_rol", "r.id_rol", "nombre_rol", "r.nombre_rol");
+
     /**
      * GUARDAR nuevo registro de baja (y marcar especimen como inactivo)
      */
@@ -100,12 +127,16 @@ public class RegistroBajaRepository {
             }
 
             // 2. Marcar especimen como inactivo
-            String updateEspecimenSql = "UPDATE especimen SET activo = FALSE WHERE id_especimen = ?";
+            String updateEspecimenSql = "UPDATE especimen SET activo = FALSE, version = version + 1 WHERE id_especimen = ?";
             try (PreparedStatement stmt = conn.prepareStatement(updateEspecimenSql)) {
                 stmt.setInt(1, registroBaja.getId_especimen());
                 stmt.executeUpdate();
             }
 
+            // 3. Registrar el cambio para las cachés de las demás instancias
+            CambioRepository.registrar(conn, CambioRepository.TABLA_ESPECIMEN, registroBaja.getId_especimen());
+            CambioRepository.registrarFechas(conn, List.of(registroBaja.getFecha_baja()));
+
             conn.commit(); // Confirmar transacción
             return registroBaja;
 
@@ -130,6 +161,139 @@ public class RegistroBajaRepository {
         }
     }
 
+    /**
+     * GUARDAR varios registros de baja en una sola transacción
+     * Inserta todos los registros como un lote JDBC y desactiva los especímenes con un único
+     * UPDATE; si algún especimen ya no estaba activo (cambio concurrente) se revierte todo.
+     */
+    public List<RegistroBaja> saveRegisterBatch(List<RegistroBaja> registros) throws SQLException {
+        String insertSql = """
+            INSERT INTO registro_baja (id_especimen, id_causa_baja, id_responsable,
+                                     fecha_baja, observacion)
+            VALUES (?, ?, ?, ?, ?)
+            """;
+
+        Connection conn = null;
+        try {
+            conn = DatabaseConfig.getConnection();
+            conn.setAutoCommit(false);
+
+            // 1. Insertar todos los registros en un lote
+            try (PreparedStatement stmt = conn.prepareStatement(insertSql, Statement.RETURN_GENERATED_KEYS)) {
+                for (RegistroBaja registro : registros) {
+                    stmt.setInt(1, registro.getId_especimen());
+                    stmt.setInt(2, registro.getId_causa_baja());
+                    stmt.setInt(3, registro.getId_responsable());
+                    stmt.setDate(4, new java.sql.Date(registro.getFecha_baja().getTime()));
+                    stmt.setString(5, registro.getObservacion());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+
+                try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                    int index = 0;
+                    while (generatedKeys.next() && index < registros.size()) {
+                        registros.get(index++).setId_registro_baja(generatedKeys.getInt(1));
+                    }
+                    if (index != registros.size()) {
+                        throw new SQLException("No se pudieron obtener los IDs de los registros de baja");
+                    }
+                }
+            }
+
+            // 2. Desactivar todos los especímenes con un solo UPDATE
+            String updateSql = "UPDATE especimen SET activo = FALSE, version = version + 1 WHERE activo = TRUE AND id_especimen IN ("
+                    + String.join(", ", Collections.nCopies(registros.size(), "?")) + ")";
+            try (PreparedStatement stmt = conn.prepareStatement(updateSql)) {
+                int index = 1;
+                for (RegistroBaja registro : registros) {
+                    stmt.setInt(index++, registro.getId_especimen());
+                }
+                int actualizados = stmt.executeUpdate();
+                if (actualizados != registros.size()) {
+                    throw new SQLException("Algunos especímenes dejaron de estar activos durante el registro de bajas");
+                }
+            }
+
+            // 3. Registrar los cambios para las cachés de las demás instancias
+            List<Integer> especimenes = new ArrayList<>();
+            List<Date> fechas = new ArrayList<>();
+            for (RegistroBaja registro : registros) {
+                especimenes.add(registro.getId_especimen());
+                fechas.add(registro.getFecha_baja());
+            }
+            CambioRepository.registrar(conn, CambioRepository.TABLA_ESPECIMEN, especimenes);
+            CambioRepository.registrarFechas(conn, fechas);
+
+            conn.commit();
+            return registros;
+
+        } catch (SQLException e) {
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackEx) {
+                    e.addSuppressed(rollbackEx);
+                }
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                } catch (SQLException e) {
+                    // Log error
+                }
+            }
+        }
+    }
+
+    /**
+     * VERIFICAR en una sola consulta las referencias de un lote de bajas:
+     * existencia del responsable y la causa, y estado de cada especimen
+     */
+    public ReferenciasLote findBatchReferences(Integer idResponsable, Integer idCausaBaja,
+                                               List<Integer> idsEspecimen) throws SQLException {
+        String sql = """
+            SELECT e.id_especimen, e.activo,
+                   EXISTS (SELECT 1 FROM registro_baja rb WHERE rb.id_especimen = e.id_especimen) AS dado_de_baja,
+                   (SELECT COUNT(*) FROM usuario WHERE id_usuario = ?) AS responsable_existe,
+                   (SELECT COUNT(*) FROM causa_baja WHERE id_causa_baja = ?) AS causa_existe
+            FROM (SELECT 1 AS fila) params
+            LEFT JOIN especimen e ON e.id_especimen IN (%s)
+            """.formatted(String.join(", ", Collections.nCopies(idsEspecimen.size(), "?")));
+
+        ReferenciasLote referencias = new ReferenciasLote();
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int index = 1;
+            stmt.setInt(index++, idResponsable);
+            stmt.setInt(index++, idCausaBaja);
+            for (Integer id : idsEspecimen) {
+                stmt.setInt(index++, id);
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    referencias.responsableExiste = rs.getInt("responsable_existe") > 0;
+                    referencias.causaExiste = rs.getInt("causa_existe") > 0;
+
+                    int idEspecimen = rs.getInt("id_especimen");
+                    if (rs.wasNull()) {
+                        continue;
+                    }
+                    String estado = rs.getBoolean("dado_de_baja") ? ReferenciasLote.DADO_DE_BAJA
+                            : rs.getBoolean("activo") ? ReferenciasLote.ACTIVO : ReferenciasLote.INACTIVO;
+                    referencias.estadoEspecimenes.put(idEspecimen, estado);
+                }
+            }
+        }
+        return referencias;
+    }
+
     /**
      * BUSCAR todos los registros - VERSION SEGURA
      */
@@ -138,6 +302,27 @@ public class RegistroBajaRepository {
         return executeQueryWithJoins(sql);
     }
 
+    /**
+     * BUSCAR todos los registros con proyección parcial (?fields= y ?expand=)
+     * Solo se consultan las columnas y los JOIN de lo solicitado
+     */
+    public List<Map<String, Object>> findAllParcial(Set<String> fields, Set<String> expand) throws SQLException {
+        Proyeccion.Seleccion seleccion = PROYECCION.seleccionar(fields, expand);
+        String sql = seleccion.getSql() + " ORDER BY rb.fecha_baja DESC";
+        List<Map<String, Object>> filas = new ArrayList<>();
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                filas.add(seleccion.mapear(rs));
+            }
+        }
+
+        return filas;
+    }
+
     /**
      * BUSCAR registro por ID
      */
@@ -154,35 +339,109 @@ public class RegistroBajaRepository {
     }
 
     /**
-     * ACTUALIZAR registro existente
+     * ACTUALIZAR registro existente (null si no existe)
+     * Si el registro trae versión, la escritura es condicional: la fila ya se bloquea para leer los
+     * valores anteriores, así que la versión se compara en esa misma lectura y se lanza
+     * ConflictoVersionException si cambió. Sin versión se mantiene "la última escritura gana".
      */
     public RegistroBaja updateRegister(RegistroBaja registroBaja) throws SQLException {
         String sql = """
             UPDATE registro_baja 
             SET id_especimen = ?, id_causa_baja = ?, id_responsable = ?,
-                fecha_baja = ?, observacion = ?
+                fecha_baja = ?, observacion = ?, version = version + 1
             WHERE id_registro_baja = ?
             """;
 
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        return CambioRepository.enTransaccion(conn -> {
+            // Valores anteriores: el cambio invalida tanto el especimen y la fecha previos como los nuevos
+            List<Integer> especimenes = new ArrayList<>(List.of(registroBaja.getId_especimen()));
+            List<Date> fechas = new ArrayList<>(List.of(registroBaja.getFecha_baja()));
+            int versionActual;
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT id_especimen, fecha_baja, version FROM registro_baja WHERE id_registro_baja = ? FOR UPDATE")) {
+                stmt.setInt(1, registroBaja.getId_registro_baja());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next()) {
+                        return null;
+                    }
+                    especimenes.add(rs.getInt("id_especimen"));
+                    fechas.add(rs.getDate("fecha_baja"));
+                    versionActual = rs.getInt("version");
+                }
+            }
 
-            stmt.setInt(1, registroBaja.getId_especimen());
-            stmt.setInt(2, registroBaja.getId_causa_baja());
-            stmt.setInt(3, registroBaja.getId_responsable());
-            stmt.setDate(4, new java.sql.Date(registroBaja.getFecha_baja().getTime()));
-            stmt.setString(5, registroBaja.getObservacion());
-            stmt.setInt(6, registroBaja.getId_registro_baja());
+            if (registroBaja.getVersion() != null && registroBaja.getVersion() != versionActual) {
+                throw new ConflictoVersionException(registroBaja.getId_registro_baja(),
+                        registroBaja.getVersion(), versionActual);
+            }
 
-            int affectedRows = stmt.executeUpdate();
-            if (affectedRows == 0) {
-                throw new SQLException("No se pudo actualizar el registro, no existe el ID especificado");
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setInt(1, registroBaja.getId_especimen());
+                stmt.setInt(2, registroBaja.getId_causa_baja());
+                stmt.setInt(3, registroBaja.getId_responsable());
+                stmt.setDate(4, new java.sql.Date(registroBaja.getFecha_baja().getTime()));
+                stmt.setString(5, registroBaja.getObservacion());
+                stmt.setInt(6, registroBaja.getId_registro_baja());
+                stmt.executeUpdate();
             }
 
+            CambioRepository.registrar(conn, CambioRepository.TABLA_ESPECIMEN, especimenes);
+            CambioRepository.registrarFechas(conn, fechas);
+            registroBaja.setVersion(versionActual + 1);
             return registroBaja;
+        });
+    }
+
+    /**
+     * VERIFICAR la versión de un registro de baja sin modificarlo (parche sin campos)
+     * Retorna false si no existe; lanza ConflictoVersionException si la versión cambió
+     */
+    public boolean verificarVersion(Integer id, int versionEsperada) throws SQLException {
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            return ConflictoVersionException.comprobar(conn, "registro_baja", "id_registro_baja", id, versionEsperada);
         }
     }
 
+    /**
+     * ACTUALIZACIÓN PARCIAL: solo las columnas del parche (false si no existe)
+     * La versión se compara en la misma lectura bloqueante que obtiene los valores anteriores
+     */
+    public boolean patch(Integer id, ColumnasParche columnas, Integer versionEsperada) throws SQLException {
+        return CambioRepository.enTransaccion(conn -> {
+            List<Integer> especimenes = new ArrayList<>();
+            List<Date> fechas = new ArrayList<>();
+            int versionActual;
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT id_especimen, fecha_baja, version FROM registro_baja WHERE id_registro_baja = ? FOR UPDATE")) {
+                stmt.setInt(1, id);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next()) {
+                        return false;
+                    }
+                    especimenes.add(rs.getInt("id_especimen"));
+                    fechas.add(rs.getDate("fecha_baja"));
+                    versionActual = rs.getInt("version");
+                }
+            }
+
+            if (versionEsperada != null && versionEsperada != versionActual) {
+                throw new ConflictoVersionException(id, versionEsperada, versionActual);
+            }
+
+            columnas.ejecutar(conn, "registro_baja", "id_registro_baja", id, "version = version + 1", null);
+
+            if (columnas.contiene("id_especimen")) {
+                especimenes.add((Integer) columnas.get("id_especimen"));
+            }
+            CambioRepository.registrar(conn, CambioRepository.TABLA_ESPECIMEN, especimenes);
+            if (columnas.contiene("fecha_baja")) {
+                fechas.add((Date) columnas.get("fecha_baja"));
+                CambioRepository.registrarFechas(conn, fechas);
+            }
+            return true;
+        });
+    }
+
     /**
      * ELIMINAR registro por ID (y reactivar especimen)
      */
@@ -192,14 +451,16 @@ public class RegistroBajaRepository {
             conn = DatabaseConfig.getConnection();
             conn.setAutoCommit(false);
 
-            // 1. Obtener ID del especimen antes de eliminar
+            // 1. Obtener ID del especimen y fecha antes de eliminar
             Integer idEspecimen = null;
-            String selectSql = "SELECT id_especimen FROM registro_baja WHERE id_registro_baja = ?";
+            java.sql.Date fechaBaja = null;
+            String selectSql = "SELECT id_especimen, fecha_baja FROM registro_baja WHERE id_registro_baja = ?";
             try (PreparedStatement stmt = conn.prepareStatement(selectSql)) {
                 stmt.setInt(1, id);
                 try (ResultSet rs = stmt.executeQuery()) {
                     if (rs.next()) {
                         idEspecimen = rs.getInt("id_especimen");
+                        fechaBaja = rs.getDate("fecha_baja");
                     }
                 }
             }
@@ -219,12 +480,16 @@ public class RegistroBajaRepository {
             }
 
             // 3. Reactivar especimen
-            String updateEspecimenSql = "UPDATE especimen SET activo = TRUE WHERE id_especimen = ?";
+            String updateEspecimenSql = "UPDATE especimen SET activo = TRUE, version = version + 1 WHERE id_especimen = ?";
             try (PreparedStatement stmt = conn.prepareStatement(updateEspecimenSql)) {
                 stmt.setInt(1, idEspecimen);
                 stmt.executeUpdate();
             }
 
+            // 4. Registrar el cambio para las cachés de las demás instancias
+            CambioRepository.registrar(conn, CambioRepository.TABLA_ESPECIMEN, idEspecimen);
+            CambioRepository.registrarFechas(conn, Collections.singletonList(fechaBaja));
+
             conn.commit();
             return true;
 
@@ -310,7 +575,7 @@ public class RegistroBajaRepository {
      * VERIFICAR si existe un registro para un especimen
      */
     public boolean existsByEspecimen(Integer idEspecimen) throws SQLException {
-        String sql = "SELECT COUNT(*) FROM registro_baja WHERE id_especimen = ?";
+        String sql = CONTAR_POR_ESPECIMEN;
 
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -481,6 +746,7 @@ public class RegistroBajaRepository {
         registro.setId_responsable(rs.getInt("id_responsable"));
         registro.setFecha_baja(rs.getDate("fecha_baja"));
         registro.setObservacion(rs.getString("observacion"));
+        registro.setVersion(rs.getInt("version"));
 
         // Asignar objetos relacionados
         registro.setEspecimen(especimen);
@@ -490,6 +756,25 @@ public class RegistroBajaRepository {
         return registro;
     }
 
+    /**
+     * Resultado de la verificación de referencias de un lote de bajas
+     * Los especímenes inexistentes no aparecen en estadoEspecimenes
+     */
+    public static class ReferenciasLote {
+        public static final String ACTIVO = "activo";
+        public static final String INACTIVO = "inactivo";
+        public static final String DADO_DE_BAJA = "dado_de_baja";
+
+        private boolean responsableExiste;
+        private boolean causaExiste;
+        private final Map<Integer, String> estadoEspecimenes = new HashMap<>();
+
+        // Getters
+        public boolean isResponsableExiste() { return responsableExiste; }
+        public boolean isCausaExiste() { return causaExiste; }
+        public Map<Integer, String> getEstadoEspecimenes() { return estadoEspecimenes; }
+    }
+
     /**
      * Clase auxiliar para estadísticas por causa
      */
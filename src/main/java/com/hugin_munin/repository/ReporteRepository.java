@@ -6,7 +6,9 @@ import com.hugin_munin.model.*;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.Date;
 
 /**
@@ -19,14 +21,14 @@ public class ReporteRepository {
     // Query básica sin joins
     private static final String BASIC_QUERY = """
             SELECT r.id_reporte, r.id_tipo_reporte, r.id_especimen, r.id_responsable,
-                   r.asunto, r.contenido, r.fecha_reporte
+                   r.asunto, r.contenido, r.fecha_reporte, r.version
             FROM reporte r
             """;
 
     // Query con joins completos CORREGIDA
     private static final String COMPLETE_QUERY = """
             SELECT r.id_reporte, r.id_tipo_reporte, r.id_especimen, r.id_responsable,
-                   r.asunto, r.contenido, r.fecha_reporte,
+                   r.asunto, r.contenido, r.fecha_reporte, r.version,
                      
                    -- Datos de TipoReporte
                    tr.id_tipo_reporte as tr_id_tipo_reporte,
@@ -63,6 +65,31 @@ public class ReporteRepository {
             LEFT JOIN rol rol ON u.id_rol = rol.id_rol
             """;
 
+    // Consultas con plan verificado (PlanesConsultaTest)
+    static final String BUSCAR_POR_ESPECIMEN = COMPLETE_QUERY + " WHERE r.id_especimen = ? ORDER BY r.fecha_reporte DESC";
+    static final String BUSCAR_POR_RESPONSABLE = COMPLETE_QUERY + " WHERE r.id_responsable = ? ORDER BY r.fecha_reporte DESC";
+
+    // Proyección para listados con ?fields= y ?expand= (mismas relaciones que COMPLETE_QUERY)
+    private static final Proyeccion PROYECCION = new Proyeccion("FROM reporte r")
+            .campo("id_reporte", "r.id_reporte")
+            .campo("id_tipo_reporte", "r.id_tipo_reporte")
+            .campo("id_especimen", "r.id_especimen")
+            .campo("id_responsable", "r.id_responsable")
+            .campo("asunto", "r.asunto")
+            .campo("contenido", "r.contenido")
+            .campo("fecha_reporte", "r.fecha_reporte")
+            .relacion("tipo_reporte", "LEFT JOIN tipo_reporte tr ON r.id_tipo_reporte = tr.id_tipo_reporte",
+                    "id_tipo_reporte", "tr.id_tipo_reporte", "nombre_tipo_reporte", "tr.nombre_tipo_reporte")
+            .relacion("especimen", "LEFT JOIN especimen esp ON r.id_especimen = esp.id_especimen",
+                    "id_especimen", "esp.id_especimen", "num_inventario", "esp.num_inventario",
+                    "id_especie", "esp.id_especie", "nombre_especimen", "esp.nombre_especimen", "activo", "esp.activo")
+            .relacion("especimen.especie", "LEFT JOIN especie e ON esp.id_especie = e.id_especie",
+                    "id_especie", "e.id_especie", "genero", "e.genero", "especie", "e.especie")
+            .relacion("responsable", "LEFT JOIN usuario u ON r.id_responsable = u.id_usuario",
+                    "id_usuario", "u.id_usuario", "id_rol", "u.id_rol", "nombre_usuario", "u.nombre_usuario", "correo", "u.correo", "activo", "u.activo")
+            .relacion("responsable.rol", "LEFT JOIN rol rol ON u.id_rol = rol.id_rol",
+                    "id_rol", "rol.id_rol", "nombre_rol", "rol.nombre_rol");
+
     /**
      * GUARDAR nuevo reporte
      */
@@ -109,6 +136,27 @@ public class ReporteRepository {
         return executeQueryWithJoins(query);
     }
 
+    /**
+     * BUSCAR todos los reportes con proyección parcial (?fields= y ?expand=)
+     * Solo se consultan las columnas y los JOIN de lo solicitado
+     */
+    public List<Map<String, Object>> findAllParcial(Set<String> fields, Set<String> expand) throws SQLException {
+        Proyeccion.Seleccion seleccion = PROYECCION.seleccionar(fields, expand);
+        String sql = seleccion.getSql() + " ORDER BY r.fecha_reporte DESC";
+        List<Map<String, Object>> filas = new ArrayList<>();
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                filas.add(seleccion.mapear(rs));
+            }
+        }
+
+        return filas;
+    }
+
     /**
      * BUSCAR reporte por ID
      */
@@ -142,7 +190,7 @@ public class ReporteRepository {
      * BUSCAR reportes por especimen
      */
     public List<Reporte> findByEspecimen(Integer idEspecimen) throws SQLException {
-        String query = COMPLETE_QUERY + " WHERE r.id_especimen = ? ORDER BY r.fecha_reporte DESC";
+        String query = BUSCAR_POR_ESPECIMEN;
 
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
@@ -156,7 +204,7 @@ public class ReporteRepository {
      * BUSCAR reportes por responsable
      */
     public List<Reporte> findByResponsable(Integer idResponsable) throws SQLException {
-        String query = COMPLETE_QUERY + " WHERE r.id_responsable = ? ORDER BY r.fecha_reporte DESC";
+        String query = BUSCAR_POR_RESPONSABLE;
 
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
@@ -216,37 +264,110 @@ public class ReporteRepository {
         String query = """
             UPDATE reporte 
             SET id_tipo_reporte = ?, id_especimen = ?, id_responsable = ?,
-                asunto = ?, contenido = ?, fecha_reporte = ?
+                asunto = ?, contenido = ?, fecha_reporte = ?, version = version + 1
             WHERE id_reporte = ?
             """;
 
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        // Si el reporte es un traslado, cambiar especimen o fecha mueve la ubicación actual
+        return CambioRepository.enTransaccion(conn -> {
+            Reporte anterior = findAnteriorParaActualizar(conn, reporte.getId_reporte());
+
+            boolean actualizado;
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setInt(1, reporte.getId_tipo_reporte());
+                stmt.setInt(2, reporte.getId_especimen());
+                stmt.setInt(3, reporte.getId_responsable());
+                stmt.setString(4, reporte.getAsunto());
+                stmt.setString(5, reporte.getContenido());
+                stmt.setTimestamp(6, new java.sql.Timestamp(reporte.getFecha_reporte().getTime()));
+                stmt.setInt(7, reporte.getId_reporte());
+
+                actualizado = stmt.executeUpdate() > 0;
+            }
 
-            stmt.setInt(1, reporte.getId_tipo_reporte());
-            stmt.setInt(2, reporte.getId_especimen());
-            stmt.setInt(3, reporte.getId_responsable());
-            stmt.setString(4, reporte.getAsunto());
-            stmt.setString(5, reporte.getContenido());
-            stmt.setTimestamp(6, new java.sql.Timestamp(reporte.getFecha_reporte().getTime()));
-            stmt.setInt(7, reporte.getId_reporte());
+            if (actualizado) {
+                List<Integer> especimenes = new ArrayList<>(List.of(reporte.getId_especimen()));
+                List<Date> fechas = new ArrayList<>(List.of(reporte.getFecha_reporte()));
+                if (anterior != null) {
+                    especimenes.add(anterior.getId_especimen());
+                    fechas.add(anterior.getFecha_reporte());
+                }
+                UbicacionActualRepository.recalcular(conn, especimenes);
+                CambioRepository.registrar(conn, CambioRepository.TABLA_ESPECIMEN, especimenes);
+                // Un traslado con otra fecha cambia los conteos de ambos periodos
+                CambioRepository.registrarFechas(conn, fechas);
+            }
+            return actualizado;
+        });
+    }
 
-            return stmt.executeUpdate() > 0;
+    /**
+     * VERIFICAR la versión de un reporte sin modificarlo (parche sin campos)
+     * Retorna false si no existe; lanza ConflictoVersionException si la versión cambió
+     */
+    public boolean verificarVersion(Integer id, int versionEsperada) throws SQLException {
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            return ConflictoVersionException.comprobar(conn, "reporte", "id_reporte", id, versionEsperada);
         }
     }
 
+    /**
+     * ACTUALIZACIÓN PARCIAL: solo las columnas del parche, condicional si se envía la versión
+     * La ubicación actual solo se recalcula si cambian el especimen o la fecha
+     */
+    public boolean patch(Integer id, ColumnasParche columnas, Integer versionEsperada) throws SQLException {
+        return CambioRepository.enTransaccion(conn -> {
+            Reporte anterior = findAnteriorParaActualizar(conn, id);
+            if (anterior == null) {
+                return false;
+            }
+
+            // La fila está bloqueada: cero filas solo puede significar otra versión
+            if (columnas.ejecutar(conn, "reporte", "id_reporte", id, "version = version + 1", versionEsperada) == 0) {
+                if (versionEsperada != null) {
+                    ConflictoVersionException.verificar(conn, "reporte", "id_reporte", id, versionEsperada);
+                }
+                return false;
+            }
+
+            List<Integer> especimenes = new ArrayList<>(List.of(anterior.getId_especimen()));
+            if (columnas.contiene("id_especimen")) {
+                especimenes.add((Integer) columnas.get("id_especimen"));
+            }
+            if (columnas.contieneAlguna(List.of("id_especimen", "fecha_reporte"))) {
+                UbicacionActualRepository.recalcular(conn, especimenes);
+            }
+            CambioRepository.registrar(conn, CambioRepository.TABLA_ESPECIMEN, especimenes);
+            if (columnas.contiene("fecha_reporte")) {
+                CambioRepository.registrarFechas(conn, List.of(anterior.getFecha_reporte(), (Date) columnas.get("fecha_reporte")));
+            }
+            return true;
+        });
+    }
+
     /**
      * ELIMINAR reporte por ID
      */
     public boolean deleteById(Integer id) throws SQLException {
         String query = "DELETE FROM reporte WHERE id_reporte = ?";
 
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        // El borrado en cascada de reporte_traslado puede cambiar la ubicación actual del especimen
+        return CambioRepository.enTransaccion(conn -> {
+            Reporte anterior = findAnteriorParaActualizar(conn, id);
 
-            stmt.setInt(1, id);
-            return stmt.executeUpdate() > 0;
-        }
+            boolean eliminado;
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                stmt.setInt(1, id);
+                eliminado = stmt.executeUpdate() > 0;
+            }
+
+            if (eliminado) {
+                UbicacionActualRepository.recalcular(conn, List.of(anterior.getId_especimen()));
+                CambioRepository.registrar(conn, CambioRepository.TABLA_ESPECIMEN, anterior.getId_especimen());
+                CambioRepository.registrarFechas(conn, List.of(anterior.getFecha_reporte()));
+            }
+            return eliminado;
+        });
     }
 
     /**
@@ -285,6 +406,25 @@ public class ReporteRepository {
 
     // MÉTODOS AUXILIARES
 
+    /**
+     * Especimen y fecha actuales del reporte, bloqueando la fila hasta el fin de la transacción (null si no existe)
+     */
+    private Reporte findAnteriorParaActualizar(Connection conn, Integer idReporte) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT id_especimen, fecha_reporte FROM reporte WHERE id_reporte = ? FOR UPDATE")) {
+            stmt.setInt(1, idReporte);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                Reporte anterior = new Reporte();
+                anterior.setId_especimen(rs.getInt("id_especimen"));
+                anterior.setFecha_reporte(rs.getDate("fecha_reporte"));
+                return anterior;
+            }
+        }
+    }
+
     private List<Reporte> executeQueryWithJoins(String sql) throws SQLException {
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -391,6 +531,7 @@ public class ReporteRepository {
         reporte.setAsunto(rs.getString("asunto"));
         reporte.setContenido(rs.getString("contenido"));
         reporte.setFecha_reporte(rs.getTimestamp("fecha_reporte"));
+        reporte.setVersion(rs.getInt("version"));
 
         // Asignar objetos relacionados
         reporte.setTipo_reporte(tipoReporte);
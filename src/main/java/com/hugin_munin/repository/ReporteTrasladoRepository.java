@@ -5,9 +5,15 @@ import com.hugin_munin.model.*;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Optional;
 import java.util.Date;
+import java.time.LocalDate;
 
 /**
  * Repositorio para gestionar reportes de traslado
@@ -29,7 +35,7 @@ public class ReporteTrasladoRepository {
                
                -- Datos del Reporte padre
                r.id_tipo_reporte, r.id_especimen, r.id_responsable,
-               r.asunto, r.contenido, r.fecha_reporte,
+               r.asunto, r.contenido, r.fecha_reporte, r.version,
                
                -- Datos de TipoReporte
                tr.id_tipo_reporte as tr_id_tipo_reporte,
@@ -67,6 +73,55 @@ public class ReporteTrasladoRepository {
         LEFT JOIN rol rol ON u.id_rol = rol.id_rol
         """;
 
+    // Consultas con plan verificado (PlanesConsultaTest)
+    static final String BUSCAR_POR_AREA_ORIGEN = COMPLETE_QUERY + " WHERE rt.area_origen = ? ORDER BY r.fecha_reporte DESC";
+    static final String BUSCAR_POR_AREA_DESTINO = COMPLETE_QUERY + " WHERE rt.area_destino = ? ORDER BY r.fecha_reporte DESC";
+
+    // Proyección para listados con ?fields= y ?expand= (mismas relaciones que COMPLETE_QUERY)
+    private static final Proyeccion PROYECCION = new Proyeccion("""
+            FROM reporte_traslado rt
+            INNER JOIN reporte r ON rt.id_reporte = r.id_reporte""")
+            .campo("id_reporte", "rt.id_reporte")
+            .campo("id_tipo_reporte", "r.id_tipo_reporte")
+            .campo("id_especimen", "r.id_especimen")
+            .campo("id_responsable", "r.id_responsable")
+            .campo("asunto", "r.asunto")
+            .campo("contenido", "r.contenido")
+            .campo("fecha_reporte", "r.fecha_reporte")
+            .campo("area_origen", "rt.area_origen")
+            .campo("area_destino", "rt.area_destino")
+            .campo("ubicacion_origen", "rt.ubicacion_origen")
+            .campo("ubicacion_destino", "rt.ubicacion_destino")
+            .campo("motivo", "rt.motivo")
+            .relacion("tipo_reporte", "LEFT JOIN tipo_reporte tr ON r.id_tipo_reporte = tr.id_tipo_reporte",
+                    "id_tipo_reporte", "tr.id_tipo_reporte", "nombre_tipo_reporte", "tr.nombre_tipo_reporte")
+            .relacion("especimen", "LEFT JOIN especimen esp ON r.id_especimen = esp.id_especimen",
+                    "id_especimen", "esp.id_especimen", "num_inventario", "esp.num_inventario",
+                    "id_especie", "esp.id_especie", "nombre_especimen", "esp.nombre_especimen", "activo", "esp.activo")
+            .relacion("especimen.especie", "LEFT JOIN especie e ON esp.id_especie = e.id_especie",
+                    "id_especie", "e.id_especie", "genero", "e.genero", "especie", "e.especie")
+            .relacion("responsable", "LEFT JOIN usuario u ON r.id_responsable = u.id_usuario",
+                    "id_usuario", "u.id_usuario", "id_rol", "u.id_rol", "nombre_usuario", "u.nombre_usuario", "correo", "u.correo", "activo", "u.activo")
+            .relacion("responsable.rol", "LEFT JOIN rol rol ON u.id_rol = rol.id_rol",
+                    "id_rol", "rol.id_rol", "nombre_rol", "rol.nombre_rol");
+
+    // Valores anteriores de un traslado antes de actualizarlo o eliminarlo
+    private static final String SELECT_FLUJO_PARA_ACTUALIZAR = """
+        SELECT r.id_especimen, r.fecha_reporte, r.version, rt.area_origen, rt.area_destino
+        FROM reporte r
+        INNER JOIN reporte_traslado rt ON rt.id_reporte = r.id_reporte
+        WHERE r.id_reporte = ?
+        FOR UPDATE
+        """;
+
+    // Columnas de cada tabla para las actualizaciones parciales
+    private static final List<String> COLUMNAS_REPORTE = List.of(
+            "id_tipo_reporte", "id_especimen", "id_responsable", "asunto", "contenido", "fecha_reporte");
+    private static final List<String> COLUMNAS_TRASLADO = List.of(
+            "area_origen", "area_destino", "ubicacion_origen", "ubicacion_destino", "motivo");
+    private static final List<String> COLUMNAS_UBICACION = List.of(
+            "id_especimen", "fecha_reporte", "area_destino", "ubicacion_destino");
+
     /**
      * GUARDAR nuevo reporte de traslado (transacción completa)
      */
@@ -125,6 +180,14 @@ public class ReporteTrasladoRepository {
                 stmt.executeUpdate();
             }
 
+            // 3. Ubicación actual del especimen (verifica la capacidad del destino)
+            UbicacionActualRepository.recalcularConCapacidad(conn, List.of(reporteTraslado.getId_especimen()),
+                    reporteTraslado.getArea_destino(), reporteTraslado.getUbicacion_destino());
+
+            // 4. Registrar el cambio para las cachés de las demás instancias
+            CambioRepository.registrar(conn, CambioRepository.TABLA_ESPECIMEN, reporteTraslado.getId_especimen());
+            CambioRepository.registrarFechas(conn, List.of(reporteTraslado.getFecha_reporte()));
+
             conn.commit(); // Confirmar transacción
             return reporteTraslado;
 
@@ -149,6 +212,152 @@ public class ReporteTrasladoRepository {
         }
     }
 
+    /**
+     * GUARDAR varios reportes de traslado en una sola transacción
+     * Los reportes padre se insertan como un lote con recuperación de IDs generados
+     * y los registros de reporte_traslado como un segundo lote
+     */
+    public List<ReporteTraslado> saveBatch(List<ReporteTraslado> traslados) throws SQLException {
+        String insertReporteQuery = """
+            INSERT INTO reporte (id_tipo_reporte, id_especimen, id_responsable,
+                               asunto, contenido, fecha_reporte)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """;
+        String insertTrasladoQuery = """
+            INSERT INTO reporte_traslado (id_reporte, area_origen, area_destino,
+                                        ubicacion_origen, ubicacion_destino, motivo)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """;
+
+        Connection conn = null;
+        try {
+            conn = DatabaseConfig.getConnection();
+            conn.setAutoCommit(false);
+
+            // 1. Lote de reportes padre
+            try (PreparedStatement stmt = conn.prepareStatement(insertReporteQuery, Statement.RETURN_GENERATED_KEYS)) {
+                for (ReporteTraslado traslado : traslados) {
+                    stmt.setInt(1, traslado.getId_tipo_reporte());
+                    stmt.setInt(2, traslado.getId_especimen());
+                    stmt.setInt(3, traslado.getId_responsable());
+                    stmt.setString(4, traslado.getAsunto());
+                    stmt.setString(5, traslado.getContenido());
+                    stmt.setDate(6, new java.sql.Date(traslado.getFecha_reporte().getTime()));
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+
+                try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                    int index = 0;
+                    while (generatedKeys.next() && index < traslados.size()) {
+                        traslados.get(index++).setId_reporte(generatedKeys.getInt(1));
+                    }
+                    if (index != traslados.size()) {
+                        throw new SQLException("No se pudieron obtener los IDs de los reportes");
+                    }
+                }
+            }
+
+            // 2. Lote de registros hijos
+            try (PreparedStatement stmt = conn.prepareStatement(insertTrasladoQuery)) {
+                for (ReporteTraslado traslado : traslados) {
+                    stmt.setInt(1, traslado.getId_reporte());
+                    stmt.setString(2, traslado.getArea_origen());
+                    stmt.setString(3, traslado.getArea_destino());
+                    stmt.setString(4, traslado.getUbicacion_origen());
+                    stmt.setString(5, traslado.getUbicacion_destino());
+                    stmt.setString(6, traslado.getMotivo());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+
+            // 3. Ubicación actual, verificando la capacidad de cada destino
+            Map<List<String>, List<Integer>> porDestino = new LinkedHashMap<>();
+            for (ReporteTraslado traslado : traslados) {
+                porDestino.computeIfAbsent(List.of(traslado.getArea_destino(), traslado.getUbicacion_destino()),
+                        k -> new ArrayList<>()).add(traslado.getId_especimen());
+            }
+            for (Map.Entry<List<String>, List<Integer>> destino : porDestino.entrySet()) {
+                UbicacionActualRepository.recalcularConCapacidad(conn, destino.getValue(),
+                        destino.getKey().get(0), destino.getKey().get(1));
+            }
+
+            // 4. Registrar los cambios para las cachés de las demás instancias
+            List<Integer> especimenes = new ArrayList<>();
+            List<Date> fechas = new ArrayList<>();
+            for (ReporteTraslado traslado : traslados) {
+                especimenes.add(traslado.getId_especimen());
+                fechas.add(traslado.getFecha_reporte());
+            }
+            CambioRepository.registrar(conn, CambioRepository.TABLA_ESPECIMEN, especimenes);
+            CambioRepository.registrarFechas(conn, fechas);
+
+            conn.commit();
+            return traslados;
+
+        } catch (SQLException e) {
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackEx) {
+                    e.addSuppressed(rollbackEx);
+                }
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                } catch (SQLException e) {
+                    // Log error
+                }
+            }
+        }
+    }
+
+    /**
+     * VERIFICAR en una sola consulta las referencias de un traslado grupal:
+     * tipo de reporte, responsable y especímenes existentes
+     */
+    public ReferenciasTraslado findBatchReferences(Integer idTipoReporte, Integer idResponsable,
+                                                   List<Integer> idsEspecimen) throws SQLException {
+        String sql = """
+            SELECT e.id_especimen,
+                   (SELECT COUNT(*) FROM tipo_reporte WHERE id_tipo_reporte = ?) AS tipo_existe,
+                   (SELECT COUNT(*) FROM usuario WHERE id_usuario = ?) AS responsable_existe
+            FROM (SELECT 1 AS fila) params
+            LEFT JOIN especimen e ON e.id_especimen IN (%s)
+            """.formatted(String.join(", ", Collections.nCopies(idsEspecimen.size(), "?")));
+
+        ReferenciasTraslado referencias = new ReferenciasTraslado();
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int index = 1;
+            stmt.setInt(index++, idTipoReporte);
+            stmt.setInt(index++, idResponsable);
+            for (Integer id : idsEspecimen) {
+                stmt.setInt(index++, id);
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    referencias.tipoReporteExiste = rs.getInt("tipo_existe") > 0;
+                    referencias.responsableExiste = rs.getInt("responsable_existe") > 0;
+
+                    int idEspecimen = rs.getInt("id_especimen");
+                    if (!rs.wasNull()) {
+                        referencias.especimenesExistentes.add(idEspecimen);
+                    }
+                }
+            }
+        }
+        return referencias;
+    }
+
     /**
      * BUSCAR todos los reportes de traslado
      */
@@ -157,6 +366,27 @@ public class ReporteTrasladoRepository {
         return executeQueryWithJoins(query);
     }
 
+    /**
+     * BUSCAR todos los reportes de traslado con proyección parcial (?fields= y ?expand=)
+     * Solo se consultan las columnas y los JOIN de lo solicitado
+     */
+    public List<Map<String, Object>> findAllParcial(Set<String> fields, Set<String> expand) throws SQLException {
+        Proyeccion.Seleccion seleccion = PROYECCION.seleccionar(fields, expand);
+        String sql = seleccion.getSql() + " ORDER BY r.fecha_reporte DESC";
+        List<Map<String, Object>> filas = new ArrayList<>();
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                filas.add(seleccion.mapear(rs));
+            }
+        }
+
+        return filas;
+    }
+
     /**
      * BUSCAR reporte de traslado por ID
      */
@@ -176,7 +406,7 @@ public class ReporteTrasladoRepository {
      * BUSCAR reportes de traslado por área origen
      */
     public List<ReporteTraslado> findByAreaOrigen(String areaOrigen) throws SQLException {
-        String query = COMPLETE_QUERY + " WHERE rt.area_origen = ? ORDER BY r.fecha_reporte DESC";
+        String query = BUSCAR_POR_AREA_ORIGEN;
 
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
@@ -190,7 +420,7 @@ public class ReporteTrasladoRepository {
      * BUSCAR reportes de traslado por área destino
      */
     public List<ReporteTraslado> findByAreaDestino(String areaDestino) throws SQLException {
-        String query = COMPLETE_QUERY + " WHERE rt.area_destino = ? ORDER BY r.fecha_reporte DESC";
+        String query = BUSCAR_POR_AREA_DESTINO;
 
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
@@ -287,18 +517,46 @@ public class ReporteTrasladoRepository {
 
     /**
      * ACTUALIZAR reporte de traslado (transacción completa)
+     * Devuelve el flujo anterior (fecha y áreas) o null si el traslado no existía
      */
-    public boolean update(ReporteTraslado reporteTraslado) throws SQLException {
+    public Flujo update(ReporteTraslado reporteTraslado) throws SQLException {
         Connection conn = null;
         try {
             conn = DatabaseConfig.getConnection();
             conn.setAutoCommit(false);
 
+            // 0. Valores anteriores: el cambio invalida el especimen y la fecha previos y los nuevos
+            List<Integer> especimenes = new ArrayList<>(List.of(reporteTraslado.getId_especimen()));
+            List<Date> fechas = new ArrayList<>(List.of(reporteTraslado.getFecha_reporte()));
+            Flujo anterior = null;
+            int versionActual = 0;
+            try (PreparedStatement stmt = conn.prepareStatement(SELECT_FLUJO_PARA_ACTUALIZAR)) {
+                stmt.setInt(1, reporteTraslado.getId_reporte());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        especimenes.add(rs.getInt("id_especimen"));
+                        fechas.add(rs.getDate("fecha_reporte"));
+                        versionActual = rs.getInt("version");
+                        anterior = mapFlujoIndividual(rs);
+                    }
+                }
+            }
+            if (anterior == null) {
+                conn.rollback();
+                return null;
+            }
+
+            // La fila ya está bloqueada: si el cliente envió versión y cambió, no se escribe nada
+            if (reporteTraslado.getVersion() != null && reporteTraslado.getVersion() != versionActual) {
+                throw new ConflictoVersionException(reporteTraslado.getId_reporte(),
+                        reporteTraslado.getVersion(), versionActual);
+            }
+
             // 1. Actualizar tabla reporte
             String updateReporteQuery = """
                     UPDATE reporte 
                     SET id_tipo_reporte = ?, id_especimen = ?, id_responsable = ?,
-                        asunto = ?, contenido = ?, fecha_reporte = ?
+                        asunto = ?, contenido = ?, fecha_reporte = ?, version = version + 1
                     WHERE id_reporte = ?
                     """;
 
@@ -333,8 +591,16 @@ public class ReporteTrasladoRepository {
                 stmt.executeUpdate();
             }
 
+            // 3. Ubicación actual del especimen anterior y del nuevo
+            UbicacionActualRepository.recalcular(conn, especimenes);
+
+            // 4. Registrar el cambio para las cachés de las demás instancias
+            CambioRepository.registrar(conn, CambioRepository.TABLA_ESPECIMEN, especimenes);
+            CambioRepository.registrarFechas(conn, fechas);
+
             conn.commit();
-            return true;
+            reporteTraslado.setVersion(versionActual + 1);
+            return anterior;
 
         } catch (SQLException e) {
             if (conn != null) {
@@ -357,15 +623,93 @@ public class ReporteTrasladoRepository {
         }
     }
 
+    /**
+     * VERIFICAR la versión de un traslado sin modificarlo (parche sin campos); la versión está en su reporte
+     * Retorna false si no existe; lanza ConflictoVersionException si la versión cambió
+     */
+    public boolean verificarVersion(Integer id, int versionEsperada) throws SQLException {
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            return ConflictoVersionException.comprobar(conn, "reporte", "id_reporte", id, versionEsperada);
+        }
+    }
+
+    /**
+     * ACTUALIZACIÓN PARCIAL de un traslado: cada tabla recibe solo sus columnas del parche y
+     * reporte_traslado no se escribe si ninguna de las suyas cambió. reporte siempre se escribe
+     * porque lleva la versión del traslado completo.
+     * Devuelve el flujo anterior (especimen, fecha y áreas) o null si el traslado no existe
+     */
+    public Flujo patch(Integer id, ColumnasParche columnas, Integer versionEsperada) throws SQLException {
+        ColumnasParche columnasReporte = columnas.solo(COLUMNAS_REPORTE);
+        ColumnasParche columnasTraslado = columnas.solo(COLUMNAS_TRASLADO);
+
+        return CambioRepository.enTransaccion(conn -> {
+            Flujo anterior = null;
+            int versionActual = 0;
+            try (PreparedStatement stmt = conn.prepareStatement(SELECT_FLUJO_PARA_ACTUALIZAR)) {
+                stmt.setInt(1, id);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        versionActual = rs.getInt("version");
+                        anterior = mapFlujoIndividual(rs);
+                    }
+                }
+            }
+            if (anterior == null) {
+                return null;
+            }
+            if (versionEsperada != null && versionEsperada != versionActual) {
+                throw new ConflictoVersionException(id, versionEsperada, versionActual);
+            }
+
+            columnasReporte.ejecutar(conn, "reporte", "id_reporte", id, "version = version + 1", null);
+            if (!columnasTraslado.isEmpty()) {
+                columnasTraslado.ejecutar(conn, "reporte_traslado", "id_reporte", id, null, null);
+            }
+
+            // Ubicación actual: solo si cambia qué especimen, cuándo o hacia dónde
+            List<Integer> especimenes = new ArrayList<>(List.of(anterior.getIdEspecimen()));
+            if (columnas.contiene("id_especimen")) {
+                especimenes.add((Integer) columnas.get("id_especimen"));
+            }
+            if (columnas.contieneAlguna(COLUMNAS_UBICACION)) {
+                UbicacionActualRepository.recalcular(conn, especimenes);
+            }
+
+            CambioRepository.registrar(conn, CambioRepository.TABLA_ESPECIMEN, especimenes);
+            if (columnas.contiene("fecha_reporte")) {
+                CambioRepository.registrarFechas(conn, List.of(java.sql.Date.valueOf(anterior.getFecha()),
+                        (Date) columnas.get("fecha_reporte")));
+            }
+            return anterior;
+        });
+    }
+
     /**
      * ELIMINAR reporte de traslado por ID (transacción completa)
+     * Devuelve el flujo eliminado (fecha y áreas) o null si no se eliminó nada
      */
-    public boolean deleteById(Integer id) throws SQLException {
+    public Flujo deleteById(Integer id) throws SQLException {
         Connection conn = null;
         try {
             conn = DatabaseConfig.getConnection();
             conn.setAutoCommit(false);
 
+            // 0. Especimen, fecha y áreas del traslado, para registrar el cambio
+            Integer idEspecimen = null;
+            java.sql.Date fechaReporte = null;
+            Flujo eliminado = null;
+            try (PreparedStatement stmt = conn.prepareStatement(SELECT_FLUJO_PARA_ACTUALIZAR)) {
+                stmt.setInt(1, id);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        idEspecimen = rs.getInt("id_especimen");
+                        fechaReporte = rs.getDate("fecha_reporte");
+                        eliminado = mapFlujoIndividual(rs);
+                    }
+                }
+            }
+
             // 1. Eliminar de tabla reporte_traslado
             String deleteTrasladoQuery = "DELETE FROM reporte_traslado WHERE id_reporte = ?";
             try (PreparedStatement stmt = conn.prepareStatement(deleteTrasladoQuery)) {
@@ -381,8 +725,15 @@ public class ReporteTrasladoRepository {
                 deleted = stmt.executeUpdate() > 0;
             }
 
+            // 3. Registrar el cambio para las cachés de las demás instancias
+            if (deleted) {
+                UbicacionActualRepository.recalcular(conn, List.of(idEspecimen));
+                CambioRepository.registrar(conn, CambioRepository.TABLA_ESPECIMEN, idEspecimen);
+                CambioRepository.registrarFechas(conn, Collections.singletonList(fechaReporte));
+            }
+
             conn.commit();
-            return deleted;
+            return deleted ? eliminado : null;
 
         } catch (SQLException e) {
             if (conn != null) {
@@ -422,6 +773,44 @@ public class ReporteTrasladoRepository {
         }
     }
 
+    /**
+     * OBTENER conteos de traslados por par origen-destino
+     * Con 'desde' agrupa además por día (solo reportes con fecha_reporte >= desde)
+     */
+    public List<Flujo> findFlujos(LocalDate desde) throws SQLException {
+        String query = desde == null
+                ? """
+                  SELECT NULL AS fecha_reporte, area_origen, area_destino, COUNT(*) AS total
+                  FROM reporte_traslado
+                  GROUP BY area_origen, area_destino
+                  """
+                : """
+                  SELECT r.fecha_reporte, rt.area_origen, rt.area_destino, COUNT(*) AS total
+                  FROM reporte_traslado rt
+                  INNER JOIN reporte r ON rt.id_reporte = r.id_reporte
+                  WHERE r.fecha_reporte >= ?
+                  GROUP BY r.fecha_reporte, rt.area_origen, rt.area_destino
+                  """;
+
+        List<Flujo> flujos = new ArrayList<>();
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            if (desde != null) {
+                stmt.setDate(1, java.sql.Date.valueOf(desde));
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    flujos.add(mapFlujo(rs));
+                }
+            }
+        }
+
+        return flujos;
+    }
+
     /**
      * CONTAR total de reportes de traslado
      */
@@ -507,6 +896,17 @@ public class ReporteTrasladoRepository {
 
     // MÉTODOS AUXILIARES
 
+    private Flujo mapFlujo(ResultSet rs) throws SQLException {
+        java.sql.Date fecha = rs.getDate("fecha_reporte");
+        return new Flujo(fecha != null ? fecha.toLocalDate() : null,
+                rs.getString("area_origen"), rs.getString("area_destino"), rs.getLong("total"));
+    }
+
+    private Flujo mapFlujoIndividual(ResultSet rs) throws SQLException {
+        return new Flujo(rs.getInt("id_especimen"), rs.getDate("fecha_reporte").toLocalDate(),
+                rs.getString("area_origen"), rs.getString("area_destino"), 1);
+    }
+
     private List<ReporteTraslado> executeQueryWithJoins(String sql) throws SQLException {
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -615,6 +1015,7 @@ public class ReporteTrasladoRepository {
         reporteTraslado.setAsunto(rs.getString("asunto"));
         reporteTraslado.setContenido(rs.getString("contenido"));
         reporteTraslado.setFecha_reporte(rs.getDate("fecha_reporte"));
+        reporteTraslado.setVersion(rs.getInt("version"));
 
         // Datos específicos de traslado
         reporteTraslado.setArea_origen(rs.getString("area_origen"));
@@ -631,6 +1032,50 @@ public class ReporteTrasladoRepository {
         return reporteTraslado;
     }
 
+    /**
+     * Traslados de un par origen-destino (en una fecha, o históricos si fecha es null)
+     * Para un traslado individual (update/delete) incluye además su especimen
+     */
+    public static class Flujo {
+        private final Integer idEspecimen;
+        private final LocalDate fecha;
+        private final String areaOrigen;
+        private final String areaDestino;
+        private final long total;
+
+        public Flujo(LocalDate fecha, String areaOrigen, String areaDestino, long total) {
+            this(null, fecha, areaOrigen, areaDestino, total);
+        }
+
+        public Flujo(Integer idEspecimen, LocalDate fecha, String areaOrigen, String areaDestino, long total) {
+            this.idEspecimen = idEspecimen;
+            this.fecha = fecha;
+            this.areaOrigen = areaOrigen;
+            this.areaDestino = areaDestino;
+            this.total = total;
+        }
+
+        public Integer getIdEspecimen() { return idEspecimen; }
+        public LocalDate getFecha() { return fecha; }
+        public String getAreaOrigen() { return areaOrigen; }
+        public String getAreaDestino() { return areaDestino; }
+        public long getTotal() { return total; }
+    }
+
+    /**
+     * Resultado de la verificación de referencias de un traslado grupal
+     */
+    public static class ReferenciasTraslado {
+        private boolean tipoReporteExiste;
+        private boolean responsableExiste;
+        private final Set<Integer> especimenesExistentes = new HashSet<>();
+
+        // Getters
+        public boolean isTipoReporteExiste() { return tipoReporteExiste; }
+        public boolean isResponsableExiste() { return responsableExiste; }
+        public Set<Integer> getEspecimenesExistentes() { return especimenesExistentes; }
+    }
+
     /**
      * Clase auxiliar para estadísticas de áreas
      */
@@ -0,0 +1,116 @@
+package com.hugin_munin.repository;
+
+import com.hugin_munin.config.DatabaseConfig;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Repositorio para series temporales de altas, bajas y traslados
+ * Todas las consultas usan rangos semiabiertos [inicio, fin) sobre las columnas de fecha
+ * para que MySQL pueda usar los índices en lugar de evaluar funciones por fila
+ */
+public class SerieTemporalRepository {
+
+    public static final String GRANULARIDAD_DIA = "dia";
+    public static final String GRANULARIDAD_SEMANA = "semana";
+    public static final String GRANULARIDAD_MES = "mes";
+
+    /**
+     * CONTAR altas, bajas y traslados agrupados por periodo en una sola consulta
+     * Retorna un mapa periodo -> conteos; los periodos sin eventos no aparecen
+     */
+    public Map<LocalDate, ConteoPeriodo> countByPeriodo(String granularidad, LocalDate inicio, LocalDate fin)
+            throws SQLException {
+        String sql = """
+            SELECT t.tipo, %s AS periodo, COUNT(*) AS total
+            FROM (
+                SELECT 'alta' AS tipo, ra.fecha_ingreso AS fecha
+                FROM registro_alta ra
+                WHERE ra.fecha_ingreso >= ? AND ra.fecha_ingreso < ?
+                UNION ALL
+                SELECT 'baja', rb.fecha_baja
+                FROM registro_baja rb
+                WHERE rb.fecha_baja >= ? AND rb.fecha_baja < ?
+                UNION ALL
+                SELECT 'traslado', r.fecha_reporte
+                FROM reporte_traslado rt
+                INNER JOIN reporte r ON rt.id_reporte = r.id_reporte
+                WHERE r.fecha_reporte >= ? AND r.fecha_reporte < ?
+            ) t
+            GROUP BY t.tipo, periodo
+            """.formatted(bucketExpression(granularidad));
+
+        Map<LocalDate, ConteoPeriodo> conteos = new HashMap<>();
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            java.sql.Date desde = java.sql.Date.valueOf(inicio);
+            java.sql.Date hasta = java.sql.Date.valueOf(fin);
+            for (int i = 0; i < 3; i++) {
+                stmt.setDate(i * 2 + 1, desde);
+                stmt.setDate(i * 2 + 2, hasta);
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    LocalDate periodo = rs.getDate("periodo").toLocalDate();
+                    ConteoPeriodo conteo = conteos.computeIfAbsent(periodo, p -> new ConteoPeriodo(0, 0, 0));
+                    int total = rs.getInt("total");
+
+                    switch (rs.getString("tipo")) {
+                        case "alta" -> conteo.setAltas(total);
+                        case "baja" -> conteo.setBajas(total);
+                        case "traslado" -> conteo.setTraslados(total);
+                        default -> { }
+                    }
+                }
+            }
+        }
+
+        return conteos;
+    }
+
+    // MÉTODOS AUXILIARES
+
+    /**
+     * Expresión SQL que lleva cada fecha al inicio de su periodo
+     * Solo se aplica después del filtro por rango, por lo que no afecta el uso de índices
+     */
+    private String bucketExpression(String granularidad) {
+        return switch (granularidad) {
+            case GRANULARIDAD_DIA -> "DATE(t.fecha)";
+            case GRANULARIDAD_SEMANA -> "DATE_SUB(DATE(t.fecha), INTERVAL WEEKDAY(t.fecha) DAY)";
+            case GRANULARIDAD_MES -> "CAST(DATE_FORMAT(t.fecha, '%Y-%m-01') AS DATE)";
+            default -> throw new IllegalArgumentException("Granularidad inválida: " + granularidad);
+        };
+    }
+
+    /**
+     * Clase auxiliar con los conteos de un periodo
+     */
+    public static class ConteoPeriodo {
+        private int altas;
+        private int bajas;
+        private int traslados;
+
+        public ConteoPeriodo(int altas, int bajas, int traslados) {
+            this.altas = altas;
+            this.bajas = bajas;
+            this.traslados = traslados;
+        }
+
+        // Getters y setters
+        public int getAltas() { return altas; }
+        public void setAltas(int altas) { this.altas = altas; }
+
+        public int getBajas() { return bajas; }
+        public void setBajas(int bajas) { this.bajas = bajas; }
+
+        public int getTraslados() { return traslados; }
+        public void setTraslados(int traslados) { this.traslados = traslados; }
+    }
+}
@@ -0,0 +1,160 @@
+package com.hugin_munin.repository;
+
+import com.hugin_munin.config.DatabaseConfig;
+import com.hugin_munin.model.Sesion;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Registro de sesiones en memoria usado por InMemorySessionStore y por la caché cercana
+ * de JdbcSessionStore
+ * - Índice secundario userId -> sesiones: invalidar las sesiones de un usuario no recorre el mapa
+ * - Rueda de tiempo (hashed timing wheel) para la expiración: cada tick revisa solo la ranura
+ *   que vence, nunca todas las sesiones. La actividad no mueve la sesión de ranura; al revisarla
+ *   se reprograma según su expiración vigente. Las sesiones eliminadas se descartan al pasar.
+ */
+class SessionRegistry {
+
+    private final Map<String, Sesion> sesiones = new ConcurrentHashMap<>();
+    private final Map<Integer, Set<String>> porUsuario = new ConcurrentHashMap<>();
+
+    private final AtomicReferenceArray<Set<String>> ranuras;
+    private final int numRanuras;
+    private final long tickMs;
+    private long ultimoTick;
+
+    SessionRegistry() {
+        this(DatabaseConfig.getIntSetting("SESSION_WHEEL_SLOTS", 1024),
+                DatabaseConfig.getIntSetting("SESSION_WHEEL_TICK_MS", 60000));
+    }
+
+    SessionRegistry(int numRanuras, long tickMs) {
+        this.numRanuras = Math.max(1, numRanuras);
+        this.tickMs = Math.max(1, tickMs);
+        this.ranuras = new AtomicReferenceArray<>(this.numRanuras);
+        for (int i = 0; i < this.numRanuras; i++) {
+            ranuras.set(i, ConcurrentHashMap.newKeySet());
+        }
+        this.ultimoTick = System.currentTimeMillis() / this.tickMs;
+    }
+
+    /**
+     * AGREGAR una sesión; solo se programa en la rueda la primera vez
+     */
+    void put(Sesion sesion) {
+        Sesion anterior = sesiones.put(sesion.getSessionId(), sesion);
+        porUsuario.compute(sesion.getUserId(), (userId, ids) -> {
+            Set<String> conjunto = ids != null ? ids : ConcurrentHashMap.newKeySet();
+            conjunto.add(sesion.getSessionId());
+            return conjunto;
+        });
+        if (anterior == null) {
+            programar(sesion.getSessionId(), sesion.getExpiresAt(), 0);
+        }
+    }
+
+    Sesion get(String sessionId) {
+        return sesiones.get(sessionId);
+    }
+
+    /**
+     * ELIMINAR una sesión; su entrada en la rueda se descarta cuando se revise la ranura
+     */
+    Sesion remove(String sessionId) {
+        Sesion sesion = sesiones.remove(sessionId);
+        if (sesion != null) {
+            desindexar(sesion);
+        }
+        return sesion;
+    }
+
+    /**
+     * ELIMINAR las sesiones de un usuario usando el índice secundario
+     */
+    List<Sesion> removeByUser(Integer userId) {
+        Set<String> ids = porUsuario.remove(userId);
+        if (ids == null) {
+            return Collections.emptyList();
+        }
+
+        List<Sesion> eliminadas = new ArrayList<>(ids.size());
+        for (String sessionId : ids) {
+            Sesion sesion = sesiones.remove(sessionId);
+            if (sesion != null) {
+                eliminadas.add(sesion);
+            }
+        }
+        return eliminadas;
+    }
+
+    /**
+     * AVANZAR la rueda hasta el instante indicado y eliminar las sesiones vencidas
+     * Si pasó más de una vuelta desde el último avance, cada ranura se revisa una sola vez
+     */
+    synchronized List<Sesion> expirar(long ahora) {
+        long tickActual = ahora / tickMs;
+        long desde = Math.max(ultimoTick + 1, tickActual - numRanuras + 1);
+        List<Sesion> expiradas = new ArrayList<>();
+
+        for (long tick = desde; tick <= tickActual; tick++) {
+            int indice = (int) Math.floorMod(tick, (long) numRanuras);
+            Set<String> ranura = ranuras.getAndSet(indice, ConcurrentHashMap.newKeySet());
+
+            for (String sessionId : ranura) {
+                Sesion sesion = sesiones.get(sessionId);
+                if (sesion == null) {
+                    continue;
+                }
+                if (sesion.isExpired(ahora)) {
+                    if (sesiones.remove(sessionId, sesion)) {
+                        desindexar(sesion);
+                        expiradas.add(sesion);
+                    }
+                } else {
+                    programar(sessionId, sesion.getExpiresAt(), tickActual + 1);
+                }
+            }
+        }
+
+        if (tickActual > ultimoTick) {
+            ultimoTick = tickActual;
+        }
+        return expiradas;
+    }
+
+    int size() {
+        return sesiones.size();
+    }
+
+    /**
+     * CONTAR sesiones vencidas que aún no se han purgado (recorre el registro, solo para diagnóstico)
+     */
+    long countExpired(long ahora) {
+        return sesiones.values().stream()
+                .filter(sesion -> sesion.isExpired(ahora))
+                .count();
+    }
+
+    // MÉTODOS AUXILIARES
+
+    /**
+     * Ubicar la sesión en la ranura de su expiración, nunca antes del tick mínimo indicado
+     */
+    private void programar(String sessionId, long expiracion, long tickMinimo) {
+        long tick = Math.max(expiracion / tickMs, tickMinimo);
+        ranuras.get((int) Math.floorMod(tick, (long) numRanuras)).add(sessionId);
+    }
+
+    private void desindexar(Sesion sesion) {
+        porUsuario.computeIfPresent(sesion.getUserId(), (userId, ids) -> {
+            ids.remove(sesion.getSessionId());
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+}
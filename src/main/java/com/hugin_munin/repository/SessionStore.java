@@ -0,0 +1,54 @@
+package com.hugin_munin.repository;
+
+import com.hugin_munin.model.Sesion;
+
+import java.sql.SQLException;
+
+/**
+ * Almacén de sesiones de AuthService
+ * Implementaciones: InMemorySessionStore (proceso local) y JdbcSessionStore
+ * (persistente, compartido entre nodos). Se elige con SESSION_STORE=memory | jdbc.
+ */
+public interface SessionStore {
+
+    /**
+     * GUARDAR una sesión nueva
+     */
+    void save(Sesion sesion) throws SQLException;
+
+    /**
+     * BUSCAR una sesión por su ID (null si no existe)
+     */
+    Sesion findById(String sessionId) throws SQLException;
+
+    /**
+     * REGISTRAR actividad de una sesión ya actualizada con Sesion.updateActivity
+     * Las implementaciones persistentes pueden diferir la escritura
+     */
+    void touch(Sesion sesion) throws SQLException;
+
+    /**
+     * ELIMINAR una sesión; retorna la sesión eliminada o null si no existía
+     */
+    Sesion remove(String sessionId) throws SQLException;
+
+    /**
+     * ELIMINAR todas las sesiones de un usuario; retorna cuántas se eliminaron
+     */
+    int removeByUser(Integer userId) throws SQLException;
+
+    /**
+     * ELIMINAR sesiones expiradas; retorna cuántas se eliminaron
+     */
+    int removeExpired() throws SQLException;
+
+    /**
+     * CONTAR sesiones almacenadas
+     */
+    int count() throws SQLException;
+
+    /**
+     * CONTAR sesiones almacenadas que ya expiraron
+     */
+    long countExpired() throws SQLException;
+}
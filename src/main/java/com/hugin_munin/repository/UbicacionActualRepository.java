@@ -0,0 +1,279 @@
+package com.hugin_munin.repository;
+
+import com.hugin_munin.config.DatabaseConfig;
+import com.hugin_munin.model.UbicacionActual;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Repositorio de la proyección de ubicación actual (tablas ubicacion_actual y capacidad_ubicacion)
+ * Las escrituras de traslados y reportes llaman a recalcular() con su propia conexión, de modo que
+ * la proyección cambia en la misma transacción que el traslado que la origina.
+ */
+public class UbicacionActualRepository {
+
+    private static final String SELECT_UBICACION = """
+        SELECT id_especimen, id_reporte, area, ubicacion, fecha_reporte
+        FROM ubicacion_actual
+        """;
+
+    // Traslado más reciente del especimen (mismo orden que la carga inicial de V7)
+    private static final String INSERT_DESDE_ULTIMO_TRASLADO = """
+        INSERT INTO ubicacion_actual (id_especimen, id_reporte, area, ubicacion, fecha_reporte)
+        SELECT r.id_especimen, r.id_reporte, rt.area_destino, rt.ubicacion_destino, r.fecha_reporte
+        FROM reporte r
+        INNER JOIN reporte_traslado rt ON rt.id_reporte = r.id_reporte
+        WHERE r.id_especimen = ?
+        ORDER BY r.fecha_reporte DESC, r.id_reporte DESC
+        LIMIT 1
+        """;
+
+    // Consulta con plan verificado (PlanesConsultaTest)
+    static final String CONTAR_OCUPACION = "SELECT COUNT(*) FROM ubicacion_actual WHERE area = ? AND ubicacion = ?";
+
+    /**
+     * RECALCULAR la ubicación actual de los especímenes usando la transacción del llamador
+     */
+    public static void recalcular(Connection conn, Collection<Integer> especimenes) throws SQLException {
+        Set<Integer> unicos = new LinkedHashSet<>();
+        for (Integer id : especimenes) {
+            if (id != null) {
+                unicos.add(id);
+            }
+        }
+        if (unicos.isEmpty()) {
+            return;
+        }
+
+        String placeholders = String.join(",", Collections.nCopies(unicos.size(), "?"));
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "DELETE FROM ubicacion_actual WHERE id_especimen IN (" + placeholders + ")")) {
+            int index = 1;
+            for (Integer id : unicos) {
+                stmt.setInt(index++, id);
+            }
+            stmt.executeUpdate();
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_DESDE_ULTIMO_TRASLADO)) {
+            for (Integer id : unicos) {
+                stmt.setInt(1, id);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * RECALCULAR y verificar la capacidad de la ubicación destino de un traslado nuevo
+     * La fila de capacidad se bloquea (FOR UPDATE) para serializar los traslados concurrentes
+     * hacia la misma ubicación. Solo falla si la ocupación supera la capacidad y además aumentó:
+     * un traslado retroactivo o de un especimen que ya estaba ahí no se rechaza.
+     */
+    public static void recalcularConCapacidad(Connection conn, Collection<Integer> especimenes,
+                                              String area, String ubicacion) throws SQLException {
+        Integer capacidad = null;
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT capacidad FROM capacidad_ubicacion WHERE area = ? AND ubicacion = ? FOR UPDATE")) {
+            stmt.setString(1, area);
+            stmt.setString(2, ubicacion);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    capacidad = rs.getInt("capacidad");
+                }
+            }
+        }
+
+        if (capacidad == null) {
+            recalcular(conn, especimenes);
+            return;
+        }
+
+        int antes = contarOcupacion(conn, area, ubicacion);
+        recalcular(conn, especimenes);
+        int despues = contarOcupacion(conn, area, ubicacion);
+
+        if (despues > capacidad && despues > antes) {
+            throw new CapacidadExcedidaException(area, ubicacion, capacidad, antes, despues - antes);
+        }
+    }
+
+    /**
+     * OBTENER todas las ubicaciones actuales (carga del índice en memoria)
+     */
+    public List<UbicacionActual> findAll() throws SQLException {
+        List<UbicacionActual> ubicaciones = new ArrayList<>();
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SELECT_UBICACION);
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                ubicaciones.add(mapResultSetToUbicacion(rs));
+            }
+        }
+
+        return ubicaciones;
+    }
+
+    /**
+     * OBTENER la ubicación actual de varios especímenes (los que no tienen traslados no aparecen)
+     */
+    public List<UbicacionActual> findByEspecimenes(Collection<Integer> especimenes) throws SQLException {
+        List<UbicacionActual> ubicaciones = new ArrayList<>();
+        if (especimenes.isEmpty()) {
+            return ubicaciones;
+        }
+
+        String placeholders = String.join(",", Collections.nCopies(especimenes.size(), "?"));
+        String query = SELECT_UBICACION + " WHERE id_especimen IN (" + placeholders + ")";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            int index = 1;
+            for (Integer id : especimenes) {
+                stmt.setInt(index++, id);
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ubicaciones.add(mapResultSetToUbicacion(rs));
+                }
+            }
+        }
+
+        return ubicaciones;
+    }
+
+    /**
+     * OBTENER todas las capacidades configuradas
+     */
+    public List<Capacidad> findCapacidades() throws SQLException {
+        List<Capacidad> capacidades = new ArrayList<>();
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT area, ubicacion, capacidad FROM capacidad_ubicacion ORDER BY area, ubicacion");
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                capacidades.add(new Capacidad(rs.getString("area"), rs.getString("ubicacion"), rs.getInt("capacidad")));
+            }
+        }
+
+        return capacidades;
+    }
+
+    /**
+     * GUARDAR (crear o reemplazar) la capacidad de una ubicación
+     */
+    public void saveCapacidad(Capacidad capacidad) throws SQLException {
+        CambioRepository.enTransaccion(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement("""
+                    INSERT INTO capacidad_ubicacion (area, ubicacion, capacidad)
+                    VALUES (?, ?, ?)
+                    ON DUPLICATE KEY UPDATE capacidad = VALUES(capacidad)
+                    """)) {
+                stmt.setString(1, capacidad.getArea());
+                stmt.setString(2, capacidad.getUbicacion());
+                stmt.setInt(3, capacidad.getCapacidad());
+                stmt.executeUpdate();
+            }
+            CambioRepository.registrar(conn, CambioRepository.TABLA_CAPACIDAD, capacidad.getArea());
+            return null;
+        });
+    }
+
+    /**
+     * ELIMINAR la capacidad de una ubicación (queda sin límite)
+     */
+    public boolean deleteCapacidad(String area, String ubicacion) throws SQLException {
+        return CambioRepository.enTransaccion(conn -> {
+            boolean eliminada;
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "DELETE FROM capacidad_ubicacion WHERE area = ? AND ubicacion = ?")) {
+                stmt.setString(1, area);
+                stmt.setString(2, ubicacion);
+                eliminada = stmt.executeUpdate() > 0;
+            }
+            if (eliminada) {
+                CambioRepository.registrar(conn, CambioRepository.TABLA_CAPACIDAD, area);
+            }
+            return eliminada;
+        });
+    }
+
+    // MÉTODOS AUXILIARES
+
+    private static int contarOcupacion(Connection conn, String area, String ubicacion) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(CONTAR_OCUPACION)) {
+            stmt.setString(1, area);
+            stmt.setString(2, ubicacion);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    private UbicacionActual mapResultSetToUbicacion(ResultSet rs) throws SQLException {
+        return new UbicacionActual(
+                rs.getInt("id_especimen"),
+                rs.getInt("id_reporte"),
+                rs.getString("area"),
+                rs.getString("ubicacion"),
+                rs.getDate("fecha_reporte")
+        );
+    }
+
+    /**
+     * Capacidad máxima de especímenes en una ubicación
+     */
+    public static class Capacidad {
+        private final String area;
+        private final String ubicacion;
+        private final int capacidad;
+
+        public Capacidad(String area, String ubicacion, int capacidad) {
+            this.area = area;
+            this.ubicacion = ubicacion;
+            this.capacidad = capacidad;
+        }
+
+        public String getArea() { return area; }
+        public String getUbicacion() { return ubicacion; }
+        public int getCapacidad() { return capacidad; }
+    }
+
+    /**
+     * La ubicación destino no admite más especímenes; se lanza dentro de la transacción para revertirla
+     */
+    public static class CapacidadExcedidaException extends SQLException {
+        private static final long serialVersionUID = 1L;
+
+        private final String area;
+        private final String ubicacion;
+        private final int capacidad;
+        private final int ocupacion;
+
+        public CapacidadExcedidaException(String area, String ubicacion, int capacidad, int ocupacion, int entrantes) {
+            super("La ubicación " + area + " / " + ubicacion + " tiene capacidad para " + capacidad +
+                    " especímenes y ya tiene " + ocupacion + " (entrantes: " + entrantes + ")");
+            this.area = area;
+            this.ubicacion = ubicacion;
+            this.capacidad = capacidad;
+            this.ocupacion = ocupacion;
+        }
+
+        public String getArea() { return area; }
+        public String getUbicacion() { return ubicacion; }
+        public int getCapacidad() { return capacidad; }
+        public int getOcupacion() { return ocupacion; }
+    }
+}
@@ -19,6 +19,9 @@ import java.util.HashMap;
  */
 public class UsuarioRepository {
 
+    // Consulta con plan verificado (PlanesConsultaTest)
+    static final String BUSCAR_POR_NOMBRE_EXACTO = "SELECT id_usuario, id_rol, nombre_usuario, correo, contrasena, activo FROM usuario WHERE nombre_usuario = ?";
+
     /**
      * BUSCAR todos los usuarios (sin joins inicialmente)
      */
@@ -202,6 +205,28 @@ public class UsuarioRepository {
         }
     }
 
+    /**
+     * BUSCAR usuarios con nombre exacto (usa idx_usuario_nombre_usuario)
+     * La comparación en MySQL no distingue mayúsculas; el llamador decide si filtra por coincidencia exacta
+     */
+    public List<Usuario> findByExactName(String nombre) throws SQLException {
+        List<Usuario> usuarios = new ArrayList<>();
+        String query = BUSCAR_POR_NOMBRE_EXACTO;
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+
+            stmt.setString(1, nombre);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    usuarios.add(mapResultSetToUsuario(rs));
+                }
+            }
+        }
+        return usuarios;
+    }
+
     /**
      * BUSCAR usuarios por nombre
      */
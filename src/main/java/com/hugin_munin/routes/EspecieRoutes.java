@@ -29,6 +29,7 @@ public class EspecieRoutes {
 
         // PUT - Actualizar especie existente
         app.put("/hm/especies/{id}", especieController::updateSpecie);
+        app.patch("/hm/especies/{id}", especieController::patchSpecie);
 
         // DELETE - Eliminar especie
         app.delete("/hm/especies/{id}", especieController::deleteSpecie);
@@ -31,6 +31,7 @@ public class EspecimenRoutes {
 
         // PUT - Actualizar especimen existente
         app.put("/hm/especimenes/{id}", especimenController::updateSpecimen);
+        app.patch("/hm/especimenes/{id}", especimenController::patchSpecimen);
 
         // DELETE - Eliminar especimen
         app.delete("/hm/especimenes/{id}", especimenController::deleteSpecimen);
@@ -41,10 +42,20 @@ public class EspecimenRoutes {
         // PATCH - Desactivar especimen
         app.patch("/hm/especimenes/{id}/desactivar", especimenController::deactivateSpecimen);
 
+        // POST - Cambios de estado por lote (activar, desactivar, eliminar)
+        app.post("/hm/especimenes/lote/{accion}", especimenController::bulkChangeState);
+
         // POST - Validar número de inventario
         app.post("/hm/especimenes/validar-inventario", especimenController::validateInventoryNumber);
 
+        // GET - Línea de tiempo del especimen (altas, reportes, traslados y bajas)
+        app.get("/hm/especimenes/{id}/timeline", especimenController::getSpecimenTimeline);
+
         // GET - Estadísticas de especímenes
         app.get("/hm/especimenes/estadisticas", especimenController::getSpecimenStatistics);
+
+        // Caché de agregados (detalle del especimen con sus registros de alta)
+        app.get("/hm/especimenes/cache/agregados", especimenController::getSpecimenCacheInfo);
+        app.delete("/hm/especimenes/cache/agregados", especimenController::clearSpecimenCache);
     }
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.hugin_munin.routes;
+
+import com.hugin_munin.controller.EventoController;
+import io.javalin.Javalin;
+
+/**
+ * Configuración de rutas para el feed de eventos en tiempo real
+ */
+public class EventoRoutes {
+
+    private final EventoController eventoController;
+
+    public EventoRoutes(EventoController eventoController) {
+        this.eventoController = eventoController;
+    }
+
+    public void defineRoutes(Javalin app) {
+
+        // Feed SSE de traslados, altas y bajas
+        app.sse("/hm/eventos", eventoController::stream);
+
+        // Estadísticas del feed
+        app.get("/hm/eventos/estadisticas", eventoController::getEstadisticas);
+    }
+}
@@ -0,0 +1,26 @@
+package com.hugin_munin.routes;
+
+import com.hugin_munin.controller.PoolController;
+import io.javalin.Javalin;
+
+/**
+ * Configuración de rutas de administración del pool de conexiones
+ */
+public class PoolRoutes {
+
+    private final PoolController poolController;
+
+    public PoolRoutes(PoolController poolController) {
+        this.poolController = poolController;
+    }
+
+    public void defineRoutes(Javalin app) {
+
+        // Monitoreo
+        app.get("/hm/admin/pool", poolController::getEstadisticas);
+
+        // Administración
+        app.put("/hm/admin/pool/tamano", poolController::resize);
+        app.delete("/hm/admin/pool/llamadores", poolController::resetLlamadores);
+    }
+}
@@ -16,6 +16,7 @@ public class RegistroAltaRoutes {
         app.get("/hm/registro_alta/{id}", controller::getById);
         app.post("/hm/registro_alta", controller::create);
         app.put("/hm/registro_alta/{id}", controller::update);
+        app.patch("/hm/registro_alta/{id}", controller::patch);
         app.delete("/hm/registro_alta/{id}", controller::delete);
     }
 }
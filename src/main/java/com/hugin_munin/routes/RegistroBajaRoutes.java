@@ -20,7 +20,9 @@ public class RegistroBajaRoutes {
         app.get("/hm/registro_baja", controller::getAll);
         app.get("/hm/registro_baja/{id}", controller::getById);
         app.post("/hm/registro_baja", controller::create);
+        app.post("/hm/registro_baja/lote", controller::createBatch);
         app.put("/hm/registro_baja/{id}", controller::update);
+        app.patch("/hm/registro_baja/{id}", controller::patch);
         app.delete("/hm/registro_baja/{id}", controller::delete);
 
         // Búsquedas específicas
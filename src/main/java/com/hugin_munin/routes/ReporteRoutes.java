@@ -21,6 +21,7 @@ public class ReporteRoutes {
         app.get("/hm/reportes/{id}", reporteController::getReporteById);
         app.post("/hm/reportes", reporteController::createReporte);
         app.put("/hm/reportes/{id}", reporteController::updateReporte);
+        app.patch("/hm/reportes/{id}", reporteController::patchReporte);
         app.delete("/hm/reportes/{id}", reporteController::deleteReporte);
 
         // Búsquedas específicas por atributos
@@ -20,7 +20,9 @@ public class ReporteTrasladoRoutes {
         app.get("/hm/reportes-traslado", reporteTrasladoController::getAllReportesTraslado);
         app.get("/hm/reportes-traslado/{id}", reporteTrasladoController::getReporteTrasladoById);
         app.post("/hm/reportes-traslado", reporteTrasladoController::createReporteTraslado);
+        app.post("/hm/reportes-traslado/grupal", reporteTrasladoController::createTrasladoGrupal);
         app.put("/hm/reportes-traslado/{id}", reporteTrasladoController::updateReporteTraslado);
+        app.patch("/hm/reportes-traslado/{id}", reporteTrasladoController::patchReporteTraslado);
         app.delete("/hm/reportes-traslado/{id}", reporteTrasladoController::deleteReporteTraslado);
 
         // Búsquedas específicas por atributos de traslado
@@ -41,5 +43,7 @@ public class ReporteTrasladoRoutes {
         app.get("/hm/reportes-traslado/estadisticas", reporteTrasladoController::getReporteTrasladoStatistics);
         app.get("/hm/reportes-traslado/estadisticas/areas-origen", reporteTrasladoController::getAreasOrigenPopulares);
         app.get("/hm/reportes-traslado/estadisticas/areas-destino", reporteTrasladoController::getAreasDestinoPopulares);
+        app.get("/hm/reportes-traslado/estadisticas/flujos", reporteTrasladoController::getMatrizFlujos);
+        app.get("/hm/reportes-traslado/estadisticas/flujos/top", reporteTrasladoController::getFlujosPopulares);
     }
 }
\ No newline at end of file
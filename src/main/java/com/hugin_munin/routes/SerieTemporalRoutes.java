@@ -0,0 +1,25 @@
+package com.hugin_munin.routes;
+
+import com.hugin_munin.controller.SerieTemporalController;
+import io.javalin.Javalin;
+
+/**
+ * Configuración de rutas para series temporales
+ */
+public class SerieTemporalRoutes {
+
+    private final SerieTemporalController serieTemporalController;
+
+    public SerieTemporalRoutes(SerieTemporalController serieTemporalController) {
+        this.serieTemporalController = serieTemporalController;
+    }
+
+    public void defineRoutes(Javalin app) {
+
+        // Serie temporal de altas, bajas y traslados
+        app.get("/hm/estadisticas/series", serieTemporalController::getSerie);
+
+        // Administración de caché
+        app.delete("/hm/estadisticas/series/cache", serieTemporalController::limpiarCache);
+    }
+}
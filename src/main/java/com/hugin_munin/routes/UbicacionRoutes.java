@@ -0,0 +1,32 @@
+package com.hugin_munin.routes;
+
+import com.hugin_munin.controller.UbicacionController;
+import io.javalin.Javalin;
+
+/**
+ * Configuración de rutas para la ubicación actual de los especímenes
+ */
+public class UbicacionRoutes {
+
+    private final UbicacionController ubicacionController;
+
+    public UbicacionRoutes(UbicacionController ubicacionController) {
+        this.ubicacionController = ubicacionController;
+    }
+
+    public void defineRoutes(Javalin app) {
+
+        // Ubicación actual por especimen y especímenes por ubicación
+        app.get("/hm/ubicaciones/especimen/{id}", ubicacionController::getUbicacionEspecimen);
+        app.get("/hm/ubicaciones/especimenes", ubicacionController::getEspecimenesEnUbicacion);
+
+        // Ocupación por área
+        app.get("/hm/ubicaciones/ocupacion", ubicacionController::getOcupacion);
+        app.get("/hm/ubicaciones/ocupacion/{area}", ubicacionController::getOcupacionArea);
+
+        // Capacidades por ubicación
+        app.get("/hm/ubicaciones/capacidades", ubicacionController::getCapacidades);
+        app.put("/hm/ubicaciones/capacidades", ubicacionController::setCapacidad);
+        app.delete("/hm/ubicaciones/capacidades", ubicacionController::deleteCapacidad);
+    }
+}
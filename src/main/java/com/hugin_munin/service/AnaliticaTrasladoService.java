@@ -0,0 +1,391 @@
+package com.hugin_munin.service;
+
+import com.hugin_munin.config.DatabaseConfig;
+import com.hugin_munin.repository.ReporteTrasladoRepository;
+import com.hugin_munin.repository.ReporteTrasladoRepository.AreaEstadistica;
+import com.hugin_munin.repository.ReporteTrasladoRepository.Flujo;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Analítica de traslados en memoria: conteos por área y matriz origen → destino
+ * - Histórico completo y ventanas móviles de 7, 30 y 365 días (por fecha_reporte)
+ * - Las ventanas se mantienen con un anillo de 365 cubetas diarias; al cambiar el día se
+ *   restan de cada ventana las cubetas que salen, sin recorrer los traslados
+ * - Crear, actualizar y eliminar aplican el delta en proceso; las consultas no tocan MySQL
+ * - Cada ANALITICA_TRASLADOS_RECONCILIAR_MS se reconstruye desde la base de datos (fuera del lock)
+ *   para corregir lo que no pasa por este servicio: eliminaciones en cascada de reporte o especimen,
+ *   escrituras de otras instancias y traslados con fecha futura que entran a las ventanas
+ * - Si llega un delta mientras se reconstruye, la reconstrucción se descarta: no se puede saber si
+ *   las consultas ya lo vieron, y reemplazar el estado lo perdería
+ */
+public class AnaliticaTrasladoService {
+
+    public static final String TIPO_ORIGEN = "origen";
+    public static final String TIPO_DESTINO = "destino";
+    public static final List<Integer> VENTANAS = List.of(7, 30, 365);
+
+    private static final int CUBETAS = 365;
+    private static final int INTENTOS_RECONCILIACION = 3;
+
+    private final ReporteTrasladoRepository reporteTrasladoRepository;
+    private final ScheduledExecutorService scheduler;
+
+    // Estado actual (null hasta la primera carga); protegido por this
+    private Estado estado;
+    private long actualizadoEn;
+    private long generacion = 0;
+    private long erroresReconciliacion = 0;
+
+    public AnaliticaTrasladoService(ReporteTrasladoRepository reporteTrasladoRepository) {
+        this.reporteTrasladoRepository = reporteTrasladoRepository;
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "AnaliticaTraslados");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        int intervaloMs = DatabaseConfig.getIntSetting("ANALITICA_TRASLADOS_RECONCILIAR_MS", 900000);
+        if (intervaloMs > 0) {
+            scheduler.scheduleWithFixedDelay(this::reconciliar, 0, intervaloMs, TimeUnit.MILLISECONDS);
+            System.out.println("📊 Analítica de traslados en memoria (reconciliación cada " + intervaloMs + " ms)");
+        }
+    }
+
+    /**
+     * REGISTRAR un traslado creado (o el valor nuevo de uno actualizado)
+     */
+    public void registrar(Date fecha, String areaOrigen, String areaDestino) {
+        aplicar(fecha, areaOrigen, areaDestino, 1);
+    }
+
+    /**
+     * RETIRAR un traslado eliminado (o el valor anterior de uno actualizado)
+     */
+    public void retirar(Date fecha, String areaOrigen, String areaDestino) {
+        aplicar(fecha, areaOrigen, areaDestino, -1);
+    }
+
+    /**
+     * RETIRAR el flujo devuelto por el repositorio al actualizar o eliminar
+     */
+    public void retirar(Flujo flujo) {
+        if (flujo != null && flujo.getFecha() != null) {
+            aplicar(flujo.getFecha(), flujo.getAreaOrigen(), flujo.getAreaDestino(), -1);
+        }
+    }
+
+    /**
+     * OBTENER las k áreas con más traslados como origen o destino
+     * @param dias null para el histórico completo, o una de VENTANAS
+     */
+    public List<AreaEstadistica> getTopAreas(String tipo, Integer dias, int k) throws SQLException {
+        if (!TIPO_ORIGEN.equals(tipo) && !TIPO_DESTINO.equals(tipo)) {
+            throw new IllegalArgumentException("Tipo de área inválido: " + tipo);
+        }
+        validarVentana(dias);
+
+        List<Map.Entry<String, Long>> top;
+        synchronized (this) {
+            Agregado agregado = agregado(dias);
+            top = topK(TIPO_ORIGEN.equals(tipo) ? agregado.origen : agregado.destino, k);
+        }
+
+        List<AreaEstadistica> resultado = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : top) {
+            resultado.add(new AreaEstadistica(entry.getKey(), entry.getValue().intValue()));
+        }
+        return resultado;
+    }
+
+    /**
+     * OBTENER los k pares origen → destino con más traslados
+     */
+    public List<Map<String, Object>> getTopFlujos(Integer dias, int k) throws SQLException {
+        validarVentana(dias);
+
+        List<Map.Entry<String, Long>> top;
+        synchronized (this) {
+            Map<String, Long> pares = new HashMap<>();
+            agregado(dias).pares.forEach((origen, destinos) ->
+                    destinos.forEach((destino, total) -> pares.put(origen + "\u0000" + destino, total)));
+            top = topK(pares, k);
+        }
+
+        List<Map<String, Object>> resultado = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : top) {
+            String[] par = entry.getKey().split("\u0000", 2);
+            Map<String, Object> flujo = new LinkedHashMap<>();
+            flujo.put("area_origen", par[0]);
+            flujo.put("area_destino", par[1]);
+            flujo.put("total_traslados", entry.getValue());
+            resultado.add(flujo);
+        }
+        return resultado;
+    }
+
+    /**
+     * OBTENER la matriz origen → destino (filas y columnas ordenadas por nombre de área)
+     */
+    public Map<String, Object> getMatriz(Integer dias) throws SQLException {
+        validarVentana(dias);
+
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        synchronized (this) {
+            Agregado agregado = agregado(dias);
+
+            TreeSet<String> areas = new TreeSet<>(agregado.origen.keySet());
+            areas.addAll(agregado.destino.keySet());
+
+            Map<String, Map<String, Long>> matriz = new TreeMap<>();
+            agregado.pares.forEach((origen, destinos) -> matriz.put(origen, new TreeMap<>(destinos)));
+
+            resultado.put("dias", dias);
+            resultado.put("total_traslados", agregado.total);
+            resultado.put("areas", new ArrayList<>(areas));
+            resultado.put("matriz", matriz);
+            resultado.put("actualizado_en", new Date(actualizadoEn));
+        }
+        return resultado;
+    }
+
+    /**
+     * OBTENER el total de traslados del histórico o de una ventana
+     */
+    public long getTotal(Integer dias) throws SQLException {
+        validarVentana(dias);
+        synchronized (this) {
+            return agregado(dias).total;
+        }
+    }
+
+    /**
+     * RECONSTRUIR desde la base de datos de inmediato
+     * @return false si se aplicó un delta durante las consultas y el estado actual se conservó
+     */
+    public boolean reconstruir() throws SQLException {
+        LocalDate hoy = LocalDate.now();
+        long generacionInicial;
+        synchronized (this) {
+            generacionInicial = generacion;
+        }
+
+        // Consultas fuera del lock: las escrituras siguen aplicándose sobre el estado anterior
+        Estado nuevo = new Estado(hoy);
+        for (Flujo flujo : reporteTrasladoRepository.findFlujos(null)) {
+            nuevo.historico.sumar(flujo.getAreaOrigen(), flujo.getAreaDestino(), flujo.getTotal());
+        }
+        for (Flujo flujo : reporteTrasladoRepository.findFlujos(hoy.minusDays(CUBETAS - 1))) {
+            nuevo.sumarVentanas(flujo.getFecha(), flujo.getAreaOrigen(), flujo.getAreaDestino(), flujo.getTotal());
+        }
+
+        synchronized (this) {
+            if (generacion != generacionInicial) {
+                return false;
+            }
+            estado = nuevo;
+            actualizadoEn = System.currentTimeMillis();
+            return true;
+        }
+    }
+
+    // MÉTODOS AUXILIARES
+
+    private void reconciliar() {
+        try {
+            for (int intento = 1; intento <= INTENTOS_RECONCILIACION; intento++) {
+                if (reconstruir()) {
+                    return;
+                }
+            }
+            System.out.println("⚠️ Analítica de traslados: reconstrucción descartada por escrituras concurrentes, se reintenta en el siguiente ciclo");
+        } catch (Exception e) {
+            if (erroresReconciliacion++ % 10 == 0) {
+                System.err.println("⚠️ Error al reconstruir la analítica de traslados: " + e.getMessage());
+            }
+        }
+    }
+
+    private void aplicar(Date fecha, String areaOrigen, String areaDestino, long delta) {
+        if (fecha == null) {
+            return;
+        }
+        aplicar(toLocalDate(fecha), areaOrigen, areaDestino, delta);
+    }
+
+    private synchronized void aplicar(LocalDate fecha, String areaOrigen, String areaDestino, long delta) {
+        generacion++;
+        if (estado == null) {
+            // Aún no cargado: la primera reconstrucción que termine después incluirá este cambio
+            return;
+        }
+        estado.avanzar(LocalDate.now());
+        estado.historico.sumar(areaOrigen, areaDestino, delta);
+        estado.sumarVentanas(fecha, areaOrigen, areaDestino, delta);
+    }
+
+    /**
+     * Agregado del histórico o de la ventana; carga el estado si aún no existe (llamar con el lock)
+     */
+    private Agregado agregado(Integer dias) throws SQLException {
+        if (estado == null) {
+            // Con el lock tomado ningún delta puede aplicarse en medio: la carga siempre se instala
+            reconstruir();
+        }
+        estado.avanzar(LocalDate.now());
+        return dias == null ? estado.historico : estado.ventanas.get(dias);
+    }
+
+    private void validarVentana(Integer dias) {
+        if (dias != null && !VENTANAS.contains(dias)) {
+            throw new IllegalArgumentException("Ventana no soportada: " + dias + " días. Valores válidos: " + VENTANAS);
+        }
+    }
+
+    /**
+     * Los k mayores con un montículo mínimo de tamaño k (empates por nombre)
+     */
+    private static List<Map.Entry<String, Long>> topK(Map<String, Long> conteos, int k) {
+        Comparator<Map.Entry<String, Long>> orden = Map.Entry.<String, Long>comparingByValue()
+                .thenComparing(Map.Entry.<String, Long>comparingByKey().reversed());
+
+        PriorityQueue<Map.Entry<String, Long>> heap = new PriorityQueue<>(orden);
+        for (Map.Entry<String, Long> entry : conteos.entrySet()) {
+            heap.offer(Map.entry(entry.getKey(), entry.getValue()));
+            if (heap.size() > k) {
+                heap.poll();
+            }
+        }
+
+        List<Map.Entry<String, Long>> resultado = new ArrayList<>(heap);
+        resultado.sort(orden.reversed());
+        return resultado;
+    }
+
+    private static LocalDate toLocalDate(Date fecha) {
+        if (fecha instanceof java.sql.Date) {
+            return ((java.sql.Date) fecha).toLocalDate();
+        }
+        return fecha.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    /**
+     * Histórico, cubetas diarias y ventanas a partir de un día de referencia
+     */
+    private static class Estado {
+        private final Agregado historico = new Agregado();
+        private final Agregado[] cubetas = new Agregado[CUBETAS];
+        private final Map<Integer, Agregado> ventanas = new HashMap<>();
+        private LocalDate hoy;
+
+        Estado(LocalDate hoy) {
+            this.hoy = hoy;
+            for (Integer dias : VENTANAS) {
+                ventanas.put(dias, new Agregado());
+            }
+        }
+
+        void sumarVentanas(LocalDate fecha, String areaOrigen, String areaDestino, long delta) {
+            long antiguedad = hoy.toEpochDay() - fecha.toEpochDay();
+            if (antiguedad < 0 || antiguedad >= CUBETAS) {
+                // Fuera del anillo: futuro (entra en la siguiente reconciliación) o más antiguo que 365 días
+                return;
+            }
+            cubeta(fecha).sumar(areaOrigen, areaDestino, delta);
+            for (Map.Entry<Integer, Agregado> ventana : ventanas.entrySet()) {
+                if (antiguedad < ventana.getKey()) {
+                    ventana.getValue().sumar(areaOrigen, areaDestino, delta);
+                }
+            }
+        }
+
+        /**
+         * Avanzar el día de referencia: cada ventana resta las cubetas que dejan de cubrirse
+         * y se liberan las cubetas que salen del anillo
+         */
+        void avanzar(LocalDate nuevoHoy) {
+            if (!nuevoHoy.isAfter(hoy)) {
+                return;
+            }
+
+            long pasos = nuevoHoy.toEpochDay() - hoy.toEpochDay();
+            if (pasos >= CUBETAS) {
+                Arrays.fill(cubetas, null);
+                ventanas.replaceAll((dias, agregado) -> new Agregado());
+                hoy = nuevoHoy;
+                return;
+            }
+
+            for (long i = 0; i < pasos; i++) {
+                hoy = hoy.plusDays(1);
+                for (Map.Entry<Integer, Agregado> ventana : ventanas.entrySet()) {
+                    Agregado saliente = cubetas[indice(hoy.minusDays(ventana.getKey()))];
+                    if (saliente != null) {
+                        ventana.getValue().restar(saliente);
+                    }
+                }
+                // La posición del día más antiguo pasa a ser la del nuevo día
+                cubetas[indice(hoy)] = null;
+            }
+        }
+
+        private Agregado cubeta(LocalDate fecha) {
+            int i = indice(fecha);
+            if (cubetas[i] == null) {
+                cubetas[i] = new Agregado();
+            }
+            return cubetas[i];
+        }
+
+        private static int indice(LocalDate fecha) {
+            return (int) Math.floorMod(fecha.toEpochDay(), (long) CUBETAS);
+        }
+    }
+
+    /**
+     * Conteos por par origen → destino y por área
+     */
+    private static class Agregado {
+        private final Map<String, Map<String, Long>> pares = new HashMap<>();
+        private final Map<String, Long> origen = new HashMap<>();
+        private final Map<String, Long> destino = new HashMap<>();
+        private long total = 0;
+
+        void sumar(String areaOrigen, String areaDestino, long delta) {
+            Map<String, Long> destinos = pares.computeIfAbsent(areaOrigen, k -> new HashMap<>());
+            sumar(destinos, areaDestino, delta);
+            if (destinos.isEmpty()) {
+                pares.remove(areaOrigen);
+            }
+            sumar(origen, areaOrigen, delta);
+            sumar(destino, areaDestino, delta);
+            total += delta;
+        }
+
+        void restar(Agregado otro) {
+            otro.pares.forEach((areaOrigen, destinos) ->
+                    destinos.forEach((areaDestino, n) -> sumar(areaOrigen, areaDestino, -n)));
+        }
+
+        private static void sumar(Map<String, Long> conteos, String clave, long delta) {
+            conteos.merge(clave, delta, (a, b) -> a + b == 0 ? null : a + b);
+        }
+    }
+}
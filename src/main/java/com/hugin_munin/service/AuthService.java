@@ -1,18 +1,27 @@
 package com.hugin_munin.service;
 
+import com.hugin_munin.config.DatabaseConfig;
+import com.hugin_munin.model.Sesion;
 import com.hugin_munin.model.Usuario;
+import com.hugin_munin.repository.SessionStore;
 import com.hugin_munin.repository.UsuarioRepository;
 
 import java.sql.SQLException;
+import java.util.Locale;
 import java.util.Map;
-import java.util.List;
-import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.UUID;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.nio.charset.StandardCharsets;
-import java.util.Date;
 
 /**
  * Servicio de autenticación CORREGIDO - Sistema unificado
@@ -22,19 +31,51 @@ public class AuthService {
 
     private final UsuarioRepository usuarioRepository;
 
-    // Almacén de sesiones en memoria (sessionId -> SessionData)
-    private final Map<String, SessionData> activeSessions = new ConcurrentHashMap<>();
+    // Almacén de sesiones (en memoria o en base de datos según SESSION_STORE)
+    private final SessionStore sessionStore;
 
     // Tiempo de expiración de sesión en milisegundos (30 días)
     private static final long SESSION_DURATION = 30L * 24 * 60 * 60 * 1000; // 30 días
 
-    public AuthService(UsuarioRepository usuarioRepository) {
+    // Máximo de usuarios con intentos fallidos registrados antes de purgar entradas vencidas
+    private static final int MAX_REGISTROS_FALLOS = 10_000;
+
+    // Verificación de contraseñas en un ejecutor dedicado y acotado (no en los hilos de Jetty)
+    private final ThreadPoolExecutor verificador;
+    private final long verificacionTimeoutMs;
+
+    // Intentos fallidos por nombre de usuario: tras varios fallos se rechaza sin consultar la BD
+    private final Map<String, IntentosFallidos> intentosFallidos = new ConcurrentHashMap<>();
+    private final int maxFallos;
+    private final long bloqueoMs;
+
+    public AuthService(UsuarioRepository usuarioRepository, SessionStore sessionStore) {
         this.usuarioRepository = usuarioRepository;
+        this.sessionStore = sessionStore;
+
+        int hilos = Math.max(1, DatabaseConfig.getIntSetting("AUTH_VERIFY_THREADS", 2));
+        int cola = Math.max(1, DatabaseConfig.getIntSetting("AUTH_VERIFY_QUEUE", 64));
+        this.verificacionTimeoutMs = DatabaseConfig.getIntSetting("AUTH_VERIFY_TIMEOUT_MS", 5000);
+        this.maxFallos = Math.max(1, DatabaseConfig.getIntSetting("AUTH_MAX_FAILURES", 5));
+        this.bloqueoMs = DatabaseConfig.getIntSetting("AUTH_LOCKOUT_MS", 60000);
+
+        AtomicInteger contador = new AtomicInteger();
+        this.verificador = new ThreadPoolExecutor(hilos, hilos, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(cola),
+                r -> {
+                    Thread thread = new Thread(r, "AuthVerify-" + contador.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
         startSessionCleanup();
     }
 
     /**
      * Autenticar usuario con nombre y contraseña
+     * Búsqueda exacta por nombre (indexada) y verificación de la contraseña en el ejecutor dedicado.
+     * Lanza RejectedExecutionException si el ejecutor está saturado.
      */
     public Usuario authenticate(String nombreUsuario, String contrasena) throws SQLException {
         if (nombreUsuario == null || nombreUsuario.trim().isEmpty() ||
@@ -42,32 +83,57 @@ public class AuthService {
             return null;
         }
 
-        // Buscar usuario por nombre
-        List<Usuario> usuarios = usuarioRepository.findByName(nombreUsuario.trim());
-        Usuario usuario = usuarios.stream()
-                .filter(u -> u.getNombre_usuario().equals(nombreUsuario.trim()))
+        String nombre = nombreUsuario.trim();
+
+        // Rechazar sin consultar la BD mientras el usuario esté bloqueado por intentos fallidos
+        if (getSegundosBloqueo(nombre) > 0) {
+            System.out.println("⛔ Usuario bloqueado temporalmente por intentos fallidos: " + nombre);
+            return null;
+        }
+
+        // Buscar usuario por nombre exacto
+        Usuario usuario = usuarioRepository.findByExactName(nombre).stream()
+                .filter(u -> u.getNombre_usuario().equals(nombre))
                 .findFirst()
                 .orElse(null);
 
         if (usuario == null) {
             System.out.println("❌ Usuario no encontrado: " + nombreUsuario);
+            registrarFallo(nombre);
             return null;
         }
 
         // Verificar contraseña
-        if (verifyPassword(contrasena, usuario.getContrasena())) {
+        if (verifyPasswordAsync(contrasena, usuario.getContrasena())) {
+            intentosFallidos.remove(claveFallos(nombre));
             System.out.println("✅ Usuario autenticado: " + usuario.getNombre_usuario());
             return usuario;
         }
 
+        registrarFallo(nombre);
         System.out.println("❌ Contraseña incorrecta para: " + nombreUsuario);
         return null;
     }
 
+    /**
+     * Segundos restantes de bloqueo por intentos fallidos (0 si no está bloqueado)
+     */
+    public long getSegundosBloqueo(String nombreUsuario) {
+        if (nombreUsuario == null) {
+            return 0;
+        }
+        IntentosFallidos intentos = intentosFallidos.get(claveFallos(nombreUsuario.trim()));
+        if (intentos == null) {
+            return 0;
+        }
+        long restante = intentos.getBloqueadoHasta() - System.currentTimeMillis();
+        return restante > 0 ? TimeUnit.MILLISECONDS.toSeconds(restante) + 1 : 0;
+    }
+
     /**
      * Crear nueva sesión para usuario autenticado
      */
-    public String createSession(Usuario usuario) {
+    public String createSession(Usuario usuario) throws SQLException {
         // LIMPIAR sesiones previas del mismo usuario primero
         invalidateAllUserSessions(usuario.getId_usuario());
 
@@ -75,19 +141,20 @@ public class AuthService {
         String sessionId = generateSessionId();
 
         // Crear datos de sesión
-        SessionData sessionData = new SessionData(
+        long ahora = System.currentTimeMillis();
+        Sesion sesion = new Sesion(
                 sessionId,
                 usuario.getId_usuario(),
                 usuario.getNombre_usuario(),
-                new Date(),
-                new Date(System.currentTimeMillis() + SESSION_DURATION)
+                ahora,
+                ahora + SESSION_DURATION
         );
 
         // Almacenar sesión
-        activeSessions.put(sessionId, sessionData);
+        sessionStore.save(sesion);
 
         System.out.println("🔐 Nueva sesión creada para usuario: " + usuario.getNombre_usuario() +
-                " (ID: " + sessionId + ") - Total sesiones activas: " + activeSessions.size());
+                " (ID: " + sessionId + ")");
 
         return sessionId;
     }
@@ -101,29 +168,30 @@ public class AuthService {
             return null;
         }
 
-        SessionData sessionData = activeSessions.get(sessionId);
-        if (sessionData == null) {
+        Sesion sesion = sessionStore.findById(sessionId);
+        if (sesion == null) {
             System.out.println("⚠️ Sesión no encontrada: " + sessionId);
             return null;
         }
 
         // Verificar si la sesión ha expirado
-        if (sessionData.isExpired()) {
+        if (sesion.isExpired()) {
             System.out.println("⚠️ Sesión expirada: " + sessionId);
-            activeSessions.remove(sessionId);
+            sessionStore.remove(sessionId);
             return null;
         }
 
         // Obtener usuario actualizado de la base de datos
-        Usuario usuario = usuarioRepository.findById(sessionData.getUserId());
+        Usuario usuario = usuarioRepository.findById(sesion.getUserId());
         if (usuario == null || !usuario.isActivo()) {
-            System.out.println("⚠️ Usuario eliminado o desactivado: " + sessionData.getUserId());
-            activeSessions.remove(sessionId);
+            System.out.println("⚠️ Usuario eliminado o desactivado: " + sesion.getUserId());
+            sessionStore.remove(sessionId);
             return null;
         }
 
-        // Actualizar última actividad
-        sessionData.updateActivity();
+        // Actualizar última actividad (el almacén puede diferir la escritura)
+        sesion.updateActivity(SESSION_DURATION);
+        sessionStore.touch(sesion);
         System.out.println("✅ Sesión válida para: " + usuario.getNombre_usuario());
 
         return usuario;
@@ -132,12 +200,12 @@ public class AuthService {
     /**
      * Invalidar sesión específica - VERSIÓN CORREGIDA
      */
-    public boolean invalidateSession(String sessionId) {
+    public boolean invalidateSession(String sessionId) throws SQLException {
         if (sessionId == null || sessionId.trim().isEmpty()) {
             return false;
         }
 
-        SessionData session = activeSessions.remove(sessionId);
+        Sesion session = sessionStore.remove(sessionId);
         if (session != null) {
             System.out.println("🔐 Sesión invalidada: " + sessionId +
                     " (Usuario: " + session.getUsername() + ")");
@@ -151,22 +219,8 @@ public class AuthService {
     /**
      * Invalidar todas las sesiones de un usuario - MEJORADO
      */
-    public void invalidateAllUserSessions(Integer userId) {
-        int removed = 0;
-        List<String> sessionsToRemove = new ArrayList<>();
-
-        // Identificar sesiones a remover
-        for (Map.Entry<String, SessionData> entry : activeSessions.entrySet()) {
-            if (entry.getValue().getUserId().equals(userId)) {
-                sessionsToRemove.add(entry.getKey());
-            }
-        }
-
-        // Remover sesiones
-        for (String sessionId : sessionsToRemove) {
-            activeSessions.remove(sessionId);
-            removed++;
-        }
+    public void invalidateAllUserSessions(Integer userId) throws SQLException {
+        int removed = sessionStore.removeByUser(userId);
 
         if (removed > 0) {
             System.out.println("🔐 " + removed + " sesiones invalidadas para usuario ID: " + userId);
@@ -206,22 +260,65 @@ public class AuthService {
     /**
      * Obtener información de sesiones activas
      */
-    public Map<String, Object> getSessionInfo() {
-        int totalSessions = activeSessions.size();
-        long expiredSessions = activeSessions.values().stream()
-                .mapToLong(session -> session.isExpired() ? 1 : 0)
-                .sum();
+    public Map<String, Object> getSessionInfo() throws SQLException {
+        int totalSessions = sessionStore.count();
+        long expiredSessions = sessionStore.countExpired();
 
         Map<String, Object> info = new ConcurrentHashMap<>();
         info.put("total_sesiones_activas", totalSessions);
         info.put("sesiones_expiradas", expiredSessions);
         info.put("sesiones_validas", totalSessions - expiredSessions);
+        info.put("almacen", sessionStore.getClass().getSimpleName());
+        info.put("usuarios_con_fallos", intentosFallidos.size());
+        info.put("verificaciones_en_cola", verificador.getQueue().size());
+        info.put("verificaciones_activas", verificador.getActiveCount());
 
         return info;
     }
 
     // MÉTODOS PRIVADOS
 
+    /**
+     * Verificar contraseña en el ejecutor dedicado; el hilo de la petición solo espera el resultado
+     */
+    private boolean verifyPasswordAsync(String plainPassword, String hashedPassword) {
+        Future<Boolean> resultado = verificador.submit(() -> verifyPassword(plainPassword, hashedPassword));
+        try {
+            return resultado.get(verificacionTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            resultado.cancel(true);
+            throw new RejectedExecutionException("Tiempo de verificación de credenciales agotado");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Verificación de credenciales interrumpida");
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error al verificar credenciales", e.getCause());
+        }
+    }
+
+    /**
+     * Registrar un intento fallido; al alcanzar el máximo se bloquea el usuario por bloqueoMs
+     */
+    private void registrarFallo(String nombreUsuario) {
+        if (intentosFallidos.size() >= MAX_REGISTROS_FALLOS) {
+            long ahora = System.currentTimeMillis();
+            intentosFallidos.values().removeIf(i -> i.isVencido(ahora, bloqueoMs));
+        }
+
+        intentosFallidos.compute(claveFallos(nombreUsuario), (clave, intentos) -> {
+            long ahora = System.currentTimeMillis();
+            if (intentos == null || intentos.isVencido(ahora, bloqueoMs)) {
+                intentos = new IntentosFallidos();
+            }
+            intentos.registrar(ahora, maxFallos, bloqueoMs);
+            return intentos;
+        });
+    }
+
+    private String claveFallos(String nombreUsuario) {
+        return nombreUsuario.toLowerCase(Locale.ROOT);
+    }
+
     /**
      * Verificar contraseña - MEJORADO
      */
@@ -278,10 +375,12 @@ public class AuthService {
      * Iniciar hilo de limpieza de sesiones expiradas
      */
     private void startSessionCleanup() {
+        // Cada tick solo revisa la ranura de la rueda de expiración que vence (ver SessionRegistry)
+        long intervaloMs = Math.max(1000, DatabaseConfig.getIntSetting("SESSION_CLEANUP_INTERVAL_MS", 60000));
         Thread cleanupThread = new Thread(() -> {
             while (true) {
                 try {
-                    Thread.sleep(30 * 60 * 1000); // Cada 30 minutos
+                    Thread.sleep(intervaloMs);
                     int removedCount = cleanupExpiredSessions();
                     if (removedCount > 0) {
                         System.out.println("🧹 Limpieza de sesiones: " + removedCount + " sesiones expiradas eliminadas");
@@ -303,58 +402,34 @@ public class AuthService {
     /**
      * Limpiar sesiones expiradas
      */
-    private int cleanupExpiredSessions() {
-        List<String> expiredSessions = new ArrayList<>();
-
-        for (Map.Entry<String, SessionData> entry : activeSessions.entrySet()) {
-            if (entry.getValue().isExpired()) {
-                expiredSessions.add(entry.getKey());
-            }
-        }
-
-        for (String sessionId : expiredSessions) {
-            activeSessions.remove(sessionId);
-        }
-
-        return expiredSessions.size();
+    private int cleanupExpiredSessions() throws SQLException {
+        return sessionStore.removeExpired();
     }
 
     /**
-     * Clase interna para almacenar datos de sesión
+     * Contador de intentos fallidos de un usuario
      */
-    private static class SessionData {
-        private final String sessionId;
-        private final Integer userId;
-        private final String username;
-        private final Date createdAt;
-        private Date expiresAt;
-        private Date lastActivity;
-
-        public SessionData(String sessionId, Integer userId, String username, Date createdAt, Date expiresAt) {
-            this.sessionId = sessionId;
-            this.userId = userId;
-            this.username = username;
-            this.createdAt = createdAt;
-            this.expiresAt = expiresAt;
-            this.lastActivity = new Date();
-        }
-
-        public boolean isExpired() {
-            return new Date().after(expiresAt);
+    private static class IntentosFallidos {
+        private int fallos;
+        private long ultimoFallo;
+        private long bloqueadoHasta;
+
+        void registrar(long ahora, int maxFallos, long bloqueoMs) {
+            fallos++;
+            ultimoFallo = ahora;
+            if (fallos >= maxFallos) {
+                bloqueadoHasta = ahora + bloqueoMs;
+                fallos = 0;
+            }
         }
 
-        public void updateActivity() {
-            this.lastActivity = new Date();
-            // Extender expiración por actividad
-            this.expiresAt = new Date(System.currentTimeMillis() + SESSION_DURATION);
+        /**
+         * Sin fallos recientes ni bloqueo vigente: el contador puede descartarse
+         */
+        boolean isVencido(long ahora, long bloqueoMs) {
+            return bloqueadoHasta < ahora && ahora - ultimoFallo > bloqueoMs;
         }
 
-        // Getters
-        public String getSessionId() { return sessionId; }
-        public Integer getUserId() { return userId; }
-        public String getUsername() { return username; }
-        public Date getCreatedAt() { return createdAt; }
-        public Date getExpiresAt() { return expiresAt; }
-        public Date getLastActivity() { return lastActivity; }
+        long getBloqueadoHasta() { return bloqueadoHasta; }
     }
 }
\ No newline at end of file
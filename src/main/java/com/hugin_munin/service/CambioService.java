@@ -0,0 +1,193 @@
+package com.hugin_munin.service;
+
+import com.hugin_munin.config.DatabaseConfig;
+import com.hugin_munin.repository.CambioRepository;
+import com.hugin_munin.repository.CambioRepository.Cambio;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Lector del registro de cambios para invalidar cachés locales entre instancias
+ * - Cada CHANGELOG_POLL_MS lee las filas con id_cambio mayor al último visto (rango de la PK)
+ * - Los ids saltados (transacciones aún sin confirmar) se vuelven a consultar durante
+ *   CHANGELOG_GAP_TIMEOUT_MS; pasado ese tiempo se asumen revertidos
+ * - También aplica los cambios de esta misma instancia: las invalidaciones son idempotentes y así
+ *   se cubren escrituras que no notifican en proceso
+ * - Los handlers por lote reciben juntas las claves de cada lectura (una consulta por ciclo, no por clave)
+ * - Purga periódicamente las filas más antiguas que CHANGELOG_RETENTION_MS
+ */
+public class CambioService {
+
+    private static final int LOTE_LECTURA = 500;
+    private static final int MAX_HUECOS = 1000;
+    private static final int LOTE_PURGA = 10000;
+    private static final long INTERVALO_PURGA_MS = 10 * 60 * 1000;
+
+    private final CambioRepository cambioRepository;
+    private final Map<String, List<Consumer<String>>> handlers = new ConcurrentHashMap<>();
+    private final Map<String, List<Consumer<Set<String>>>> handlersLote = new ConcurrentHashMap<>();
+    private final long gapTimeoutMs;
+    private final long retencionMs;
+    private final ScheduledExecutorService scheduler;
+
+    // Estado del lector (solo lo modifica el hilo del scheduler)
+    private long ultimoId = -1;
+    private final Map<Long, Long> huecos = new LinkedHashMap<>();
+    private final Map<String, Set<String>> pendientesLote = new LinkedHashMap<>();
+    private long ultimaPurga = System.currentTimeMillis();
+    private long erroresLectura = 0;
+
+    public CambioService(CambioRepository cambioRepository) {
+        this.cambioRepository = cambioRepository;
+        this.gapTimeoutMs = DatabaseConfig.getIntSetting("CHANGELOG_GAP_TIMEOUT_MS", 10000);
+        this.retencionMs = DatabaseConfig.getIntSetting("CHANGELOG_RETENTION_MS", 3600000);
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "CambioPoller");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        int intervaloMs = DatabaseConfig.getIntSetting("CHANGELOG_POLL_MS", 500);
+        if (intervaloMs > 0) {
+            scheduler.scheduleWithFixedDelay(this::poll, intervaloMs, intervaloMs, TimeUnit.MILLISECONDS);
+            System.out.println("🔄 Registro de cambios activo (nodo " + CambioRepository.getNodo() +
+                    ", lectura cada " + intervaloMs + " ms)");
+        }
+    }
+
+    /**
+     * REGISTRAR un handler que recibe la clave de cada cambio de la tabla lógica indicada
+     * Debe ser rápido e idempotente (normalmente invalida una entrada de caché)
+     */
+    public void addHandler(String tabla, Consumer<String> handler) {
+        handlers.computeIfAbsent(tabla, k -> new CopyOnWriteArrayList<>()).add(handler);
+    }
+
+    /**
+     * REGISTRAR un handler que recibe, una vez por lectura del registro, todas las claves
+     * (sin repetir) que cambiaron en la tabla lógica indicada
+     */
+    public void addBatchHandler(String tabla, Consumer<Set<String>> handler) {
+        handlersLote.computeIfAbsent(tabla, k -> new CopyOnWriteArrayList<>()).add(handler);
+    }
+
+    // MÉTODOS AUXILIARES
+
+    /**
+     * Leer los cambios nuevos y aplicarlos (package-private para pruebas)
+     */
+    void poll() {
+        try {
+            if (ultimoId < 0) {
+                // Arranque: solo interesan los cambios posteriores, las cachés empiezan vacías
+                ultimoId = cambioRepository.findMaxId();
+                return;
+            }
+
+            long ahora = System.currentTimeMillis();
+            revisarHuecos(ahora);
+
+            List<Cambio> cambios;
+            do {
+                cambios = cambioRepository.findDesde(ultimoId, LOTE_LECTURA);
+                for (Cambio cambio : cambios) {
+                    // Ids saltados: transacciones que confirmarán después o que se revirtieron
+                    for (long id = ultimoId + 1; id < cambio.getId() && huecos.size() < MAX_HUECOS; id++) {
+                        huecos.put(id, ahora);
+                    }
+                    aplicar(cambio);
+                    ultimoId = cambio.getId();
+                }
+            } while (cambios.size() == LOTE_LECTURA);
+
+            if (ahora - ultimaPurga >= INTERVALO_PURGA_MS) {
+                ultimaPurga = ahora;
+                int purgados = cambioRepository.purgeAntesDe(ahora - retencionMs, LOTE_PURGA);
+                if (purgados > 0) {
+                    System.out.println("🧹 Registro de cambios: " + purgados + " filas antiguas eliminadas");
+                }
+            }
+
+        } catch (Exception e) {
+            if (erroresLectura++ % 100 == 0) {
+                System.err.println("⚠️ Error al leer el registro de cambios: " + e.getMessage());
+            }
+        } finally {
+            // También si la lectura falló a medias: esos cambios ya se marcaron como vistos
+            entregarLotes();
+        }
+    }
+
+    /**
+     * Volver a consultar los ids saltados; los encontrados se aplican y los vencidos se descartan
+     */
+    private void revisarHuecos(long ahora) throws SQLException {
+        if (huecos.isEmpty()) {
+            return;
+        }
+
+        for (Cambio cambio : cambioRepository.findByIds(new ArrayList<>(huecos.keySet()))) {
+            aplicar(cambio);
+            huecos.remove(cambio.getId());
+        }
+
+        Iterator<Map.Entry<Long, Long>> it = huecos.entrySet().iterator();
+        while (it.hasNext()) {
+            if (ahora - it.next().getValue() > gapTimeoutMs) {
+                it.remove();
+            }
+        }
+    }
+
+    private void aplicar(Cambio cambio) {
+        if (handlersLote.containsKey(cambio.getTabla())) {
+            pendientesLote.computeIfAbsent(cambio.getTabla(), k -> new LinkedHashSet<>()).add(cambio.getClave());
+        }
+
+        List<Consumer<String>> lista = handlers.get(cambio.getTabla());
+        if (lista == null) {
+            return;
+        }
+        for (Consumer<String> handler : lista) {
+            try {
+                handler.accept(cambio.getClave());
+            } catch (Exception e) {
+                System.err.println("⚠️ Error al aplicar cambio " + cambio.getTabla() + ":" + cambio.getClave() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Entregar a los handlers por lote las claves acumuladas en la lectura
+     */
+    private void entregarLotes() {
+        if (pendientesLote.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<String, Set<String>> pendiente : pendientesLote.entrySet()) {
+            for (Consumer<Set<String>> handler : handlersLote.getOrDefault(pendiente.getKey(), List.of())) {
+                try {
+                    handler.accept(pendiente.getValue());
+                } catch (Exception e) {
+                    System.err.println("⚠️ Error al aplicar " + pendiente.getValue().size() + " cambios de "
+                            + pendiente.getKey() + ": " + e.getMessage());
+                }
+            }
+        }
+        pendientesLote.clear();
+    }
+}
@@ -17,6 +17,8 @@ public class CausaBajaService {
 
     private final CausaBajaRepository causaBajaRepository;
 
+    private final SingleFlight vuelos = new SingleFlight();
+
     public CausaBajaService(CausaBajaRepository causaBajaRepository) {
         this.causaBajaRepository = causaBajaRepository;
     }
@@ -25,7 +27,7 @@ public class CausaBajaService {
      * OBTENER todas las causas de baja
      */
     public List<CausaBaja> getAllCausas() throws SQLException {
-        return causaBajaRepository.findAll();
+        return vuelos.ejecutar("getAllCausas", causaBajaRepository::findAll);
     }
 
     /**
@@ -68,7 +70,9 @@ public class CausaBajaService {
         causa.setNombre_causa_baja(capitalizeWords(causa.getNombre_causa_baja().trim()));
 
         // Guardar causa
-        return causaBajaRepository.save(causa);
+        CausaBaja creado = causaBajaRepository.save(causa);
+        vuelos.invalidar();
+        return creado;
     }
 
     /**
@@ -99,6 +103,7 @@ public class CausaBajaService {
 
         // Actualizar causa
         boolean updated = causaBajaRepository.update(causa);
+        vuelos.invalidar();
         if (!updated) {
             throw new SQLException("No se pudo actualizar la causa de baja");
         }
@@ -125,7 +130,9 @@ public class CausaBajaService {
         }
 
         // Eliminar causa
-        return causaBajaRepository.deleteById(id);
+        boolean eliminado = causaBajaRepository.deleteById(id);
+        vuelos.invalidar();
+        return eliminado;
     }
 
     /**
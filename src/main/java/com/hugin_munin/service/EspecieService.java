@@ -8,6 +8,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Servicio para gestionar especies
@@ -16,6 +17,8 @@ import java.util.Optional;
 public class EspecieService {
     private final EspecieRepository especieRepository;
 
+    private final SingleFlight vuelos = new SingleFlight();
+
     public EspecieService(EspecieRepository especieRepository) {
         this.especieRepository = especieRepository;
     }
@@ -24,7 +27,7 @@ public class EspecieService {
      * Obtener todas las especies
      */
     public List<Especie> getAllSpecies() throws SQLException {
-        return especieRepository.findAllSpecies();
+        return vuelos.ejecutar("getAllSpecies", especieRepository::findAllSpecies);
     }
 
     /**
@@ -66,7 +69,9 @@ public class EspecieService {
         especie.setGenero(normalizeText(especie.getGenero()));
         especie.setEspecie(normalizeText(especie.getEspecie()));
 
-        return especieRepository.saveSpecie(especie);
+        Especie creada = especieRepository.saveSpecie(especie);
+        vuelos.invalidar();
+        return creada;
     }
 
     /**
@@ -104,6 +109,7 @@ public class EspecieService {
 
         // Actualizar especie
         boolean updated = especieRepository.update(especie);
+        vuelos.invalidar();
         if (!updated) {
             throw new SQLException("No se pudo actualizar la especie");
         }
@@ -111,6 +117,54 @@ public class EspecieService {
         return especie;
     }
 
+    /**
+     * Actualización parcial (JSON Merge Patch): solo genero y/o especie
+     * Solo se escriben las columnas presentes; la especie actual se lee únicamente si hace falta
+     * para verificar la combinación género + especie
+     */
+    public Especie patchSpecie(Integer id, Map<String, Object> parche) throws SQLException {
+        if (id == null || id <= 0) {
+            throw new IllegalArgumentException("ID de la especie requerido para actualización");
+        }
+
+        ParcheJson parcheJson = new ParcheJson(parche, Set.of("genero", "especie"));
+        String genero = parcheJson.texto("genero", 2, 50, "El género");
+        String nombreEspecie = parcheJson.texto("especie", 2, 100, "La especie");
+        if (parcheJson.getColumnas().isEmpty()) {
+            return getSpecieById(id);
+        }
+
+        if (genero != null) {
+            validateNamePart(genero, "El género");
+            genero = normalizeText(genero);
+            parcheJson.getColumnas().put("genero", genero);
+        }
+        if (nombreEspecie != null) {
+            validateNamePart(nombreEspecie, "La especie");
+            nombreEspecie = normalizeText(nombreEspecie);
+            parcheJson.getColumnas().put("especie", nombreEspecie);
+        }
+
+        // Completar la combinación con el valor actual del campo que no viene en el parche
+        if (genero == null || nombreEspecie == null) {
+            Especie actual = getSpecieById(id);
+            genero = genero != null ? genero : actual.getGenero();
+            nombreEspecie = nombreEspecie != null ? nombreEspecie : actual.getEspecie();
+        }
+        if (especieRepository.existsByGeneroAndEspecie(genero, nombreEspecie)) {
+            List<Especie> especiesExistentes = especieRepository.findSpeciesByScientificName(genero + " " + nombreEspecie);
+            if (!especiesExistentes.isEmpty() && !especiesExistentes.get(0).getId_especie().equals(id)) {
+                throw new IllegalArgumentException("Ya existe otra especie con este género y especie");
+            }
+        }
+
+        if (!especieRepository.patch(id, parcheJson.getColumnas())) {
+            throw new IllegalArgumentException("Especie no encontrada con ID: " + id);
+        }
+        vuelos.invalidar();
+        return getSpecieById(id);
+    }
+
     /**
      * Eliminar especie
      */
@@ -129,7 +183,9 @@ public class EspecieService {
             throw new IllegalArgumentException("No se puede eliminar la especie porque está siendo usada por especímenes");
         }
 
-        return especieRepository.deleteById(id);
+        boolean eliminada = especieRepository.deleteById(id);
+        vuelos.invalidar();
+        return eliminada;
     }
 
     /**
@@ -165,7 +221,9 @@ public class EspecieService {
         // Validar antes de crear
         validateSpeciesData(nuevaEspecie);
 
-        return especieRepository.saveSpecie(nuevaEspecie);
+        Especie creada = especieRepository.saveSpecie(nuevaEspecie);
+        vuelos.invalidar();
+        return creada;
     }
 
     /**
@@ -244,6 +302,18 @@ public class EspecieService {
         }
     }
 
+    /**
+     * Validar caracteres de un género o especie enviado en un parche (mismas reglas que validateSpeciesData)
+     */
+    private void validateNamePart(String valor, String descripcion) {
+        if (!valor.matches("^[a-zA-ZáéíóúÁÉÍÓÚñÑ\\s-]+$")) {
+            throw new IllegalArgumentException(descripcion + " solo puede contener letras, espacios y guiones");
+        }
+        if (valor.startsWith("-") || valor.endsWith("-")) {
+            throw new IllegalArgumentException(descripcion + " no puede empezar o terminar con guiones");
+        }
+    }
+
     /**
      * Normalizar texto para nombres científicos
      * Primera letra mayúscula, resto minúscula
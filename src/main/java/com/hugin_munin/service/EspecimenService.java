@@ -1,19 +1,28 @@
 package com.hugin_munin.service;
 
+import com.hugin_munin.config.DatabaseConfig;
 import com.hugin_munin.model.Especimen;
 import com.hugin_munin.model.Especie;
 import com.hugin_munin.model.RegistroAlta;
+import com.hugin_munin.repository.CambioRepository;
+import com.hugin_munin.repository.ConflictoVersionException;
 import com.hugin_munin.repository.EspecimenRepository;
 import com.hugin_munin.repository.EspecieRepository;
 import com.hugin_munin.repository.RegistroAltaRepository;
 import com.hugin_munin.repository.UsuarioRepository;
 import com.hugin_munin.repository.OrigenAltaRepository;
 
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Optional;
+import java.util.Set;
 import java.util.Date;
 import java.text.SimpleDateFormat;
 
@@ -22,22 +31,52 @@ import java.text.SimpleDateFormat;
  * Incluye todos los métodos necesarios para el registro unificado
  */
 public class EspecimenService {
+    private static final int TIMELINE_DEFAULT_LIMIT = 50;
+    private static final int TIMELINE_MAX_LIMIT = 200;
+    private static final int BULK_MAX_IDS = 5000;
+    private static final int CACHE_AGREGADOS_DEFAULT = 2000;
+
     private final EspecimenRepository especimenRepository;
     private final EspecieRepository especieRepository;
     private final RegistroAltaRepository registroAltaRepository;
     private final UsuarioRepository usuarioRepository;
     private final OrigenAltaRepository origenAltaRepository;
 
+    // Agregados de getSpecimenWithAllData por id_especimen (LRU acotado por ESPECIMEN_CACHE_SIZE)
+    private final LruCache<Integer, Map<String, Object>> cacheAgregados;
+
+    // Lecturas idénticas concurrentes (estadísticas, paginación, agregados) comparten una sola ejecución
+    private final SingleFlight vuelos = new SingleFlight();
+
     public EspecimenService(EspecimenRepository especimenRepository,
                             EspecieRepository especieRepository,
                             RegistroAltaRepository registroAltaRepository,
                             UsuarioRepository usuarioRepository,
-                            OrigenAltaRepository origenAltaRepository) {
+                            OrigenAltaRepository origenAltaRepository,
+                            EventoService eventoService,
+                            CambioService cambioService) {
         this.especimenRepository = especimenRepository;
         this.especieRepository = especieRepository;
         this.registroAltaRepository = registroAltaRepository;
         this.usuarioRepository = usuarioRepository;
         this.origenAltaRepository = origenAltaRepository;
+        this.cacheAgregados = new LruCache<>("especimen_agregado",
+                Math.max(1, DatabaseConfig.getIntSetting("ESPECIMEN_CACHE_SIZE", CACHE_AGREGADOS_DEFAULT)));
+
+        // Altas, bajas, traslados y cambios de registros de alta invalidan el agregado del especimen
+        eventoService.addListener(evento -> {
+            Object idEspecimen = evento.get("id_especimen");
+            if (idEspecimen instanceof Integer) {
+                invalidateSpecimenCache((Integer) idEspecimen);
+            }
+        });
+
+        // Escrituras de cualquier instancia registradas en el registro de cambios
+        cambioService.addHandler(CambioRepository.TABLA_ESPECIMEN,
+                clave -> invalidateSpecimenCache(Integer.valueOf(clave)));
+
+        // Renombrar una especie cambia el agregado de todos sus especímenes; es raro, se limpia todo
+        cambioService.addHandler(CambioRepository.TABLA_ESPECIE, clave -> clearSpecimenCache());
     }
 
     /**
@@ -62,8 +101,21 @@ public class EspecimenService {
 
     /**
      * MÉTODO AÑADIDO: Obtener especimen con toda la información relacionada
+     * El resultado se guarda en caché (solo lectura) hasta que una escritura sobre el especimen lo invalida
      */
     public Map<String, Object> getSpecimenWithAllData(Integer idEspecimen) throws SQLException {
+        Map<String, Object> cacheado = cacheAgregados.get(idEspecimen);
+        if (cacheado != null) {
+            return cacheado;
+        }
+
+        // La marca forma parte de la clave: tras una invalidación no se reutiliza una carga anterior
+        long marca = cacheAgregados.getMarca();
+        return vuelos.ejecutar(SingleFlight.clave("getSpecimenWithAllData", idEspecimen, marca),
+                () -> cargarSpecimenWithAllData(idEspecimen, marca));
+    }
+
+    private Map<String, Object> cargarSpecimenWithAllData(Integer idEspecimen, long marca) throws SQLException {
         System.out.println("🔍 Obteniendo datos completos para especimen ID: " + idEspecimen);
 
         try {
@@ -88,6 +140,7 @@ public class EspecimenService {
             especimenInfo.put("id_especie", especimen.getId_especie());
             especimenInfo.put("nombre_especimen", especimen.getNombre_especimen());
             especimenInfo.put("activo", especimen.isActivo());
+            especimenInfo.put("version", especimen.getVersion());
 
             // Información de la especie
             if (especimen.getEspecie() != null) {
@@ -103,8 +156,11 @@ public class EspecimenService {
             response.put("registros_alta", registrosAlta);
             response.put("total_registros_alta", registrosAlta.size());
 
+            Map<String, Object> agregado = Collections.unmodifiableMap(response);
+            cacheAgregados.putSiVigente(idEspecimen, agregado, marca);
+
             System.out.println("✅ Datos completos obtenidos exitosamente");
-            return response;
+            return agregado;
 
         } catch (Exception e) {
             System.err.println("❌ Error obteniendo datos completos: " + e.getMessage());
@@ -120,6 +176,7 @@ public class EspecimenService {
 
         try {
             Integer idEspecimen = (Integer) requestData.get("id_especimen");
+            invalidateSpecimenCache(idEspecimen);
 
             @SuppressWarnings("unchecked")
             Map<String, String> especieData = (Map<String, String>) requestData.get("especie");
@@ -128,18 +185,25 @@ public class EspecimenService {
             @SuppressWarnings("unchecked")
             Map<String, Object> registroData = (Map<String, Object>) requestData.get("registro_alta");
 
-            // 1. Actualizar o crear especie
+            // 1. Verificar existencia y versión antes de escribir nada (ni siquiera una especie nueva)
+            Integer versionEsperada = (Integer) requestData.get("version");
+            verificarVersionEspecimen(idEspecimen, versionEsperada);
+
+            // 2. Actualizar o crear especie
             Especie especie = findOrCreateEspecie(especieData);
 
-            // 2. Actualizar especimen
-            Especimen especimen = updateSpecimenData(idEspecimen, especimenData, especie);
+            // 3. Actualizar especimen (sigue siendo condicional por si cambió desde la verificación)
+            Especimen especimen = updateSpecimenData(idEspecimen, especimenData, especie, versionEsperada);
 
-            // 3. Actualizar registro de alta si existe
+            // 4. Actualizar registro de alta si existe
             if (registroData != null) {
                 updateRegistroAltaData(idEspecimen, registroData);
             }
 
-            // 4. Preparar respuesta
+            // 5. Invalidar de nuevo: una lectura concurrente pudo cachear el estado intermedio
+            invalidateSpecimenCache(idEspecimen);
+
+            // 6. Preparar respuesta
             return buildUpdateResponse(especimen, especie);
 
         } catch (Exception e) {
@@ -148,10 +212,27 @@ public class EspecimenService {
         }
     }
 
+    /**
+     * Precondición de una actualización: el especimen existe y, si se envió, la versión coincide
+     */
+    public void verificarVersionEspecimen(Integer idEspecimen, Integer versionEsperada) throws SQLException {
+        Especimen actual = especimenRepository.findById(idEspecimen).orElseThrow(() ->
+                new IllegalArgumentException("Especimen no encontrado con ID: " + idEspecimen));
+
+        if (versionEsperada != null && !versionEsperada.equals(actual.getVersion())) {
+            throw new ConflictoVersionException(idEspecimen, versionEsperada, actual.getVersion());
+        }
+    }
+
     /**
      * MÉTODO AÑADIDO: Obtener especímenes con paginación
      */
     public Map<String, Object> getSpecimensWithPagination(int page, int size, String search) throws SQLException {
+        return vuelos.ejecutar(SingleFlight.clave("getSpecimensWithPagination", page, size, search),
+                () -> paginarSpecimens(page, size, search));
+    }
+
+    private Map<String, Object> paginarSpecimens(int page, int size, String search) throws SQLException {
         System.out.println("📋 Obteniendo especímenes paginados: page=" + page + ", size=" + size);
 
         try {
@@ -321,12 +402,6 @@ public class EspecimenService {
             throw new IllegalArgumentException("ID del especimen requerido para actualización");
         }
 
-        // Verificar que el especimen existe
-        Optional<Especimen> existingSpecimen = especimenRepository.findById(especimen.getId_especimen());
-        if (existingSpecimen.isEmpty()) {
-            throw new IllegalArgumentException("Especimen no encontrado con ID: " + especimen.getId_especimen());
-        }
-
         // Validar datos
         validateSpecimenData(especimen);
 
@@ -344,15 +419,66 @@ public class EspecimenService {
             throw new IllegalArgumentException("La especie especificada no existe");
         }
 
-        // Actualizar especimen
+        // Actualizar especimen (la existencia y la versión se verifican en el mismo UPDATE)
         boolean updated = especimenRepository.update(especimen);
+        invalidateSpecimenCache(especimen.getId_especimen());
         if (!updated) {
-            throw new SQLException("No se pudo actualizar el especimen");
+            throw new IllegalArgumentException("Especimen no encontrado con ID: " + especimen.getId_especimen());
         }
 
         return especimen;
     }
 
+    /**
+     * Actualización parcial (JSON Merge Patch) del especimen
+     * Se validan y escriben solo los campos presentes; condicional si se envía la versión
+     */
+    public Especimen patchSpecimen(Integer id, Map<String, Object> parche, Integer versionEsperada) throws SQLException {
+        if (id == null || id <= 0) {
+            throw new IllegalArgumentException("ID del especimen requerido para actualización");
+        }
+
+        ParcheJson parcheJson = new ParcheJson(parche, Set.of("num_inventario", "id_especie", "nombre_especimen", "activo"));
+
+        String numInventario = parcheJson.texto("num_inventario", 1, 50, "El número de inventario");
+        if (numInventario != null) {
+            if (!numInventario.matches("^[a-zA-Z0-9\\-_.#]+$")) {
+                throw new IllegalArgumentException("El número de inventario solo puede contener letras, números, guiones, puntos y #");
+            }
+            Optional<Especimen> conInventario = especimenRepository.findByInventoryNumber(numInventario);
+            if (conInventario.isPresent() && !conInventario.get().getId_especimen().equals(id)) {
+                throw new IllegalArgumentException("El número de inventario ya está en uso por otro especimen");
+            }
+        }
+
+        Integer idEspecie = parcheJson.referencia("id_especie", "La especie");
+        if (idEspecie != null && !especieRepository.existsById(idEspecie)) {
+            throw new IllegalArgumentException("La especie especificada no existe");
+        }
+
+        String nombre = parcheJson.texto("nombre_especimen", 2, 100, "El nombre del especimen");
+        if (nombre != null && !nombre.matches("^[a-zA-ZáéíóúÁÉÍÓÚñÑ\\s]+$")) {
+            throw new IllegalArgumentException("El nombre del especimen solo puede contener letras y espacios");
+        }
+
+        parcheJson.booleano("activo", "El estado activo");
+
+        if (parcheJson.getColumnas().isEmpty()) {
+            // Sin campos no hay UPDATE, pero una versión desactualizada sigue siendo un conflicto
+            if (versionEsperada != null && !especimenRepository.verificarVersion(id, versionEsperada)) {
+                throw new IllegalArgumentException("Especimen no encontrado con ID: " + id);
+            }
+        } else {
+            boolean actualizado = especimenRepository.patch(id, parcheJson.getColumnas(), versionEsperada);
+            invalidateSpecimenCache(id);
+            if (!actualizado) {
+                throw new IllegalArgumentException("Especimen no encontrado con ID: " + id);
+            }
+        }
+
+        return getSpecimenById(id);
+    }
+
     /**
      * Eliminar especimen
      */
@@ -371,7 +497,9 @@ public class EspecimenService {
             throw new IllegalArgumentException("No se puede eliminar el especimen porque está siendo usado en registros");
         }
 
-        return especimenRepository.deleteById(id);
+        boolean eliminado = especimenRepository.deleteById(id);
+        invalidateSpecimenCache(id);
+        return eliminado;
     }
 
     /**
@@ -386,7 +514,9 @@ public class EspecimenService {
             throw new IllegalArgumentException("Especimen no encontrado con ID: " + id);
         }
 
-        return especimenRepository.activateById(id);
+        boolean activado = especimenRepository.activateById(id);
+        invalidateSpecimenCache(id);
+        return activado;
     }
 
     /**
@@ -401,7 +531,104 @@ public class EspecimenService {
             throw new IllegalArgumentException("Especimen no encontrado con ID: " + id);
         }
 
-        return especimenRepository.deactivateById(id);
+        boolean desactivado = especimenRepository.deactivateById(id);
+        invalidateSpecimenCache(id);
+        return desactivado;
+    }
+
+    /**
+     * Cambiar el estado de varios especímenes a la vez (activar, desactivar o eliminar)
+     * Acepta {"ids": [...]} o {"filtro": {"activo", "id_especie", "nombre"}}
+     */
+    public Map<String, Object> bulkChangeState(String accion, Map<String, Object> requestData) throws SQLException {
+        if (!EspecimenRepository.LOTE_ACTIVAR.equals(accion)
+                && !EspecimenRepository.LOTE_DESACTIVAR.equals(accion)
+                && !EspecimenRepository.LOTE_ELIMINAR.equals(accion)) {
+            throw new IllegalArgumentException("Acción inválida. Valores permitidos: activar, desactivar, eliminar");
+        }
+        if (requestData == null) {
+            throw new IllegalArgumentException("Debe proporcionar 'ids' o 'filtro'");
+        }
+
+        List<Integer> ids;
+        Object idsData = requestData.get("ids");
+        Object filtroData = requestData.get("filtro");
+
+        if (idsData instanceof List<?> lista) {
+            ids = new ArrayList<>();
+            for (Object valor : lista) {
+                if (!(valor instanceof Number) || ((Number) valor).intValue() <= 0) {
+                    throw new IllegalArgumentException("ID de especimen inválido: " + valor);
+                }
+                ids.add(((Number) valor).intValue());
+            }
+        } else if (filtroData instanceof Map<?, ?> filtro) {
+            if (filtro.isEmpty()) {
+                throw new IllegalArgumentException("El filtro debe tener al menos un criterio");
+            }
+            Boolean activo = filtro.get("activo") instanceof Boolean b ? b : null;
+            Integer idEspecie = filtro.get("id_especie") instanceof Number n ? n.intValue() : null;
+            String nombre = filtro.get("nombre") != null ? filtro.get("nombre").toString() : null;
+            if (activo == null && idEspecie == null && (nombre == null || nombre.trim().isEmpty())) {
+                throw new IllegalArgumentException("El filtro debe tener al menos un criterio válido: activo, id_especie o nombre");
+            }
+            ids = especimenRepository.findIdsByFilter(activo, idEspecie, nombre, BULK_MAX_IDS + 1);
+        } else {
+            throw new IllegalArgumentException("Debe proporcionar 'ids' o 'filtro'");
+        }
+
+        if (ids.isEmpty()) {
+            throw new IllegalArgumentException("No hay especímenes para procesar");
+        }
+        if (ids.size() > BULK_MAX_IDS) {
+            throw new IllegalArgumentException("El lote excede el máximo de " + BULK_MAX_IDS + " especímenes");
+        }
+
+        Map<Integer, String> resultados = especimenRepository.applyBulkState(accion, ids);
+        resultados.keySet().forEach(this::invalidateSpecimenCache);
+
+        Map<String, Integer> conteos = new HashMap<>();
+        List<Map<String, Object>> detalle = new ArrayList<>();
+        for (Map.Entry<Integer, String> entry : resultados.entrySet()) {
+            conteos.merge(entry.getValue(), 1, Integer::sum);
+            Map<String, Object> item = new HashMap<>();
+            item.put("id_especimen", entry.getKey());
+            item.put("resultado", entry.getValue());
+            detalle.add(item);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("accion", accion);
+        response.put("total", resultados.size());
+        response.put("conteos", conteos);
+        response.put("resultados", detalle);
+
+        return response;
+    }
+
+    /**
+     * INVALIDAR el agregado en caché de un especimen
+     */
+    public void invalidateSpecimenCache(Integer idEspecimen) {
+        if (idEspecimen != null) {
+            cacheAgregados.invalidate(idEspecimen);
+        }
+        vuelos.invalidar();
+    }
+
+    /**
+     * LIMPIAR la caché de agregados
+     */
+    public void clearSpecimenCache() {
+        cacheAgregados.clear();
+        vuelos.invalidar();
+    }
+
+    /**
+     * OBTENER estadísticas de la caché de agregados (tasa de aciertos, desalojos, invalidaciones)
+     */
+    public Map<String, Object> getSpecimenCacheInfo() {
+        return cacheAgregados.getEstadisticas();
     }
 
     /**
@@ -419,13 +646,78 @@ public class EspecimenService {
      * Obtener estadísticas de especímenes
      */
     public Map<String, Object> getSpecimenStatistics() throws SQLException {
-        Map<String, Object> stats = new HashMap<>();
+        return vuelos.ejecutar("getSpecimenStatistics", () -> {
+            Map<String, Object> stats = new HashMap<>();
+
+            stats.put("total_especimenes", especimenRepository.countTotal());
+            stats.put("especimenes_activos", especimenRepository.countActive());
+            stats.put("especimenes_inactivos", especimenRepository.countInactive());
+
+            return stats;
+        });
+    }
+
+    /**
+     * Obtener la línea de tiempo de un especimen con paginación por cursor
+     * El cursor es opaco para el cliente: se devuelve como next_cursor y se reenvía tal cual
+     */
+    public Map<String, Object> getSpecimenTimeline(Integer idEspecimen, String cursor, Integer limit) throws SQLException {
+        if (idEspecimen == null || idEspecimen <= 0) {
+            throw new IllegalArgumentException("ID de especimen inválido");
+        }
+
+        int pageSize = (limit == null) ? TIMELINE_DEFAULT_LIMIT : limit;
+        if (pageSize <= 0 || pageSize > TIMELINE_MAX_LIMIT) {
+            throw new IllegalArgumentException("El límite debe estar entre 1 y " + TIMELINE_MAX_LIMIT);
+        }
+
+        Timestamp cursorFecha = null;
+        Integer cursorOrden = null;
+        Integer cursorId = null;
+        if (cursor != null && !cursor.trim().isEmpty()) {
+            try {
+                String[] partes = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8).split(":");
+                if (partes.length != 3) {
+                    throw new IllegalArgumentException("Cursor inválido");
+                }
+                cursorFecha = new Timestamp(Long.parseLong(partes[0]));
+                cursorOrden = Integer.parseInt(partes[1]);
+                cursorId = Integer.parseInt(partes[2]);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+        }
+
+        // Se pide un elemento extra para saber si hay más páginas sin otra consulta
+        List<EspecimenRepository.EventoTimeline> eventos =
+                especimenRepository.findTimeline(idEspecimen, cursorFecha, cursorOrden, cursorId, pageSize + 1);
+
+        // Solo se verifica la existencia cuando la primera página llega vacía
+        if (eventos.isEmpty() && cursorFecha == null && !especimenRepository.existsById(idEspecimen)) {
+            throw new IllegalArgumentException("Especimen no encontrado con ID: " + idEspecimen);
+        }
+
+        boolean hasMore = eventos.size() > pageSize;
+        if (hasMore) {
+            eventos = eventos.subList(0, pageSize);
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            EspecimenRepository.EventoTimeline ultimo = eventos.get(eventos.size() - 1);
+            long fechaMillis = ultimo.getFecha() != null ? ultimo.getFecha().getTime() : 0L;
+            String raw = fechaMillis + ":" + ultimo.getOrden() + ":" + ultimo.getIdEvento();
+            nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
 
-        stats.put("total_especimenes", especimenRepository.countTotal());
-        stats.put("especimenes_activos", especimenRepository.countActive());
-        stats.put("especimenes_inactivos", especimenRepository.countInactive());
+        Map<String, Object> result = new HashMap<>();
+        result.put("id_especimen", idEspecimen);
+        result.put("eventos", eventos);
+        result.put("total", eventos.size());
+        result.put("has_more", hasMore);
+        result.put("next_cursor", nextCursor);
 
-        return stats;
+        return result;
     }
 
     // MÉTODOS PRIVADOS AUXILIARES
@@ -555,23 +847,23 @@ public class EspecimenService {
 
     /**
      * MÉTODO AÑADIDO: Actualizar datos del especimen
+     * No se lee la fila antes: el UPDATE no toca el estado activo y reporta si el especimen no existe
+     * o si la versión enviada ya no es la actual
      */
-    private Especimen updateSpecimenData(Integer idEspecimen, Map<String, Object> especimenData, Especie especie) throws SQLException {
-        Optional<Especimen> existingOpt = especimenRepository.findById(idEspecimen);
-        if (existingOpt.isEmpty()) {
-            throw new IllegalArgumentException("Especimen no encontrado");
-        }
-
-        Especimen especimen = existingOpt.get();
+    private Especimen updateSpecimenData(Integer idEspecimen, Map<String, Object> especimenData, Especie especie,
+                                         Integer version) throws SQLException {
+        Especimen especimen = new Especimen();
+        especimen.setId_especimen(idEspecimen);
         especimen.setNum_inventario((String) especimenData.get("num_inventario"));
         especimen.setId_especie(especie.getId_especie());
         especimen.setNombre_especimen((String) especimenData.get("nombre_especimen"));
+        especimen.setVersion(version);
 
         validateSpecimenData(especimen);
 
-        boolean updated = especimenRepository.update(especimen);
+        boolean updated = especimenRepository.updateDatos(especimen);
         if (!updated) {
-            throw new SQLException("No se pudo actualizar el especimen");
+            throw new IllegalArgumentException("Especimen no encontrado");
         }
 
         return especimen;
@@ -635,7 +927,7 @@ public class EspecimenService {
         especimenInfo.put("num_inventario", especimen.getNum_inventario());
         especimenInfo.put("id_especie", especimen.getId_especie());
         especimenInfo.put("nombre_especimen", especimen.getNombre_especimen());
-        especimenInfo.put("activo", especimen.isActivo());
+        especimenInfo.put("version", especimen.getVersion());
 
         response.put("especie", especieInfo);
         response.put("especimen", especimenInfo);
@@ -0,0 +1,206 @@
+package com.hugin_munin.service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Bus de eventos en proceso para notificar altas, bajas y traslados
+ * Cada suscriptor tiene su propio buffer acotado: si un cliente lento lo llena,
+ * se descarta el evento más antiguo y los escritores nunca se bloquean
+ */
+public class EventoService {
+
+    public static final String TIPO_TRASLADO = "traslado";
+    public static final String TIPO_ALTA = "alta";
+    public static final String TIPO_BAJA = "baja";
+    public static final String TIPO_ALTA_ACTUALIZADA = "alta_actualizada";
+    public static final String TIPO_ALTA_ELIMINADA = "alta_eliminada";
+
+    private static final int DEFAULT_BUFFER_SIZE = 256;
+    private static final int DEFAULT_MAX_SUSCRIPTORES = 200;
+
+    private final int bufferSize;
+    private final int maxSuscriptores;
+    private final Set<Suscriptor> suscriptores = ConcurrentHashMap.newKeySet();
+    private final List<Consumer<Map<String, Object>>> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong secuencia = new AtomicLong();
+    private final AtomicLong totalPublicados = new AtomicLong();
+    private final AtomicLong totalDescartados = new AtomicLong();
+
+    public EventoService() {
+        this(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_SUSCRIPTORES);
+    }
+
+    public EventoService(int bufferSize, int maxSuscriptores) {
+        if (bufferSize <= 0 || maxSuscriptores <= 0) {
+            throw new IllegalArgumentException("El tamaño del buffer y el máximo de suscriptores deben ser positivos");
+        }
+        this.bufferSize = bufferSize;
+        this.maxSuscriptores = maxSuscriptores;
+    }
+
+    /**
+     * SUSCRIBIR un nuevo consumidor, opcionalmente filtrando por tipos de evento
+     */
+    public Suscriptor subscribe(Set<String> tipos) {
+        Suscriptor suscriptor = new Suscriptor(bufferSize, tipos);
+
+        // Verificar y registrar juntos: dos suscripciones simultáneas no pueden pasar ambas del límite
+        synchronized (suscriptores) {
+            if (suscriptores.size() >= maxSuscriptores) {
+                throw new IllegalStateException("Se alcanzó el máximo de suscriptores de eventos: " + maxSuscriptores);
+            }
+            suscriptores.add(suscriptor);
+        }
+        return suscriptor;
+    }
+
+    /**
+     * CANCELAR la suscripción de un consumidor
+     */
+    public void unsubscribe(Suscriptor suscriptor) {
+        if (suscriptor != null) {
+            suscriptores.remove(suscriptor);
+        }
+    }
+
+    /**
+     * REGISTRAR un listener interno que se ejecuta de forma síncrona en cada publicación
+     * Pensado para invalidar cachés en proceso; debe ser rápido y no bloquear
+     */
+    public void addListener(Consumer<Map<String, Object>> listener) {
+        if (listener != null) {
+            listeners.add(listener);
+        }
+    }
+
+    /**
+     * PUBLICAR un evento a todos los suscriptores interesados
+     * Nunca lanza excepciones: una falla de notificación no debe revertir una escritura exitosa
+     */
+    public void publish(String tipo, Integer id, Integer idEspecimen, Map<String, Object> datos) {
+        try {
+            Map<String, Object> inmutable = buildEvento(tipo, id, idEspecimen, datos);
+
+            totalPublicados.incrementAndGet();
+            notifyListeners(inmutable);
+            for (Suscriptor suscriptor : suscriptores) {
+                if (suscriptor.acepta(tipo) && !suscriptor.offer(inmutable)) {
+                    totalDescartados.incrementAndGet();
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("⚠️ Error al publicar evento " + tipo + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * NOTIFICAR un cambio solo a los listeners internos (no se envía al feed de suscriptores)
+     * Para escrituras que invalidan cachés pero no forman parte del feed (p. ej. editar un alta)
+     */
+    public void publishInterno(String tipo, Integer id, Integer idEspecimen, Map<String, Object> datos) {
+        try {
+            notifyListeners(buildEvento(tipo, id, idEspecimen, datos));
+        } catch (Exception e) {
+            System.err.println("⚠️ Error al notificar cambio " + tipo + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * OBTENER estadísticas del bus de eventos
+     */
+    public Map<String, Object> getEstadisticas() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("suscriptores_activos", suscriptores.size());
+        stats.put("max_suscriptores", maxSuscriptores);
+        stats.put("buffer_por_suscriptor", bufferSize);
+        stats.put("eventos_publicados", totalPublicados.get());
+        stats.put("eventos_descartados", totalDescartados.get());
+        stats.put("ultima_secuencia", secuencia.get());
+        return stats;
+    }
+
+    // MÉTODOS AUXILIARES
+
+    private Map<String, Object> buildEvento(String tipo, Integer id, Integer idEspecimen, Map<String, Object> datos) {
+        Map<String, Object> evento = new LinkedHashMap<>();
+        evento.put("seq", secuencia.incrementAndGet());
+        evento.put("tipo", tipo);
+        evento.put("id", id);
+        evento.put("id_especimen", idEspecimen);
+        evento.put("timestamp", System.currentTimeMillis());
+        if (datos != null && !datos.isEmpty()) {
+            evento.putAll(datos);
+        }
+        return Collections.unmodifiableMap(evento);
+    }
+
+    private void notifyListeners(Map<String, Object> evento) {
+        for (Consumer<Map<String, Object>> listener : listeners) {
+            try {
+                listener.accept(evento);
+            } catch (Exception e) {
+                System.err.println("⚠️ Error en listener de eventos: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Suscriptor con buffer acotado propio
+     */
+    public static class Suscriptor {
+        private final BlockingQueue<Map<String, Object>> buffer;
+        private final Set<String> tipos;
+        private final AtomicLong descartados = new AtomicLong();
+
+        private Suscriptor(int capacidad, Set<String> tipos) {
+            this.buffer = new ArrayBlockingQueue<>(capacidad);
+            this.tipos = (tipos == null || tipos.isEmpty()) ? null : Set.copyOf(tipos);
+        }
+
+        boolean acepta(String tipo) {
+            return tipos == null || tipos.contains(tipo);
+        }
+
+        /**
+         * Encolar evento; si el buffer está lleno se descartan los más antiguos hasta que entre
+         * Sincronizado entre publicadores: otro publicador no puede ocupar el lugar liberado
+         * (el consumidor solo libera espacio). Retorna false cuando hubo que descartar un evento
+         */
+        synchronized boolean offer(Map<String, Object> evento) {
+            boolean sinDescartes = true;
+            while (!buffer.offer(evento)) {
+                if (buffer.poll() != null) {
+                    descartados.incrementAndGet();
+                    sinDescartes = false;
+                }
+            }
+            return sinDescartes;
+        }
+
+        /**
+         * Eventos descartados desde la última llamada (para avisar al cliente que perdió eventos)
+         */
+        public long tomarDescartados() {
+            return descartados.getAndSet(0);
+        }
+
+        /**
+         * Esperar el siguiente evento hasta el tiempo indicado (null si no llegó ninguno)
+         */
+        public Map<String, Object> poll(long timeout, TimeUnit unit) throws InterruptedException {
+            return buffer.poll(timeout, unit);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.hugin_munin.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.hugin_munin.repository.ExportRepository;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Servicio de exportación del inventario en CSV o NDJSON
+ * Cada fila se escribe directamente en el flujo de salida a medida que llega de la base de datos
+ */
+public class ExportService {
+
+    public static final String FORMATO_CSV = "csv";
+    public static final String FORMATO_NDJSON = "ndjson";
+
+    private static final Set<String> FORMATOS = Set.of(FORMATO_CSV, FORMATO_NDJSON);
+    private static final int BUFFER_ESCRITURA = 64 * 1024;
+
+    private final ExportRepository exportRepository;
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public ExportService(ExportRepository exportRepository) {
+        this.exportRepository = exportRepository;
+    }
+
+    /**
+     * Validar y normalizar el formato solicitado
+     */
+    public String resolveFormato(String formato) {
+        String normalizado = formato == null || formato.trim().isEmpty() ? FORMATO_CSV : formato.trim().toLowerCase();
+        if (!FORMATOS.contains(normalizado)) {
+            throw new IllegalArgumentException("Formato inválido. Valores permitidos: csv, ndjson");
+        }
+        return normalizado;
+    }
+
+    /**
+     * EXPORTAR el inventario al flujo indicado; retorna el número de filas escritas
+     */
+    public long exportInventario(String formato, Boolean activo, boolean gzip, OutputStream salida)
+            throws SQLException, IOException {
+        String fmt = resolveFormato(formato);
+
+        OutputStream destino = gzip ? new GZIPOutputStream(salida, BUFFER_ESCRITURA) : salida;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(destino, StandardCharsets.UTF_8), BUFFER_ESCRITURA);
+        List<String> columnas = ExportRepository.COLUMNAS_INVENTARIO;
+        long filas;
+
+        if (FORMATO_CSV.equals(fmt)) {
+            writeCsvLine(writer, columnas.toArray());
+            filas = exportRepository.streamInventario(activo, valores -> writeCsvLine(writer, valores));
+            writer.flush();
+        } else {
+            JsonGenerator generator = jsonFactory.createGenerator(writer);
+            generator.setRootValueSeparator(new SerializedString("\n"));
+            filas = exportRepository.streamInventario(activo, valores -> {
+                generator.writeStartObject();
+                for (int i = 0; i < valores.length; i++) {
+                    writeJsonField(generator, columnas.get(i), valores[i]);
+                }
+                generator.writeEndObject();
+            });
+            generator.flush();
+            if (filas > 0) {
+                writer.write('\n');
+            }
+            writer.flush();
+        }
+
+        if (destino instanceof GZIPOutputStream gzipStream) {
+            gzipStream.finish();
+        }
+        salida.flush();
+        return filas;
+    }
+
+    // MÉTODOS AUXILIARES
+
+    private void writeCsvLine(Writer writer, Object[] valores) throws IOException {
+        for (int i = 0; i < valores.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String texto = toText(valores[i]);
+            if (texto.indexOf(',') >= 0 || texto.indexOf('"') >= 0
+                    || texto.indexOf('\n') >= 0 || texto.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(texto.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(texto);
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    private void writeJsonField(JsonGenerator generator, String nombre, Object valor) throws IOException {
+        if (valor == null) {
+            generator.writeNullField(nombre);
+        } else if (valor instanceof Boolean b) {
+            generator.writeBooleanField(nombre, b);
+        } else if (valor instanceof Integer n) {
+            generator.writeNumberField(nombre, n);
+        } else if (valor instanceof Long n) {
+            generator.writeNumberField(nombre, n);
+        } else {
+            generator.writeStringField(nombre, toText(valor));
+        }
+    }
+
+    private String toText(Object valor) {
+        if (valor == null) {
+            return "";
+        }
+        if (valor instanceof Timestamp ts) {
+            return ts.toLocalDateTime().toString();
+        }
+        return valor.toString();
+    }
+}
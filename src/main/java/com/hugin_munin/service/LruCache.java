@@ -0,0 +1,120 @@
+package com.hugin_munin.service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché en memoria acotada por tamaño con desalojo LRU
+ * Cuenta aciertos, fallos, desalojos e invalidaciones.
+ * Para evitar que una lectura lenta vuelva a guardar datos ya invalidados, el llamador
+ * toma una marca con getMarca() antes de consultar la base de datos y guarda con
+ * putSiVigente(); si hubo una invalidación entre ambos momentos el valor se descarta.
+ */
+public class LruCache<K, V> {
+
+    private final String nombre;
+    private final int capacidad;
+    private final LinkedHashMap<K, V> entradas;
+
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder desalojos = new LongAdder();
+    private final LongAdder invalidaciones = new LongAdder();
+    private final AtomicLong marca = new AtomicLong();
+
+    public LruCache(String nombre, int capacidad) {
+        if (capacidad <= 0) {
+            throw new IllegalArgumentException("La capacidad de la caché debe ser positiva");
+        }
+        this.nombre = nombre;
+        this.capacidad = capacidad;
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() > LruCache.this.capacidad) {
+                    desalojos.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * OBTENER un valor (null si no está en caché)
+     */
+    public V get(K clave) {
+        V valor;
+        synchronized (this) {
+            valor = entradas.get(clave);
+        }
+        if (valor != null) {
+            aciertos.increment();
+        } else {
+            fallos.increment();
+        }
+        return valor;
+    }
+
+    /**
+     * Marca de invalidación actual; tomarla antes de leer de la base de datos
+     */
+    public long getMarca() {
+        return marca.get();
+    }
+
+    /**
+     * GUARDAR un valor solo si no hubo invalidaciones desde la marca indicada
+     */
+    public synchronized boolean putSiVigente(K clave, V valor, long marcaLectura) {
+        if (marca.get() != marcaLectura) {
+            return false;
+        }
+        entradas.put(clave, valor);
+        return true;
+    }
+
+    /**
+     * INVALIDAR una clave
+     */
+    public synchronized void invalidate(K clave) {
+        marca.incrementAndGet();
+        if (entradas.remove(clave) != null) {
+            invalidaciones.increment();
+        }
+    }
+
+    /**
+     * LIMPIAR la caché completa
+     */
+    public synchronized void clear() {
+        marca.incrementAndGet();
+        invalidaciones.add(entradas.size());
+        entradas.clear();
+    }
+
+    /**
+     * OBTENER estadísticas de uso
+     */
+    public Map<String, Object> getEstadisticas() {
+        long totalAciertos = aciertos.sum();
+        long totalFallos = fallos.sum();
+        long consultas = totalAciertos + totalFallos;
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("nombre", nombre);
+        synchronized (this) {
+            stats.put("entradas", entradas.size());
+        }
+        stats.put("capacidad", capacidad);
+        stats.put("aciertos", totalAciertos);
+        stats.put("fallos", totalFallos);
+        stats.put("tasa_aciertos", consultas == 0 ? 0.0 : Math.round(totalAciertos * 10000.0 / consultas) / 100.0);
+        stats.put("desalojos", desalojos.sum());
+        stats.put("invalidaciones", invalidaciones.sum());
+        return stats;
+    }
+}
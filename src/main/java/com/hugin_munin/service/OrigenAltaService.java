@@ -17,6 +17,8 @@ public class OrigenAltaService {
 
     private final OrigenAltaRepository origenAltaRepository;
 
+    private final SingleFlight vuelos = new SingleFlight();
+
     public OrigenAltaService(OrigenAltaRepository origenAltaRepository) {
         this.origenAltaRepository = origenAltaRepository;
     }
@@ -25,7 +27,7 @@ public class OrigenAltaService {
      * OBTENER todos los orígenes de alta
      */
     public List<OrigenAlta> getAllOrigenes() throws SQLException {
-        return origenAltaRepository.findAll();
+        return vuelos.ejecutar("getAllOrigenes", origenAltaRepository::findAll);
     }
 
     /**
@@ -68,7 +70,9 @@ public class OrigenAltaService {
         origen.setNombre_origen_alta(capitalizeWords(origen.getNombre_origen_alta().trim()));
 
         // Guardar origen
-        return origenAltaRepository.save(origen);
+        OrigenAlta creado = origenAltaRepository.save(origen);
+        vuelos.invalidar();
+        return creado;
     }
 
     /**
@@ -99,6 +103,7 @@ public class OrigenAltaService {
 
         // Actualizar origen
         boolean updated = origenAltaRepository.update(origen);
+        vuelos.invalidar();
         if (!updated) {
             throw new SQLException("No se pudo actualizar el origen de alta");
         }
@@ -125,7 +130,9 @@ public class OrigenAltaService {
         }
 
         // Eliminar origen
-        return origenAltaRepository.deleteById(id);
+        boolean eliminado = origenAltaRepository.deleteById(id);
+        vuelos.invalidar();
+        return eliminado;
     }
 
     /**
@@ -0,0 +1,155 @@
+package com.hugin_munin.service;
+
+import com.hugin_munin.repository.ColumnasParche;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Lectura de un cuerpo JSON Merge Patch (RFC 7396) sobre una entidad plana
+ * - Campo ausente: no cambia; campo con null: se borra (solo columnas que admiten NULL)
+ * - Cada campo leído se agrega a las columnas del parche con su valor ya convertido;
+ *   el servicio aplica después sus propias reglas y puede reemplazar el valor normalizado
+ * - "version" no es una columna: el controlador la toma como versión esperada (igual que en PUT)
+ */
+final class ParcheJson {
+
+    private final Map<String, Object> parche;
+    private final ColumnasParche columnas = new ColumnasParche();
+
+    ParcheJson(Map<String, Object> parche, Set<String> camposPermitidos) {
+        if (parche == null) {
+            throw new IllegalArgumentException("El cuerpo del parche debe ser un objeto JSON");
+        }
+
+        Set<String> desconocidos = new TreeSet<>(parche.keySet());
+        desconocidos.removeAll(camposPermitidos);
+        desconocidos.remove("version");
+        if (!desconocidos.isEmpty()) {
+            throw new IllegalArgumentException("Campos no modificables: " + desconocidos +
+                    ". Permitidos: " + new TreeSet<>(camposPermitidos));
+        }
+        this.parche = parche;
+    }
+
+    ColumnasParche getColumnas() {
+        return columnas;
+    }
+
+    /**
+     * Texto obligatorio (sin espacios al inicio y final); null si el campo no viene
+     */
+    String texto(String campo, int minimo, int maximo, String descripcion) {
+        if (!parche.containsKey(campo)) {
+            return null;
+        }
+        String valor = textoNoNulo(campo, descripcion).trim();
+        if (valor.length() < minimo || valor.length() > maximo) {
+            throw new IllegalArgumentException(descripcion + " debe tener entre " + minimo + " y " + maximo + " caracteres");
+        }
+        columnas.put(campo, valor);
+        return valor;
+    }
+
+    /**
+     * Texto que admite null (borra la columna); retorna el valor o null
+     */
+    String textoOpcional(String campo, int maximo, String descripcion) {
+        if (!parche.containsKey(campo)) {
+            return null;
+        }
+        Object valor = parche.get(campo);
+        if (valor == null) {
+            columnas.put(campo, null);
+            return null;
+        }
+        if (!(valor instanceof String)) {
+            throw new IllegalArgumentException(descripcion + " debe ser texto");
+        }
+        String texto = ((String) valor).trim();
+        if (texto.length() > maximo) {
+            throw new IllegalArgumentException(descripcion + " no puede exceder " + maximo + " caracteres");
+        }
+        columnas.put(campo, texto.isEmpty() ? null : texto);
+        return texto.isEmpty() ? null : texto;
+    }
+
+    /**
+     * ID de una referencia (entero positivo); null si el campo no viene
+     */
+    Integer referencia(String campo, String descripcion) {
+        if (!parche.containsKey(campo)) {
+            return null;
+        }
+        Object valor = noNulo(campo, descripcion);
+        if (!(valor instanceof Number) || ((Number) valor).intValue() <= 0) {
+            throw new IllegalArgumentException(descripcion + " debe ser un ID válido");
+        }
+        int id = ((Number) valor).intValue();
+        columnas.put(campo, id);
+        return id;
+    }
+
+    Boolean booleano(String campo, String descripcion) {
+        if (!parche.containsKey(campo)) {
+            return null;
+        }
+        Object valor = noNulo(campo, descripcion);
+        if (!(valor instanceof Boolean)) {
+            throw new IllegalArgumentException(descripcion + " debe ser true o false");
+        }
+        columnas.put(campo, valor);
+        return (Boolean) valor;
+    }
+
+    /**
+     * Fecha "yyyy-MM-dd" (o ISO con hora, se toma el día) o milisegundos; no puede ser futura
+     */
+    Date fecha(String campo, String descripcion) {
+        if (!parche.containsKey(campo)) {
+            return null;
+        }
+        Object valor = noNulo(campo, descripcion);
+
+        java.sql.Date fecha;
+        if (valor instanceof Number) {
+            fecha = java.sql.Date.valueOf(new java.sql.Date(((Number) valor).longValue()).toLocalDate());
+        } else if (valor instanceof String && ((String) valor).trim().length() >= 10) {
+            try {
+                fecha = java.sql.Date.valueOf(LocalDate.parse(((String) valor).trim().substring(0, 10)));
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException(descripcion + " debe tener el formato yyyy-MM-dd");
+            }
+        } else {
+            throw new IllegalArgumentException(descripcion + " debe tener el formato yyyy-MM-dd");
+        }
+
+        if (fecha.toLocalDate().isAfter(LocalDate.now())) {
+            throw new IllegalArgumentException(descripcion + " no puede ser futura");
+        }
+        columnas.put(campo, fecha);
+        return fecha;
+    }
+
+    // MÉTODOS AUXILIARES
+
+    private Object noNulo(String campo, String descripcion) {
+        Object valor = parche.get(campo);
+        if (valor == null) {
+            throw new IllegalArgumentException(descripcion + " es obligatorio y no puede borrarse");
+        }
+        return valor;
+    }
+
+    private String textoNoNulo(String campo, String descripcion) {
+        Object valor = noNulo(campo, descripcion);
+        if (!(valor instanceof String)) {
+            throw new IllegalArgumentException(descripcion + " debe ser texto");
+        }
+        return (String) valor;
+    }
+}
@@ -7,6 +7,7 @@ import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Optional;
 import java.util.ArrayList;
 import java.util.stream.Collectors;
@@ -224,6 +225,7 @@ public class PermisoService {
 
     /**
      * ASIGNAR múltiples permisos a un rol
+     * Las asignaciones válidas se aplican juntas en una sola transacción
      */
     public Map<String, Object> assignMultiplePermisosToRol(List<Integer> idsPermisos, Integer idRol) throws SQLException {
         if (idsPermisos == null || idsPermisos.isEmpty()) {
@@ -233,24 +235,31 @@ public class PermisoService {
             throw new IllegalArgumentException("ID de rol inválido");
         }
 
-        int exitosos = 0;
-        int fallos = 0;
         List<String> errores = new ArrayList<>();
+        List<Integer> validos = filterValidIds(idsPermisos, errores, "Permiso ID %s: ");
 
-        for (Integer idPermiso : idsPermisos) {
-            try {
-                assignPermisoToRol(idPermiso, idRol);
-                exitosos++;
-            } catch (Exception e) {
-                fallos++;
-                errores.add("Permiso ID " + idPermiso + ": " + e.getMessage());
-            }
+        PermisoRepository.CambioPermisosRol cambio = permisoRepository.applyPermisosToRol(idRol, validos, false);
+        if (cambio.isRolInexistente()) {
+            throw new IllegalArgumentException("El rol con ID " + idRol + " no existe");
         }
 
+        for (Integer id : cambio.getInexistentes()) {
+            errores.add("Permiso ID " + id + ": El permiso con ID " + id + " no existe");
+        }
+        for (Integer id : cambio.getYaAsignados()) {
+            errores.add("Permiso ID " + id + ": El permiso ya está asignado a este rol");
+        }
+        // Un ID repetido en la solicitud se asigna una vez; las repeticiones cuentan como ya asignadas
+        for (int i = validos.size() - new HashSet<>(validos).size(); i > 0; i--) {
+            errores.add("Permiso duplicado en la solicitud: El permiso ya está asignado a este rol");
+        }
+
+        int exitosos = cambio.getAgregados().size();
+
         Map<String, Object> resultado = new HashMap<>();
         resultado.put("total", idsPermisos.size());
         resultado.put("exitosos", exitosos);
-        resultado.put("fallos", fallos);
+        resultado.put("fallos", idsPermisos.size() - exitosos);
         resultado.put("errores", errores);
 
         return resultado;
@@ -332,54 +341,51 @@ public class PermisoService {
 
     /**
      * SINCRONIZAR permisos de un rol (reemplazar completamente)
+     * Calcula altas y bajas contra las asignaciones actuales y las aplica en una sola transacción
      */
     public Map<String, Object> syncPermisosToRol(List<Integer> idsPermisos, Integer idRol) throws SQLException {
         if (idRol == null || idRol <= 0) {
             throw new IllegalArgumentException("ID de rol inválido");
         }
 
-        // Obtener permisos actuales del rol
-        List<Permiso> permisosActuales = permisoRepository.findByRol(idRol);
-
-        int removidos = 0;
-        int agregados = 0;
         List<String> errores = new ArrayList<>();
+        List<Integer> validos = idsPermisos == null
+                ? new ArrayList<>()
+                : filterValidIds(idsPermisos, errores, "Error al agregar permiso %s: ");
 
-        // Remover permisos que ya no están en la nueva lista
-        for (Permiso permisoActual : permisosActuales) {
-            if (idsPermisos == null || !idsPermisos.contains(permisoActual.getId_permiso())) {
-                try {
-                    removePermisoFromRol(permisoActual.getId_permiso(), idRol);
-                    removidos++;
-                } catch (Exception e) {
-                    errores.add("Error al remover permiso " + permisoActual.getId_permiso() + ": " + e.getMessage());
-                }
-            }
+        PermisoRepository.CambioPermisosRol cambio = permisoRepository.applyPermisosToRol(idRol, validos, true);
+        if (cambio.isRolInexistente()) {
+            throw new IllegalArgumentException("El rol con ID " + idRol + " no existe");
         }
 
-        // Agregar nuevos permisos
-        if (idsPermisos != null) {
-            for (Integer idPermiso : idsPermisos) {
-                try {
-                    if (!rolHasPermiso(idRol, idPermiso)) {
-                        assignPermisoToRol(idPermiso, idRol);
-                        agregados++;
-                    }
-                } catch (Exception e) {
-                    errores.add("Error al agregar permiso " + idPermiso + ": " + e.getMessage());
-                }
-            }
+        for (Integer id : cambio.getInexistentes()) {
+            errores.add("Error al agregar permiso " + id + ": El permiso con ID " + id + " no existe");
         }
 
         Map<String, Object> resultado = new HashMap<>();
-        resultado.put("permisos_removidos", removidos);
-        resultado.put("permisos_agregados", agregados);
+        resultado.put("permisos_removidos", cambio.getRemovidos().size());
+        resultado.put("permisos_agregados", cambio.getAgregados().size());
         resultado.put("errores", errores);
         resultado.put("success", errores.isEmpty());
 
         return resultado;
     }
 
+    /**
+     * Separar IDs de permiso válidos; los inválidos se registran como errores con el prefijo dado
+     */
+    private List<Integer> filterValidIds(List<Integer> idsPermisos, List<String> errores, String prefijoError) {
+        List<Integer> validos = new ArrayList<>();
+        for (Integer idPermiso : idsPermisos) {
+            if (idPermiso == null || idPermiso <= 0) {
+                errores.add(String.format(prefijoError, idPermiso) + "ID de permiso inválido");
+            } else {
+                validos.add(idPermiso);
+            }
+        }
+        return validos;
+    }
+
     /**
      * Validar datos del permiso
      */
@@ -1,13 +1,18 @@
 package com.hugin_munin.service;
 
 import com.hugin_munin.model.RegistroAlta;
+import com.hugin_munin.repository.ColumnasParche;
+import com.hugin_munin.repository.Proyeccion;
 import com.hugin_munin.repository.RegistroAltaRepository;
 import com.hugin_munin.repository.EspecimenRepository;
 import com.hugin_munin.repository.UsuarioRepository;
 
 import java.sql.SQLException;
 import java.util.List;
+import java.util.Map;
+import java.util.HashMap;
 import java.util.Optional;
+import java.util.Set;
 import java.util.Date;
 
 /**
@@ -19,13 +24,16 @@ public class RegistroAltaService {
     private final RegistroAltaRepository repository;
     private final EspecimenRepository especimenRepository;
     private final UsuarioRepository usuarioRepository;
+    private final EventoService eventoService;
 
     public RegistroAltaService(RegistroAltaRepository repository,
                                EspecimenRepository especimenRepository,
-                               UsuarioRepository usuarioRepository) {
+                               UsuarioRepository usuarioRepository,
+                               EventoService eventoService) {
         this.repository = repository;
         this.especimenRepository = especimenRepository;
         this.usuarioRepository = usuarioRepository;
+        this.eventoService = eventoService;
     }
 
     /**
@@ -46,7 +54,15 @@ public class RegistroAltaService {
             registro.setFecha_ingreso(new Date());
         }
 
-        return repository.saveRegister(registro);
+        RegistroAlta creado = repository.saveRegister(registro);
+
+        // Notificar a los suscriptores del feed de eventos
+        Map<String, Object> datos = new HashMap<>();
+        datos.put("fecha", creado.getFecha_ingreso());
+        datos.put("id_origen_alta", creado.getId_origen_alta());
+        eventoService.publish(EventoService.TIPO_ALTA, creado.getId_registro_alta(), creado.getId_especimen(), datos);
+
+        return creado;
     }
 
     /**
@@ -56,6 +72,14 @@ public class RegistroAltaService {
         return repository.findAllRegisters();
     }
 
+    /**
+     * OBTENER todos los registros de alta con proyección parcial
+     * fields: campos separados por coma; expand: relaciones a incluir (p. ej. "especimen.especie,responsable")
+     */
+    public List<Map<String, Object>> getAllParcial(String fields, String expand) throws SQLException {
+        return repository.findAllParcial(Proyeccion.parseLista(fields), Proyeccion.parseLista(expand));
+    }
+
     /**
      * OBTENER registro por ID con información completa
      */
@@ -88,7 +112,81 @@ public class RegistroAltaService {
         validateForeignKeys(registro);
         validateBusinessRules(registro);
 
-        return repository.updateRegister(registro);
+        RegistroAlta actualizado = repository.updateRegister(registro);
+
+        // Invalidar cachés del especimen anterior y del nuevo (el alta pudo cambiar de especimen o fecha)
+        RegistroAlta anterior = existingOptional.get();
+        Map<String, Object> datos = new HashMap<>();
+        datos.put("fecha", registro.getFecha_ingreso());
+        datos.put("fecha_anterior", anterior.getFecha_ingreso());
+        eventoService.publishInterno(EventoService.TIPO_ALTA_ACTUALIZADA, registro.getId_registro_alta(), registro.getId_especimen(), datos);
+        if (anterior.getId_especimen() != null && !anterior.getId_especimen().equals(registro.getId_especimen())) {
+            eventoService.publishInterno(EventoService.TIPO_ALTA_ACTUALIZADA, registro.getId_registro_alta(), anterior.getId_especimen(), null);
+        }
+
+        return actualizado;
+    }
+
+    /**
+     * ACTUALIZACIÓN PARCIAL (JSON Merge Patch): solo se validan y escriben los campos presentes
+     * procedencia admite null (se borra); los demás campos son obligatorios
+     */
+    public RegistroAlta patch(Integer id, Map<String, Object> parche) throws SQLException {
+        if (id == null || id <= 0) {
+            throw new IllegalArgumentException("ID del registro obligatorio para actualizar");
+        }
+
+        ParcheJson parcheJson = new ParcheJson(parche, Set.of(
+                "id_especimen", "id_origen_alta", "id_responsable", "fecha_ingreso", "procedencia", "observacion"));
+
+        Integer idEspecimen = parcheJson.referencia("id_especimen", "El especimen");
+        if (idEspecimen != null && !especimenRepository.existsById(idEspecimen)) {
+            throw new IllegalArgumentException("El especimen con ID " + idEspecimen + " no existe");
+        }
+        Integer idResponsable = parcheJson.referencia("id_responsable", "El responsable");
+        if (idResponsable != null && !usuarioRepository.existsById(idResponsable)) {
+            throw new IllegalArgumentException("El responsable con ID " + idResponsable + " no existe");
+        }
+        parcheJson.referencia("id_origen_alta", "El origen de alta");
+        Date fechaIngreso = parcheJson.fecha("fecha_ingreso", "La fecha de ingreso");
+        parcheJson.textoOpcional("procedencia", 200, "La procedencia");
+        parcheJson.texto("observacion", 1, 500, "La observación");
+
+        ColumnasParche columnas = parcheJson.getColumnas();
+        if (columnas.isEmpty()) {
+            return getById(id);
+        }
+
+        // Un alta por especimen y día: solo se verifica si el par (especimen, fecha) cambia
+        if (idEspecimen != null || fechaIngreso != null) {
+            RegistroAlta actual = getById(id);
+            Integer especimenNuevo = idEspecimen != null ? idEspecimen : actual.getId_especimen();
+            Date fechaNueva = fechaIngreso != null ? fechaIngreso : actual.getFecha_ingreso();
+            boolean mismoDia = actual.getFecha_ingreso() != null &&
+                    new java.sql.Date(actual.getFecha_ingreso().getTime()).toLocalDate()
+                            .equals(new java.sql.Date(fechaNueva.getTime()).toLocalDate());
+            if ((!especimenNuevo.equals(actual.getId_especimen()) || !mismoDia)
+                    && repository.existsDuplicateByEspecimenAndDate(especimenNuevo, fechaNueva)) {
+                throw new IllegalArgumentException("Ya existe un registro para este especimen en la fecha especificada");
+            }
+        }
+
+        RegistroAlta anterior = repository.patch(id, columnas);
+        if (anterior == null) {
+            throw new IllegalArgumentException("No existe el registro con ID: " + id);
+        }
+
+        // Invalidar cachés del especimen anterior y del nuevo
+        RegistroAlta actualizado = getById(id);
+        Map<String, Object> datos = new HashMap<>();
+        datos.put("fecha", actualizado.getFecha_ingreso());
+        datos.put("fecha_anterior", anterior.getFecha_ingreso());
+        eventoService.publishInterno(EventoService.TIPO_ALTA_ACTUALIZADA, id, actualizado.getId_especimen(), datos);
+        if (!anterior.getId_especimen().equals(actualizado.getId_especimen())) {
+            eventoService.publishInterno(EventoService.TIPO_ALTA_ACTUALIZADA, id, anterior.getId_especimen(), null);
+        }
+
+        return actualizado;
     }
 
     /**
@@ -105,7 +203,13 @@ public class RegistroAltaService {
             throw new IllegalArgumentException("No existe el registro con ID: " + id);
         }
 
-        return repository.delete(id);
+        boolean eliminado = repository.delete(id);
+        if (eliminado) {
+            Map<String, Object> datos = new HashMap<>();
+            datos.put("fecha", existingOptional.get().getFecha_ingreso());
+            eventoService.publishInterno(EventoService.TIPO_ALTA_ELIMINADA, id, existingOptional.get().getId_especimen(), datos);
+        }
+        return eliminado;
     }
 
     /**
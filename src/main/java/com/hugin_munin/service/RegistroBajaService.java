@@ -1,14 +1,22 @@
 package com.hugin_munin.service;
 
 import com.hugin_munin.model.RegistroBaja;
+import com.hugin_munin.repository.Proyeccion;
 import com.hugin_munin.repository.RegistroBajaRepository;
 import com.hugin_munin.repository.EspecimenRepository;
 import com.hugin_munin.repository.UsuarioRepository;
 import com.hugin_munin.repository.CausaBajaRepository;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.HashMap;
 import java.util.Optional;
+import java.util.Set;
 import java.util.Date;
 
 /**
@@ -17,19 +25,24 @@ import java.util.Date;
  */
 public class RegistroBajaService {
 
+    private static final int MAX_LOTE = 1000;
+
     private final RegistroBajaRepository repository;
     private final EspecimenRepository especimenRepository;
     private final UsuarioRepository usuarioRepository;
     private final CausaBajaRepository causaBajaRepository;
+    private final EventoService eventoService;
 
     public RegistroBajaService(RegistroBajaRepository repository,
                                EspecimenRepository especimenRepository,
                                UsuarioRepository usuarioRepository,
-                               CausaBajaRepository causaBajaRepository) {
+                               CausaBajaRepository causaBajaRepository,
+                               EventoService eventoService) {
         this.repository = repository;
         this.especimenRepository = especimenRepository;
         this.usuarioRepository = usuarioRepository;
         this.causaBajaRepository = causaBajaRepository;
+        this.eventoService = eventoService;
     }
 
     /**
@@ -50,7 +63,93 @@ public class RegistroBajaService {
             registro.setFecha_baja(new Date());
         }
 
-        return repository.saveRegister(registro);
+        RegistroBaja creado = repository.saveRegister(registro);
+
+        // Notificar a los suscriptores del feed de eventos
+        Map<String, Object> datos = new HashMap<>();
+        datos.put("fecha", creado.getFecha_baja());
+        datos.put("id_causa_baja", creado.getId_causa_baja());
+        eventoService.publish(EventoService.TIPO_BAJA, creado.getId_registro_baja(), creado.getId_especimen(), datos);
+
+        return creado;
+    }
+
+    /**
+     * CREAR registros de baja para un grupo de especímenes (brote, traslado a otra institución...)
+     * Todas las referencias se validan con una sola consulta; si alguna falla no se registra ninguna baja
+     */
+    public List<RegistroBaja> createBatch(SolicitudBajaLote solicitud) throws SQLException {
+        if (solicitud == null || solicitud.getIds_especimen() == null || solicitud.getIds_especimen().isEmpty()) {
+            throw new IllegalArgumentException("Debe proporcionar al menos un especimen");
+        }
+        if (solicitud.getId_causa_baja() == null || solicitud.getId_causa_baja() <= 0) {
+            throw new IllegalArgumentException("ID de causa de baja inválido");
+        }
+        if (solicitud.getId_responsable() == null || solicitud.getId_responsable() <= 0) {
+            throw new IllegalArgumentException("ID de responsable inválido");
+        }
+
+        List<Integer> ids = new ArrayList<>();
+        for (Integer id : new LinkedHashSet<>(solicitud.getIds_especimen())) {
+            if (id == null || id <= 0) {
+                throw new IllegalArgumentException("ID de especimen inválido: " + id);
+            }
+            ids.add(id);
+        }
+        if (ids.size() > MAX_LOTE) {
+            throw new IllegalArgumentException("El lote excede el máximo de " + MAX_LOTE + " especímenes");
+        }
+
+        Date fecha = solicitud.getFecha_baja() != null ? solicitud.getFecha_baja() : new Date();
+
+        // Validaciones básicas con el mismo criterio que una baja individual
+        List<RegistroBaja> registros = new ArrayList<>();
+        for (Integer id : ids) {
+            RegistroBaja registro = new RegistroBaja(id, solicitud.getId_causa_baja(),
+                    solicitud.getId_responsable(), fecha, solicitud.getObservacion());
+            validateBasicData(registro);
+            registros.add(registro);
+        }
+        if (fecha.after(new Date())) {
+            throw new IllegalArgumentException("La fecha de baja no puede ser futura");
+        }
+
+        // Validaciones de relaciones y reglas de negocio para todo el lote
+        RegistroBajaRepository.ReferenciasLote referencias = repository.findBatchReferences(
+                solicitud.getId_responsable(), solicitud.getId_causa_baja(), ids);
+
+        List<String> errores = new ArrayList<>();
+        if (!referencias.isResponsableExiste()) {
+            errores.add("El responsable con ID " + solicitud.getId_responsable() + " no existe");
+        }
+        if (!referencias.isCausaExiste()) {
+            errores.add("La causa de baja con ID " + solicitud.getId_causa_baja() + " no existe");
+        }
+        for (Integer id : ids) {
+            String estado = referencias.getEstadoEspecimenes().get(id);
+            if (estado == null) {
+                errores.add("El especimen con ID " + id + " no existe");
+            } else if (RegistroBajaRepository.ReferenciasLote.DADO_DE_BAJA.equals(estado)) {
+                errores.add("El especimen con ID " + id + " ya está dado de baja");
+            } else if (RegistroBajaRepository.ReferenciasLote.INACTIVO.equals(estado)) {
+                errores.add("El especimen con ID " + id + " ya está inactivo");
+            }
+        }
+        if (!errores.isEmpty()) {
+            throw new IllegalArgumentException("No se registró ninguna baja: " + String.join("; ", errores));
+        }
+
+        List<RegistroBaja> creados = repository.saveRegisterBatch(registros);
+
+        // Notificar a los suscriptores del feed de eventos
+        for (RegistroBaja creado : creados) {
+            Map<String, Object> datos = new HashMap<>();
+            datos.put("fecha", creado.getFecha_baja());
+            datos.put("id_causa_baja", creado.getId_causa_baja());
+            eventoService.publish(EventoService.TIPO_BAJA, creado.getId_registro_baja(), creado.getId_especimen(), datos);
+        }
+
+        return creados;
     }
 
     /**
@@ -60,6 +159,14 @@ public class RegistroBajaService {
         return repository.findAllRegisters();
     }
 
+    /**
+     * OBTENER todos los registros de baja con proyección parcial
+     * fields: campos separados por coma; expand: relaciones a incluir (p. ej. "especimen.especie,responsable")
+     */
+    public List<Map<String, Object>> getAllParcial(String fields, String expand) throws SQLException {
+        return repository.findAllParcial(Proyeccion.parseLista(fields), Proyeccion.parseLista(expand));
+    }
+
     /**
      * OBTENER registro por ID con información completa
      */
@@ -81,18 +188,60 @@ public class RegistroBajaService {
             throw new IllegalArgumentException("ID del registro obligatorio para actualizar");
         }
 
-        // Verificar que el registro existe
-        Optional<RegistroBaja> existingOptional = repository.findRegistersById(registro.getId_registro_baja());
-        if (existingOptional.isEmpty()) {
-            throw new IllegalArgumentException("No existe el registro con ID: " + registro.getId_registro_baja());
-        }
-
         // Validaciones
         validateBasicData(registro);
         validateForeignKeys(registro);
         validateBusinessRules(registro);
 
-        return repository.updateRegister(registro);
+        // La existencia (y la versión, si se envió) se verifica en la misma transacción del UPDATE
+        RegistroBaja actualizado = repository.updateRegister(registro);
+        if (actualizado == null) {
+            throw new IllegalArgumentException("No existe el registro con ID: " + registro.getId_registro_baja());
+        }
+        return actualizado;
+    }
+
+    /**
+     * ACTUALIZACIÓN PARCIAL (JSON Merge Patch): solo se validan y escriben los campos presentes
+     * Condicional si se envía la versión
+     */
+    public RegistroBaja patch(Integer id, Map<String, Object> parche, Integer versionEsperada) throws SQLException {
+        if (id == null || id <= 0) {
+            throw new IllegalArgumentException("ID del registro obligatorio para actualizar");
+        }
+
+        ParcheJson parcheJson = new ParcheJson(parche, Set.of(
+                "id_especimen", "id_causa_baja", "id_responsable", "fecha_baja", "observacion"));
+
+        Integer idEspecimen = parcheJson.referencia("id_especimen", "El especimen");
+        if (idEspecimen != null) {
+            if (!especimenRepository.existsById(idEspecimen)) {
+                throw new IllegalArgumentException("El especimen con ID " + idEspecimen + " no existe");
+            }
+            // Mover la baja a otro especimen: ese especimen no puede tener ya su propia baja
+            if (!idEspecimen.equals(getById(id).getId_especimen()) && repository.existsByEspecimen(idEspecimen)) {
+                throw new IllegalArgumentException("El especimen ya está dado de baja");
+            }
+        }
+        Integer idResponsable = parcheJson.referencia("id_responsable", "El responsable");
+        if (idResponsable != null && !usuarioRepository.existsById(idResponsable)) {
+            throw new IllegalArgumentException("El responsable con ID " + idResponsable + " no existe");
+        }
+        Integer idCausa = parcheJson.referencia("id_causa_baja", "La causa de baja");
+        if (idCausa != null && causaBajaRepository.findById(idCausa).isEmpty()) {
+            throw new IllegalArgumentException("La causa de baja con ID " + idCausa + " no existe");
+        }
+        parcheJson.fecha("fecha_baja", "La fecha de baja");
+        parcheJson.texto("observacion", 1, 500, "La observación");
+
+        boolean existe = parcheJson.getColumnas().isEmpty()
+                ? versionEsperada == null || repository.verificarVersion(id, versionEsperada)
+                : repository.patch(id, parcheJson.getColumnas(), versionEsperada);
+        if (!existe) {
+            throw new IllegalArgumentException("No existe el registro con ID: " + id);
+        }
+
+        return getById(id);
     }
 
     /**
@@ -248,4 +397,40 @@ public class RegistroBajaService {
             throw new IllegalArgumentException("No se puede dar de baja un especimen que ya está inactivo");
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Solicitud de baja para un grupo de especímenes con causa, responsable y observación comunes
+     */
+    public static class SolicitudBajaLote {
+        @JsonProperty("ids_especimen")
+        private List<Integer> ids_especimen;
+
+        @JsonProperty("id_causa_baja")
+        private Integer id_causa_baja;
+
+        @JsonProperty("id_responsable")
+        private Integer id_responsable;
+
+        @JsonProperty("fecha_baja")
+        private Date fecha_baja;
+
+        @JsonProperty("observacion")
+        private String observacion;
+
+        // Getters y setters
+        public List<Integer> getIds_especimen() { return ids_especimen; }
+        public void setIds_especimen(List<Integer> ids_especimen) { this.ids_especimen = ids_especimen; }
+
+        public Integer getId_causa_baja() { return id_causa_baja; }
+        public void setId_causa_baja(Integer id_causa_baja) { this.id_causa_baja = id_causa_baja; }
+
+        public Integer getId_responsable() { return id_responsable; }
+        public void setId_responsable(Integer id_responsable) { this.id_responsable = id_responsable; }
+
+        public Date getFecha_baja() { return fecha_baja; }
+        public void setFecha_baja(Date fecha_baja) { this.fecha_baja = fecha_baja; }
+
+        public String getObservacion() { return observacion; }
+        public void setObservacion(String observacion) { this.observacion = observacion; }
+    }
+}
@@ -1,6 +1,7 @@
 package com.hugin_munin.service;
 
 import com.hugin_munin.model.Reporte;
+import com.hugin_munin.repository.Proyeccion;
 import com.hugin_munin.repository.ReporteRepository;
 import com.hugin_munin.repository.TipoReporteRepository;
 import com.hugin_munin.repository.EspecimenRepository;
@@ -11,6 +12,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Optional;
+import java.util.Set;
 import java.util.Date;
 
 /**
@@ -41,6 +43,14 @@ public class ReporteService {
         return reporteRepository.findAll();
     }
 
+    /**
+     * OBTENER todos los reportes con proyección parcial
+     * fields: campos separados por coma; expand: relaciones a incluir (p. ej. "especimen.especie,responsable")
+     */
+    public List<Map<String, Object>> getAllReportesParcial(String fields, String expand) throws SQLException {
+        return reporteRepository.findAllParcial(Proyeccion.parseLista(fields), Proyeccion.parseLista(expand));
+    }
+
     /**
      * OBTENER reporte por ID
      */
@@ -171,6 +181,29 @@ public class ReporteService {
         return reporte;
     }
 
+    /**
+     * ACTUALIZACIÓN PARCIAL (JSON Merge Patch) del reporte
+     * Solo se validan y escriben los campos presentes; condicional si se envía la versión
+     */
+    public Reporte patchReporte(Integer id, Map<String, Object> parche, Integer versionEsperada) throws SQLException {
+        if (id == null || id <= 0) {
+            throw new IllegalArgumentException("ID del reporte requerido para actualización");
+        }
+
+        ParcheJson parcheJson = new ParcheJson(parche, Set.of(
+                "id_tipo_reporte", "id_especimen", "id_responsable", "asunto", "contenido", "fecha_reporte"));
+        validatePatchFields(parcheJson);
+
+        boolean existe = parcheJson.getColumnas().isEmpty()
+                ? versionEsperada == null || reporteRepository.verificarVersion(id, versionEsperada)
+                : reporteRepository.patch(id, parcheJson.getColumnas(), versionEsperada);
+        if (!existe) {
+            throw new IllegalArgumentException("Reporte no encontrado con ID: " + id);
+        }
+
+        return getReporteById(id);
+    }
+
     /**
      * ELIMINAR reporte
      */
@@ -227,6 +260,30 @@ public class ReporteService {
         }
     }
 
+    /**
+     * Validar los campos presentes en un parche (mismas reglas que validateReporteData y validateForeignKeys)
+     */
+    private void validatePatchFields(ParcheJson parcheJson) throws SQLException {
+        Integer idTipo = parcheJson.referencia("id_tipo_reporte", "El tipo de reporte");
+        if (idTipo != null && !tipoReporteRepository.existsById(idTipo)) {
+            throw new IllegalArgumentException("El tipo de reporte con ID " + idTipo + " no existe");
+        }
+
+        Integer idEspecimen = parcheJson.referencia("id_especimen", "El especimen");
+        if (idEspecimen != null && !especimenRepository.existsById(idEspecimen)) {
+            throw new IllegalArgumentException("El especimen con ID " + idEspecimen + " no existe");
+        }
+
+        Integer idResponsable = parcheJson.referencia("id_responsable", "El responsable");
+        if (idResponsable != null && !usuarioRepository.existsById(idResponsable)) {
+            throw new IllegalArgumentException("El responsable con ID " + idResponsable + " no existe");
+        }
+
+        parcheJson.texto("asunto", 5, 200, "El asunto");
+        parcheJson.texto("contenido", 10, 1000, "El contenido");
+        parcheJson.fecha("fecha_reporte", "La fecha del reporte");
+    }
+
     /**
      * Validar que las referencias foráneas existen
      */
@@ -1,16 +1,24 @@
 package com.hugin_munin.service;
 
 import com.hugin_munin.model.ReporteTraslado;
+import com.hugin_munin.repository.ColumnasParche;
+import com.hugin_munin.repository.Proyeccion;
 import com.hugin_munin.repository.ReporteTrasladoRepository;
 import com.hugin_munin.repository.TipoReporteRepository;
 import com.hugin_munin.repository.EspecimenRepository;
 import com.hugin_munin.repository.UsuarioRepository;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Optional;
+import java.util.Set;
 import java.util.Date;
 
 /**
@@ -19,19 +27,33 @@ import java.util.Date;
  */
 public class ReporteTrasladoService {
 
+    private static final int MAX_LOTE = 1000;
+
     private final ReporteTrasladoRepository reporteTrasladoRepository;
     private final TipoReporteRepository tipoReporteRepository;
     private final EspecimenRepository especimenRepository;
     private final UsuarioRepository usuarioRepository;
+    private final EventoService eventoService;
+    private final AnaliticaTrasladoService analiticaTrasladoService;
+    private final UbicacionService ubicacionService;
+
+    // Lecturas idénticas concurrentes (estadísticas, traslados por especimen) comparten una sola ejecución
+    private final SingleFlight vuelos = new SingleFlight();
 
     public ReporteTrasladoService(ReporteTrasladoRepository reporteTrasladoRepository,
                                   TipoReporteRepository tipoReporteRepository,
                                   EspecimenRepository especimenRepository,
-                                  UsuarioRepository usuarioRepository) {
+                                  UsuarioRepository usuarioRepository,
+                                  EventoService eventoService,
+                                  AnaliticaTrasladoService analiticaTrasladoService,
+                                  UbicacionService ubicacionService) {
         this.reporteTrasladoRepository = reporteTrasladoRepository;
         this.tipoReporteRepository = tipoReporteRepository;
         this.especimenRepository = especimenRepository;
         this.usuarioRepository = usuarioRepository;
+        this.eventoService = eventoService;
+        this.analiticaTrasladoService = analiticaTrasladoService;
+        this.ubicacionService = ubicacionService;
     }
 
     /**
@@ -41,6 +63,14 @@ public class ReporteTrasladoService {
         return reporteTrasladoRepository.findAll();
     }
 
+    /**
+     * OBTENER todos los reportes de traslado con proyección parcial
+     * fields: campos separados por coma; expand: relaciones a incluir (p. ej. "especimen.especie,responsable")
+     */
+    public List<Map<String, Object>> getAllReportesTrasladoParcial(String fields, String expand) throws SQLException {
+        return reporteTrasladoRepository.findAllParcial(Proyeccion.parseLista(fields), Proyeccion.parseLista(expand));
+    }
+
     /**
      * OBTENER reporte de traslado por ID
      */
@@ -125,7 +155,8 @@ public class ReporteTrasladoService {
             throw new IllegalArgumentException("ID de especimen inválido");
         }
 
-        return reporteTrasladoRepository.findByEspecimen(idEspecimen);
+        return vuelos.ejecutar(SingleFlight.clave("getReportesByEspecimen", idEspecimen),
+                () -> reporteTrasladoRepository.findByEspecimen(idEspecimen));
     }
 
     /**
@@ -175,8 +206,97 @@ public class ReporteTrasladoService {
         // Normalizar datos de traslado
         normalizeTrasladoData(reporteTraslado);
 
-        // Guardar reporte de traslado
-        return reporteTrasladoRepository.save(reporteTraslado);
+        // Guardar reporte de traslado (lanza CapacidadExcedidaException si el destino está lleno)
+        ReporteTraslado creado = reporteTrasladoRepository.save(reporteTraslado);
+        vuelos.invalidar();
+        analiticaTrasladoService.registrar(creado.getFecha_reporte(), creado.getArea_origen(), creado.getArea_destino());
+        ubicacionService.refrescar(List.of(creado.getId_especimen()));
+
+        // Notificar a los suscriptores del feed de eventos
+        Map<String, Object> datos = new HashMap<>();
+        datos.put("fecha", creado.getFecha_reporte());
+        datos.put("area_origen", creado.getArea_origen());
+        datos.put("area_destino", creado.getArea_destino());
+        eventoService.publish(EventoService.TIPO_TRASLADO, creado.getId_reporte(), creado.getId_especimen(), datos);
+
+        return creado;
+    }
+
+    /**
+     * CREAR traslado grupal: mismo origen, destino y motivo para varios especímenes
+     * Se valida una sola vez el contenido común y las referencias con una sola consulta;
+     * todos los reportes se guardan en una transacción o ninguno
+     */
+    public List<ReporteTraslado> createTrasladoGrupal(SolicitudTrasladoLote solicitud) throws SQLException {
+        if (solicitud == null || solicitud.getIds_especimen() == null || solicitud.getIds_especimen().isEmpty()) {
+            throw new IllegalArgumentException("Debe proporcionar al menos un especimen");
+        }
+
+        List<Integer> ids = new ArrayList<>();
+        for (Integer id : new LinkedHashSet<>(solicitud.getIds_especimen())) {
+            if (id == null || id <= 0) {
+                throw new IllegalArgumentException("ID de especimen inválido: " + id);
+            }
+            ids.add(id);
+        }
+        if (ids.size() > MAX_LOTE) {
+            throw new IllegalArgumentException("El lote excede el máximo de " + MAX_LOTE + " especímenes");
+        }
+
+        // Validar y normalizar una sola vez los datos comunes
+        solicitud.setId_especimen(ids.get(0));
+        validateReporteData(solicitud);
+        validateTrasladoData(solicitud);
+        if (solicitud.getFecha_reporte() == null) {
+            solicitud.setFecha_reporte(new Date());
+        }
+        normalizeTrasladoData(solicitud);
+
+        // Validar referencias de todo el grupo
+        ReporteTrasladoRepository.ReferenciasTraslado referencias = reporteTrasladoRepository.findBatchReferences(
+                solicitud.getId_tipo_reporte(), solicitud.getId_responsable(), ids);
+
+        if (!referencias.isTipoReporteExiste()) {
+            throw new IllegalArgumentException("El tipo de reporte con ID " + solicitud.getId_tipo_reporte() + " no existe");
+        }
+        if (!referencias.isResponsableExiste()) {
+            throw new IllegalArgumentException("El responsable con ID " + solicitud.getId_responsable() + " no existe");
+        }
+        List<Integer> inexistentes = new ArrayList<>();
+        for (Integer id : ids) {
+            if (!referencias.getEspecimenesExistentes().contains(id)) {
+                inexistentes.add(id);
+            }
+        }
+        if (!inexistentes.isEmpty()) {
+            throw new IllegalArgumentException("Los especímenes con ID " + inexistentes + " no existen");
+        }
+
+        List<ReporteTraslado> traslados = new ArrayList<>();
+        for (Integer id : ids) {
+            ReporteTraslado traslado = new ReporteTraslado(solicitud.getId_tipo_reporte(), id,
+                    solicitud.getId_responsable(), solicitud.getAsunto(), solicitud.getContenido(),
+                    solicitud.getArea_origen(), solicitud.getArea_destino(),
+                    solicitud.getUbicacion_origen(), solicitud.getUbicacion_destino(), solicitud.getMotivo());
+            traslado.setFecha_reporte(solicitud.getFecha_reporte());
+            traslados.add(traslado);
+        }
+
+        List<ReporteTraslado> creados = reporteTrasladoRepository.saveBatch(traslados);
+        vuelos.invalidar();
+        ubicacionService.refrescar(ids);
+
+        // Notificar a los suscriptores del feed de eventos
+        for (ReporteTraslado creado : creados) {
+            analiticaTrasladoService.registrar(creado.getFecha_reporte(), creado.getArea_origen(), creado.getArea_destino());
+            Map<String, Object> datos = new HashMap<>();
+            datos.put("fecha", creado.getFecha_reporte());
+            datos.put("area_origen", creado.getArea_origen());
+            datos.put("area_destino", creado.getArea_destino());
+            eventoService.publish(EventoService.TIPO_TRASLADO, creado.getId_reporte(), creado.getId_especimen(), datos);
+        }
+
+        return creados;
     }
 
     /**
@@ -187,11 +307,6 @@ public class ReporteTrasladoService {
             throw new IllegalArgumentException("ID del reporte requerido para actualización");
         }
 
-        // Verificar que el reporte existe
-        if (!reporteTrasladoRepository.existsById(reporteTraslado.getId_reporte())) {
-            throw new IllegalArgumentException("Reporte de traslado no encontrado con ID: " + reporteTraslado.getId_reporte());
-        }
-
         // Validaciones básicas del reporte padre
         validateReporteData(reporteTraslado);
 
@@ -204,15 +319,93 @@ public class ReporteTrasladoService {
         // Normalizar datos de traslado
         normalizeTrasladoData(reporteTraslado);
 
-        // Actualizar reporte de traslado
-        boolean updated = reporteTrasladoRepository.update(reporteTraslado);
-        if (!updated) {
-            throw new SQLException("No se pudo actualizar el reporte de traslado");
+        // Actualizar reporte de traslado (existencia y versión se verifican bajo el bloqueo de la fila)
+        ReporteTrasladoRepository.Flujo anterior = reporteTrasladoRepository.update(reporteTraslado);
+        vuelos.invalidar();
+        if (anterior == null) {
+            throw new IllegalArgumentException("Reporte de traslado no encontrado con ID: " + reporteTraslado.getId_reporte());
         }
 
+        // Mover el traslado en la analítica: fuera del par/fecha anterior, dentro del nuevo
+        analiticaTrasladoService.retirar(anterior);
+        analiticaTrasladoService.registrar(reporteTraslado.getFecha_reporte(),
+                reporteTraslado.getArea_origen(), reporteTraslado.getArea_destino());
+        // Si el traslado cambió de especimen, el anterior vuelve a su traslado previo
+        ubicacionService.refrescar(List.of(anterior.getIdEspecimen(), reporteTraslado.getId_especimen()));
+
         return reporteTraslado;
     }
 
+    /**
+     * ACTUALIZACIÓN PARCIAL (JSON Merge Patch) de un traslado
+     * Solo se validan y escriben los campos presentes; reporte_traslado no se toca si el parche
+     * solo cambia campos del reporte padre. Condicional si se envía la versión.
+     */
+    public ReporteTraslado patchReporteTraslado(Integer id, Map<String, Object> parche, Integer versionEsperada)
+            throws SQLException {
+        if (id == null || id <= 0) {
+            throw new IllegalArgumentException("ID del reporte requerido para actualización");
+        }
+
+        ParcheJson parcheJson = new ParcheJson(parche, Set.of(
+                "id_tipo_reporte", "id_especimen", "id_responsable", "asunto", "contenido", "fecha_reporte",
+                "area_origen", "area_destino", "ubicacion_origen", "ubicacion_destino", "motivo"));
+        validatePatchFields(parcheJson);
+
+        ColumnasParche columnas = parcheJson.getColumnas();
+        if (columnas.isEmpty()) {
+            // Sin campos no hay UPDATE, pero una versión desactualizada sigue siendo un conflicto
+            if (versionEsperada != null && !reporteTrasladoRepository.verificarVersion(id, versionEsperada)) {
+                throw new IllegalArgumentException("Reporte de traslado no encontrado con ID: " + id);
+            }
+            return getReporteTrasladoById(id);
+        }
+
+        // El traslado debe seguir siendo a un lugar diferente; los lugares que no vienen se leen
+        List<String> lugares = List.of("area_origen", "area_destino", "ubicacion_origen", "ubicacion_destino");
+        if (columnas.contieneAlguna(lugares)) {
+            ReporteTraslado resultante = columnas.getColumnas().containsAll(lugares)
+                    ? new ReporteTraslado() : getReporteTrasladoById(id);
+            lugares.stream().filter(columnas::contiene).forEach(lugar -> {
+                String valor = (String) columnas.get(lugar);
+                switch (lugar) {
+                    case "area_origen" -> resultante.setArea_origen(valor);
+                    case "area_destino" -> resultante.setArea_destino(valor);
+                    case "ubicacion_origen" -> resultante.setUbicacion_origen(valor);
+                    default -> resultante.setUbicacion_destino(valor);
+                }
+            });
+            if (!resultante.isValidTraslado()) {
+                throw new IllegalArgumentException("El traslado debe ser a una ubicación diferente");
+            }
+        }
+
+        ReporteTrasladoRepository.Flujo anterior = reporteTrasladoRepository.patch(id, columnas, versionEsperada);
+        vuelos.invalidar();
+        if (anterior == null) {
+            throw new IllegalArgumentException("Reporte de traslado no encontrado con ID: " + id);
+        }
+
+        // Analítica: solo si cambió la fecha o el par de áreas
+        if (columnas.contieneAlguna(List.of("fecha_reporte", "area_origen", "area_destino"))) {
+            analiticaTrasladoService.retirar(anterior);
+            analiticaTrasladoService.registrar(
+                    columnas.contiene("fecha_reporte") ? (Date) columnas.get("fecha_reporte")
+                            : java.sql.Date.valueOf(anterior.getFecha()),
+                    columnas.contiene("area_origen") ? (String) columnas.get("area_origen") : anterior.getAreaOrigen(),
+                    columnas.contiene("area_destino") ? (String) columnas.get("area_destino") : anterior.getAreaDestino());
+        }
+        if (columnas.contieneAlguna(List.of("id_especimen", "fecha_reporte", "area_destino", "ubicacion_destino"))) {
+            List<Integer> especimenes = new ArrayList<>(List.of(anterior.getIdEspecimen()));
+            if (columnas.contiene("id_especimen")) {
+                especimenes.add((Integer) columnas.get("id_especimen"));
+            }
+            ubicacionService.refrescar(especimenes);
+        }
+
+        return getReporteTrasladoById(id);
+    }
+
     /**
      * ELIMINAR reporte de traslado
      */
@@ -227,50 +420,84 @@ public class ReporteTrasladoService {
         }
 
         // Eliminar reporte de traslado (cascada a tabla padre)
-        return reporteTrasladoRepository.deleteById(id);
+        ReporteTrasladoRepository.Flujo eliminado = reporteTrasladoRepository.deleteById(id);
+        vuelos.invalidar();
+        analiticaTrasladoService.retirar(eliminado);
+        if (eliminado != null) {
+            ubicacionService.refrescar(List.of(eliminado.getIdEspecimen()));
+        }
+        return eliminado != null;
     }
 
     /**
      * OBTENER estadísticas de reportes de traslado
      */
     public Map<String, Object> getReporteTrasladoStatistics() throws SQLException {
-        Map<String, Object> stats = new HashMap<>();
-
-        stats.put("total_traslados", reporteTrasladoRepository.countTotal());
+        return vuelos.ejecutar("getReporteTrasladoStatistics", () -> {
+            Map<String, Object> stats = new HashMap<>();
+
+            // Servidas desde la analítica en memoria
+            stats.put("total_traslados", analiticaTrasladoService.getTotal(null));
+
+            // Obtener áreas más utilizadas como origen
+            List<ReporteTrasladoRepository.AreaEstadistica> areasOrigen =
+                    analiticaTrasladoService.getTopAreas(AnaliticaTrasladoService.TIPO_ORIGEN, null, 10);
+            stats.put("areas_origen_populares", areasOrigen);
+
+            // Obtener áreas más utilizadas como destino
+            List<ReporteTrasladoRepository.AreaEstadistica> areasDestino =
+                    analiticaTrasladoService.getTopAreas(AnaliticaTrasladoService.TIPO_DESTINO, null, 10);
+            stats.put("areas_destino_populares", areasDestino);
+
+            // Totales por ventana móvil
+            Map<String, Long> totalesVentana = new LinkedHashMap<>();
+            for (Integer dias : AnaliticaTrasladoService.VENTANAS) {
+                totalesVentana.put(dias + "_dias", analiticaTrasladoService.getTotal(dias));
+            }
+            stats.put("total_traslados_ventanas", totalesVentana);
 
-        // Obtener áreas más utilizadas como origen
-        List<ReporteTrasladoRepository.AreaEstadistica> areasOrigen =
-                reporteTrasladoRepository.getAreasOrigenMasUsadas(10);
-        stats.put("areas_origen_populares", areasOrigen);
+            return stats;
+        });
+    }
 
-        // Obtener áreas más utilizadas como destino
-        List<ReporteTrasladoRepository.AreaEstadistica> areasDestino =
-                reporteTrasladoRepository.getAreasDestinoMasUsadas(10);
-        stats.put("areas_destino_populares", areasDestino);
+    /**
+     * OBTENER áreas más utilizadas como origen (histórico o últimos 'dias')
+     */
+    public List<ReporteTrasladoRepository.AreaEstadistica> getAreasOrigenPopulares(int limit, Integer dias) throws SQLException {
+        if (limit <= 0) {
+            limit = 10;
+        }
 
-        return stats;
+        return analiticaTrasladoService.getTopAreas(AnaliticaTrasladoService.TIPO_ORIGEN, dias, limit);
     }
 
     /**
-     * OBTENER áreas más utilizadas como origen
+     * OBTENER áreas más utilizadas como destino (histórico o últimos 'dias')
      */
-    public List<ReporteTrasladoRepository.AreaEstadistica> getAreasOrigenPopulares(int limit) throws SQLException {
+    public List<ReporteTrasladoRepository.AreaEstadistica> getAreasDestinoPopulares(int limit, Integer dias) throws SQLException {
         if (limit <= 0) {
             limit = 10;
         }
 
-        return reporteTrasladoRepository.getAreasOrigenMasUsadas(limit);
+        return analiticaTrasladoService.getTopAreas(AnaliticaTrasladoService.TIPO_DESTINO, dias, limit);
     }
 
     /**
-     * OBTENER áreas más utilizadas como destino
+     * OBTENER matriz de flujos origen → destino (histórico o últimos 'dias')
      */
-    public List<ReporteTrasladoRepository.AreaEstadistica> getAreasDestinoPopulares(int limit) throws SQLException {
+    public Map<String, Object> getMatrizFlujos(Integer dias) throws SQLException {
+        return analiticaTrasladoService.getMatriz(dias);
+    }
+
+    /**
+     * OBTENER los pares origen → destino con más traslados
+     */
+    public List<Map<String, Object>> getFlujosPopulares(int limit, Integer dias) throws SQLException {
         if (limit <= 0) {
             limit = 10;
         }
 
-        return reporteTrasladoRepository.getAreasDestinoMasUsadas(limit);
+        return analiticaTrasladoService.getTopFlujos(dias, limit);
     }
 
     // MÉTODOS PRIVADOS DE VALIDACIÓN
@@ -378,6 +605,47 @@ public class ReporteTrasladoService {
         }
     }
 
+    /**
+     * Validar y normalizar los campos presentes en un parche (mismas reglas que la actualización completa)
+     */
+    private void validatePatchFields(ParcheJson parcheJson) throws SQLException {
+        Integer idTipo = parcheJson.referencia("id_tipo_reporte", "El tipo de reporte");
+        if (idTipo != null && !tipoReporteRepository.existsById(idTipo)) {
+            throw new IllegalArgumentException("El tipo de reporte con ID " + idTipo + " no existe");
+        }
+
+        Integer idEspecimen = parcheJson.referencia("id_especimen", "El especimen");
+        if (idEspecimen != null && !especimenRepository.existsById(idEspecimen)) {
+            throw new IllegalArgumentException("El especimen con ID " + idEspecimen + " no existe");
+        }
+
+        Integer idResponsable = parcheJson.referencia("id_responsable", "El responsable");
+        if (idResponsable != null && !usuarioRepository.existsById(idResponsable)) {
+            throw new IllegalArgumentException("El responsable con ID " + idResponsable + " no existe");
+        }
+
+        parcheJson.texto("asunto", 5, 200, "El asunto");
+        parcheJson.texto("contenido", 10, 1000, "El contenido");
+        parcheJson.fecha("fecha_reporte", "La fecha del reporte");
+        parcheJson.texto("motivo", 5, 500, "El motivo");
+
+        String regex = "^[a-zA-ZáéíóúÁÉÍÓÚñÑ0-9\\s\\-\\.]+$";
+        Map<String, String> lugares = new LinkedHashMap<>();
+        lugares.put("area_origen", "El área origen");
+        lugares.put("area_destino", "El área destino");
+        lugares.put("ubicacion_origen", "La ubicación origen");
+        lugares.put("ubicacion_destino", "La ubicación destino");
+        for (Map.Entry<String, String> lugar : lugares.entrySet()) {
+            String valor = parcheJson.texto(lugar.getKey(), 2, 100, lugar.getValue());
+            if (valor != null) {
+                if (!valor.matches(regex)) {
+                    throw new IllegalArgumentException(lugar.getValue() + " contiene caracteres no válidos");
+                }
+                parcheJson.getColumnas().put(lugar.getKey(), capitalizeWords(valor));
+            }
+        }
+    }
+
     /**
      * Normalizar datos de traslado
      */
@@ -413,4 +681,16 @@ public class ReporteTrasladoService {
 
         return result.toString();
     }
-}
\ No newline at end of file
+
+    /**
+     * Solicitud de traslado grupal: datos de traslado comunes y lista de especímenes
+     */
+    public static class SolicitudTrasladoLote extends ReporteTraslado {
+        @JsonProperty("ids_especimen")
+        private List<Integer> ids_especimen;
+
+        // Getters y setters
+        public List<Integer> getIds_especimen() { return ids_especimen; }
+        public void setIds_especimen(List<Integer> ids_especimen) { this.ids_especimen = ids_especimen; }
+    }
+}
@@ -0,0 +1,232 @@
+package com.hugin_munin.service;
+
+import com.hugin_munin.repository.CambioRepository;
+import com.hugin_munin.repository.SerieTemporalRepository;
+import com.hugin_munin.repository.SerieTemporalRepository.ConteoPeriodo;
+
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Servicio de series temporales de altas, bajas y traslados
+ * Los periodos ya cerrados se guardan en caché de forma permanente; solo se consultan
+ * a la base de datos los periodos faltantes o el periodo en curso
+ */
+public class SerieTemporalService {
+
+    private static final Set<String> GRANULARIDADES = Set.of(
+            SerieTemporalRepository.GRANULARIDAD_DIA,
+            SerieTemporalRepository.GRANULARIDAD_SEMANA,
+            SerieTemporalRepository.GRANULARIDAD_MES
+    );
+    private static final int MAX_PERIODOS = 1000;
+
+    private final SerieTemporalRepository serieTemporalRepository;
+    private final Map<String, ConteoPeriodo> cachePeriodosCerrados = new ConcurrentHashMap<>();
+
+    // Marca de invalidación: un conteo consultado antes de una invalidación no se guarda (ver LruCache)
+    private long marca = 0;
+
+    public SerieTemporalService(SerieTemporalRepository serieTemporalRepository, EventoService eventoService,
+                                CambioService cambioService) {
+        this.serieTemporalRepository = serieTemporalRepository;
+
+        // Un alta, baja o traslado con fecha pasada invalida los periodos cerrados que la contienen
+        // (al editar un alta también el periodo de su fecha anterior)
+        eventoService.addListener(evento -> {
+            for (String clave : new String[]{"fecha", "fecha_anterior"}) {
+                Object fecha = evento.get(clave);
+                if (fecha instanceof Date) {
+                    invalidarFecha(toLocalDate((Date) fecha));
+                }
+            }
+        });
+
+        // Altas, bajas y traslados escritos en cualquier instancia (clave: fecha yyyy-MM-dd)
+        cambioService.addHandler(CambioRepository.TABLA_SERIE_TEMPORAL,
+                clave -> invalidarFecha(LocalDate.parse(clave)));
+    }
+
+    /**
+     * OBTENER serie temporal por día, semana o mes en el rango [inicio, fin] (fechas inclusivas)
+     * El rango se amplía a periodos completos para que cada periodo sea cacheable
+     */
+    public Map<String, Object> getSerie(String granularidad, LocalDate inicio, LocalDate fin) throws SQLException {
+        String gran = granularidad == null ? SerieTemporalRepository.GRANULARIDAD_MES : granularidad.trim().toLowerCase();
+        if (!GRANULARIDADES.contains(gran)) {
+            throw new IllegalArgumentException("Granularidad inválida. Valores permitidos: dia, semana, mes");
+        }
+        if (inicio == null || fin == null) {
+            throw new IllegalArgumentException("Las fechas de inicio y fin son requeridas");
+        }
+        if (inicio.isAfter(fin)) {
+            throw new IllegalArgumentException("La fecha de inicio no puede ser posterior a la fecha de fin");
+        }
+
+        LocalDate primerPeriodo = inicioPeriodo(gran, inicio);
+        LocalDate ultimoPeriodo = inicioPeriodo(gran, fin);
+        List<LocalDate> periodos = new ArrayList<>();
+        for (LocalDate p = primerPeriodo; !p.isAfter(ultimoPeriodo); p = siguientePeriodo(gran, p)) {
+            periodos.add(p);
+            if (periodos.size() > MAX_PERIODOS) {
+                throw new IllegalArgumentException("El rango solicitado excede el máximo de " + MAX_PERIODOS + " periodos");
+            }
+        }
+
+        LocalDate hoy = LocalDate.now();
+        Map<LocalDate, ConteoPeriodo> resultado = new HashMap<>();
+        LocalDate primerFaltante = null;
+        LocalDate ultimoFaltante = null;
+
+        for (LocalDate periodo : periodos) {
+            ConteoPeriodo cacheado = cachePeriodosCerrados.get(cacheKey(gran, periodo));
+            if (cacheado != null) {
+                resultado.put(periodo, cacheado);
+            } else {
+                if (primerFaltante == null) {
+                    primerFaltante = periodo;
+                }
+                ultimoFaltante = periodo;
+            }
+        }
+
+        // Una sola consulta GROUP BY cubre el tramo contiguo de periodos no cacheados
+        int periodosDesdeCache = resultado.size();
+        if (primerFaltante != null) {
+            long marcaLectura = getMarca();
+            LocalDate finConsulta = siguientePeriodo(gran, ultimoFaltante);
+            Map<LocalDate, ConteoPeriodo> consultados =
+                    serieTemporalRepository.countByPeriodo(gran, primerFaltante, finConsulta);
+
+            for (LocalDate periodo : periodos) {
+                if (periodo.isBefore(primerFaltante) || periodo.isAfter(ultimoFaltante) || resultado.containsKey(periodo)) {
+                    continue;
+                }
+                ConteoPeriodo conteo = consultados.getOrDefault(periodo, new ConteoPeriodo(0, 0, 0));
+                resultado.put(periodo, conteo);
+
+                // Solo se cachean los periodos que terminaron antes de hoy
+                if (!siguientePeriodo(gran, periodo).isAfter(hoy)) {
+                    guardarSiVigente(cacheKey(gran, periodo), conteo, marcaLectura);
+                }
+            }
+        }
+
+        List<Map<String, Object>> serie = new ArrayList<>();
+        int totalAltas = 0;
+        int totalBajas = 0;
+        int totalTraslados = 0;
+        for (LocalDate periodo : periodos) {
+            ConteoPeriodo conteo = resultado.get(periodo);
+            Map<String, Object> punto = new LinkedHashMap<>();
+            punto.put("periodo", periodo.toString());
+            punto.put("altas", conteo.getAltas());
+            punto.put("bajas", conteo.getBajas());
+            punto.put("traslados", conteo.getTraslados());
+            serie.add(punto);
+
+            totalAltas += conteo.getAltas();
+            totalBajas += conteo.getBajas();
+            totalTraslados += conteo.getTraslados();
+        }
+
+        Map<String, Object> totales = new HashMap<>();
+        totales.put("altas", totalAltas);
+        totales.put("bajas", totalBajas);
+        totales.put("traslados", totalTraslados);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("granularidad", gran);
+        response.put("inicio", primerPeriodo.toString());
+        response.put("fin", siguientePeriodo(gran, ultimoPeriodo).toString());
+        response.put("serie", serie);
+        response.put("totales", totales);
+        response.put("periodos_desde_cache", periodosDesdeCache);
+
+        return response;
+    }
+
+    /**
+     * INVALIDAR los periodos cacheados que contienen la fecha indicada
+     */
+    public synchronized void invalidarFecha(LocalDate fecha) {
+        if (fecha == null) {
+            return;
+        }
+        marca++;
+        for (String gran : GRANULARIDADES) {
+            cachePeriodosCerrados.remove(cacheKey(gran, inicioPeriodo(gran, fecha)));
+        }
+    }
+
+    /**
+     * LIMPIAR completamente la caché de periodos cerrados
+     */
+    public synchronized void limpiarCache() {
+        marca++;
+        cachePeriodosCerrados.clear();
+    }
+
+    /**
+     * OBTENER estadísticas de la caché
+     */
+    public Map<String, Object> getCacheInfo() {
+        Map<String, Object> info = new HashMap<>();
+        info.put("periodos_cacheados", cachePeriodosCerrados.size());
+        return info;
+    }
+
+    // MÉTODOS AUXILIARES
+
+    private synchronized long getMarca() {
+        return marca;
+    }
+
+    /**
+     * Guardar un periodo cerrado solo si no hubo invalidaciones desde que se tomó la marca
+     */
+    private synchronized void guardarSiVigente(String clave, ConteoPeriodo conteo, long marcaLectura) {
+        if (marca == marcaLectura) {
+            cachePeriodosCerrados.put(clave, conteo);
+        }
+    }
+
+    private LocalDate inicioPeriodo(String granularidad, LocalDate fecha) {
+        return switch (granularidad) {
+            case SerieTemporalRepository.GRANULARIDAD_SEMANA -> fecha.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case SerieTemporalRepository.GRANULARIDAD_MES -> fecha.withDayOfMonth(1);
+            default -> fecha;
+        };
+    }
+
+    private LocalDate siguientePeriodo(String granularidad, LocalDate inicioPeriodo) {
+        return switch (granularidad) {
+            case SerieTemporalRepository.GRANULARIDAD_SEMANA -> inicioPeriodo.plus(1, ChronoUnit.WEEKS);
+            case SerieTemporalRepository.GRANULARIDAD_MES -> inicioPeriodo.plusMonths(1);
+            default -> inicioPeriodo.plusDays(1);
+        };
+    }
+
+    private String cacheKey(String granularidad, LocalDate periodo) {
+        return granularidad + ":" + periodo;
+    }
+
+    private LocalDate toLocalDate(Date fecha) {
+        if (fecha instanceof java.sql.Date) {
+            return ((java.sql.Date) fecha).toLocalDate();
+        }
+        return fecha.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+}
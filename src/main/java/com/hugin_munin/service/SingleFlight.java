@@ -0,0 +1,94 @@
+package com.hugin_munin.service;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Agrupación de lecturas idénticas concurrentes (single-flight)
+ * La primera llamada con una clave ejecuta la consulta; las que llegan mientras sigue en curso
+ * esperan y reciben el mismo resultado (o la misma excepción). Al terminar, la clave se libera
+ * antes de publicar el resultado, así que una llamada posterior vuelve a consultar: no hay caché.
+ * Cada escritura del servicio llama a invalidar(): la generación forma parte de la clave, así que
+ * una lectura posterior a la escritura nunca se une a una ejecución iniciada antes de ella.
+ * El resultado se comparte entre hilos y debe tratarse como de solo lectura.
+ */
+public class SingleFlight {
+
+    /**
+     * Consulta agrupable (normalmente una lectura a la base de datos)
+     */
+    @FunctionalInterface
+    public interface Consulta<T> {
+        T ejecutar() throws SQLException;
+    }
+
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> enCurso = new ConcurrentHashMap<>();
+    private final AtomicLong generacion = new AtomicLong();
+
+    /**
+     * Clave a partir del método y sus argumentos
+     */
+    public static String clave(String metodo, Object... argumentos) {
+        return metodo + Arrays.deepToString(argumentos);
+    }
+
+    /**
+     * INVALIDAR las ejecuciones en curso para las llamadas que lleguen a partir de ahora
+     * Llamar después de que la escritura se confirma
+     */
+    public void invalidar() {
+        generacion.incrementAndGet();
+    }
+
+    /**
+     * EJECUTAR la consulta o unirse a la ejecución en curso con la misma clave y generación
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T ejecutar(String clave, Consulta<T> consulta) throws SQLException {
+        String claveVigente = generacion.get() + ":" + clave;
+        CompletableFuture<Object> propio = new CompletableFuture<>();
+        CompletableFuture<Object> existente = enCurso.putIfAbsent(claveVigente, propio);
+        if (existente != null) {
+            return (T) esperar(existente);
+        }
+
+        T resultado;
+        try {
+            resultado = consulta.ejecutar();
+        } catch (SQLException | RuntimeException | Error e) {
+            enCurso.remove(claveVigente, propio);
+            propio.completeExceptionally(e);
+            throw e;
+        }
+        enCurso.remove(claveVigente, propio);
+        propio.complete(resultado);
+        return resultado;
+    }
+
+    // MÉTODOS AUXILIARES
+
+    private Object esperar(CompletableFuture<Object> futuro) throws SQLException {
+        try {
+            return futuro.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Consulta interrumpida mientras esperaba una ejecución en curso", e);
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof SQLException) {
+                throw (SQLException) causa;
+            }
+            if (causa instanceof RuntimeException) {
+                throw (RuntimeException) causa;
+            }
+            if (causa instanceof Error) {
+                throw (Error) causa;
+            }
+            throw new SQLException(causa);
+        }
+    }
+}
@@ -17,6 +17,8 @@ public class TipoReporteService {
 
     private final TipoReporteRepository tipoReporteRepository;
 
+    private final SingleFlight vuelos = new SingleFlight();
+
     public TipoReporteService(TipoReporteRepository tipoReporteRepository) {
         this.tipoReporteRepository = tipoReporteRepository;
     }
@@ -25,7 +27,7 @@ public class TipoReporteService {
      * OBTENER todos los tipos de reporte
      */
     public List<TipoReporte> getAllTipos() throws SQLException {
-        return tipoReporteRepository.findAll();
+        return vuelos.ejecutar("getAllTipos", tipoReporteRepository::findAll);
     }
 
     /**
@@ -68,7 +70,9 @@ public class TipoReporteService {
         tipo.setNombre_tipo_reporte(capitalizeFirstLetter(tipo.getNombre_tipo_reporte().trim()));
 
         // Guardar tipo
-        return tipoReporteRepository.save(tipo);
+        TipoReporte creado = tipoReporteRepository.save(tipo);
+        vuelos.invalidar();
+        return creado;
     }
 
     /**
@@ -98,6 +102,7 @@ public class TipoReporteService {
         tipo.setNombre_tipo_reporte(capitalizeFirstLetter(tipo.getNombre_tipo_reporte().trim()));
         // Actualizar tipo
         boolean updated = tipoReporteRepository.update(tipo);
+        vuelos.invalidar();
         if (!updated) {
             throw new SQLException("No se pudo actualizar el tipo de reporte");
         }
@@ -119,7 +124,9 @@ public class TipoReporteService {
         }
 
         // Eliminación física si no está en uso
-        return tipoReporteRepository.deleteById(id);
+        boolean eliminado = tipoReporteRepository.deleteById(id);
+        vuelos.invalidar();
+        return eliminado;
     }
 
     /**
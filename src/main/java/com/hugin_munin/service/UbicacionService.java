@@ -0,0 +1,312 @@
+package com.hugin_munin.service;
+
+import com.hugin_munin.model.UbicacionActual;
+import com.hugin_munin.repository.CambioRepository;
+import com.hugin_munin.repository.UbicacionActualRepository;
+import com.hugin_munin.repository.UbicacionActualRepository.Capacidad;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Ubicación actual de cada especimen (proyección del traslado más reciente)
+ * - La tabla ubicacion_actual se mantiene en la transacción de cada traslado; aquí se guarda una
+ *   copia en memoria indexada por especimen y por área → ubicación, de modo que la ocupación y los
+ *   especímenes de una ubicación se responden sin consultar MySQL
+ * - Después de cada escritura local se relee la fila de los especímenes afectados; las escrituras de
+ *   otras instancias (y los borrados de reportes) llegan por el registro de cambios (TABLA_ESPECIMEN)
+ * - Capacidades opcionales por ubicación; el límite se verifica al crear traslados, dentro de la transacción
+ */
+public class UbicacionService {
+
+    private final UbicacionActualRepository ubicacionActualRepository;
+
+    private static final int LOTE_REFRESCO = 1000;
+
+    // Refrescos en serie: una lectura más reciente nunca se aplica antes que una anterior
+    private final Object refrescoLock = new Object();
+
+    // Índices en memoria (protegidos por this); null hasta la primera carga
+    private Map<Integer, UbicacionActual> porEspecimen;
+    private final Map<String, Map<String, Set<Integer>>> porArea = new HashMap<>();
+    private final Map<String, Map<String, Integer>> capacidades = new HashMap<>();
+
+    public UbicacionService(UbicacionActualRepository ubicacionActualRepository, CambioService cambioService) {
+        this.ubicacionActualRepository = ubicacionActualRepository;
+
+        // Todas las claves de una lectura del registro en un solo refresco (una acción masiva trae miles)
+        cambioService.addBatchHandler(CambioRepository.TABLA_ESPECIMEN, claves -> {
+            try {
+                if (isCargado()) {
+                    refrescar(claves.stream().map(Integer::valueOf).toList());
+                }
+            } catch (Exception e) {
+                System.err.println("⚠️ No se pudo refrescar la ubicación de " + claves.size() + " especímenes: " + e.getMessage());
+            }
+        });
+        cambioService.addHandler(CambioRepository.TABLA_CAPACIDAD, clave -> {
+            try {
+                if (isCargado()) {
+                    recargarCapacidades();
+                }
+            } catch (Exception e) {
+                System.err.println("⚠️ No se pudieron recargar las capacidades: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * REFRESCAR desde la tabla la ubicación de los especímenes indicados (después de escribir traslados)
+     * La lectura y su aplicación ocurren bajo refrescoLock: dos refrescos simultáneos no pueden aplicar
+     * una fila leída antes sobre otra leída después. Las consultas no esperan la lectura (solo usan this).
+     */
+    public void refrescar(Collection<Integer> especimenes) throws SQLException {
+        if (!isCargado() || especimenes.isEmpty()) {
+            return;
+        }
+
+        List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(especimenes));
+        synchronized (refrescoLock) {
+            for (int desde = 0; desde < ids.size(); desde += LOTE_REFRESCO) {
+                List<Integer> lote = ids.subList(desde, Math.min(desde + LOTE_REFRESCO, ids.size()));
+                Map<Integer, UbicacionActual> leidas = new HashMap<>();
+                for (UbicacionActual ubicacion : ubicacionActualRepository.findByEspecimenes(lote)) {
+                    leidas.put(ubicacion.getId_especimen(), ubicacion);
+                }
+
+                synchronized (this) {
+                    for (Integer id : lote) {
+                        aplicar(id, leidas.get(id));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * OBTENER la ubicación actual de un especimen (vacío si no tiene traslados)
+     */
+    public Optional<UbicacionActual> getUbicacion(Integer idEspecimen) throws SQLException {
+        if (idEspecimen == null || idEspecimen <= 0) {
+            throw new IllegalArgumentException("ID de especimen inválido");
+        }
+        asegurarCargado();
+        synchronized (this) {
+            return Optional.ofNullable(porEspecimen.get(idEspecimen));
+        }
+    }
+
+    /**
+     * OBTENER los especímenes que están en un área (y opcionalmente en una ubicación de esa área)
+     */
+    public List<UbicacionActual> getEspecimenes(String area, String ubicacion) throws SQLException {
+        if (area == null || area.trim().isEmpty()) {
+            throw new IllegalArgumentException("El área es requerida");
+        }
+        asegurarCargado();
+
+        List<UbicacionActual> resultado = new ArrayList<>();
+        synchronized (this) {
+            Map<String, Set<Integer>> ubicaciones = porArea.getOrDefault(area.trim(), Map.of());
+            if (ubicacion == null || ubicacion.trim().isEmpty()) {
+                ubicaciones.values().forEach(ids -> ids.forEach(id -> resultado.add(porEspecimen.get(id))));
+            } else {
+                ubicaciones.getOrDefault(ubicacion.trim(), Set.of()).forEach(id -> resultado.add(porEspecimen.get(id)));
+            }
+        }
+        resultado.sort(Comparator.comparing(UbicacionActual::getId_especimen));
+        return resultado;
+    }
+
+    /**
+     * OBTENER la ocupación de todas las áreas (ordenadas por nombre)
+     */
+    public List<Map<String, Object>> getOcupacion() throws SQLException {
+        asegurarCargado();
+
+        List<Map<String, Object>> resultado = new ArrayList<>();
+        synchronized (this) {
+            Set<String> areas = new TreeSet<>(porArea.keySet());
+            areas.addAll(capacidades.keySet());
+            for (String area : areas) {
+                resultado.add(ocupacionArea(area));
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * OBTENER la ocupación de un área, con el detalle por ubicación
+     */
+    public Map<String, Object> getOcupacionArea(String area) throws SQLException {
+        if (area == null || area.trim().isEmpty()) {
+            throw new IllegalArgumentException("El área es requerida");
+        }
+        asegurarCargado();
+        synchronized (this) {
+            return ocupacionArea(area.trim());
+        }
+    }
+
+    /**
+     * OBTENER las capacidades configuradas
+     */
+    public List<Capacidad> getCapacidades() throws SQLException {
+        return ubicacionActualRepository.findCapacidades();
+    }
+
+    /**
+     * DEFINIR la capacidad máxima de una ubicación
+     */
+    public Capacidad setCapacidad(Capacidad capacidad) throws SQLException {
+        if (capacidad == null || capacidad.getArea() == null || capacidad.getArea().trim().isEmpty()) {
+            throw new IllegalArgumentException("El área es requerida");
+        }
+        if (capacidad.getUbicacion() == null || capacidad.getUbicacion().trim().isEmpty()) {
+            throw new IllegalArgumentException("La ubicación es requerida");
+        }
+        if (capacidad.getCapacidad() <= 0) {
+            throw new IllegalArgumentException("La capacidad debe ser mayor a cero");
+        }
+
+        Capacidad normalizada = new Capacidad(capacidad.getArea().trim(), capacidad.getUbicacion().trim(),
+                capacidad.getCapacidad());
+        ubicacionActualRepository.saveCapacidad(normalizada);
+        if (isCargado()) {
+            recargarCapacidades();
+        }
+        return normalizada;
+    }
+
+    /**
+     * ELIMINAR el límite de una ubicación
+     */
+    public boolean deleteCapacidad(String area, String ubicacion) throws SQLException {
+        if (area == null || area.trim().isEmpty() || ubicacion == null || ubicacion.trim().isEmpty()) {
+            throw new IllegalArgumentException("El área y la ubicación son requeridas");
+        }
+
+        boolean eliminada = ubicacionActualRepository.deleteCapacidad(area.trim(), ubicacion.trim());
+        if (eliminada && isCargado()) {
+            recargarCapacidades();
+        }
+        return eliminada;
+    }
+
+    // MÉTODOS AUXILIARES
+
+    private synchronized boolean isCargado() {
+        return porEspecimen != null;
+    }
+
+    /**
+     * CARGAR los índices por adelantado (calentamiento de arranque) para que la primera consulta no espere
+     */
+    public void cargar() throws SQLException {
+        asegurarCargado();
+    }
+
+    /**
+     * Cargar los índices la primera vez que se consultan
+     */
+    private synchronized void asegurarCargado() throws SQLException {
+        if (porEspecimen != null) {
+            return;
+        }
+
+        porEspecimen = new HashMap<>();
+        porArea.clear();
+        try {
+            for (UbicacionActual ubicacion : ubicacionActualRepository.findAll()) {
+                aplicar(ubicacion.getId_especimen(), ubicacion);
+            }
+            recargarCapacidades();
+        } catch (SQLException e) {
+            porEspecimen = null;
+            throw e;
+        }
+        System.out.println("📍 Ubicaciones actuales cargadas: " + porEspecimen.size() + " especímenes");
+    }
+
+    private void recargarCapacidades() throws SQLException {
+        List<Capacidad> lista = ubicacionActualRepository.findCapacidades();
+        synchronized (this) {
+            capacidades.clear();
+            for (Capacidad capacidad : lista) {
+                capacidades.computeIfAbsent(capacidad.getArea(), k -> new HashMap<>())
+                        .put(capacidad.getUbicacion(), capacidad.getCapacidad());
+            }
+        }
+    }
+
+    /**
+     * Reemplazar la ubicación de un especimen en ambos índices (null: sin ubicación) (llamar con el lock)
+     */
+    private void aplicar(Integer idEspecimen, UbicacionActual nueva) {
+        UbicacionActual anterior = nueva != null ? porEspecimen.put(idEspecimen, nueva) : porEspecimen.remove(idEspecimen);
+
+        if (anterior != null) {
+            Map<String, Set<Integer>> ubicaciones = porArea.get(anterior.getArea());
+            if (ubicaciones != null) {
+                Set<Integer> ids = ubicaciones.get(anterior.getUbicacion());
+                if (ids != null) {
+                    ids.remove(idEspecimen);
+                    if (ids.isEmpty()) {
+                        ubicaciones.remove(anterior.getUbicacion());
+                    }
+                }
+                if (ubicaciones.isEmpty()) {
+                    porArea.remove(anterior.getArea());
+                }
+            }
+        }
+
+        if (nueva != null) {
+            porArea.computeIfAbsent(nueva.getArea(), k -> new HashMap<>())
+                    .computeIfAbsent(nueva.getUbicacion(), k -> new LinkedHashSet<>())
+                    .add(idEspecimen);
+        }
+    }
+
+    /**
+     * Ocupación de un área a partir de los índices (llamar con el lock)
+     */
+    private Map<String, Object> ocupacionArea(String area) {
+        Map<String, Set<Integer>> ubicaciones = porArea.getOrDefault(area, Map.of());
+        Map<String, Integer> limites = capacidades.getOrDefault(area, Map.of());
+
+        Set<String> nombres = new TreeSet<>(ubicaciones.keySet());
+        nombres.addAll(limites.keySet());
+
+        int total = 0;
+        List<Map<String, Object>> detalle = new ArrayList<>();
+        for (String nombre : nombres) {
+            int ocupacion = ubicaciones.getOrDefault(nombre, Set.of()).size();
+            Integer capacidad = limites.get(nombre);
+            total += ocupacion;
+
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("ubicacion", nombre);
+            item.put("ocupacion", ocupacion);
+            item.put("capacidad", capacidad);
+            item.put("disponible", capacidad != null ? Math.max(0, capacidad - ocupacion) : null);
+            detalle.add(item);
+        }
+
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("area", area);
+        resultado.put("ocupacion", total);
+        resultado.put("ubicaciones", detalle);
+        return resultado;
+    }
+}
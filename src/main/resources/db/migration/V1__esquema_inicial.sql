@@ -0,0 +1,125 @@
+-- ==================== V1: Esquema inicial HUGIN_MUNIN ====================
+-- Crea las tablas que usan los repositorios junto con los índices de sus consultas.
+-- En bases de datos existentes las tablas se conservan (IF NOT EXISTS) y los
+-- índices se agregan en V2.
+
+CREATE TABLE IF NOT EXISTS rol (
+    id_rol INT AUTO_INCREMENT PRIMARY KEY,
+    nombre_rol VARCHAR(50) NOT NULL,
+    UNIQUE KEY uq_rol_nombre (nombre_rol)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE IF NOT EXISTS permiso (
+    id_permiso INT AUTO_INCREMENT PRIMARY KEY,
+    nombre_permiso VARCHAR(100) NOT NULL,
+    UNIQUE KEY uq_permiso_nombre (nombre_permiso)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE IF NOT EXISTS rol_permiso (
+    id_rol INT NOT NULL,
+    id_permiso INT NOT NULL,
+    UNIQUE KEY idx_rol_permiso_rol_permiso (id_rol, id_permiso),
+    KEY idx_rol_permiso_permiso (id_permiso),
+    CONSTRAINT fk_rol_permiso_rol FOREIGN KEY (id_rol) REFERENCES rol (id_rol),
+    CONSTRAINT fk_rol_permiso_permiso FOREIGN KEY (id_permiso) REFERENCES permiso (id_permiso)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE IF NOT EXISTS usuario (
+    id_usuario INT AUTO_INCREMENT PRIMARY KEY,
+    id_rol INT NOT NULL,
+    nombre_usuario VARCHAR(100) NOT NULL,
+    correo VARCHAR(150) NOT NULL,
+    contrasena VARCHAR(255) NOT NULL,
+    activo BOOLEAN NOT NULL DEFAULT TRUE,
+    UNIQUE KEY uq_usuario_correo (correo),
+    CONSTRAINT fk_usuario_rol FOREIGN KEY (id_rol) REFERENCES rol (id_rol)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE IF NOT EXISTS especie (
+    id_especie INT AUTO_INCREMENT PRIMARY KEY,
+    genero VARCHAR(100) NOT NULL,
+    especie VARCHAR(100) NOT NULL,
+    KEY idx_especie_genero_especie (genero, especie)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE IF NOT EXISTS especimen (
+    id_especimen INT AUTO_INCREMENT PRIMARY KEY,
+    num_inventario VARCHAR(50) NOT NULL,
+    id_especie INT NOT NULL,
+    nombre_especimen VARCHAR(100) NOT NULL,
+    activo BOOLEAN NOT NULL DEFAULT TRUE,
+    KEY idx_especimen_num_inventario (num_inventario),
+    CONSTRAINT fk_especimen_especie FOREIGN KEY (id_especie) REFERENCES especie (id_especie)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE IF NOT EXISTS origen_alta (
+    id_origen_alta INT AUTO_INCREMENT PRIMARY KEY,
+    nombre_origen_alta VARCHAR(100) NOT NULL
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE IF NOT EXISTS causa_baja (
+    id_causa_baja INT AUTO_INCREMENT PRIMARY KEY,
+    nombre_causa_baja VARCHAR(100) NOT NULL
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE IF NOT EXISTS tipo_reporte (
+    id_tipo_reporte INT AUTO_INCREMENT PRIMARY KEY,
+    nombre_tipo_reporte VARCHAR(100) NOT NULL
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE IF NOT EXISTS registro_alta (
+    id_registro_alta INT AUTO_INCREMENT PRIMARY KEY,
+    id_especimen INT NOT NULL,
+    id_origen_alta INT NOT NULL,
+    id_responsable INT NOT NULL,
+    fecha_ingreso DATETIME NOT NULL,
+    procedencia VARCHAR(200),
+    observacion VARCHAR(500) NOT NULL,
+    KEY idx_registro_alta_especimen_fecha (id_especimen, fecha_ingreso),
+    KEY idx_registro_alta_fecha (fecha_ingreso),
+    CONSTRAINT fk_registro_alta_especimen FOREIGN KEY (id_especimen) REFERENCES especimen (id_especimen),
+    CONSTRAINT fk_registro_alta_origen FOREIGN KEY (id_origen_alta) REFERENCES origen_alta (id_origen_alta),
+    CONSTRAINT fk_registro_alta_responsable FOREIGN KEY (id_responsable) REFERENCES usuario (id_usuario)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE IF NOT EXISTS registro_baja (
+    id_registro_baja INT AUTO_INCREMENT PRIMARY KEY,
+    id_especimen INT NOT NULL,
+    id_causa_baja INT NOT NULL,
+    id_responsable INT NOT NULL,
+    fecha_baja DATETIME NOT NULL,
+    observacion VARCHAR(500) NOT NULL,
+    KEY idx_registro_baja_especimen (id_especimen),
+    KEY idx_registro_baja_fecha (fecha_baja),
+    CONSTRAINT fk_registro_baja_especimen FOREIGN KEY (id_especimen) REFERENCES especimen (id_especimen),
+    CONSTRAINT fk_registro_baja_causa FOREIGN KEY (id_causa_baja) REFERENCES causa_baja (id_causa_baja),
+    CONSTRAINT fk_registro_baja_responsable FOREIGN KEY (id_responsable) REFERENCES usuario (id_usuario)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE IF NOT EXISTS reporte (
+    id_reporte INT AUTO_INCREMENT PRIMARY KEY,
+    id_tipo_reporte INT NOT NULL,
+    id_especimen INT NOT NULL,
+    id_responsable INT NOT NULL,
+    asunto VARCHAR(200) NOT NULL,
+    contenido VARCHAR(1000) NOT NULL,
+    fecha_reporte DATE NOT NULL,
+    KEY idx_reporte_especimen_fecha (id_especimen, fecha_reporte),
+    KEY idx_reporte_responsable (id_responsable),
+    KEY idx_reporte_fecha (fecha_reporte),
+    CONSTRAINT fk_reporte_tipo FOREIGN KEY (id_tipo_reporte) REFERENCES tipo_reporte (id_tipo_reporte),
+    CONSTRAINT fk_reporte_especimen FOREIGN KEY (id_especimen) REFERENCES especimen (id_especimen),
+    CONSTRAINT fk_reporte_responsable FOREIGN KEY (id_responsable) REFERENCES usuario (id_usuario)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE IF NOT EXISTS reporte_traslado (
+    id_reporte INT PRIMARY KEY,
+    area_origen VARCHAR(100) NOT NULL,
+    area_destino VARCHAR(100) NOT NULL,
+    ubicacion_origen VARCHAR(100) NOT NULL,
+    ubicacion_destino VARCHAR(100) NOT NULL,
+    motivo VARCHAR(500) NOT NULL,
+    KEY idx_traslado_area_origen (area_origen),
+    KEY idx_traslado_area_destino (area_destino),
+    CONSTRAINT fk_reporte_traslado_reporte FOREIGN KEY (id_reporte) REFERENCES reporte (id_reporte) ON DELETE CASCADE
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
@@ -0,0 +1,34 @@
+-- ==================== V2: Índices para bases de datos existentes ====================
+-- Mismos nombres que en V1: en instalaciones nuevas cada sentencia falla con
+-- "nombre de índice duplicado" (1061) y el migrador la omite.
+
+CREATE INDEX idx_especimen_num_inventario ON especimen (num_inventario);
+
+CREATE INDEX idx_reporte_especimen_fecha ON reporte (id_especimen, fecha_reporte);
+CREATE INDEX idx_reporte_responsable ON reporte (id_responsable);
+CREATE INDEX idx_reporte_fecha ON reporte (fecha_reporte);
+
+CREATE INDEX idx_traslado_area_origen ON reporte_traslado (area_origen);
+CREATE INDEX idx_traslado_area_destino ON reporte_traslado (area_destino);
+
+CREATE INDEX idx_registro_alta_especimen_fecha ON registro_alta (id_especimen, fecha_ingreso);
+CREATE INDEX idx_registro_alta_fecha ON registro_alta (fecha_ingreso);
+
+CREATE INDEX idx_registro_baja_especimen ON registro_baja (id_especimen);
+CREATE INDEX idx_registro_baja_fecha ON registro_baja (fecha_baja);
+
+CREATE INDEX idx_especie_genero_especie ON especie (genero, especie);
+
+-- rol_permiso no tiene clave primaria: antes de exigir unicidad como en V1 se dejan
+-- las asignaciones repetidas en una sola fila (sin duplicados no cambia nada)
+CREATE TEMPORARY TABLE rol_permiso_duplicado AS
+    SELECT id_rol, id_permiso FROM rol_permiso GROUP BY id_rol, id_permiso HAVING COUNT(*) > 1;
+START TRANSACTION;
+DELETE rp FROM rol_permiso rp
+    JOIN rol_permiso_duplicado d ON d.id_rol = rp.id_rol AND d.id_permiso = rp.id_permiso;
+INSERT INTO rol_permiso (id_rol, id_permiso) SELECT id_rol, id_permiso FROM rol_permiso_duplicado;
+COMMIT;
+DROP TEMPORARY TABLE rol_permiso_duplicado;
+
+CREATE UNIQUE INDEX idx_rol_permiso_rol_permiso ON rol_permiso (id_rol, id_permiso);
+CREATE INDEX idx_rol_permiso_permiso ON rol_permiso (id_permiso);
@@ -0,0 +1,8 @@
+-- ==================== V3: Columna generada para nombre científico ====================
+-- Evita evaluar CONCAT(genero, ' ', especie) por fila en las búsquedas por nombre científico.
+
+ALTER TABLE especie
+    ADD COLUMN nombre_cientifico VARCHAR(201)
+        GENERATED ALWAYS AS (CONCAT(genero, ' ', especie)) STORED;
+
+CREATE INDEX idx_especie_nombre_cientifico ON especie (nombre_cientifico);
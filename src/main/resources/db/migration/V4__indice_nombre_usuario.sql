@@ -0,0 +1,4 @@
+-- ==================== V4: Índice para el inicio de sesión ====================
+-- El login busca por nombre de usuario exacto; sin índice cada intento recorre la tabla usuario.
+
+CREATE INDEX idx_usuario_nombre_usuario ON usuario (nombre_usuario);
@@ -0,0 +1,14 @@
+-- ==================== V5: Sesiones persistentes ====================
+-- Tabla usada por JdbcSessionStore (SESSION_STORE=jdbc) para que las sesiones
+-- sobrevivan reinicios y se compartan entre instancias.
+
+CREATE TABLE IF NOT EXISTS sesion (
+    session_id VARCHAR(64) NOT NULL PRIMARY KEY,
+    id_usuario INT NOT NULL,
+    nombre_usuario VARCHAR(100) NOT NULL,
+    creada_en DATETIME(3) NOT NULL,
+    expira_en DATETIME(3) NOT NULL,
+    ultima_actividad DATETIME(3) NOT NULL,
+    KEY idx_sesion_usuario (id_usuario),
+    KEY idx_sesion_expira (expira_en)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
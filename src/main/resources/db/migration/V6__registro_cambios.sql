@@ -0,0 +1,13 @@
+-- ==================== V6: Registro de cambios entre instancias ====================
+-- Las escrituras agregan (tabla, clave) en su misma transacción; cada instancia lee
+-- las filas nuevas por id_cambio e invalida sus cachés locales. Las filas antiguas
+-- se purgan por creado_en.
+
+CREATE TABLE IF NOT EXISTS registro_cambio (
+    id_cambio BIGINT AUTO_INCREMENT PRIMARY KEY,
+    tabla VARCHAR(50) NOT NULL,
+    clave VARCHAR(100) NOT NULL,
+    origen VARCHAR(64) NOT NULL,
+    creado_en DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    KEY idx_registro_cambio_creado (creado_en)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
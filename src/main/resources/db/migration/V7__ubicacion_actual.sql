@@ -0,0 +1,35 @@
+-- ==================== V7: Ubicación actual de cada especimen ====================
+-- Proyección del traslado más reciente (fecha_reporte, id_reporte) de cada especimen.
+-- La mantienen las escrituras de traslados y reportes en su misma transacción.
+-- capacidad_ubicacion es opcional: sin fila, la ubicación no tiene límite.
+
+CREATE TABLE IF NOT EXISTS ubicacion_actual (
+    id_especimen INT NOT NULL PRIMARY KEY,
+    id_reporte INT NOT NULL,
+    area VARCHAR(100) NOT NULL,
+    ubicacion VARCHAR(100) NOT NULL,
+    fecha_reporte DATE NOT NULL,
+    KEY idx_ubicacion_actual_area_ubicacion (area, ubicacion),
+    CONSTRAINT fk_ubicacion_actual_especimen FOREIGN KEY (id_especimen) REFERENCES especimen (id_especimen) ON DELETE CASCADE
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE IF NOT EXISTS capacidad_ubicacion (
+    area VARCHAR(100) NOT NULL,
+    ubicacion VARCHAR(100) NOT NULL,
+    capacidad INT NOT NULL,
+    PRIMARY KEY (area, ubicacion)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+-- Carga inicial desde los traslados existentes
+INSERT IGNORE INTO ubicacion_actual (id_especimen, id_reporte, area, ubicacion, fecha_reporte)
+SELECT r.id_especimen, r.id_reporte, rt.area_destino, rt.ubicacion_destino, r.fecha_reporte
+FROM reporte r
+INNER JOIN reporte_traslado rt ON rt.id_reporte = r.id_reporte
+WHERE NOT EXISTS (
+    SELECT 1
+    FROM reporte r2
+    INNER JOIN reporte_traslado rt2 ON rt2.id_reporte = r2.id_reporte
+    WHERE r2.id_especimen = r.id_especimen
+      AND (r2.fecha_reporte > r.fecha_reporte
+           OR (r2.fecha_reporte = r.fecha_reporte AND r2.id_reporte > r.id_reporte))
+);
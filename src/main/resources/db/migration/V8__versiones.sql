@@ -0,0 +1,10 @@
+-- ==================== V8: Versiones para concurrencia optimista ====================
+-- Cada UPDATE incrementa version; las actualizaciones que envían la versión leída
+-- (cuerpo o If-Match) usan WHERE ... AND version = ? y responden 409 si cambió.
+-- En bases que ya tienen la columna, la sentencia falla con 1060 y el migrador la omite.
+
+ALTER TABLE especimen ADD COLUMN version INT NOT NULL DEFAULT 0;
+
+ALTER TABLE reporte ADD COLUMN version INT NOT NULL DEFAULT 0;
+
+ALTER TABLE registro_baja ADD COLUMN version INT NOT NULL DEFAULT 0;
@@ -0,0 +1,50 @@
+package com.hugin_munin.config;
+
+import org.junit.jupiter.api.Test;
+
+import static com.hugin_munin.config.NegotiatingJsonMapper.CBOR;
+import static com.hugin_munin.config.NegotiatingJsonMapper.SMILE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class NegotiatingJsonMapperTest {
+
+    @Test
+    void sinPreferenciaBinariaSeRespondeJson() {
+        assertNull(NegotiatingJsonMapper.formatoPreferido(null));
+        assertNull(NegotiatingJsonMapper.formatoPreferido(""));
+        assertNull(NegotiatingJsonMapper.formatoPreferido("*/*"));
+        assertNull(NegotiatingJsonMapper.formatoPreferido("application/json"));
+    }
+
+    @Test
+    void formatoBinarioExplicito() {
+        assertEquals(CBOR, NegotiatingJsonMapper.formatoPreferido("application/cbor"));
+        assertEquals(SMILE, NegotiatingJsonMapper.formatoPreferido("Application/X-Jackson-Smile"));
+        assertEquals(CBOR, NegotiatingJsonMapper.formatoPreferido("application/cbor, application/json;q=0.5"));
+    }
+
+    @Test
+    void respetaLosValoresQ() {
+        assertNull(NegotiatingJsonMapper.formatoPreferido("application/json, application/cbor;q=0.1"));
+        assertNull(NegotiatingJsonMapper.formatoPreferido("application/cbor;q=0"));
+        assertNull(NegotiatingJsonMapper.formatoPreferido("application/cbor;q=0.5, */*;q=0.5"));
+        assertEquals(SMILE, NegotiatingJsonMapper.formatoPreferido(
+                "application/cbor;q=0.4, application/x-jackson-smile;q=0.9, application/json;q=0.8"));
+        assertEquals(CBOR, NegotiatingJsonMapper.formatoPreferido("*/*;q=0.1, application/cbor"));
+    }
+
+    @Test
+    void valoresQInvalidosNoSonAceptables() {
+        assertNull(NegotiatingJsonMapper.formatoPreferido("application/cbor;q=abc"));
+        assertNull(NegotiatingJsonMapper.formatoPreferido("application/cbor;q=2"));
+    }
+
+    @Test
+    void cuerpoSegunContentType() {
+        assertEquals(CBOR, NegotiatingJsonMapper.formatoCuerpo("application/cbor"));
+        assertEquals(SMILE, NegotiatingJsonMapper.formatoCuerpo("application/x-jackson-smile; charset=binary"));
+        assertNull(NegotiatingJsonMapper.formatoCuerpo("application/json; charset=utf-8"));
+        assertNull(NegotiatingJsonMapper.formatoCuerpo(null));
+    }
+}
@@ -0,0 +1,67 @@
+package com.hugin_munin.controller;
+
+import io.javalin.http.Context;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PrecondicionesTest {
+
+    @Test
+    void ifMatchAceptaEtagFuerteDebilYSinComillas() {
+        assertEquals(5, Precondiciones.versionEsperada(contexto("\"5\""), (Integer) null));
+        assertEquals(5, Precondiciones.versionEsperada(contexto("W/\"5\""), (Integer) null));
+        assertEquals(5, Precondiciones.versionEsperada(contexto(" 5 "), (Integer) null));
+    }
+
+    @Test
+    void ifMatchTienePrioridadSobreElCuerpo() {
+        assertEquals(7, Precondiciones.versionEsperada(contexto("\"7\""), 2));
+        assertEquals(2, Precondiciones.versionEsperada(contexto(null), 2));
+        assertEquals(2, Precondiciones.versionEsperada(contexto("  "), 2));
+    }
+
+    @Test
+    void asteriscoAceptaCualquierVersion() {
+        assertNull(Precondiciones.versionEsperada(contexto("*"), 2));
+    }
+
+    @Test
+    void ifMatchInvalidoSeRechaza() {
+        assertThrows(IllegalArgumentException.class, () -> Precondiciones.versionEsperada(contexto("\"abc\""), (Integer) null));
+        assertThrows(IllegalArgumentException.class, () -> Precondiciones.versionEsperada(contexto("\"-1\""), (Integer) null));
+        assertThrows(IllegalArgumentException.class, () -> Precondiciones.versionEsperada(contexto("\""), (Integer) null));
+    }
+
+    @Test
+    void versionDelCuerpoEnUnParche() {
+        Map<String, Object> cuerpo = new HashMap<>();
+        assertNull(Precondiciones.versionEsperada(contexto(null), cuerpo));
+        assertNull(Precondiciones.versionEsperada(contexto(null), (Map<String, Object>) null));
+
+        cuerpo.put("version", 3L);
+        assertEquals(3, Precondiciones.versionEsperada(contexto(null), cuerpo));
+
+        cuerpo.put("version", "3");
+        assertThrows(IllegalArgumentException.class, () -> Precondiciones.versionEsperada(contexto(null), cuerpo));
+    }
+
+    /**
+     * Contexto que solo responde la cabecera If-Match
+     */
+    private static Context contexto(String ifMatch) {
+        return (Context) Proxy.newProxyInstance(PrecondicionesTest.class.getClassLoader(), new Class<?>[]{Context.class},
+                (p, metodo, args) -> {
+                    if (metodo.getName().equals("header") && args.length == 1 && "If-Match".equals(args[0])) {
+                        return ifMatch;
+                    }
+                    throw new UnsupportedOperationException(metodo.getName());
+                });
+    }
+}
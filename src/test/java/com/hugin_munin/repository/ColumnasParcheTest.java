@@ -0,0 +1,142 @@
+package com.hugin_munin.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ColumnasParcheTest {
+
+    @Test
+    void soloLasColumnasPresentesEntranEnElSet() throws Exception {
+        ConexionFalsa conexion = new ConexionFalsa(1, null);
+        ColumnasParche columnas = new ColumnasParche()
+                .put("nombre_especimen", "Luna")
+                .put("observacion", null);
+
+        int filas = columnas.ejecutar(conexion.proxy(), "especimen", "id_especimen", 9, "version = version + 1", 4);
+
+        assertEquals(1, filas);
+        assertEquals("UPDATE especimen SET nombre_especimen = ?, observacion = ?, version = version + 1"
+                + " WHERE id_especimen = ? AND version = ?", conexion.sql.get(0));
+        assertEquals(List.of("Luna", "NULL", 9, 4), conexion.parametros);
+    }
+
+    @Test
+    void sinVersionLaActualizacionNoEsCondicional() throws Exception {
+        ConexionFalsa conexion = new ConexionFalsa(1, null);
+
+        new ColumnasParche().put("genero", "Panthera").ejecutar(conexion.proxy(), "especie", "id_especie", 3, null, null);
+
+        assertEquals("UPDATE especie SET genero = ? WHERE id_especie = ?", conexion.sql.get(0));
+        assertEquals(List.of("Panthera", 3), conexion.parametros);
+    }
+
+    @Test
+    void subconjuntoPorTabla() {
+        ColumnasParche columnas = new ColumnasParche()
+                .put("asunto", "Revisión")
+                .put("area_destino", "Clínica");
+
+        ColumnasParche traslado = columnas.solo(List.of("area_origen", "area_destino"));
+
+        assertEquals(Set.of("area_destino"), traslado.getColumnas());
+        assertEquals("Clínica", traslado.get("area_destino"));
+        assertEquals(true, columnas.contieneAlguna(List.of("fecha_reporte", "asunto")));
+        assertEquals(true, columnas.solo(List.of("motivo")).isEmpty());
+    }
+
+    @Test
+    void conflictoDeVersionCuandoLaFilaExiste() {
+        ConexionFalsa conexion = new ConexionFalsa(0, 6);
+
+        ConflictoVersionException conflicto = assertThrows(ConflictoVersionException.class,
+                () -> ConflictoVersionException.verificar(conexion.proxy(), "especimen", "id_especimen", 9, 4));
+
+        assertEquals(9, conflicto.getId());
+        assertEquals(4, conflicto.getVersionEsperada());
+        assertEquals(6, conflicto.getVersionActual());
+        assertEquals("SELECT version FROM especimen WHERE id_especimen = ?", conexion.sql.get(0));
+    }
+
+    @Test
+    void sinConflictoCuandoLaFilaNoExiste() {
+        ConexionFalsa conexion = new ConexionFalsa(0, null);
+
+        assertDoesNotThrow(() -> ConflictoVersionException.verificar(conexion.proxy(), "especimen", "id_especimen", 9, 4));
+    }
+
+    @Test
+    void parcheVacioTambienCompruebaLaVersion() throws Exception {
+        assertEquals(true, ConflictoVersionException.comprobar(new ConexionFalsa(0, 4).proxy(), "reporte", "id_reporte", 9, 4));
+        assertEquals(false, ConflictoVersionException.comprobar(new ConexionFalsa(0, null).proxy(), "reporte", "id_reporte", 9, 4));
+
+        ConflictoVersionException conflicto = assertThrows(ConflictoVersionException.class,
+                () -> ConflictoVersionException.comprobar(new ConexionFalsa(0, 6).proxy(), "reporte", "id_reporte", 9, 4));
+        assertEquals(6, conflicto.getVersionActual());
+    }
+
+    /**
+     * Conexión que registra el SQL y los parámetros; el UPDATE afecta filasAfectadas filas
+     * y el SELECT de versión retorna versionActual (null: la fila no existe)
+     */
+    private static class ConexionFalsa {
+        private final int filasAfectadas;
+        private final Integer versionActual;
+        private final List<String> sql = new ArrayList<>();
+        private final List<Object> parametros = new ArrayList<>();
+
+        ConexionFalsa(int filasAfectadas, Integer versionActual) {
+            this.filasAfectadas = filasAfectadas;
+            this.versionActual = versionActual;
+        }
+
+        Connection proxy() {
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                    (p, metodo, args) -> {
+                        if (metodo.getName().equals("prepareStatement")) {
+                            sql.add((String) args[0]);
+                            return sentencia();
+                        }
+                        throw new UnsupportedOperationException(metodo.getName());
+                    });
+        }
+
+        private PreparedStatement sentencia() {
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                    (p, metodo, args) -> switch (metodo.getName()) {
+                        case "setObject", "setInt", "setString" -> parametros.add(args[1]);
+                        case "setNull" -> parametros.add("NULL");
+                        case "executeUpdate" -> filasAfectadas;
+                        case "executeQuery" -> resultado();
+                        case "close" -> null;
+                        default -> throw new UnsupportedOperationException(metodo.getName());
+                    });
+        }
+
+        private ResultSet resultado() {
+            boolean[] leida = {false};
+            return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ResultSet.class},
+                    (p, metodo, args) -> switch (metodo.getName()) {
+                        case "next" -> {
+                            boolean hay = versionActual != null && !leida[0];
+                            leida[0] = true;
+                            yield hay;
+                        }
+                        case "getInt" -> versionActual;
+                        case "close" -> null;
+                        default -> throw new SQLException("No soportado: " + metodo.getName());
+                    });
+        }
+    }
+}
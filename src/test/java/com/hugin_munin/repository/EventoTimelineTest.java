@@ -0,0 +1,30 @@
+package com.hugin_munin.repository;
+
+import com.hugin_munin.config.NegotiatingJsonMapper;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EventoTimelineTest {
+
+    @Test
+    void serializaEnSnakeCaseComoElRestoDeLaApi() {
+        EspecimenRepository.EventoTimeline evento = new EspecimenRepository.EventoTimeline(
+                "traslado", 3, 41, Timestamp.valueOf("2024-03-05 10:30:00"), 7, 12,
+                "Traslado programado", "Revisión", "Felinos", "Clínica");
+
+        NegotiatingJsonMapper mapper = new NegotiatingJsonMapper();
+        @SuppressWarnings("unchecked")
+        Map<String, Object> json = mapper.fromJsonString(mapper.toJsonString(evento, EspecimenRepository.EventoTimeline.class), Map.class);
+
+        assertEquals(Set.of("tipo_evento", "id_evento", "fecha", "id_responsable", "id_referencia",
+                "resumen", "detalle", "area_origen", "area_destino"), json.keySet());
+        assertEquals("traslado", json.get("tipo_evento"));
+        assertEquals(41, json.get("id_evento"));
+        assertEquals("Felinos", json.get("area_origen"));
+    }
+}
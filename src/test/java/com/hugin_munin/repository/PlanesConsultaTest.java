@@ -0,0 +1,84 @@
+package com.hugin_munin.repository;
+
+import com.hugin_munin.config.DatabaseConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * EXPLAIN sobre las consultas que ejecutan los repositorios (las mismas constantes, no copias)
+ * Falla si alguna recorre una tabla completa (type = ALL).
+ * Requiere una base de datos migrada: solo corre si DB_HOST está definido en el entorno.
+ *
+ * EspecieRepository.findSpeciesByScientificName no se verifica: busca con LIKE '%…%',
+ * que no puede usar idx_especie_nombre_cientifico y recorre el catálogo a propósito.
+ */
+@EnabledIfEnvironmentVariable(named = "DB_HOST", matches = ".+")
+class PlanesConsultaTest {
+
+    private static final Map<String, Consulta> CONSULTAS = new LinkedHashMap<>();
+
+    static {
+        CONSULTAS.put("especimen.num_inventario",
+                new Consulta(EspecimenRepository.BUSCAR_POR_INVENTARIO, "X"));
+        CONSULTAS.put("reporte.especimen_fecha",
+                new Consulta(ReporteRepository.BUSCAR_POR_ESPECIMEN, 1));
+        CONSULTAS.put("reporte.responsable",
+                new Consulta(ReporteRepository.BUSCAR_POR_RESPONSABLE, 1));
+        CONSULTAS.put("reporte_traslado.area_origen",
+                new Consulta(ReporteTrasladoRepository.BUSCAR_POR_AREA_ORIGEN, "X"));
+        CONSULTAS.put("reporte_traslado.area_destino",
+                new Consulta(ReporteTrasladoRepository.BUSCAR_POR_AREA_DESTINO, "X"));
+        CONSULTAS.put("ubicacion_actual.area_ubicacion",
+                new Consulta(UbicacionActualRepository.CONTAR_OCUPACION, "X", "Y"));
+        CONSULTAS.put("registro_baja.especimen",
+                new Consulta(RegistroBajaRepository.CONTAR_POR_ESPECIMEN, 1));
+        CONSULTAS.put("registro_alta.fecha",
+                new Consulta(RegistroAltaRepository.CONTAR_POR_RANGO_FECHA,
+                        Date.valueOf("2024-01-01"), Date.valueOf("2024-02-01")));
+        CONSULTAS.put("especie.genero_especie",
+                new Consulta(EspecieRepository.BUSCAR_POR_GENERO_ESPECIE, "X", "Y"));
+        CONSULTAS.put("usuario.nombre_usuario",
+                new Consulta(UsuarioRepository.BUSCAR_POR_NOMBRE_EXACTO, "X"));
+        CONSULTAS.put("rol_permiso.rol_permiso",
+                new Consulta(PermisoRepository.CONTAR_ROL_PERMISO, 1, 1));
+    }
+
+    @Test
+    void consultasPrincipalesUsanIndices() throws Exception {
+        List<String> fallas = new ArrayList<>();
+
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            for (Map.Entry<String, Consulta> consulta : CONSULTAS.entrySet()) {
+                try (PreparedStatement stmt = conn.prepareStatement("EXPLAIN " + consulta.getValue().sql)) {
+                    Object[] parametros = consulta.getValue().parametros;
+                    for (int i = 0; i < parametros.length; i++) {
+                        stmt.setObject(i + 1, parametros[i]);
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            if ("ALL".equalsIgnoreCase(rs.getString("type"))) {
+                                fallas.add(consulta.getKey() + " (tabla " + rs.getString("table") + ")");
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        assertTrue(fallas.isEmpty(), "Consultas que recorren la tabla completa: " + fallas);
+    }
+
+    private record Consulta(String sql, Object... parametros) {
+    }
+}
@@ -0,0 +1,117 @@
+package com.hugin_munin.repository;
+
+import com.hugin_munin.config.NegotiatingJsonMapper;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProyeccionTest {
+
+    private static final Proyeccion PROYECCION = new Proyeccion("FROM registro_alta ra")
+            .campo("id_registro_alta", "ra.id_registro_alta")
+            .campo("fecha_ingreso", "ra.fecha_ingreso")
+            .relacion("especimen", "LEFT JOIN especimen esp ON ra.id_especimen = esp.id_especimen",
+                    "id_especimen", "esp.id_especimen", "nombre_especimen", "esp.nombre_especimen")
+            .relacion("especimen.especie", "LEFT JOIN especie e ON esp.id_especie = e.id_especie",
+                    "id_especie", "e.id_especie", "genero", "e.genero");
+
+    @Test
+    void fechaDatetimeSeLeeComoTimestampYSeSerializa() throws Exception {
+        LocalDateTime ingreso = LocalDateTime.of(2024, 3, 5, 10, 30);
+        Proyeccion.Seleccion seleccion = PROYECCION.seleccionar(Set.of("id_registro_alta", "fecha_ingreso"), Set.of());
+
+        Map<String, Object> fila = seleccion.mapear(filaFalsa(
+                new int[]{Types.INTEGER, Types.TIMESTAMP},
+                new Object[]{7, ingreso}));
+
+        assertEquals(7, fila.get("id_registro_alta"));
+        assertInstanceOf(Timestamp.class, fila.get("fecha_ingreso"));
+        assertEquals(Timestamp.valueOf(ingreso), fila.get("fecha_ingreso"));
+
+        // Antes devolvía LocalDateTime y la serialización fallaba con 500
+        String json = new NegotiatingJsonMapper().toJsonString(fila, Map.class);
+        assertTrue(json.contains("\"fecha_ingreso\""), json);
+    }
+
+    @Test
+    void fechaDateSeLeeComoSqlDate() throws Exception {
+        Proyeccion.Seleccion seleccion = PROYECCION.seleccionar(Set.of("fecha_ingreso"), Set.of());
+
+        Map<String, Object> fila = seleccion.mapear(filaFalsa(
+                new int[]{Types.DATE},
+                new Object[]{java.sql.Date.valueOf("2024-03-05")}));
+
+        assertEquals(java.sql.Date.valueOf("2024-03-05"), fila.get("fecha_ingreso"));
+    }
+
+    @Test
+    void expandAnidadoIncluyeAlPadreYRelacionSinFilaEsNull() throws Exception {
+        Proyeccion.Seleccion seleccion = PROYECCION.seleccionar(Set.of("id_registro_alta"), Set.of("especimen.especie"));
+
+        assertTrue(seleccion.getSql().contains("LEFT JOIN especimen esp"));
+        assertTrue(seleccion.getSql().indexOf("JOIN especimen") < seleccion.getSql().indexOf("JOIN especie"));
+
+        Map<String, Object> fila = seleccion.mapear(filaFalsa(
+                new int[]{Types.INTEGER, Types.INTEGER, Types.VARCHAR, Types.INTEGER, Types.VARCHAR},
+                new Object[]{1, 3, "Luna", null, null}));
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> especimen = (Map<String, Object>) fila.get("especimen");
+        assertEquals("Luna", especimen.get("nombre_especimen"));
+        assertTrue(especimen.containsKey("especie"));
+        assertNull(especimen.get("especie"));
+    }
+
+    @Test
+    void campoORelacionDesconocidosSeRechazan() {
+        assertThrows(IllegalArgumentException.class, () -> PROYECCION.seleccionar(Set.of("password"), Set.of()));
+        assertThrows(IllegalArgumentException.class, () -> PROYECCION.seleccionar(Set.of(), Set.of("usuario")));
+    }
+
+    /**
+     * ResultSet de una sola fila: getObject devuelve el valor tal cual (como el driver, LocalDateTime
+     * para DATETIME) y getTimestamp/getDate lo convierten como lo haría el driver
+     */
+    private static ResultSet filaFalsa(int[] tipos, Object[] valores) {
+        ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(
+                ProyeccionTest.class.getClassLoader(), new Class<?>[]{ResultSetMetaData.class},
+                (proxy, metodo, args) -> switch (metodo.getName()) {
+                    case "getColumnType" -> tipos[(Integer) args[0] - 1];
+                    case "getColumnCount" -> tipos.length;
+                    default -> throw new UnsupportedOperationException(metodo.getName());
+                });
+
+        return (ResultSet) Proxy.newProxyInstance(
+                ProyeccionTest.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, metodo, args) -> {
+                    switch (metodo.getName()) {
+                        case "getMetaData":
+                            return metaData;
+                        case "getObject":
+                            return valores[(Integer) args[0] - 1];
+                        case "getTimestamp": {
+                            Object valor = valores[(Integer) args[0] - 1];
+                            return valor instanceof LocalDateTime ? Timestamp.valueOf((LocalDateTime) valor) : valor;
+                        }
+                        case "getDate":
+                        case "getTime":
+                            return valores[(Integer) args[0] - 1];
+                        default:
+                            throw new UnsupportedOperationException(metodo.getName());
+                    }
+                });
+    }
+}
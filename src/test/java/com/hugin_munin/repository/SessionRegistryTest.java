@@ -0,0 +1,99 @@
+package com.hugin_munin.repository;
+
+import com.hugin_munin.model.Sesion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionRegistryTest {
+
+    private static final long TICK_MS = 1000;
+
+    private SessionRegistry registro;
+    private long inicio;
+
+    @BeforeEach
+    void crearRegistro() {
+        registro = new SessionRegistry(8, TICK_MS);
+        // Inicio del tick siguiente al de creación: la rueda arranca en el tick actual del reloj
+        inicio = (System.currentTimeMillis() / TICK_MS + 1) * TICK_MS;
+    }
+
+    @Test
+    void expiraAlRevisarSuTick() {
+        registro.put(sesion("a", 1, inicio + 1500));
+
+        assertTrue(registro.expirar(inicio + 1000).isEmpty());
+        assertNotNull(registro.get("a"));
+
+        assertEquals(List.of("a"), ids(registro.expirar(inicio + 2000)));
+        assertNull(registro.get("a"));
+        assertEquals(0, registro.size());
+    }
+
+    @Test
+    void sesionExtendidaSeReprogramaSinExpirarAntes() {
+        Sesion sesion = sesion("a", 1, inicio + 1500);
+        registro.put(sesion);
+        sesion.sincronizar(inicio, inicio + 5500);
+
+        assertTrue(registro.expirar(inicio + 2000).isEmpty());
+        assertTrue(registro.expirar(inicio + 4000).isEmpty());
+        assertTrue(registro.expirar(inicio + 5000).isEmpty());
+        assertNotNull(registro.get("a"));
+
+        assertEquals(List.of("a"), ids(registro.expirar(inicio + 6000)));
+    }
+
+    @Test
+    void alcanzaDespuesDeMasDeUnaVuelta() {
+        registro.put(sesion("pronto", 1, inicio + 1500));
+        registro.put(sesion("tarde", 2, inicio + 20500));
+        registro.put(sesion("vigente", 3, inicio + 40500));
+
+        // 30 ticks sin avanzar con 8 ranuras: cada ranura se revisa una sola vez
+        assertEquals(Set.of("pronto", "tarde"), Set.copyOf(ids(registro.expirar(inicio + 30000))));
+        assertNotNull(registro.get("vigente"));
+
+        assertTrue(registro.expirar(inicio + 40000).isEmpty());
+        assertEquals(List.of("vigente"), ids(registro.expirar(inicio + 41000)));
+    }
+
+    @Test
+    void removeByUserLimpiaSesionesEIndice() {
+        registro.put(sesion("a", 7, inicio + 1500));
+        registro.put(sesion("b", 7, inicio + 1500));
+        registro.put(sesion("c", 8, inicio + 1500));
+
+        assertEquals(Set.of("a", "b"), Set.copyOf(ids(registro.removeByUser(7))));
+        assertNull(registro.get("a"));
+        assertNull(registro.get("b"));
+        assertEquals(1, registro.size());
+
+        // El índice del usuario quedó vacío: una sesión nueva es la única que se elimina después
+        assertTrue(registro.removeByUser(7).isEmpty());
+        registro.put(sesion("d", 7, inicio + 1500));
+        assertEquals(List.of("d"), ids(registro.removeByUser(7)));
+
+        // Las entradas de la rueda de las sesiones eliminadas se descartan al pasar
+        assertEquals(List.of("c"), ids(registro.expirar(inicio + 2000)));
+    }
+
+    // MÉTODOS AUXILIARES
+
+    private Sesion sesion(String id, int userId, long expiracion) {
+        return new Sesion(id, userId, "usuario" + userId, inicio, expiracion);
+    }
+
+    private static List<String> ids(List<Sesion> sesiones) {
+        return sesiones.stream().map(Sesion::getSessionId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,76 @@
+package com.hugin_munin.service;
+
+import com.hugin_munin.repository.ReporteTrasladoRepository;
+import com.hugin_munin.repository.ReporteTrasladoRepository.Flujo;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnaliticaTrasladoServiceTest {
+
+    private static final LocalDate HOY = LocalDate.now();
+
+    @Test
+    void cargaInicialDesdeLaBaseDeDatos() throws Exception {
+        RepositorioFalso repositorio = new RepositorioFalso();
+        repositorio.flujos.add(new Flujo(HOY, "Felinos", "Clínica", 3));
+        AnaliticaTrasladoService analitica = new AnaliticaTrasladoService(repositorio);
+
+        assertEquals(3, analitica.getTotal(null));
+        assertEquals(3, analitica.getTotal(7));
+    }
+
+    @Test
+    void deltaDuranteLaReconstruccionNoSePierde() throws Exception {
+        RepositorioFalso repositorio = new RepositorioFalso();
+        repositorio.flujos.add(new Flujo(HOY, "Felinos", "Clínica", 3));
+        AnaliticaTrasladoService analitica = new AnaliticaTrasladoService(repositorio);
+        assertEquals(3, analitica.getTotal(null));
+
+        // Un traslado se crea mientras la reconciliación consulta; la consulta ya no lo ve
+        repositorio.duranteConsulta = () -> analitica.registrar(java.sql.Date.valueOf(HOY), "Aviario", "Cuarentena");
+
+        assertFalse(analitica.reconstruir());
+        assertEquals(4, analitica.getTotal(null));
+        assertEquals(4, analitica.getTotal(30));
+    }
+
+    @Test
+    void reconstruccionSinDeltasReemplazaElEstado() throws Exception {
+        RepositorioFalso repositorio = new RepositorioFalso();
+        repositorio.flujos.add(new Flujo(HOY, "Felinos", "Clínica", 3));
+        AnaliticaTrasladoService analitica = new AnaliticaTrasladoService(repositorio);
+        assertEquals(3, analitica.getTotal(null));
+
+        // Eliminación en cascada que no pasó por el servicio
+        repositorio.flujos.clear();
+        repositorio.flujos.add(new Flujo(HOY, "Felinos", "Clínica", 1));
+
+        assertTrue(analitica.reconstruir());
+        assertEquals(1, analitica.getTotal(null));
+    }
+
+    /**
+     * Flujos en memoria; el mismo total para el histórico y para las cubetas diarias
+     */
+    private static class RepositorioFalso extends ReporteTrasladoRepository {
+        private final List<Flujo> flujos = new ArrayList<>();
+        private Runnable duranteConsulta;
+
+        @Override
+        public List<Flujo> findFlujos(LocalDate desde) {
+            if (duranteConsulta != null) {
+                Runnable accion = duranteConsulta;
+                duranteConsulta = null;
+                accion.run();
+            }
+            return new ArrayList<>(flujos);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.hugin_munin.service;
+
+import com.hugin_munin.repository.CambioRepository;
+import com.hugin_munin.repository.CambioRepository.Cambio;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CambioServiceTest {
+
+    @Test
+    void handlerPorLoteRecibeLasClavesDeUnaLecturaJuntas() {
+        RepositorioFalso repositorio = new RepositorioFalso();
+        for (int i = 1; i <= 1200; i++) {
+            repositorio.agregar(CambioRepository.TABLA_ESPECIMEN, String.valueOf(i % 300));
+        }
+        repositorio.agregar(CambioRepository.TABLA_CAPACIDAD, "Felinos");
+
+        CambioService service = crear(repositorio);
+        List<Set<String>> lotes = new ArrayList<>();
+        List<String> individuales = new ArrayList<>();
+        service.addBatchHandler(CambioRepository.TABLA_ESPECIMEN, lotes::add);
+        service.addHandler(CambioRepository.TABLA_ESPECIMEN, individuales::add);
+
+        service.poll();
+
+        // Tres páginas de lectura, un solo lote con las claves sin repetir
+        assertEquals(1, lotes.size());
+        assertEquals(300, lotes.get(0).size());
+        assertEquals(1200, individuales.size());
+
+        service.poll();
+        assertEquals(1, lotes.size());
+    }
+
+    @Test
+    void loteSeEntregaAunqueLaLecturaFalleAMitad() {
+        RepositorioFalso repositorio = new RepositorioFalso();
+        for (int i = 1; i <= 500; i++) {
+            repositorio.agregar(CambioRepository.TABLA_ESPECIMEN, String.valueOf(i));
+        }
+        repositorio.fallarDespuesDe = 500;
+
+        CambioService service = crear(repositorio);
+        List<Set<String>> lotes = new ArrayList<>();
+        service.addBatchHandler(CambioRepository.TABLA_ESPECIMEN, lotes::add);
+
+        service.poll();
+
+        assertEquals(1, lotes.size());
+        assertEquals(500, lotes.get(0).size());
+    }
+
+    // MÉTODOS AUXILIARES
+
+    private static CambioService crear(RepositorioFalso repositorio) {
+        // CHANGELOG_POLL_MS=0 en la configuración de test: el lector se invoca a mano
+        CambioService service = new CambioService(repositorio);
+        service.poll(); // arranque: toma el id máximo (0)
+        repositorio.visible = true;
+        return service;
+    }
+
+    /**
+     * Registro de cambios en memoria; los cambios solo se ven después del arranque del lector
+     */
+    private static class RepositorioFalso extends CambioRepository {
+        private final List<Cambio> cambios = new ArrayList<>();
+        boolean visible;
+        long fallarDespuesDe = Long.MAX_VALUE;
+
+        void agregar(String tabla, String clave) {
+            cambios.add(new Cambio(cambios.size() + 1, tabla, clave, "otro-nodo"));
+        }
+
+        @Override
+        public long findMaxId() {
+            return 0;
+        }
+
+        @Override
+        public List<Cambio> findDesde(long idExclusivo, int limite) throws SQLException {
+            if (idExclusivo >= fallarDespuesDe) {
+                throw new SQLException("Conexión perdida");
+            }
+            List<Cambio> pagina = new ArrayList<>();
+            if (visible) {
+                cambios.stream().filter(c -> c.getId() > idExclusivo).limit(limite).forEach(pagina::add);
+            }
+            return pagina;
+        }
+
+        @Override
+        public List<Cambio> findByIds(Collection<Long> ids) {
+            return List.of();
+        }
+
+        @Override
+        public int purgeAntesDe(long instanteMs, int limite) {
+            return 0;
+        }
+    }
+}
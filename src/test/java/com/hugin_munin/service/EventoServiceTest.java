@@ -0,0 +1,123 @@
+package com.hugin_munin.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EventoServiceTest {
+
+    @Test
+    void bufferLlenoDescartaElMasAntiguoYLoReporta() throws Exception {
+        EventoService eventos = new EventoService(2, 10);
+        EventoService.Suscriptor suscriptor = eventos.subscribe(null);
+
+        eventos.publish(EventoService.TIPO_ALTA, 1, 1, null);
+        eventos.publish(EventoService.TIPO_ALTA, 2, 2, null);
+        eventos.publish(EventoService.TIPO_ALTA, 3, 3, null);
+
+        assertEquals(1L, eventos.getEstadisticas().get("eventos_descartados"));
+        assertEquals(1L, suscriptor.tomarDescartados());
+        assertEquals(0L, suscriptor.tomarDescartados());
+
+        assertEquals(2, suscriptor.poll(1, TimeUnit.SECONDS).get("id"));
+        assertEquals(3, suscriptor.poll(1, TimeUnit.SECONDS).get("id"));
+        assertNull(suscriptor.poll(10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void publicadoresConcurrentesNoPierdenElEventoNuevo() throws Exception {
+        int publicadores = 8;
+        int porPublicador = 500;
+        EventoService eventos = new EventoService(4, 10);
+        EventoService.Suscriptor suscriptor = eventos.subscribe(null);
+
+        ejecutarEnParalelo(publicadores, i -> {
+            for (int n = 0; n < porPublicador; n++) {
+                eventos.publish(EventoService.TIPO_TRASLADO, n, i, null);
+            }
+        });
+
+        // El buffer queda lleno y cada evento publicado está en él o fue contado como descartado
+        int enBuffer = 0;
+        while (suscriptor.poll(10, TimeUnit.MILLISECONDS) != null) {
+            enBuffer++;
+        }
+        assertEquals(4, enBuffer);
+        assertEquals(publicadores * porPublicador - 4, suscriptor.tomarDescartados());
+    }
+
+    @Test
+    void elLimiteDeSuscriptoresSeRespetaConSuscripcionesSimultaneas() throws Exception {
+        int maximo = 5;
+        EventoService eventos = new EventoService(4, maximo);
+        List<Integer> rechazadas = new ArrayList<>();
+
+        ejecutarEnParalelo(20, i -> {
+            try {
+                eventos.subscribe(null);
+            } catch (IllegalStateException e) {
+                synchronized (rechazadas) {
+                    rechazadas.add(i);
+                }
+            }
+        });
+
+        assertEquals(maximo, eventos.getEstadisticas().get("suscriptores_activos"));
+        assertEquals(20 - maximo, rechazadas.size());
+        assertThrows(IllegalStateException.class, () -> eventos.subscribe(null));
+    }
+
+    @Test
+    void listenersRecibenEventosInternos() {
+        EventoService eventos = new EventoService();
+        List<Map<String, Object>> recibidos = new ArrayList<>();
+        eventos.addListener(recibidos::add);
+
+        eventos.publishInterno(EventoService.TIPO_ALTA_ACTUALIZADA, 4, 9, null);
+
+        assertEquals(1, recibidos.size());
+        assertEquals(9, recibidos.get(0).get("id_especimen"));
+    }
+
+    // MÉTODOS AUXILIARES
+
+    private interface Tarea {
+        void ejecutar(int indice) throws Exception;
+    }
+
+    /**
+     * Ejecutar la tarea en varios hilos que arrancan a la vez
+     */
+    private static void ejecutarEnParalelo(int hilos, Tarea tarea) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        CountDownLatch salida = new CountDownLatch(1);
+        try {
+            List<Future<?>> futuros = new ArrayList<>();
+            for (int i = 0; i < hilos; i++) {
+                int indice = i;
+                futuros.add(executor.submit(() -> {
+                    salida.await();
+                    tarea.ejecutar(indice);
+                    return null;
+                }));
+            }
+            salida.countDown();
+            for (Future<?> futuro : futuros) {
+                futuro.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.hugin_munin.service;
+
+import com.hugin_munin.repository.ExportRepository;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ExportServiceTest {
+
+    private static final int COLUMNAS = ExportRepository.COLUMNAS_INVENTARIO.size();
+
+    @Test
+    void csvEscapaSeparadoresComillasYSaltos() throws Exception {
+        Object[] fila = new Object[COLUMNAS];
+        fila[0] = 1;
+        fila[1] = "INV-1";
+        fila[2] = "Luna, la \"grande\"";
+        fila[3] = true;
+        fila[9] = "Línea 1\nLínea 2";
+        fila[10] = Timestamp.valueOf("2024-03-05 10:30:00");
+        fila[13] = "Área\r";
+
+        String csv = exportar(ExportService.FORMATO_CSV, new RepositorioFalso(List.<Object[]>of(fila), false));
+
+        String[] lineas = csv.split("\r\n", 2);
+        assertEquals(String.join(",", ExportRepository.COLUMNAS_INVENTARIO), lineas[0]);
+        assertEquals("1,INV-1,\"Luna, la \"\"grande\"\"\",true,,,,,,\"Línea 1\nLínea 2\",2024-03-05T10:30,,,\"Área\r\",\r\n",
+                lineas[1]);
+    }
+
+    @Test
+    void ndjsonUnObjetoPorLinea() throws Exception {
+        Object[] primera = new Object[COLUMNAS];
+        primera[0] = 1;
+        primera[3] = false;
+        Object[] segunda = new Object[COLUMNAS];
+        segunda[0] = 2;
+        segunda[2] = "Sol";
+
+        String ndjson = exportar(ExportService.FORMATO_NDJSON, new RepositorioFalso(List.of(primera, segunda), false));
+
+        String[] lineas = ndjson.split("\n");
+        assertEquals(2, lineas.length);
+        assertEquals(true, lineas[0].startsWith("{\"id_especimen\":1,\"num_inventario\":null,\"nombre_especimen\":null,\"activo\":false"));
+        assertEquals(true, lineas[1].contains("\"nombre_especimen\":\"Sol\""));
+        assertEquals(true, ndjson.endsWith("}\n"));
+    }
+
+    @Test
+    void errorAMitadNoCierraElGzip() throws Exception {
+        Object[] fila = new Object[COLUMNAS];
+        fila[0] = 1;
+        ExportService service = new ExportService(new RepositorioFalso(List.<Object[]>of(fila), true));
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+        assertThrows(SQLException.class, () -> service.exportInventario(ExportService.FORMATO_CSV, null, true, salida));
+
+        // Sin trailer gzip el cliente no puede confundir la respuesta con un archivo completo
+        assertThrows(EOFException.class, () -> new GZIPInputStream(new ByteArrayInputStream(salida.toByteArray())).readAllBytes());
+    }
+
+    // MÉTODOS AUXILIARES
+
+    private static String exportar(String formato, ExportRepository repositorio) throws SQLException, IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        new ExportService(repositorio).exportInventario(formato, null, false, salida);
+        return salida.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Repositorio que entrega filas fijas y opcionalmente falla después de la última
+     */
+    private static class RepositorioFalso extends ExportRepository {
+        private final List<Object[]> filas;
+        private final boolean fallar;
+
+        RepositorioFalso(List<Object[]> filas, boolean fallar) {
+            this.filas = filas;
+            this.fallar = fallar;
+        }
+
+        @Override
+        public long streamInventario(Boolean activo, ReceptorFilas receptor) throws SQLException, IOException {
+            for (Object[] fila : filas) {
+                receptor.recibir(fila);
+            }
+            if (fallar) {
+                throw new SQLException("Conexión perdida");
+            }
+            return filas.size();
+        }
+    }
+}
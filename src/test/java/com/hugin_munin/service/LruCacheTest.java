@@ -0,0 +1,83 @@
+package com.hugin_munin.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LruCacheTest {
+
+    @Test
+    void guardaConMarcaVigente() {
+        LruCache<Integer, String> cache = new LruCache<>("prueba", 4);
+
+        long marca = cache.getMarca();
+        assertTrue(cache.putSiVigente(1, "uno", marca));
+        assertEquals("uno", cache.get(1));
+    }
+
+    @Test
+    void lecturaLentaNoGuardaDatosInvalidados() {
+        LruCache<Integer, String> cache = new LruCache<>("prueba", 4);
+
+        // La lectura toma la marca, una escritura invalida y luego la lectura termina
+        long marca = cache.getMarca();
+        cache.invalidate(1);
+
+        assertFalse(cache.putSiVigente(1, "versión anterior", marca));
+        assertNull(cache.get(1));
+    }
+
+    @Test
+    void limpiarTambienInvalidaLasLecturasEnCurso() {
+        LruCache<Integer, String> cache = new LruCache<>("prueba", 4);
+
+        long marca = cache.getMarca();
+        cache.clear();
+
+        assertFalse(cache.putSiVigente(2, "dos", marca));
+        assertTrue(cache.putSiVigente(2, "dos", cache.getMarca()));
+    }
+
+    @Test
+    void desalojaElMenosUsadoRecientemente() {
+        LruCache<Integer, String> cache = new LruCache<>("prueba", 2);
+        cache.putSiVigente(1, "uno", cache.getMarca());
+        cache.putSiVigente(2, "dos", cache.getMarca());
+
+        cache.get(1);
+        cache.putSiVigente(3, "tres", cache.getMarca());
+
+        assertEquals("uno", cache.get(1));
+        assertNull(cache.get(2));
+        assertEquals("tres", cache.get(3));
+        assertEquals(1L, cache.getEstadisticas().get("desalojos"));
+    }
+
+    @Test
+    void estadisticasDeUso() {
+        LruCache<Integer, String> cache = new LruCache<>("prueba", 4);
+        cache.putSiVigente(1, "uno", cache.getMarca());
+
+        cache.get(1);
+        cache.get(2);
+        cache.invalidate(1);
+
+        Map<String, Object> stats = cache.getEstadisticas();
+        assertEquals(1L, stats.get("aciertos"));
+        assertEquals(1L, stats.get("fallos"));
+        assertEquals(50.0, stats.get("tasa_aciertos"));
+        assertEquals(1L, stats.get("invalidaciones"));
+        assertEquals(0, stats.get("entradas"));
+    }
+
+    @Test
+    void capacidadDebeSerPositiva() {
+        assertThrows(IllegalArgumentException.class, () -> new LruCache<Integer, String>("prueba", 0));
+    }
+}
@@ -0,0 +1,95 @@
+package com.hugin_munin.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParcheJsonTest {
+
+    private static final Set<String> CAMPOS = Set.of("nombre", "observacion", "id_especie", "activo", "fecha");
+
+    @Test
+    void camposAusentesNoSeEscriben() {
+        ParcheJson parche = new ParcheJson(Map.of("nombre", "  Luna  "), CAMPOS);
+
+        assertEquals("Luna", parche.texto("nombre", 2, 100, "El nombre"));
+        assertNull(parche.textoOpcional("observacion", 500, "La observación"));
+        assertNull(parche.referencia("id_especie", "La especie"));
+
+        assertEquals(Set.of("nombre"), parche.getColumnas().getColumnas());
+        assertEquals("Luna", parche.getColumnas().get("nombre"));
+    }
+
+    @Test
+    void nullBorraSoloColumnasOpcionales() {
+        Map<String, Object> cuerpo = new HashMap<>();
+        cuerpo.put("observacion", null);
+        cuerpo.put("nombre", null);
+        ParcheJson parche = new ParcheJson(cuerpo, CAMPOS);
+
+        assertNull(parche.textoOpcional("observacion", 500, "La observación"));
+        assertTrue(parche.getColumnas().contiene("observacion"));
+        assertNull(parche.getColumnas().get("observacion"));
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> parche.texto("nombre", 2, 100, "El nombre"));
+        assertEquals("El nombre es obligatorio y no puede borrarse", error.getMessage());
+    }
+
+    @Test
+    void camposDesconocidosSeRechazanYVersionSeIgnora() {
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> new ParcheJson(Map.of("num_inventario", "X-1", "version", 3), CAMPOS));
+        assertTrue(error.getMessage().startsWith("Campos no modificables: [num_inventario]"));
+
+        ParcheJson parche = new ParcheJson(Map.of("version", 3), CAMPOS);
+        assertTrue(parche.getColumnas().isEmpty());
+    }
+
+    @Test
+    void cuerpoNuloSeRechaza() {
+        assertThrows(IllegalArgumentException.class, () -> new ParcheJson(null, CAMPOS));
+    }
+
+    @Test
+    void tiposYRangosSeValidan() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ParcheJson(Map.of("nombre", "L"), CAMPOS).texto("nombre", 2, 100, "El nombre"));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ParcheJson(Map.of("id_especie", 0), CAMPOS).referencia("id_especie", "La especie"));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ParcheJson(Map.of("id_especie", "7"), CAMPOS).referencia("id_especie", "La especie"));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ParcheJson(Map.of("activo", "si"), CAMPOS).booleano("activo", "El estado"));
+
+        ParcheJson parche = new ParcheJson(Map.of("id_especie", 7, "activo", false), CAMPOS);
+        assertEquals(7, parche.referencia("id_especie", "La especie"));
+        assertFalse(parche.booleano("activo", "El estado"));
+    }
+
+    @Test
+    void fechasEnTextoOMilisegundosYNuncaFuturas() {
+        ParcheJson texto = new ParcheJson(Map.of("fecha", "2024-03-05T10:30:00"), CAMPOS);
+        assertEquals(java.sql.Date.valueOf("2024-03-05"), texto.fecha("fecha", "La fecha"));
+        assertEquals(java.sql.Date.valueOf("2024-03-05"), texto.getColumnas().get("fecha"));
+
+        long mediodia = java.sql.Timestamp.valueOf("2024-03-05 12:00:00").getTime();
+        ParcheJson milisegundos = new ParcheJson(Map.of("fecha", mediodia), CAMPOS);
+        assertEquals(java.sql.Date.valueOf("2024-03-05"), milisegundos.fecha("fecha", "La fecha"));
+
+        String manana = LocalDate.now().plusDays(1).toString();
+        assertThrows(IllegalArgumentException.class,
+                () -> new ParcheJson(Map.of("fecha", manana), CAMPOS).fecha("fecha", "La fecha"));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ParcheJson(Map.of("fecha", "05/03/2024"), CAMPOS).fecha("fecha", "La fecha"));
+    }
+}
@@ -0,0 +1,75 @@
+package com.hugin_munin.service;
+
+import com.hugin_munin.repository.CambioRepository;
+import com.hugin_munin.repository.SerieTemporalRepository;
+import com.hugin_munin.repository.SerieTemporalRepository.ConteoPeriodo;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SerieTemporalServiceTest {
+
+    private static final LocalDate DIA = LocalDate.now().minusDays(10);
+
+    /**
+     * Repositorio en memoria: cuenta consultas y permite ejecutar algo mientras "consulta"
+     */
+    private static class RepositorioFalso extends SerieTemporalRepository {
+        final AtomicInteger consultas = new AtomicInteger();
+        int traslados = 1;
+        Runnable durante = () -> { };
+
+        @Override
+        public Map<LocalDate, ConteoPeriodo> countByPeriodo(String granularidad, LocalDate inicio, LocalDate fin) {
+            consultas.incrementAndGet();
+            Map<LocalDate, ConteoPeriodo> conteos = new HashMap<>();
+            conteos.put(DIA, new ConteoPeriodo(0, 0, traslados));
+            durante.run();
+            return conteos;
+        }
+    }
+
+    private SerieTemporalService crear(RepositorioFalso repositorio) {
+        // CHANGELOG_POLL_MS=0 en la configuración de test: sin lector en segundo plano
+        return new SerieTemporalService(repositorio, new EventoService(), new CambioService(new CambioRepository()));
+    }
+
+    @Test
+    void periodoCerradoSeSirveDesdeCache() throws Exception {
+        RepositorioFalso repositorio = new RepositorioFalso();
+        SerieTemporalService service = crear(repositorio);
+
+        service.getSerie("dia", DIA, DIA);
+        Map<String, Object> segunda = service.getSerie("dia", DIA, DIA);
+
+        assertEquals(1, repositorio.consultas.get());
+        assertEquals(1, segunda.get("periodos_desde_cache"));
+    }
+
+    @Test
+    void invalidacionDuranteLaConsultaNoDejaElConteoViejoEnCache() throws Exception {
+        RepositorioFalso repositorio = new RepositorioFalso();
+        SerieTemporalService service = crear(repositorio);
+
+        // Una escritura re-fecha un traslado mientras la consulta está en curso
+        repositorio.durante = () -> {
+            service.invalidarFecha(DIA);
+            repositorio.traslados = 2;
+            repositorio.durante = () -> { };
+        };
+        service.getSerie("dia", DIA, DIA);
+
+        Map<String, Object> siguiente = service.getSerie("dia", DIA, DIA);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> totales = (Map<String, Object>) siguiente.get("totales");
+
+        assertEquals(2, repositorio.consultas.get());
+        assertEquals(0, siguiente.get("periodos_desde_cache"));
+        assertEquals(2, totales.get("traslados"));
+    }
+}
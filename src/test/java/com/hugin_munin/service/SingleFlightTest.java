@@ -0,0 +1,123 @@
+package com.hugin_munin.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    @Test
+    void llamadasConcurrentesComparten() throws Exception {
+        SingleFlight vuelos = new SingleFlight();
+        AtomicInteger ejecuciones = new AtomicInteger();
+        CountDownLatch iniciada = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        ExecutorService hilos = Executors.newFixedThreadPool(2);
+
+        try {
+            Future<Object> primera = hilos.submit(() -> vuelos.ejecutar("clave", () -> {
+                ejecuciones.incrementAndGet();
+                iniciada.countDown();
+                esperar(liberar);
+                return new Object();
+            }));
+            assertTrue(iniciada.await(5, TimeUnit.SECONDS));
+
+            Future<Object> segunda = hilos.submit(() -> vuelos.ejecutar("clave", () -> {
+                ejecuciones.incrementAndGet();
+                return new Object();
+            }));
+            esperarEnCola(segunda);
+            liberar.countDown();
+
+            assertSame(primera.get(5, TimeUnit.SECONDS), segunda.get(5, TimeUnit.SECONDS));
+            assertEquals(1, ejecuciones.get());
+        } finally {
+            hilos.shutdownNow();
+        }
+    }
+
+    @Test
+    void lecturaPosteriorAUnaEscrituraNoSeUneALaEjecucionAnterior() throws Exception {
+        SingleFlight vuelos = new SingleFlight();
+        CountDownLatch iniciada = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        ExecutorService hilos = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<String> anterior = hilos.submit(() -> vuelos.ejecutar("clave", () -> {
+                iniciada.countDown();
+                esperar(liberar);
+                return "antes de la escritura";
+            }));
+            assertTrue(iniciada.await(5, TimeUnit.SECONDS));
+
+            vuelos.invalidar();
+            String posterior = vuelos.ejecutar("clave", () -> "después de la escritura");
+
+            assertEquals("después de la escritura", posterior);
+            liberar.countDown();
+            assertEquals("antes de la escritura", anterior.get(5, TimeUnit.SECONDS));
+        } finally {
+            hilos.shutdownNow();
+        }
+    }
+
+    @Test
+    void laClaveSeLiberaAlTerminar() throws Exception {
+        SingleFlight vuelos = new SingleFlight();
+        AtomicInteger ejecuciones = new AtomicInteger();
+
+        vuelos.ejecutar("clave", ejecuciones::incrementAndGet);
+        vuelos.ejecutar("clave", ejecuciones::incrementAndGet);
+
+        assertEquals(2, ejecuciones.get());
+    }
+
+    @Test
+    void laExcepcionSePropagaYNoQuedaRetenida() throws Exception {
+        SingleFlight vuelos = new SingleFlight();
+
+        assertThrows(SQLException.class, () -> vuelos.ejecutar("clave", () -> {
+            throw new SQLException("sin conexión");
+        }));
+        assertEquals("ok", vuelos.ejecutar("clave", () -> "ok"));
+    }
+
+    @Test
+    void claveIncluyeArgumentos() {
+        assertEquals("metodo[1, 20, null]", SingleFlight.clave("metodo", 1, 20, null));
+    }
+
+    // MÉTODOS AUXILIARES
+
+    private static void esperar(CountDownLatch latch) throws SQLException {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException(e);
+        }
+    }
+
+    /**
+     * La segunda llamada no tiene un punto observable en el que queda esperando;
+     * se le da un margen corto para que llegue a unirse antes de liberar la primera
+     */
+    private static void esperarEnCola(Future<?> llamada) throws InterruptedException {
+        Thread.sleep(100);
+        assertFalse(llamada.isDone());
+    }
+}
@@ -0,0 +1,133 @@
+package com.hugin_munin.service;
+
+import com.hugin_munin.model.UbicacionActual;
+import com.hugin_munin.repository.CambioRepository;
+import com.hugin_munin.repository.UbicacionActualRepository;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UbicacionServiceTest {
+
+    @Test
+    void refrescoMasivoConsultaPorLotes() throws Exception {
+        RepositorioFalso repositorio = new RepositorioFalso();
+        UbicacionService service = crear(repositorio);
+        service.cargar();
+
+        List<Integer> ids = IntStream.rangeClosed(1, 2500).boxed().collect(Collectors.toList());
+        ids.forEach(id -> repositorio.tabla.put(id, ubicacion(id, "Felinos")));
+        service.refrescar(ids);
+
+        assertEquals(3, repositorio.consultas.get());
+        assertEquals(2500, service.getEspecimenes("Felinos", null).size());
+    }
+
+    @Test
+    void refrescosSimultaneosNoAplicanUnaLecturaAnteriorSobreUnaPosterior() throws Exception {
+        RepositorioFalso repositorio = new RepositorioFalso();
+        UbicacionService service = crear(repositorio);
+        service.cargar();
+        repositorio.tabla.put(1, ubicacion(1, "Felinos"));
+
+        // El primer refresco lee "Felinos" y se detiene antes de aplicarlo
+        CountDownLatch leyendo = new CountDownLatch(1);
+        CountDownLatch continuar = new CountDownLatch(1);
+        repositorio.durante = () -> {
+            repositorio.durante = () -> { };
+            leyendo.countDown();
+            await(continuar);
+        };
+        Thread primero = iniciar(() -> service.refrescar(List.of(1)));
+        assertTrue(leyendo.await(5, TimeUnit.SECONDS));
+
+        // Un traslado posterior mueve el especimen y lanza su propio refresco
+        repositorio.tabla.put(1, ubicacion(1, "Clínica"));
+        Thread segundo = iniciar(() -> service.refrescar(List.of(1)));
+        segundo.join(200);
+
+        continuar.countDown();
+        primero.join(5000);
+        segundo.join(5000);
+
+        assertEquals("Clínica", service.getUbicacion(1).orElseThrow().getArea());
+    }
+
+    // MÉTODOS AUXILIARES
+
+    private interface Tarea {
+        void ejecutar() throws Exception;
+    }
+
+    private static UbicacionService crear(RepositorioFalso repositorio) {
+        // CHANGELOG_POLL_MS=0 en la configuración de test: sin lector en segundo plano
+        return new UbicacionService(repositorio, new CambioService(new CambioRepository()));
+    }
+
+    private static UbicacionActual ubicacion(int idEspecimen, String area) {
+        return new UbicacionActual(idEspecimen, idEspecimen, area, "Recinto 1", Date.valueOf("2024-03-05"));
+    }
+
+    private static Thread iniciar(Tarea tarea) {
+        Thread hilo = new Thread(() -> {
+            try {
+                tarea.ejecutar();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        hilo.start();
+        return hilo;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Tabla ubicacion_actual en memoria: cuenta consultas y permite ejecutar algo después de leer
+     */
+    private static class RepositorioFalso extends UbicacionActualRepository {
+        final Map<Integer, UbicacionActual> tabla = new ConcurrentHashMap<>();
+        final AtomicInteger consultas = new AtomicInteger();
+        volatile Runnable durante = () -> { };
+
+        @Override
+        public List<UbicacionActual> findAll() {
+            return new ArrayList<>(tabla.values());
+        }
+
+        @Override
+        public List<Capacidad> findCapacidades() {
+            return List.of();
+        }
+
+        @Override
+        public List<UbicacionActual> findByEspecimenes(Collection<Integer> especimenes) {
+            consultas.incrementAndGet();
+            List<UbicacionActual> leidas = especimenes.stream()
+                    .map(tabla::get)
+                    .filter(java.util.Objects::nonNull)
+                    .collect(Collectors.toList());
+            durante.run();
+            return leidas;
+        }
+    }
+}